@@ -0,0 +1,19 @@
+package ar.edu.itba.pod.callbacks;
+
+import ar.edu.itba.pod.models.ReticketingProgress;
+import ar.edu.itba.pod.models.ResponseCancelledList;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+public interface ReticketingListener extends Remote {
+    /**
+     * Called after the waiting tickets of each cancelled flight were tried
+     */
+    void reticketingProgress(ReticketingProgress progress) throws RemoteException;
+
+    /**
+     * Called once the job is done, with the first page of the tickets still waiting
+     */
+    void reticketingFinished(long jobId, ResponseCancelledList result) throws RemoteException;
+}
@@ -0,0 +1,12 @@
+package ar.edu.itba.pod.callbacks;
+
+import ar.edu.itba.pod.models.FlightState;
+import ar.edu.itba.pod.models.SeatMapDelta;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+public interface SeatMapHandler extends Remote {
+    void notifySeatMapChanged(SeatMapDelta delta) throws RemoteException;
+
+    void notifyFlightClosed(String flightCode, FlightState state) throws RemoteException;
+}
@@ -0,0 +1,24 @@
+package ar.edu.itba.pod.interfaces;
+
+import ar.edu.itba.pod.models.ResultPage;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Pulls the remaining pages of the results the other services return a page at a time. Every
+ * page renews the lease of its cursor, and cursors left alone longer than their lease are
+ * dropped, after which they throw CursorNotFoundException.
+ */
+public interface CursorService extends Remote {
+    /**
+     * Returns the next page of the cursor. Callers know what the cursor holds and take its items
+     * with {@link ResultPage#getItems(Class)}.
+     */
+    ResultPage<?> nextPage(long cursorId, int pageSize) throws RemoteException;
+
+    /**
+     * Drops the cursor before its last page. Unknown cursors are ignored.
+     */
+    void closeCursor(long cursorId) throws RemoteException;
+}
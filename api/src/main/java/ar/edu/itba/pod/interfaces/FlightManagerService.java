@@ -1,5 +1,6 @@
 package ar.edu.itba.pod.interfaces;
 
+import ar.edu.itba.pod.callbacks.ReticketingListener;
 import ar.edu.itba.pod.models.*;
 
 import java.rmi.Remote;
@@ -14,9 +15,44 @@ public interface FlightManagerService extends Remote {
 
     FlightState getFlightState(String flightCode) throws RemoteException;
 
+    /**
+     * Returns the state of every given flight, in the same order. Unknown flights are reported in
+     * their result and do not fail the others.
+     */
+    List<FlightStateResult> getFlightStates(List<String> flightCodes) throws RemoteException;
+
     void confirmFlight(String flightCode) throws RemoteException;
 
     void cancelFlight(String flightCode) throws RemoteException;
 
+    /**
+     * Confirms every given flight in a single state change. Flights that are not pending are
+     * reported in their result and do not stop the others.
+     */
+    List<FlightStateResult> confirmFlights(List<String> flightCodes) throws RemoteException;
+
+    /**
+     * Cancels every given flight in a single state change, like {@link #confirmFlights(List)}
+     */
+    List<FlightStateResult> cancelFlights(List<String> flightCodes) throws RemoteException;
+
     ResponseCancelledList changeCancelledFlights() throws RemoteException;
+
+    /**
+     * Like {@link #changeCancelledFlights()}, with only the first page of the unchanged tickets.
+     * The rest are pulled from {@link CursorService}.
+     */
+    ResponseCancelledList changeCancelledFlights(int pageSize) throws RemoteException;
+
+    /**
+     * Starts the work of {@link #changeCancelledFlights(int)} in the background and returns its
+     * job id right away. The listener hears after each cancelled flight and when the job is done.
+     */
+    long startReticketing(ReticketingListener listener, int pageSize) throws RemoteException;
+
+    /**
+     * Projects what reticketing would do if the given flights were cancelled, without cancelling
+     * them or moving any ticket. Flights already cancelled project their remaining tickets.
+     */
+    ReticketingForecast simulateReticketing(List<String> flightCodes) throws RemoteException;
 }
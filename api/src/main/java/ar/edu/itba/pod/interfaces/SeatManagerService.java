@@ -1,6 +1,11 @@
 package ar.edu.itba.pod.interfaces;
 
 import ar.edu.itba.pod.models.AlternativeFlightResponse;
+import ar.edu.itba.pod.models.ResultPage;
+import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.SeatOperation;
+import ar.edu.itba.pod.models.SeatOperationResult;
+import ar.edu.itba.pod.models.Ticket;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
@@ -11,9 +16,44 @@ public interface SeatManagerService extends Remote {
 
     void assign(String flightCode, String passenger, int row, char seat) throws RemoteException;
 
+    /**
+     * Keeps the seat aside for the passenger for the given seconds, replacing any previous hold of
+     * theirs on the flight. Until it expires only the passenger can be assigned to it.
+     */
+    void hold(String flightCode, String passenger, int row, char seat, int seconds) throws RemoteException;
+
+    /**
+     * Assigns the passenger to the seat they hold
+     */
+    Ticket assignHeld(String flightCode, String passenger) throws RemoteException;
+
+    void releaseHold(String flightCode, String passenger) throws RemoteException;
+
+    /**
+     * Assigns the first free seat of the first category in preferences that has one. An empty list
+     * tries the passenger's category and then the lower ones. Returns the seated ticket.
+     */
+    Ticket assignAuto(String flightCode, String passenger, List<RowCategory> preferences) throws RemoteException;
+
+    /**
+     * Seats all the passengers, in order, on adjacent seats of the same row, or none of them
+     */
+    List<Ticket> assignGroup(String flightCode, List<String> passengers) throws RemoteException;
+
+    /**
+     * Applies the operations in order on a single flight, holding its locks once for the whole
+     * batch. A failed operation does not stop the ones after it.
+     */
+    List<SeatOperationResult> applyBatch(String flightCode, List<SeatOperation> operations) throws RemoteException;
+
     void changeSeat(String flightCode, String passenger, int freeRow, char freeSeat) throws RemoteException;
 
     List<AlternativeFlightResponse> listAlternativeFlights(String flightCode, String passenger) throws RemoteException;
 
+    /**
+     * First page of the alternative flights. The rest are pulled from {@link CursorService}.
+     */
+    ResultPage<AlternativeFlightResponse> listAlternativeFlights(String flightCode, String passenger, int pageSize) throws RemoteException;
+
     void changeFlight(String passenger, String oldFlightCode, String newFlightCode) throws RemoteException;
 }
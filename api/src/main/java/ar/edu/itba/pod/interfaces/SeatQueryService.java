@@ -1,7 +1,11 @@
 package ar.edu.itba.pod.interfaces;
 
+import ar.edu.itba.pod.callbacks.SeatMapHandler;
 import ar.edu.itba.pod.models.ResponseRow;
+import ar.edu.itba.pod.models.ResultPage;
 import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.SeatMapDelta;
+import ar.edu.itba.pod.models.SeatMapResult;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
@@ -13,4 +17,28 @@ public interface SeatQueryService extends Remote {
     List<ResponseRow> query(String flightCode, RowCategory rowCategory) throws RemoteException;
 
     ResponseRow query(String flightCode, int row) throws RemoteException;
+
+    /**
+     * First page of the seat map. Each page is built when it is pulled from
+     * {@link CursorService}, so it shows the rows as they are at that moment.
+     */
+    ResultPage<ResponseRow> queryPage(String flightCode, int pageSize) throws RemoteException;
+
+    /**
+     * Returns the full seat map of every given flight, in the same order. Flights whose map
+     * could not be built are reported in their result and do not fail the others.
+     */
+    List<SeatMapResult> queryFlights(List<String> flightCodes) throws RemoteException;
+
+    /**
+     * Returns the rows changed after {@code sinceVersion}. A negative version asks for the full map.
+     */
+    SeatMapDelta queryChanges(String flightCode, long sinceVersion) throws RemoteException;
+
+    /**
+     * Subscribes the handler to the seat map changes of a pending flight and returns its full map.
+     */
+    SeatMapDelta followSeatMap(String flightCode, SeatMapHandler handler) throws RemoteException;
+
+    void unfollowSeatMap(String flightCode, SeatMapHandler handler) throws RemoteException;
 }
@@ -0,0 +1,47 @@
+package ar.edu.itba.pod.interfaces;
+
+import ar.edu.itba.pod.callbacks.NotificationHandler;
+import ar.edu.itba.pod.models.*;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * Moves tickets between flights owned by different shards. A move admits the ticket on the new
+ * flight, releases it from the old one, and then hands the passenger's handlers over. If the
+ * release fails and the old flight still holds the ticket, the admitted ticket is revoked.
+ */
+public interface ShardTransferService extends Remote {
+    /**
+     * The passenger's ticket on a flight that is not confirmed
+     */
+    Ticket findTicket(String flightCode, String passenger) throws RemoteException;
+
+    /**
+     * Pending flights of this shard to the destination with free seats in the category or lower
+     * ones, with the free seats of each of those categories
+     */
+    List<AlternativeFlightResponse> listFlightsTo(String destination, RowCategory category) throws RemoteException;
+
+    /**
+     * Adds the unseated ticket to a pending flight that has room for its category
+     */
+    void admitTicket(String flightCode, Ticket ticket) throws RemoteException;
+
+    /**
+     * Removes an admitted ticket whose move could not be completed
+     */
+    void revokeTicket(String flightCode, String passenger) throws RemoteException;
+
+    /**
+     * Removes the passenger's ticket, notifies their handlers that it moved to the new flight
+     * and returns those handlers
+     */
+    List<NotificationHandler> releaseTicket(String flightCode, String passenger, String newFlightCode) throws RemoteException;
+
+    /**
+     * Registers handlers released by another shard for the passenger's ticket on this flight
+     */
+    void adoptHandlers(String flightCode, String passenger, List<NotificationHandler> handlers) throws RemoteException;
+}
@@ -0,0 +1,35 @@
+package ar.edu.itba.pod.models;
+
+import java.io.Serializable;
+
+/**
+ * Outcome of one flight in a bulk state change or query: the flight's state after the call, or
+ * the message of the error that left it unchanged
+ */
+public class FlightStateResult implements Serializable {
+    private final String flightCode;
+    private final FlightState state;
+    private final String error;
+
+    public FlightStateResult(String flightCode, FlightState state, String error) {
+        this.flightCode = flightCode;
+        this.state = state;
+        this.error = error;
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    public String getFlightCode() {
+        return flightCode;
+    }
+
+    public FlightState getState() {
+        return state;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
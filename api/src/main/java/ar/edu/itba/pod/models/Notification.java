@@ -56,6 +56,10 @@ public class Notification implements Serializable {
         return newCode;
     }
 
+    public void setNewCode(String newCode) {
+        this.newCode = newCode;
+    }
+
     public String getDestination() {
         return destination;
     }
@@ -6,10 +6,19 @@ import java.util.List;
 public class ResponseCancelledList implements Serializable {
     private final int changed;
     private final List<CancelledTicket> unchangedTickets;
+    private final long cursorId;
 
     public ResponseCancelledList(int changed, List<CancelledTicket> unchangedTickets) {
+        this(changed, unchangedTickets, 0);
+    }
+
+    /**
+     * The unchanged tickets are the first page of them, and the cursor holds the rest if there are more
+     */
+    public ResponseCancelledList(int changed, List<CancelledTicket> unchangedTickets, long cursorId) {
         this.changed = changed;
         this.unchangedTickets = unchangedTickets;
+        this.cursorId = cursorId;
     }
 
     public int getChanged() {
@@ -19,4 +28,12 @@ public class ResponseCancelledList implements Serializable {
     public List<CancelledTicket> getUnchangedTickets() {
         return unchangedTickets;
     }
+
+    public long getCursorId() {
+        return cursorId;
+    }
+
+    public boolean hasMoreTickets() {
+        return cursorId != 0;
+    }
 }
@@ -0,0 +1,58 @@
+package ar.edu.itba.pod.models;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of a result the server hands out a page at a time. While there are more pages the
+ * cursor stays open on the server, and its id pulls them from {@code CursorService}.
+ * Cursor ids carry the shard of the server that holds them in their high bits.
+ */
+public class ResultPage<T> implements Serializable {
+    public static final int SHARD_SHIFT = 48;
+
+    private final long cursorId;
+    private final List<T> items;
+    private final boolean more;
+
+    public ResultPage(long cursorId, List<T> items, boolean more) {
+        this.cursorId = cursorId;
+        this.items = items;
+        this.more = more;
+    }
+
+    /**
+     * A result that fits in a single page
+     */
+    public static <T> ResultPage<T> complete(List<T> items) {
+        return new ResultPage<>(0, items, false);
+    }
+
+    public static int shardOf(long cursorId) {
+        return (int) (cursorId >>> SHARD_SHIFT);
+    }
+
+    public long getCursorId() {
+        return cursorId;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * The items of a page pulled from {@code CursorService}, which does not know their type,
+     * checked against the type the caller expects
+     */
+    public <E> List<E> getItems(Class<E> type) {
+        List<E> checked = new ArrayList<>(items.size());
+        for (T item : items)
+            checked.add(type.cast(item));
+        return checked;
+    }
+
+    public boolean hasMore() {
+        return more;
+    }
+}
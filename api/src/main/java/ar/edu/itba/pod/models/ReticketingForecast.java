@@ -0,0 +1,31 @@
+package ar.edu.itba.pod.models;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * What reticketing would do if some flights were cancelled: how many of their tickets would be
+ * changed, and how many would keep waiting, by destination and category
+ */
+public class ReticketingForecast implements Serializable {
+    private final int changed;
+    private final Map<String, Map<RowCategory, Integer>> unchanged;
+
+    public ReticketingForecast(int changed, Map<String, Map<RowCategory, Integer>> unchanged) {
+        this.changed = changed;
+        this.unchanged = unchanged;
+    }
+
+    public int getChanged() {
+        return changed;
+    }
+
+    public int getUnchanged() {
+        return unchanged.values().stream().flatMap(byCategory -> byCategory.values().stream())
+                .mapToInt(Integer::intValue).sum();
+    }
+
+    public Map<String, Map<RowCategory, Integer>> getUnchangedByDestination() {
+        return unchanged;
+    }
+}
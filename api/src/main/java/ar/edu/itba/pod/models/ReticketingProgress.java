@@ -0,0 +1,50 @@
+package ar.edu.itba.pod.models;
+
+import java.io.Serializable;
+
+/**
+ * Where a reticketing job stands after trying the tickets of one cancelled flight. The counts
+ * are of the whole job so far.
+ */
+public class ReticketingProgress implements Serializable {
+    private final long jobId;
+    private final String flightCode;
+    private final int flightsDone;
+    private final int flightsTotal;
+    private final int changed;
+    private final int unchanged;
+
+    public ReticketingProgress(long jobId, String flightCode, int flightsDone, int flightsTotal,
+                               int changed, int unchanged) {
+        this.jobId = jobId;
+        this.flightCode = flightCode;
+        this.flightsDone = flightsDone;
+        this.flightsTotal = flightsTotal;
+        this.changed = changed;
+        this.unchanged = unchanged;
+    }
+
+    public long getJobId() {
+        return jobId;
+    }
+
+    public String getFlightCode() {
+        return flightCode;
+    }
+
+    public int getFlightsDone() {
+        return flightsDone;
+    }
+
+    public int getFlightsTotal() {
+        return flightsTotal;
+    }
+
+    public int getChanged() {
+        return changed;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+}
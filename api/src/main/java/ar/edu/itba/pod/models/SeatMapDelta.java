@@ -0,0 +1,46 @@
+package ar.edu.itba.pod.models;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Rows of a flight seat map that changed between {@code sinceVersion} and {@code version}. When the
+ * server can no longer tell which rows changed, {@code full} is set and {@code rows} holds every row
+ * of the flight.
+ */
+public class SeatMapDelta implements Serializable {
+    private final String flightCode;
+    private final long sinceVersion;
+    private final long version;
+    private final boolean full;
+    private final Map<Integer, ResponseRow> rows;
+
+    public SeatMapDelta(String flightCode, long sinceVersion, long version, boolean full,
+                        Map<Integer, ResponseRow> rows) {
+        this.flightCode = flightCode;
+        this.sinceVersion = sinceVersion;
+        this.version = version;
+        this.full = full;
+        this.rows = rows;
+    }
+
+    public String getFlightCode() {
+        return flightCode;
+    }
+
+    public long getSinceVersion() {
+        return sinceVersion;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public Map<Integer, ResponseRow> getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,36 @@
+package ar.edu.itba.pod.models;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Seat map of one flight in a batch query, or the message of the error that kept it from being
+ * built
+ */
+public class SeatMapResult implements Serializable {
+    private final String flightCode;
+    private final List<ResponseRow> rows;
+    private final String error;
+
+    public SeatMapResult(String flightCode, List<ResponseRow> rows, String error) {
+        this.flightCode = flightCode;
+        this.rows = rows;
+        this.error = error;
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    public String getFlightCode() {
+        return flightCode;
+    }
+
+    public List<ResponseRow> getRows() {
+        return rows;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,40 @@
+package ar.edu.itba.pod.models;
+
+import java.io.Serializable;
+
+/**
+ * A seat assignment or seat change of a batch
+ */
+public class SeatOperation implements Serializable {
+    public enum Type {
+        ASSIGN, MOVE
+    }
+
+    private final Type type;
+    private final String passenger;
+    private final int row;
+    private final char seat;
+
+    public SeatOperation(Type type, String passenger, int row, char seat) {
+        this.type = type;
+        this.passenger = passenger;
+        this.row = row;
+        this.seat = seat;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getPassenger() {
+        return passenger;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public char getSeat() {
+        return seat;
+    }
+}
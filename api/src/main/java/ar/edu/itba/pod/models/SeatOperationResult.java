@@ -0,0 +1,35 @@
+package ar.edu.itba.pod.models;
+
+import java.io.Serializable;
+
+/**
+ * Outcome of a batched seat operation: the passenger's ticket after it was applied, or the
+ * message of the error that rejected it
+ */
+public class SeatOperationResult implements Serializable {
+    private final SeatOperation operation;
+    private final Ticket ticket;
+    private final String error;
+
+    public SeatOperationResult(SeatOperation operation, Ticket ticket, String error) {
+        this.operation = operation;
+        this.ticket = ticket;
+        this.error = error;
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    public SeatOperation getOperation() {
+        return operation;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
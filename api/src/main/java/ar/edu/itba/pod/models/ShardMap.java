@@ -0,0 +1,38 @@
+package ar.edu.itba.pod.models;
+
+import java.io.Serializable;
+
+/**
+ * Splits the hash space of flight codes into equal contiguous ranges, one per shard. Servers and
+ * routing clients build it with the same shard count, so they agree on every flight's owner.
+ */
+public class ShardMap implements Serializable {
+    private final int shards;
+
+    public ShardMap(int shards) {
+        if (shards <= 0)
+            throw new IllegalArgumentException("There must be at least one shard");
+        this.shards = shards;
+    }
+
+    public int shardOf(String flightCode) {
+        long hash = mix(flightCode.hashCode()) & 0xFFFFFFFFL;
+        return (int) ((hash * shards) >>> 32);
+    }
+
+    /**
+     * Codes like AA100 and AA101 only differ in the low bits of their hash, so the bits are
+     * spread before picking a range
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        return hash ^ (hash >>> 16);
+    }
+
+    public int getShards() {
+        return shards;
+    }
+}
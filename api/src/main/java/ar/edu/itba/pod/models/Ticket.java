@@ -1,6 +1,7 @@
 package ar.edu.itba.pod.models;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 public class Ticket implements Serializable, Comparable<Ticket> {
     private final RowCategory category;
@@ -44,6 +45,21 @@ public class Ticket implements Serializable, Comparable<Ticket> {
         return destination;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Ticket ticket = (Ticket) o;
+        return category == ticket.category && passenger.equals(ticket.passenger) &&
+                destination.equals(ticket.destination) && Objects.equals(row, ticket.row) &&
+                Objects.equals(col, ticket.col);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(category, passenger, destination);
+    }
+
     @Override
     public int compareTo(Ticket o) {
         return passenger.compareTo(o.getPassenger());
@@ -0,0 +1,8 @@
+package ar.edu.itba.pod.models.exceptions.flightExceptions;
+
+public class FlightNotOwnedException extends IllegalStateException {
+    @Override
+    public String getMessage() {
+        return "Flight belongs to another shard";
+    }
+}
@@ -0,0 +1,8 @@
+package ar.edu.itba.pod.models.exceptions.notFoundExceptions;
+
+public class CursorNotFoundException extends NotFoundException {
+    @Override
+    public String getMessage() {
+        return "Cursor was not found or its lease expired";
+    }
+}
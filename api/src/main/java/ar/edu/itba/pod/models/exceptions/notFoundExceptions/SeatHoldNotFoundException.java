@@ -0,0 +1,8 @@
+package ar.edu.itba.pod.models.exceptions.notFoundExceptions;
+
+public class SeatHoldNotFoundException extends NotFoundException {
+    @Override
+    public String getMessage() {
+        return "Seat hold was not found";
+    }
+}
@@ -0,0 +1,562 @@
+package ar.edu.itba.pod.protocol;
+
+import ar.edu.itba.pod.models.AlternativeFlightResponse;
+import ar.edu.itba.pod.models.CancelledTicket;
+import ar.edu.itba.pod.models.FlightState;
+import ar.edu.itba.pod.models.FlightStateResult;
+import ar.edu.itba.pod.models.Notification;
+import ar.edu.itba.pod.models.ResponseCancelledList;
+import ar.edu.itba.pod.models.ResponseRow;
+import ar.edu.itba.pod.models.ResultPage;
+import ar.edu.itba.pod.models.ReticketingForecast;
+import ar.edu.itba.pod.models.ReticketingProgress;
+import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.SeatMapDelta;
+import ar.edu.itba.pod.models.SeatMapResult;
+import ar.edu.itba.pod.models.SeatOperation;
+import ar.edu.itba.pod.models.SeatOperationResult;
+import ar.edu.itba.pod.models.Ticket;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.rmi.Remote;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes and reads the values of the binary transport. Each value starts with a tag byte, and
+ * the models of the services are written field by field. Anything else that is serializable,
+ * like the exceptions the services throw, falls back to Java serialization.
+ * Handlers are written as an id, which the given callbacks pick on one side and resolve on the
+ * other. Only a codec that trusts its peer reads serialized values, as deserializing can run code
+ * of any class on the classpath: the client reads them from its server, while the server rejects
+ * them, since every argument of the services has a tag of its own.
+ */
+public class BinaryCodec {
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte CHAR = 5;
+    private static final byte STRING = 6;
+    private static final byte LIST = 7;
+    private static final byte MAP = 8;
+    private static final byte INT_ARRAY = 9;
+    private static final byte CHAR_ARRAY = 10;
+    private static final byte ROW_CATEGORY = 11;
+    private static final byte FLIGHT_STATE = 12;
+    private static final byte TICKET = 13;
+    private static final byte NOTIFICATION = 14;
+    private static final byte RESPONSE_ROW = 15;
+    private static final byte SEAT_MAP_DELTA = 16;
+    private static final byte ALTERNATIVE_FLIGHT = 17;
+    private static final byte CANCELLED_TICKET = 18;
+    private static final byte CANCELLED_LIST = 19;
+    private static final byte STATE_RESULT = 20;
+    private static final byte SEAT_OPERATION = 21;
+    private static final byte SEAT_OPERATION_RESULT = 22;
+    private static final byte CALLBACK = 23;
+    private static final byte SERIALIZED = 24;
+    private static final byte SEAT_MAP_RESULT = 25;
+    private static final byte RESULT_PAGE = 26;
+    private static final byte RETICKETING_PROGRESS = 27;
+    private static final byte RETICKETING_FORECAST = 28;
+
+    private static final RowCategory[] ROW_CATEGORIES = RowCategory.values();
+    private static final FlightState[] FLIGHT_STATES = FlightState.values();
+    private static final SeatOperation.Type[] OPERATION_TYPES = SeatOperation.Type.values();
+
+    /**
+     * How each side of a connection stands for the handlers passed as arguments
+     */
+    public interface Callbacks {
+        /**
+         * Returns the id the handler is written as
+         */
+        int export(Remote handler);
+
+        /**
+         * Returns the handler of the callback type that was written with the id
+         */
+        Remote resolve(Class<? extends Remote> type, int id);
+    }
+
+    private final Callbacks callbacks;
+    private final boolean readsSerialized;
+
+    public BinaryCodec(Callbacks callbacks, boolean readsSerialized) {
+        this.callbacks = callbacks;
+        this.readsSerialized = readsSerialized;
+    }
+
+    public ByteBuffer call(int id, int service, int method, Object[] args) throws IOException {
+        FrameBuffer frame = new FrameBuffer(id, BinaryProtocol.CALL);
+        frame.out.writeByte(service);
+        frame.out.writeByte(method);
+        writeArguments(frame.out, args);
+        return frame.toBuffer();
+    }
+
+    public ByteBuffer reply(int id, Object result) throws IOException {
+        FrameBuffer frame = new FrameBuffer(id, BinaryProtocol.REPLY);
+        write(frame.out, result);
+        return frame.toBuffer();
+    }
+
+    public ByteBuffer error(int id, Throwable error) throws IOException {
+        FrameBuffer frame = new FrameBuffer(id, BinaryProtocol.ERROR);
+        writeSerialized(frame.out, error);
+        return frame.toBuffer();
+    }
+
+    public ByteBuffer push(int callbackId, int callback, int method, Object[] args) throws IOException {
+        FrameBuffer frame = new FrameBuffer(callbackId, BinaryProtocol.PUSH);
+        frame.out.writeByte(callback);
+        frame.out.writeByte(method);
+        writeArguments(frame.out, args);
+        return frame.toBuffer();
+    }
+
+    public Object[] readArguments(DataInputStream in, int count) throws IOException {
+        Object[] args = new Object[count];
+        for (int i = 0; i < count; i++)
+            args[i] = read(in);
+        return args;
+    }
+
+    public void write(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Character) {
+            out.writeByte(CHAR);
+            out.writeChar((Character) value);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object element : list)
+                write(out, element);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                write(out, entry.getKey());
+                write(out, entry.getValue());
+            }
+        } else if (value instanceof int[]) {
+            int[] array = (int[]) value;
+            out.writeByte(INT_ARRAY);
+            out.writeInt(array.length);
+            for (int element : array)
+                out.writeInt(element);
+        } else if (value instanceof char[]) {
+            out.writeByte(CHAR_ARRAY);
+            writeChars(out, (char[]) value);
+        } else if (value instanceof RowCategory) {
+            out.writeByte(ROW_CATEGORY);
+            out.writeByte(((RowCategory) value).ordinal());
+        } else if (value instanceof FlightState) {
+            out.writeByte(FLIGHT_STATE);
+            out.writeByte(((FlightState) value).ordinal());
+        } else if (value instanceof Ticket) {
+            out.writeByte(TICKET);
+            writeTicket(out, (Ticket) value);
+        } else if (value instanceof Notification) {
+            Notification notification = (Notification) value;
+            out.writeByte(NOTIFICATION);
+            write(out, notification.getOldCode());
+            write(out, notification.getDestination());
+            write(out, notification.getOldCategory());
+            write(out, notification.getCurrentRow());
+            write(out, notification.getCurrentCol());
+            write(out, notification.getNewCategory());
+            write(out, notification.getNewRow());
+            write(out, notification.getNewCol());
+            write(out, notification.getNewCode());
+        } else if (value instanceof ResponseRow) {
+            out.writeByte(RESPONSE_ROW);
+            writeRow(out, (ResponseRow) value);
+        } else if (value instanceof SeatMapDelta) {
+            SeatMapDelta delta = (SeatMapDelta) value;
+            out.writeByte(SEAT_MAP_DELTA);
+            writeString(out, delta.getFlightCode());
+            out.writeLong(delta.getSinceVersion());
+            out.writeLong(delta.getVersion());
+            out.writeBoolean(delta.isFull());
+            out.writeInt(delta.getRows().size());
+            for (Map.Entry<Integer, ResponseRow> row : delta.getRows().entrySet()) {
+                out.writeInt(row.getKey());
+                writeRow(out, row.getValue());
+            }
+        } else if (value instanceof AlternativeFlightResponse) {
+            AlternativeFlightResponse alternative = (AlternativeFlightResponse) value;
+            out.writeByte(ALTERNATIVE_FLIGHT);
+            writeString(out, alternative.getFlightCode());
+            writeString(out, alternative.getDestination());
+            write(out, alternative.getAvailableSeats());
+        } else if (value instanceof CancelledTicket) {
+            CancelledTicket ticket = (CancelledTicket) value;
+            out.writeByte(CANCELLED_TICKET);
+            writeString(out, ticket.getFlightCode());
+            writeString(out, ticket.getPassenger());
+        } else if (value instanceof ResponseCancelledList) {
+            ResponseCancelledList list = (ResponseCancelledList) value;
+            out.writeByte(CANCELLED_LIST);
+            out.writeInt(list.getChanged());
+            write(out, list.getUnchangedTickets());
+            out.writeLong(list.getCursorId());
+        } else if (value instanceof FlightStateResult) {
+            FlightStateResult result = (FlightStateResult) value;
+            out.writeByte(STATE_RESULT);
+            writeString(out, result.getFlightCode());
+            write(out, result.getState());
+            write(out, result.getError());
+        } else if (value instanceof SeatOperation) {
+            out.writeByte(SEAT_OPERATION);
+            writeOperation(out, (SeatOperation) value);
+        } else if (value instanceof SeatOperationResult) {
+            SeatOperationResult result = (SeatOperationResult) value;
+            out.writeByte(SEAT_OPERATION_RESULT);
+            writeOperation(out, result.getOperation());
+            write(out, result.getTicket());
+            write(out, result.getError());
+        } else if (value instanceof SeatMapResult) {
+            SeatMapResult result = (SeatMapResult) value;
+            out.writeByte(SEAT_MAP_RESULT);
+            writeString(out, result.getFlightCode());
+            write(out, result.getRows());
+            write(out, result.getError());
+        } else if (value instanceof ResultPage) {
+            ResultPage<?> page = (ResultPage<?>) value;
+            out.writeByte(RESULT_PAGE);
+            out.writeLong(page.getCursorId());
+            out.writeBoolean(page.hasMore());
+            write(out, page.getItems());
+        } else if (value instanceof ReticketingProgress) {
+            ReticketingProgress progress = (ReticketingProgress) value;
+            out.writeByte(RETICKETING_PROGRESS);
+            out.writeLong(progress.getJobId());
+            writeString(out, progress.getFlightCode());
+            out.writeInt(progress.getFlightsDone());
+            out.writeInt(progress.getFlightsTotal());
+            out.writeInt(progress.getChanged());
+            out.writeInt(progress.getUnchanged());
+        } else if (value instanceof ReticketingForecast) {
+            ReticketingForecast forecast = (ReticketingForecast) value;
+            out.writeByte(RETICKETING_FORECAST);
+            out.writeInt(forecast.getChanged());
+            out.writeInt(forecast.getUnchangedByDestination().size());
+            for (Map.Entry<String, Map<RowCategory, Integer>> destination :
+                    forecast.getUnchangedByDestination().entrySet()) {
+                writeString(out, destination.getKey());
+                writeCategoryCounts(out, destination.getValue());
+            }
+        } else if (callbackType(value) != null) {
+            out.writeByte(CALLBACK);
+            out.writeByte(BinaryProtocol.CALLBACKS.indexOf(callbackType(value)));
+            out.writeInt(callbacks.export((Remote) value));
+        } else if (value instanceof Serializable) {
+            writeSerialized(out, value);
+        } else {
+            throw new IOException("Cannot write a " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * Reads a value of a frame held in memory, so what the input has available is what is left of
+     * the frame. Every length the peer declares is checked against it before allocating.
+     */
+    public Object read(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case TRUE:
+                return true;
+            case FALSE:
+                return false;
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case CHAR:
+                return in.readChar();
+            case STRING:
+                return readString(in);
+            case LIST: {
+                int size = readLength(in, 1);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++)
+                    list.add(read(in));
+                return list;
+            }
+            case MAP: {
+                int size = readLength(in, 2);
+                Map<Object, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++)
+                    map.put(read(in), read(in));
+                return map;
+            }
+            case INT_ARRAY: {
+                int[] array = new int[readLength(in, Integer.BYTES)];
+                for (int i = 0; i < array.length; i++)
+                    array[i] = in.readInt();
+                return array;
+            }
+            case CHAR_ARRAY:
+                return readChars(in);
+            case ROW_CATEGORY:
+                return ROW_CATEGORIES[in.readByte()];
+            case FLIGHT_STATE:
+                return FLIGHT_STATES[in.readByte()];
+            case TICKET:
+                return readTicket(in);
+            case NOTIFICATION: {
+                Notification notification = new Notification((String) read(in), (String) read(in),
+                        (RowCategory) read(in), (Integer) read(in), (Character) read(in),
+                        (RowCategory) read(in), (Integer) read(in), (Character) read(in));
+                notification.setNewCode((String) read(in));
+                return notification;
+            }
+            case RESPONSE_ROW:
+                return readRow(in);
+            case SEAT_MAP_DELTA: {
+                String flightCode = readString(in);
+                long sinceVersion = in.readLong();
+                long version = in.readLong();
+                boolean full = in.readBoolean();
+                int size = readLength(in, Integer.BYTES + 1 + Integer.BYTES);
+                Map<Integer, ResponseRow> rows = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++)
+                    rows.put(in.readInt(), readRow(in));
+                return new SeatMapDelta(flightCode, sinceVersion, version, full, rows);
+            }
+            case ALTERNATIVE_FLIGHT: {
+                String flightCode = readString(in);
+                String destination = readString(in);
+                @SuppressWarnings("unchecked")
+                Map<RowCategory, Integer> availableSeats = (Map<RowCategory, Integer>) read(in);
+                return new AlternativeFlightResponse(flightCode, destination, availableSeats);
+            }
+            case CANCELLED_TICKET:
+                return new CancelledTicket(readString(in), readString(in));
+            case CANCELLED_LIST: {
+                int changed = in.readInt();
+                @SuppressWarnings("unchecked")
+                List<CancelledTicket> unchanged = (List<CancelledTicket>) read(in);
+                return new ResponseCancelledList(changed, unchanged, in.readLong());
+            }
+            case STATE_RESULT:
+                return new FlightStateResult(readString(in), (FlightState) read(in), (String) read(in));
+            case SEAT_OPERATION:
+                return readOperation(in);
+            case SEAT_OPERATION_RESULT:
+                return new SeatOperationResult(readOperation(in), (Ticket) read(in), (String) read(in));
+            case SEAT_MAP_RESULT: {
+                String flightCode = readString(in);
+                @SuppressWarnings("unchecked")
+                List<ResponseRow> rows = (List<ResponseRow>) read(in);
+                return new SeatMapResult(flightCode, rows, (String) read(in));
+            }
+            case RESULT_PAGE: {
+                long cursorId = in.readLong();
+                boolean more = in.readBoolean();
+                return new ResultPage<>(cursorId, (List<?>) read(in), more);
+            }
+            case RETICKETING_PROGRESS:
+                return new ReticketingProgress(in.readLong(), readString(in), in.readInt(), in.readInt(),
+                        in.readInt(), in.readInt());
+            case RETICKETING_FORECAST: {
+                int changed = in.readInt();
+                int size = readLength(in, Integer.BYTES + Integer.BYTES);
+                Map<String, Map<RowCategory, Integer>> unchanged = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++)
+                    unchanged.put(readString(in), readCategoryCounts(in));
+                return new ReticketingForecast(changed, unchanged);
+            }
+            case CALLBACK:
+                return callbacks.resolve(BinaryProtocol.CALLBACKS.get(in.readByte()), in.readInt());
+            case SERIALIZED:
+                if (!readsSerialized)
+                    throw new StreamCorruptedException("Serialized values are not accepted from this peer");
+                return readSerialized(in);
+            default:
+                throw new StreamCorruptedException("Unknown tag " + tag);
+        }
+    }
+
+    /**
+     * The first callback type of the protocol the value implements, or null
+     */
+    private static Class<? extends Remote> callbackType(Object value) {
+        for (Class<? extends Remote> type : BinaryProtocol.CALLBACKS) {
+            if (type.isInstance(value))
+                return type;
+        }
+        return null;
+    }
+
+    private void writeArguments(DataOutput out, Object[] args) throws IOException {
+        if (args == null)
+            return;
+        for (Object arg : args)
+            write(out, arg);
+    }
+
+    private void writeTicket(DataOutput out, Ticket ticket) throws IOException {
+        out.writeByte(ticket.getCategory().ordinal());
+        writeString(out, ticket.getPassenger());
+        writeString(out, ticket.getDestination());
+        write(out, ticket.getRow());
+        write(out, ticket.getCol());
+    }
+
+    private Ticket readTicket(DataInputStream in) throws IOException {
+        Ticket ticket = new Ticket(ROW_CATEGORIES[in.readByte()], readString(in), readString(in));
+        Integer row = (Integer) read(in);
+        Character col = (Character) read(in);
+        if (row != null)
+            ticket.setSeat(row, col);
+        return ticket;
+    }
+
+    private void writeRow(DataOutput out, ResponseRow row) throws IOException {
+        out.writeByte(row.getRowCategory().ordinal());
+        writeChars(out, row.getPassengerInitials());
+    }
+
+    private ResponseRow readRow(DataInputStream in) throws IOException {
+        return new ResponseRow(ROW_CATEGORIES[in.readByte()], readChars(in));
+    }
+
+    private void writeOperation(DataOutput out, SeatOperation operation) throws IOException {
+        out.writeByte(operation.getType().ordinal());
+        writeString(out, operation.getPassenger());
+        out.writeInt(operation.getRow());
+        out.writeChar(operation.getSeat());
+    }
+
+    private SeatOperation readOperation(DataInputStream in) throws IOException {
+        return new SeatOperation(OPERATION_TYPES[in.readByte()], readString(in), in.readInt(), in.readChar());
+    }
+
+    private static void writeCategoryCounts(DataOutput out, Map<RowCategory, Integer> counts) throws IOException {
+        out.writeInt(counts.size());
+        for (Map.Entry<RowCategory, Integer> count : counts.entrySet()) {
+            out.writeByte(count.getKey().ordinal());
+            out.writeInt(count.getValue());
+        }
+    }
+
+    private static Map<RowCategory, Integer> readCategoryCounts(DataInputStream in) throws IOException {
+        int size = readLength(in, 1 + Integer.BYTES);
+        Map<RowCategory, Integer> counts = new EnumMap<>(RowCategory.class);
+        for (int i = 0; i < size; i++)
+            counts.put(ROW_CATEGORIES[in.readByte()], in.readInt());
+        return counts;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readLength(in, 1)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeChars(DataOutput out, char[] chars) throws IOException {
+        out.writeInt(chars.length);
+        for (char c : chars)
+            out.writeChar(c);
+    }
+
+    private static char[] readChars(DataInputStream in) throws IOException {
+        char[] chars = new char[readLength(in, Character.BYTES)];
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = in.readChar();
+        return chars;
+    }
+
+    /**
+     * Reads the number of elements that follow, each taking at least the given bytes, and checks
+     * they fit in what is left of the frame
+     */
+    private static int readLength(DataInputStream in, int minElementBytes) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || (long) length * minElementBytes > in.available())
+            throw new StreamCorruptedException("Declared length " + length + " does not fit in the frame");
+        return length;
+    }
+
+    private static void writeSerialized(DataOutput out, Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+            objects.writeObject(value);
+        }
+        out.writeByte(SERIALIZED);
+        out.writeInt(bytes.size());
+        out.write(bytes.toByteArray());
+    }
+
+    private static Object readSerialized(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readLength(in, 1)];
+        in.readFully(bytes);
+        try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return objects.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Cannot read a serialized value", e);
+        }
+    }
+
+    /**
+     * Leaves room for the length of the frame, which is filled in once the payload is written
+     */
+    private static class FrameBuffer extends ByteArrayOutputStream {
+        private final DataOutputStream out = new DataOutputStream(this);
+
+        private FrameBuffer(int id, byte kind) throws IOException {
+            super(64);
+            out.writeInt(0);
+            out.writeInt(id);
+            out.writeByte(kind);
+        }
+
+        private ByteBuffer toBuffer() throws IOException {
+            if (count - 4 > BinaryProtocol.MAX_FRAME_LENGTH)
+                throw new IOException("Frame of " + count + " bytes is too long");
+            ByteBuffer buffer = ByteBuffer.wrap(buf, 0, count);
+            buffer.putInt(0, count - 4);
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ar.edu.itba.pod.protocol;
+
+import ar.edu.itba.pod.callbacks.NotificationHandler;
+import ar.edu.itba.pod.callbacks.ReticketingListener;
+import ar.edu.itba.pod.callbacks.SeatMapHandler;
+import ar.edu.itba.pod.interfaces.CursorService;
+import ar.edu.itba.pod.interfaces.FlightManagerService;
+import ar.edu.itba.pod.interfaces.NotificationService;
+import ar.edu.itba.pod.interfaces.SeatManagerService;
+import ar.edu.itba.pod.interfaces.SeatQueryService;
+
+import java.lang.reflect.Method;
+import java.rmi.Remote;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Framing of the binary transport, which serves the same services as the registry over a single
+ * connection per client. Every frame is its length followed by an id, a kind and a payload:
+ * <ul>
+ *     <li>CALL: the service and method indexes and the arguments, the id picked by the client</li>
+ *     <li>REPLY and ERROR: the result or the thrown exception of the call with the same id</li>
+ *     <li>PUSH: the callback type and method indexes and the arguments, the id being the one the
+ *     client gave the handler</li>
+ * </ul>
+ * Calls are answered as they complete, so a client can have many in flight on one connection.
+ * Methods are numbered by name and parameter types, so both sides agree without a schema.
+ */
+public final class BinaryProtocol {
+    public static final byte CALL = 0;
+    public static final byte REPLY = 1;
+    public static final byte ERROR = 2;
+    public static final byte PUSH = 3;
+
+    /**
+     * Length of the id and kind that follow the length of every frame
+     */
+    public static final int HEADER_LENGTH = 5;
+    public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    public static final List<Class<? extends Remote>> SERVICES = Collections.unmodifiableList(Arrays.asList(
+            FlightManagerService.class, SeatManagerService.class, SeatQueryService.class,
+            NotificationService.class, CursorService.class));
+    public static final List<Class<? extends Remote>> CALLBACKS = Collections.unmodifiableList(Arrays.asList(
+            NotificationHandler.class, SeatMapHandler.class, ReticketingListener.class));
+
+    private static final Map<Class<?>, List<Method>> METHODS = new ConcurrentHashMap<>();
+
+    private BinaryProtocol() {
+    }
+
+    public static List<Method> methods(Class<?> type) {
+        return METHODS.computeIfAbsent(type, k -> Collections.unmodifiableList(Arrays.stream(k.getMethods())
+                .sorted(Comparator.comparing(BinaryProtocol::signature))
+                .collect(Collectors.toList())));
+    }
+
+    public static int methodIndex(Class<?> type, Method method) {
+        int index = methods(type).indexOf(method);
+        if (index < 0)
+            throw new IllegalArgumentException(method + " is not a method of " + type.getName());
+        return index;
+    }
+
+    private static String signature(Method method) {
+        return method.getName() + Arrays.toString(method.getParameterTypes());
+    }
+}
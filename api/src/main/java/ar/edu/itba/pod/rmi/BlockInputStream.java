@@ -0,0 +1,107 @@
+package ar.edu.itba.pod.rmi;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the blocks written by a {@link BlockOutputStream}, inflating the deflated ones
+ */
+class BlockInputStream extends InputStream {
+    private final DataInputStream in;
+    private final EndpointStats stats;
+    private final byte[] block = new byte[BlockOutputStream.BLOCK_SIZE];
+    private int position = 0;
+    private int count = 0;
+    private Inflater inflater;
+    private byte[] deflated;
+
+    BlockInputStream(InputStream in, EndpointStats stats) {
+        this.in = new DataInputStream(new BufferedInputStream(in, BlockOutputStream.BLOCK_SIZE));
+        this.stats = stats;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == count && !readBlock())
+            return -1;
+        return block[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (position == count && !readBlock())
+            return -1;
+        int chunk = Math.min(len, count - position);
+        System.arraycopy(block, position, b, off, chunk);
+        position += chunk;
+        return chunk;
+    }
+
+    @Override
+    public int available() {
+        return count - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        release();
+        in.close();
+    }
+
+    void release() {
+        if (inflater != null)
+            inflater.end();
+    }
+
+    /**
+     * Returns false at the end of the stream
+     */
+    private boolean readBlock() throws IOException {
+        int kind = in.read();
+        if (kind < 0)
+            return false;
+
+        int length = in.readInt();
+        if (length <= 0 || length > BlockOutputStream.BLOCK_SIZE)
+            throw new StreamCorruptedException("Invalid block length " + length);
+        if (kind == BlockOutputStream.RAW) {
+            in.readFully(block, 0, length);
+            count = length;
+            stats.read(BlockOutputStream.RAW_HEADER + length, length);
+        } else if (kind == BlockOutputStream.DEFLATED) {
+            count = in.readInt();
+            if (count <= 0 || count > BlockOutputStream.BLOCK_SIZE)
+                throw new StreamCorruptedException("Invalid block length " + count);
+            inflate(length);
+            stats.read(BlockOutputStream.DEFLATED_HEADER + length, count);
+        } else {
+            throw new StreamCorruptedException("Unknown block kind " + kind);
+        }
+        position = 0;
+        return true;
+    }
+
+    private void inflate(int length) throws IOException {
+        if (inflater == null) {
+            inflater = new Inflater();
+            deflated = new byte[BlockOutputStream.BLOCK_SIZE];
+        }
+        in.readFully(deflated, 0, length);
+        inflater.reset();
+        inflater.setInput(deflated, 0, length);
+        try {
+            if (inflater.inflate(block, 0, count) != count || !inflater.finished())
+                throw new EOFException("Truncated deflated block");
+        } catch (DataFormatException e) {
+            throw new StreamCorruptedException("Invalid deflated block: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package ar.edu.itba.pod.rmi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Buffers what is written and sends it in blocks, each a kind, its length and its bytes. Blocks
+ * of at least the threshold are deflated, unless that does not make them smaller. Deflated blocks
+ * also carry their inflated length. Each block goes out in a single write, header included.
+ */
+class BlockOutputStream extends OutputStream {
+    static final byte RAW = 0;
+    static final byte DEFLATED = 1;
+    static final int BLOCK_SIZE = 64 * 1024;
+    static final int RAW_HEADER = 5;
+    static final int DEFLATED_HEADER = 9;
+
+    private final OutputStream out;
+    private final int threshold;
+    private final EndpointStats stats;
+    private final byte[] block = new byte[RAW_HEADER + BLOCK_SIZE];
+    private int count = 0;
+    private Deflater deflater;
+    private byte[] deflated;
+
+    BlockOutputStream(OutputStream out, int threshold, EndpointStats stats) {
+        this.out = out;
+        this.threshold = threshold;
+        this.stats = stats;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == BLOCK_SIZE)
+            writeBlock();
+        block[RAW_HEADER + count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == BLOCK_SIZE)
+                writeBlock();
+            int chunk = Math.min(len, BLOCK_SIZE - count);
+            System.arraycopy(b, off, block, RAW_HEADER + count, chunk);
+            count += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            release();
+            out.close();
+        }
+    }
+
+    void release() {
+        if (deflater != null)
+            deflater.end();
+    }
+
+    private void writeBlock() throws IOException {
+        if (count == 0)
+            return;
+
+        int length = count >= threshold ? deflate() : -1;
+        if (length >= 0) {
+            deflated[0] = DEFLATED;
+            putInt(deflated, 1, length);
+            putInt(deflated, 5, count);
+            out.write(deflated, 0, DEFLATED_HEADER + length);
+            stats.written(DEFLATED_HEADER + length, count);
+        } else {
+            block[0] = RAW;
+            putInt(block, 1, count);
+            out.write(block, 0, RAW_HEADER + count);
+            stats.written(RAW_HEADER + count, count);
+        }
+        count = 0;
+    }
+
+    /**
+     * Returns the length of the deflated block, or -1 if it would not be smaller
+     */
+    private int deflate() {
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+            deflated = new byte[DEFLATED_HEADER + BLOCK_SIZE];
+        }
+        deflater.reset();
+        deflater.setInput(block, RAW_HEADER, count);
+        deflater.finish();
+        int length = deflater.deflate(deflated, DEFLATED_HEADER, count - 1);
+        return deflater.finished() ? length : -1;
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+}
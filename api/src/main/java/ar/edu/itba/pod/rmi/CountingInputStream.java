@@ -0,0 +1,30 @@
+package ar.edu.itba.pod.rmi;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+class CountingInputStream extends FilterInputStream {
+    private final EndpointStats stats;
+
+    CountingInputStream(InputStream in, EndpointStats stats) {
+        super(in);
+        this.stats = stats;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0)
+            stats.read(1, 1);
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = in.read(b, off, len);
+        if (read > 0)
+            stats.read(read, read);
+        return read;
+    }
+}
@@ -0,0 +1,26 @@
+package ar.edu.itba.pod.rmi;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+class CountingOutputStream extends FilterOutputStream {
+    private final EndpointStats stats;
+
+    CountingOutputStream(OutputStream out, EndpointStats stats) {
+        super(out);
+        this.stats = stats;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        stats.written(1, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        stats.written(len, len);
+    }
+}
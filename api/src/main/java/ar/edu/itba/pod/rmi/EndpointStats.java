@@ -0,0 +1,55 @@
+package ar.edu.itba.pod.rmi;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Traffic of the sockets of one endpoint. Wire bytes are what went through the socket and
+ * payload bytes what RMI wrote and read, so they only differ when blocks are compressed.
+ */
+public class EndpointStats {
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong wireBytesWritten = new AtomicLong();
+    private final AtomicLong wireBytesRead = new AtomicLong();
+    private final AtomicLong payloadBytesWritten = new AtomicLong();
+    private final AtomicLong payloadBytesRead = new AtomicLong();
+
+    void connected() {
+        connections.incrementAndGet();
+    }
+
+    void written(long wireBytes, long payloadBytes) {
+        wireBytesWritten.addAndGet(wireBytes);
+        payloadBytesWritten.addAndGet(payloadBytes);
+    }
+
+    void read(long wireBytes, long payloadBytes) {
+        wireBytesRead.addAndGet(wireBytes);
+        payloadBytesRead.addAndGet(payloadBytes);
+    }
+
+    public long getConnections() {
+        return connections.get();
+    }
+
+    public long getWireBytesWritten() {
+        return wireBytesWritten.get();
+    }
+
+    public long getWireBytesRead() {
+        return wireBytesRead.get();
+    }
+
+    public long getPayloadBytesWritten() {
+        return payloadBytesWritten.get();
+    }
+
+    public long getPayloadBytesRead() {
+        return payloadBytesRead.get();
+    }
+
+    @Override
+    public String toString() {
+        return connections + " connections, " + wireBytesWritten + " bytes written (" + payloadBytesWritten +
+                " before compression), " + wireBytesRead + " bytes read (" + payloadBytesRead + " after decompression)";
+    }
+}
@@ -0,0 +1,49 @@
+package ar.edu.itba.pod.rmi;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+
+/**
+ * Exports the remote objects of this JVM, services and handlers alike, with the sockets chosen
+ * by -DrmiSockets: the RMI defaults, or "tuned" for a {@link TunedSocketFactory} that compresses
+ * the blocks of at least -DrmiCompression bytes, 0 or none meaning no compression.
+ * With tuned sockets the traffic of each endpoint is logged on exit.
+ */
+public final class SocketFactories {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SocketFactories.class);
+    public static final String RMI_SOCKETS = "rmiSockets";
+    public static final String RMI_COMPRESSION = "rmiCompression";
+    public static final String TUNED = "tuned";
+
+    private static TunedSocketFactory factory;
+    private static boolean configured = false;
+
+    private SocketFactories() {
+    }
+
+    /**
+     * The factory set by the system properties, or null for the RMI defaults
+     */
+    public static synchronized TunedSocketFactory configured() {
+        if (!configured) {
+            configured = true;
+            if (TUNED.equals(System.getProperty(RMI_SOCKETS))) {
+                factory = new TunedSocketFactory(Integer.getInteger(RMI_COMPRESSION, 0));
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> TunedSocketFactory.getStats()
+                        .forEach((endpoint, stats) -> LOGGER.info("RMI endpoint " + endpoint + ": " + stats))));
+            }
+        }
+        return factory;
+    }
+
+    public static Remote export(Remote object) throws RemoteException {
+        TunedSocketFactory factory = configured();
+        if (factory == null)
+            return UnicastRemoteObject.exportObject(object, 0);
+        return UnicastRemoteObject.exportObject(object, 0, factory, factory);
+    }
+}
@@ -0,0 +1,57 @@
+package ar.edu.itba.pod.rmi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+/**
+ * A socket whose streams are buffered, counted on the stats of its endpoint and, with a
+ * compression threshold, split in blocks that are deflated when large
+ */
+class TunedSocket extends Socket {
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final int compressionThreshold;
+    private EndpointStats stats;
+    private InputStream in;
+    private OutputStream out;
+
+    TunedSocket(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    void setStats(EndpointStats stats) {
+        this.stats = stats;
+        stats.connected();
+    }
+
+    @Override
+    public synchronized InputStream getInputStream() throws IOException {
+        if (in == null) {
+            in = compressionThreshold > 0 ? new BlockInputStream(super.getInputStream(), stats)
+                    : new BufferedInputStream(new CountingInputStream(super.getInputStream(), stats), BUFFER_SIZE);
+        }
+        return in;
+    }
+
+    @Override
+    public synchronized OutputStream getOutputStream() throws IOException {
+        if (out == null) {
+            out = compressionThreshold > 0 ? new BlockOutputStream(super.getOutputStream(), compressionThreshold, stats)
+                    : new BufferedOutputStream(new CountingOutputStream(super.getOutputStream(), stats), BUFFER_SIZE);
+        }
+        return out;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        super.close();
+        if (in instanceof BlockInputStream)
+            ((BlockInputStream) in).release();
+        if (out instanceof BlockOutputStream)
+            ((BlockOutputStream) out).release();
+    }
+}
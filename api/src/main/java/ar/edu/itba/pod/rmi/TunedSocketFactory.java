@@ -0,0 +1,84 @@
+package ar.edu.itba.pod.rmi;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sockets for RMI with TCP_NODELAY, larger buffers and, when a compression threshold is given,
+ * deflated blocks for payloads of at least that many bytes, like full seat maps. The client side
+ * travels in the stubs, so both ends of a connection always agree on the compression.
+ * The connections and bytes of each endpoint are counted in this JVM: remote host and port for
+ * the clients, local port for the servers.
+ */
+public class TunedSocketFactory implements RMIClientSocketFactory, RMIServerSocketFactory, Serializable {
+    private static final Map<String, EndpointStats> STATS = new ConcurrentHashMap<>();
+
+    private final int compressionThreshold;
+
+    /**
+     * With a threshold of 0 nothing is compressed
+     */
+    public TunedSocketFactory(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public static Map<String, EndpointStats> getStats() {
+        return Collections.unmodifiableMap(new TreeMap<>(STATS));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        TunedSocket socket = new TunedSocket(compressionThreshold);
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port));
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        socket.setStats(STATS.computeIfAbsent(host + ":" + port, k -> new EndpointStats()));
+        return socket;
+    }
+
+    @Override
+    public ServerSocket createServerSocket(int port) throws IOException {
+        return new ServerSocket(port) {
+            @Override
+            public Socket accept() throws IOException {
+                TunedSocket socket = new TunedSocket(compressionThreshold);
+                implAccept(socket);
+                socket.setTcpNoDelay(true);
+                socket.setStats(STATS.computeIfAbsent("*:" + getLocalPort(), k -> new EndpointStats()));
+                return socket;
+            }
+        };
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * RMI shares a listening port among the objects exported with equal server factories
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return compressionThreshold == ((TunedSocketFactory) o).compressionThreshold;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(compressionThreshold);
+    }
+}
@@ -1,8 +1,15 @@
 package ar.edu.itba.pod.client;
 
 import ar.edu.itba.pod.client.parsers.FlightManagerParser;
+import ar.edu.itba.pod.client.utils.RemoteServices;
+import ar.edu.itba.pod.client.utils.ReticketingListenerImpl;
+import ar.edu.itba.pod.interfaces.CursorService;
 import ar.edu.itba.pod.interfaces.FlightManagerService;
+import ar.edu.itba.pod.models.CancelledTicket;
+import ar.edu.itba.pod.models.FlightStateResult;
 import ar.edu.itba.pod.models.ResponseCancelledList;
+import ar.edu.itba.pod.models.ResultPage;
+import ar.edu.itba.pod.models.ReticketingForecast;
 import ar.edu.itba.pod.models.RowCategory;
 import ar.edu.itba.pod.models.Ticket;
 import ar.edu.itba.pod.models.exceptions.flightExceptions.FlightAlreadyExistsException;
@@ -11,6 +18,7 @@ import ar.edu.itba.pod.models.exceptions.flightExceptions.IllegalFlightStateExce
 import ar.edu.itba.pod.models.exceptions.flightExceptions.ModelAlreadyExistsException;
 import ar.edu.itba.pod.models.exceptions.notFoundExceptions.FlightNotFoundException;
 import ar.edu.itba.pod.models.exceptions.notFoundExceptions.ModelNotFoundException;
+import ar.edu.itba.pod.rmi.SocketFactories;
 import com.opencsv.CSVParserBuilder;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
@@ -22,18 +30,22 @@ import org.slf4j.LoggerFactory;
 import java.io.FileReader;
 import java.io.IOException;
 import java.net.MalformedURLException;
-import java.rmi.Naming;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 
 public class FlightManagerClient {
     private static final Logger LOGGER = LoggerFactory.getLogger(FlightManagerClient.class);
     private static final ICSVParser CSV_PARSER = new CSVParserBuilder().withSeparator(';').build();
+    private static final int PAGE_SIZE = 500;
+    private static final long RETICKETING_TIMEOUT_MINUTES = 10;
 
     public static void main(String[] args) throws MalformedURLException, NotBoundException, RemoteException {
         FlightManagerParser parser = new FlightManagerParser();
@@ -41,7 +53,7 @@ public class FlightManagerClient {
         LOGGER.info("Flight Manager Client Starting ...");
 
         FlightManagerService flightManagerService =
-                (FlightManagerService) Naming.lookup("//" + parser.getServerAddress() + "/flightManagerService");
+                RemoteServices.flightManager(parser.getServerAddress());
 
         try {
             switch (parser.getAction().get()) {
@@ -57,6 +69,10 @@ public class FlightManagerClient {
                     LOGGER.info("Checking flight " + parser.getFlightCode() + " status");
                     LOGGER.info(flightManagerService.getFlightState(parser.getFlightCode()).toString());
                     break;
+                case STATUS_ALL:
+                    LOGGER.info("Checking flights " + parser.getFlightCodes() + " status");
+                    printStates(flightManagerService.getFlightStates(parser.getFlightCodes()));
+                    break;
                 case CONFIRM:
                     LOGGER.info("Confirming flight " + parser.getFlightCode());
                     flightManagerService.confirmFlight(parser.getFlightCode());
@@ -67,11 +83,42 @@ public class FlightManagerClient {
                     flightManagerService.cancelFlight(parser.getFlightCode());
                     LOGGER.info("Flight cancelled successfully");
                     break;
+                case CONFIRM_ALL:
+                    LOGGER.info("Confirming flights " + parser.getFlightCodes());
+                    printStateChanges(flightManagerService.confirmFlights(parser.getFlightCodes()));
+                    break;
+                case CANCEL_ALL:
+                    LOGGER.info("Canceling flights " + parser.getFlightCodes());
+                    printStateChanges(flightManagerService.cancelFlights(parser.getFlightCodes()));
+                    break;
                 case RETICKETING:
                     LOGGER.info("Reticketing cancelled flights");
-                    printReticketing(flightManagerService.changeCancelledFlights());
+                    ReticketingListenerImpl listener = new ReticketingListenerImpl();
+                    SocketFactories.export(listener);
+                    long jobId = -1;
+                    ResponseCancelledList result;
+                    try {
+                        jobId = flightManagerService.startReticketing(listener, PAGE_SIZE);
+                        result = listener.await(RETICKETING_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+                    } catch (TimeoutException e) {
+                        LOGGER.error("Reticketing job " + jobId + " did not finish in "
+                                + RETICKETING_TIMEOUT_MINUTES + " minutes, it keeps running on the server");
+                        System.exit(1);
+                        return;
+                    } finally {
+                        UnicastRemoteObject.unexportObject(listener, true);
+                    }
+                    if (result == null) {
+                        LOGGER.error("Reticketing failed");
+                        break;
+                    }
+                    printReticketing(result, RemoteServices.cursors(parser.getServerAddress()));
                     LOGGER.info("Reticketing successful");
                     break;
+                case SIMULATE:
+                    LOGGER.info("Simulating the cancellation of flights " + parser.getFlightCodes());
+                    printForecast(flightManagerService.simulateReticketing(parser.getFlightCodes()));
+                    break;
             }
         } catch (FlightNotFoundException | IllegalFlightStateException |
                  RemoteException | IllegalArgumentException | ModelNotFoundException |
@@ -146,9 +193,49 @@ public class FlightManagerClient {
         }
     }
 
-    public static void printReticketing(ResponseCancelledList list) {
+    /**
+     * Prints each page of the unchanged tickets as it arrives
+     */
+    public static void printReticketing(ResponseCancelledList list, CursorService cursors) throws RemoteException {
         LOGGER.info("{} tickets were changed", list.getChanged());
-        list.getUnchangedTickets().forEach(t ->
+        printUnchanged(list.getUnchangedTickets());
+        if (!list.hasMoreTickets())
+            return;
+
+        ResultPage<?> page;
+        do {
+            page = cursors.nextPage(list.getCursorId(), PAGE_SIZE);
+            printUnchanged(page.getItems(CancelledTicket.class));
+        } while (page.hasMore());
+    }
+
+    private static void printUnchanged(List<CancelledTicket> tickets) {
+        tickets.forEach(t ->
                 LOGGER.info("Cannot find alternative flight " + "for {} on Flight {}\n", t.getPassenger(), t.getFlightCode()));
     }
+
+    public static void printStates(List<FlightStateResult> results) {
+        results.forEach(result -> {
+            if (result.isSuccessful())
+                LOGGER.info("Flight {} is {}", result.getFlightCode(), result.getState());
+            else
+                LOGGER.error("Flight {}: {}", result.getFlightCode(), result.getError());
+        });
+    }
+
+    public static void printForecast(ReticketingForecast forecast) {
+        LOGGER.info("{} tickets would be changed and {} would keep waiting", forecast.getChanged(),
+                forecast.getUnchanged());
+        forecast.getUnchangedByDestination().forEach((destination, byCategory) -> byCategory.forEach(
+                (category, count) -> LOGGER.info("{} {} tickets to {} would keep waiting", count, category, destination)));
+    }
+
+    public static void printStateChanges(List<FlightStateResult> results) {
+        results.forEach(result -> {
+            if (result.isSuccessful())
+                LOGGER.info("Flight {} is now {}", result.getFlightCode(), result.getState());
+            else
+                LOGGER.error("Flight {} was not changed: {}", result.getFlightCode(), result.getError());
+        });
+    }
 }
@@ -3,14 +3,15 @@ package ar.edu.itba.pod.client;
 import ar.edu.itba.pod.callbacks.NotificationHandler;
 import ar.edu.itba.pod.client.parsers.FlightNotificationsParser;
 import ar.edu.itba.pod.client.utils.NotificationHandlerImpl;
+import ar.edu.itba.pod.client.utils.RemoteServices;
 import ar.edu.itba.pod.interfaces.NotificationService;
 import ar.edu.itba.pod.models.exceptions.PassengerNotSeatedException;
 import ar.edu.itba.pod.models.exceptions.flightExceptions.IllegalFlightStateException;
+import ar.edu.itba.pod.rmi.SocketFactories;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.MalformedURLException;
-import java.rmi.Naming;
 import java.rmi.NotBoundException;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
@@ -32,12 +33,11 @@ public class FlightNotificationsClient {
 
         final Registry registry = LocateRegistry.getRegistry();
 
-        final Remote remote = UnicastRemoteObject.exportObject(notificationHandler, 0);
+        final Remote remote = SocketFactories.export(notificationHandler);
 
         registry.rebind("notificationHandler", remote);
 
-        NotificationService notificationService = (NotificationService) Naming.lookup("//" +
-                parser.getServerAddress() + "/notificationService");
+        NotificationService notificationService = RemoteServices.notifications(parser.getServerAddress());
 
         try {
             notificationService.registerPassenger(parser.getFlight(), parser.getPassenger(), notificationHandler);
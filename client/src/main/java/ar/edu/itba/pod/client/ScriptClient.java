@@ -0,0 +1,309 @@
+package ar.edu.itba.pod.client;
+
+import ar.edu.itba.pod.client.parsers.ScriptParser;
+import ar.edu.itba.pod.client.utils.AsyncServices;
+import ar.edu.itba.pod.client.utils.ScriptActions;
+import ar.edu.itba.pod.client.utils.ScriptCommand;
+import ar.edu.itba.pod.models.AlternativeFlightResponse;
+import ar.edu.itba.pod.models.ResponseCancelledList;
+import ar.edu.itba.pod.models.ResponseRow;
+import ar.edu.itba.pod.models.RowCategory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.MalformedURLException;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Runs a script of client commands, one per line, against a single connection to the server.
+ * Commands on different flights run in parallel. On the same flight, a command that changes it
+ * waits for every earlier command on it, and one that only reads it waits for the earlier changes.
+ * Commands that may touch any flight wait for everything before them. Lines starting with '#' are
+ * comments.
+ */
+public class ScriptClient {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptClient.class);
+
+    private final AsyncServices services;
+    private final Map<String, FlightCommands> byFlight = new HashMap<>();
+    private final Map<ScriptActions, int[]> outcomes = new EnumMap<>(ScriptActions.class);
+    private int invalid = 0;
+
+    private ScriptClient(AsyncServices services) {
+        this.services = services;
+    }
+
+    public static void main(String[] args) throws MalformedURLException, NotBoundException, RemoteException {
+        ScriptParser parser = new ScriptParser();
+        parser.parse();
+
+        LOGGER.info("Script Client Starting ...");
+
+        try (AsyncServices services = AsyncServices.connect(parser.getServerAddress(), parser.getParallelism());
+             BufferedReader reader = new BufferedReader(parser.getInPath().isPresent()
+                     ? new FileReader(parser.getInPath().get())
+                     : new InputStreamReader(System.in))) {
+            ScriptClient client = new ScriptClient(services);
+            long start = System.nanoTime();
+            client.run(reader);
+            client.printSummary(System.nanoTime() - start);
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void run(BufferedReader reader) throws IOException {
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+
+            try {
+                submit(ScriptCommand.parse(lineNumber, line));
+            } catch (IllegalArgumentException e) {
+                synchronized (this) {
+                    invalid++;
+                    System.out.printf("%d: INVALID: %s\n", lineNumber, e.getMessage());
+                }
+            }
+        }
+        awaitAll();
+    }
+
+    private void submit(ScriptCommand command) {
+        if (command.getAction().isBarrier()) {
+            awaitAll();
+            run(command, CompletableFuture.completedFuture(null)).join();
+            return;
+        }
+
+        List<CompletableFuture<Void>> previous = new ArrayList<>();
+        List<FlightCommands> flights = new ArrayList<>();
+        for (String flight : command.getFlights()) {
+            FlightCommands commands = byFlight.computeIfAbsent(flight, k -> new FlightCommands());
+            commands.addDependencies(command.getAction().isReadOnly(), previous);
+            flights.add(commands);
+        }
+
+        CompletableFuture<Void> done = run(command,
+                CompletableFuture.allOf(previous.toArray(new CompletableFuture<?>[0])));
+        flights.forEach(commands -> commands.add(command.getAction().isReadOnly(), done));
+    }
+
+    private void awaitAll() {
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        byFlight.values().forEach(commands -> commands.addDependencies(false, pending));
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        byFlight.clear();
+    }
+
+    /**
+     * Runs the command once after is done. The returned future never fails, the outcome is
+     * printed and counted instead.
+     */
+    private CompletableFuture<Void> run(ScriptCommand command, CompletableFuture<?> after) {
+        return after.thenCompose(v -> execute(command))
+                .handle((output, e) -> {
+                    report(command, output, e);
+                    return null;
+                });
+    }
+
+    private CompletableFuture<String> execute(ScriptCommand command) {
+        try {
+            switch (command.getAction()) {
+                case MODELS:
+                    String models = command.get("inPath");
+                    return services.flightManager().call(s -> {
+                        FlightManagerClient.readPlaneModels(models, s);
+                        return "Models uploaded";
+                    });
+                case FLIGHTS:
+                    String flights = command.get("inPath");
+                    return services.flightManager().call(s -> {
+                        FlightManagerClient.readFlights(flights, s);
+                        return "Flights uploaded";
+                    });
+                case STATUS:
+                    String flight = command.get("flight");
+                    if (!command.find("row").isPresent())
+                        return services.flightManager().call(s -> s.getFlightState(flight).toString());
+                    int row = command.getInt("row");
+                    char col = command.getChar("col");
+                    return services.seatManager().call(s -> "Is available: " + s.isAvailable(flight, row, col));
+                case CONFIRM:
+                    String confirmed = command.get("flight");
+                    return services.flightManager().call(s -> {
+                        s.confirmFlight(confirmed);
+                        return "Flight confirmed";
+                    });
+                case CANCEL:
+                    String cancelled = command.get("flight");
+                    return services.flightManager().call(s -> {
+                        s.cancelFlight(cancelled);
+                        return "Flight cancelled";
+                    });
+                case RETICKETING:
+                    return services.flightManager().call(s -> formatReticketing(s.changeCancelledFlights()));
+                case ASSIGN:
+                    return seatChange(command, true);
+                case MOVE:
+                    return seatChange(command, false);
+                case ALTERNATIVES:
+                    String alternativesFlight = command.get("flight");
+                    String passenger = command.get("passenger");
+                    return services.seatManager().call(s -> formatAlternatives(
+                            s.listAlternativeFlights(alternativesFlight, passenger)));
+                case CHANGE_TICKET:
+                    String changedPassenger = command.get("passenger");
+                    String original = command.get("originalFlight");
+                    String target = command.get("flight");
+                    return services.seatManager().call(s -> {
+                        s.changeFlight(changedPassenger, original, target);
+                        return "Ticket changed to " + target;
+                    });
+                case QUERY:
+                    return query(command);
+                default:
+                    throw new IllegalArgumentException("Invalid operation");
+            }
+        } catch (IllegalArgumentException e) {
+            CompletableFuture<String> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private CompletableFuture<String> seatChange(ScriptCommand command, boolean assign) {
+        String flight = command.get("flight");
+        String passenger = command.get("passenger");
+        int row = command.getInt("row");
+        char col = command.getChar("col");
+        return services.seatManager().call(s -> {
+            if (assign)
+                s.assign(flight, passenger, row, col);
+            else
+                s.changeSeat(flight, passenger, row, col);
+            return passenger + " seated at " + row + col;
+        });
+    }
+
+    private CompletableFuture<String> query(ScriptCommand command) {
+        String flight = command.get("flight");
+        Integer row = command.find("row").map(Integer::parseInt).orElse(null);
+        RowCategory category = command.find("category").map(RowCategory::valueOf).orElse(null);
+        if (row != null && category != null)
+            throw new IllegalArgumentException("Invalid params");
+        String outPath = command.find("outPath").orElse(null);
+
+        return services.seatQuery().call(s -> {
+            List<ResponseRow> rows;
+            if (row != null)
+                rows = Collections.singletonList(s.query(flight, row));
+            else if (category != null)
+                rows = s.query(flight, category);
+            else
+                rows = s.query(flight);
+
+            if (outPath != null) {
+                SeatQueryClient.writeToCSV(rows, outPath);
+                return rows.size() + " rows written to " + outPath;
+            }
+            List<String> lines = new ArrayList<>();
+            for (ResponseRow responseRow : rows) {
+                lines.add(new String(responseRow.getPassengerInitials()) + " " + responseRow.getRowCategory());
+            }
+            return String.join("\n", lines);
+        });
+    }
+
+    private static String formatReticketing(ResponseCancelledList list) {
+        StringBuilder builder = new StringBuilder(list.getChanged() + " tickets were changed");
+        list.getUnchangedTickets().forEach(t -> builder.append("\nCannot find alternative flight for ")
+                .append(t.getPassenger()).append(" on Flight ").append(t.getFlightCode()));
+        return builder.toString();
+    }
+
+    private static String formatAlternatives(List<AlternativeFlightResponse> alternatives) {
+        List<String> lines = new ArrayList<>();
+        for (AlternativeFlightResponse flight : alternatives) {
+            flight.getAvailableSeats().forEach((category, available) -> lines.add(String.format("%s | %s | %d %s",
+                    flight.getDestination(), flight.getFlightCode(), available, category)));
+        }
+        return lines.isEmpty() ? "No alternative flights" : String.join("\n", lines);
+    }
+
+    private synchronized void report(ScriptCommand command, String output, Throwable e) {
+        int[] counts = outcomes.computeIfAbsent(command.getAction(), k -> new int[2]);
+        if (e == null) {
+            counts[0]++;
+            System.out.printf("%d: %s OK: %s\n", command.getLine(), command.getAction().getDescription(), output);
+            return;
+        }
+
+        counts[1]++;
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        System.out.printf("%d: %s FAILED: %s\n", command.getLine(), command.getAction().getDescription(),
+                cause.getMessage());
+    }
+
+    private synchronized void printSummary(long elapsedNanos) {
+        int succeeded = 0;
+        int failed = 0;
+        System.out.println("---");
+        for (Map.Entry<ScriptActions, int[]> entry : outcomes.entrySet()) {
+            succeeded += entry.getValue()[0];
+            failed += entry.getValue()[1];
+            System.out.printf("%-13s %6d ok %6d failed\n", entry.getKey().getDescription(),
+                    entry.getValue()[0], entry.getValue()[1]);
+        }
+
+        int total = succeeded + failed + invalid;
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%d commands: %d ok, %d failed, %d invalid in %.2f s (%.0f commands/s)\n",
+                total, succeeded, failed, invalid, seconds, total / Math.max(seconds, 1e-9));
+    }
+
+    /**
+     * Commands submitted on a flight that later ones may have to wait for: the last change and
+     * the reads after it
+     */
+    private static class FlightCommands {
+        private CompletableFuture<Void> lastChange;
+        private final List<CompletableFuture<Void>> reads = new ArrayList<>();
+
+        private void addDependencies(boolean readOnly, List<CompletableFuture<Void>> dependencies) {
+            if (lastChange != null)
+                dependencies.add(lastChange);
+            if (!readOnly)
+                dependencies.addAll(reads);
+        }
+
+        private void add(boolean readOnly, CompletableFuture<Void> command) {
+            if (readOnly) {
+                reads.removeIf(CompletableFuture::isDone);
+                reads.add(command);
+            } else {
+                lastChange = command;
+                reads.clear();
+            }
+        }
+    }
+}
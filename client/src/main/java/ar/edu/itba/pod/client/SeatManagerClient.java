@@ -2,28 +2,41 @@ package ar.edu.itba.pod.client;
 
 
 import ar.edu.itba.pod.client.parsers.SeatManagerParser;
+import ar.edu.itba.pod.client.utils.RemoteServices;
 import ar.edu.itba.pod.interfaces.SeatManagerService;
 import ar.edu.itba.pod.models.AlternativeFlightResponse;
+import ar.edu.itba.pod.models.SeatOperation;
+import ar.edu.itba.pod.models.SeatOperationResult;
+import ar.edu.itba.pod.models.Ticket;
 import ar.edu.itba.pod.models.exceptions.IllegalPassengerCategoryException;
 import ar.edu.itba.pod.models.exceptions.IllegalRowException;
 import ar.edu.itba.pod.models.exceptions.PassengerAlreadySeatedException;
 import ar.edu.itba.pod.models.exceptions.PassengerNotSeatedException;
 import ar.edu.itba.pod.models.exceptions.flightExceptions.IllegalFlightStateException;
 import ar.edu.itba.pod.models.exceptions.notFoundExceptions.FlightNotFoundException;
+import ar.edu.itba.pod.models.exceptions.notFoundExceptions.SeatHoldNotFoundException;
 import ar.edu.itba.pod.models.exceptions.notFoundExceptions.TicketNotFoundException;
 import ar.edu.itba.pod.models.exceptions.seatExceptions.NoAvailableSeatsException;
 import ar.edu.itba.pod.models.exceptions.seatExceptions.SeatAlreadyTakenException;
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.ICSVParser;
+import com.opencsv.exceptions.CsvValidationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.FileReader;
+import java.io.IOException;
 import java.net.MalformedURLException;
-import java.rmi.Naming;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
+import java.util.ArrayList;
 import java.util.List;
 
 public class SeatManagerClient {
     private static final Logger LOGGER = LoggerFactory.getLogger(SeatManagerClient.class);
+    private static final ICSVParser CSV_PARSER = new CSVParserBuilder().withSeparator(';').build();
 
     public static void main(String[] args) throws MalformedURLException, NotBoundException, RemoteException {
         SeatManagerParser parser = new SeatManagerParser();
@@ -31,8 +44,7 @@ public class SeatManagerClient {
 
         LOGGER.info("Flight Notifications Client Starting ...");
 
-        SeatManagerService service = (SeatManagerService) Naming.lookup("//" +
-                parser.getServerAddress() + "/seatManagerService");
+        SeatManagerService service = RemoteServices.seatManager(parser.getServerAddress());
 
         try {
             switch (parser.getAction().get()) {
@@ -42,6 +54,28 @@ public class SeatManagerClient {
                 case ASSIGN:
                     service.assign(parser.getFlightCode(), parser.getPassenger().orElseThrow(RuntimeException::new), parser.getRow().orElseThrow(RuntimeException::new), parser.getColumn().orElseThrow(RuntimeException::new));
                     break;
+                case AUTO_ASSIGN:
+                    Ticket ticket = service.assignAuto(parser.getFlightCode(), parser.getPassenger().orElseThrow(RuntimeException::new), parser.getCategories());
+                    System.out.println("Assigned seat " + ticket.getRow() + ticket.getCol() + " (" + ticket.getCategory() + ")");
+                    break;
+                case GROUP_ASSIGN:
+                    for (Ticket seated : service.assignGroup(parser.getFlightCode(), parser.getPassengers()))
+                        System.out.println(seated.getPassenger() + ": " + seated.getRow() + seated.getCol());
+                    break;
+                case BATCH:
+                    List<SeatOperationResult> results = service.applyBatch(parser.getFlightCode(), readOperations(parser.getInPath().orElseThrow(RuntimeException::new)));
+                    printResults(results);
+                    break;
+                case HOLD:
+                    service.hold(parser.getFlightCode(), parser.getPassenger().orElseThrow(RuntimeException::new), parser.getRow().orElseThrow(RuntimeException::new), parser.getColumn().orElseThrow(RuntimeException::new), parser.getSeconds());
+                    break;
+                case ASSIGN_HELD:
+                    Ticket held = service.assignHeld(parser.getFlightCode(), parser.getPassenger().orElseThrow(RuntimeException::new));
+                    System.out.println("Assigned seat " + held.getRow() + held.getCol());
+                    break;
+                case RELEASE_HOLD:
+                    service.releaseHold(parser.getFlightCode(), parser.getPassenger().orElseThrow(RuntimeException::new));
+                    break;
                 case ALTERNATIVES:
                     List<AlternativeFlightResponse> res = service.listAlternativeFlights(parser.getFlightCode(), parser.getPassenger().orElseThrow(RuntimeException::new));
                     printAlternatives(res);
@@ -57,8 +91,41 @@ public class SeatManagerClient {
             }
         } catch (SeatAlreadyTakenException | IllegalFlightStateException | PassengerAlreadySeatedException |
                  TicketNotFoundException | IllegalPassengerCategoryException | PassengerNotSeatedException |
-                 IllegalRowException | RemoteException | FlightNotFoundException | NoAvailableSeatsException e) {
+                 IllegalRowException | RemoteException | FlightNotFoundException | NoAvailableSeatsException |
+                 SeatHoldNotFoundException e) {
+            LOGGER.error(e.getMessage());
+        }
+    }
+
+    public static List<SeatOperation> readOperations(String fileName) {
+        List<SeatOperation> operations = new ArrayList<>();
+        try (FileReader fr = new FileReader(fileName); CSVReader reader = new CSVReaderBuilder(fr)
+                .withCSVParser(CSV_PARSER).build()) {
+            String[] nextLine;
+            reader.readNext();
+            while ((nextLine = reader.readNext()) != null) {
+                SeatOperation.Type type = SeatOperation.Type.valueOf(nextLine[0]);
+                String passenger = nextLine[1];
+                int row = Integer.parseInt(nextLine[2]);
+                char seat = nextLine[3].charAt(0);
+                operations.add(new SeatOperation(type, passenger, row, seat));
+            }
+        } catch (IOException | CsvValidationException e) {
             LOGGER.error(e.getMessage());
+            throw new IllegalArgumentException("Error reading CSV");
+        }
+        return operations;
+    }
+
+    public static void printResults(List<SeatOperationResult> results) {
+        for (SeatOperationResult result : results) {
+            SeatOperation operation = result.getOperation();
+            if (result.isSuccessful())
+                System.out.printf("%s %s %d%c OK\n", operation.getType(), operation.getPassenger(),
+                        operation.getRow(), operation.getSeat());
+            else
+                System.out.printf("%s %s %d%c FAILED: %s\n", operation.getType(), operation.getPassenger(),
+                        operation.getRow(), operation.getSeat(), result.getError());
         }
     }
 
@@ -1,8 +1,12 @@
 package ar.edu.itba.pod.client;
 
 import ar.edu.itba.pod.client.parsers.SeatQueryParser;
+import ar.edu.itba.pod.client.utils.RemoteServices;
+import ar.edu.itba.pod.interfaces.CursorService;
 import ar.edu.itba.pod.interfaces.SeatQueryService;
 import ar.edu.itba.pod.models.ResponseRow;
+import ar.edu.itba.pod.models.ResultPage;
+import ar.edu.itba.pod.models.SeatMapResult;
 import ar.edu.itba.pod.models.exceptions.notFoundExceptions.FlightNotFoundException;
 import com.opencsv.CSVWriter;
 import org.slf4j.Logger;
@@ -12,7 +16,6 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.MalformedURLException;
-import java.rmi.Naming;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
 import java.util.Collections;
@@ -20,6 +23,8 @@ import java.util.List;
 
 public class SeatQueryClient {
     private static final Logger LOGGER = LoggerFactory.getLogger(SeatQueryClient.class);
+    private static final String[] HEADER = {"Seats", "Category"};
+    private static final int PAGE_SIZE = 100;
 
     public static void main(String[] args) throws MalformedURLException, NotBoundException, RemoteException {
         SeatQueryParser parser = new SeatQueryParser();
@@ -27,7 +32,7 @@ public class SeatQueryClient {
 
         LOGGER.info("Flight Notifications Client Starting ...");
 
-        SeatQueryService service = (SeatQueryService) Naming.lookup("//" + parser.getServerAddress() + "/seatQueryService");
+        SeatQueryService service = RemoteServices.seatQuery(parser.getServerAddress());
 
         List<ResponseRow> rows = null;
 
@@ -36,6 +41,14 @@ public class SeatQueryClient {
                 LOGGER.error("Invalid params");
                 System.exit(1);
 
+            } else if (!parser.getFlights().isEmpty()) {
+                if (parser.getRow().isPresent() || parser.getCategory().isPresent()) {
+                    LOGGER.error("Invalid params");
+                    System.exit(1);
+                }
+                writeToCSVs(service.queryFlights(parser.getFlights()), parser.getOutPath());
+                return;
+
             } else if (parser.getRow().isPresent()) {
                 rows = Collections.singletonList(service.query(parser.getFlight(), parser.getRow().get()));
 
@@ -43,7 +56,9 @@ public class SeatQueryClient {
                 rows = service.query(parser.getFlight(), parser.getCategory().get());
 
             } else {
-                rows = service.query(parser.getFlight());
+                writeToCSV(service.queryPage(parser.getFlight(), PAGE_SIZE),
+                        RemoteServices.cursors(parser.getServerAddress()), parser.getOutPath());
+                return;
             }
             writeToCSV(rows, parser.getOutPath());
         } catch (FlightNotFoundException | RemoteException |
@@ -52,34 +67,73 @@ public class SeatQueryClient {
         }
     }
 
-    public static void writeToCSV(List<ResponseRow> rows, String path) {
+    /**
+     * Writes each seat map to its own file, named after the given path with the flight code in
+     * front, and logs the flights that failed
+     */
+    public static void writeToCSVs(List<SeatMapResult> results, String path) {
         File file = new File(path);
-        try {
-            FileWriter outputFile = new FileWriter(file);
-
-            CSVWriter writer = new CSVWriter(outputFile);
-
-            String[] header = {"Seats", "Category"};
-            writer.writeNext(header);
+        for (SeatMapResult result : results) {
+            if (!result.isSuccessful()) {
+                LOGGER.error("Flight {}: {}", result.getFlightCode(), result.getError());
+                continue;
+            }
+            System.out.println(result.getFlightCode());
+            writeToCSV(result.getRows(), new File(file.getAbsoluteFile().getParentFile(),
+                    result.getFlightCode() + "-" + file.getName()).getPath());
+        }
+    }
 
-            int index = 0;
-            for (ResponseRow row : rows) {
+    public static void writeToCSV(List<ResponseRow> rows, String path) {
+        try (CSVWriter writer = new CSVWriter(new FileWriter(new File(path)))) {
+            writer.writeNext(HEADER);
+            writeRows(writer, rows, 0);
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage());
+            throw new IllegalArgumentException("Error writing CSV");
+        }
+    }
 
-                StringBuilder stringBuilder = new StringBuilder("|");
-                for (int i = 0; i < row.getPassengerInitials().length; i++) {
-                    stringBuilder.append(index).append(" ").append((char) (i + 'A')).append(" ").append(row.getPassengerInitials()[i]).append("|");
-                }
-                String[] seats = new String[2];
-                seats[0] = stringBuilder.toString();
-                seats[1] = row.getRowCategory().toString();
-                System.out.println(seats[0] + " " + seats[1]);
-                index++;
-                writer.writeNext(seats);
+    /**
+     * Writes the first page and then each following one as it is pulled from the cursor, so the
+     * whole map is never held at once
+     */
+    public static void writeToCSV(ResultPage<ResponseRow> firstPage, CursorService cursors, String path)
+            throws RemoteException {
+        try (CSVWriter writer = new CSVWriter(new FileWriter(new File(path)))) {
+            writer.writeNext(HEADER);
+            ResultPage<?> page = firstPage;
+            int index = writeRows(writer, firstPage.getItems(), 0);
+            while (page.hasMore()) {
+                writer.flush();
+                page = cursors.nextPage(page.getCursorId(), PAGE_SIZE);
+                index = writeRows(writer, page.getItems(ResponseRow.class), index);
             }
-            writer.close();
         } catch (IOException e) {
+            if (e instanceof RemoteException)
+                throw (RemoteException) e;
             LOGGER.error(e.getMessage());
             throw new IllegalArgumentException("Error writing CSV");
         }
     }
+
+    /**
+     * Writes the rows numbered from the given index and returns the index that follows them
+     */
+    private static int writeRows(CSVWriter writer, List<ResponseRow> rows, int index) {
+        for (ResponseRow row : rows) {
+
+            StringBuilder stringBuilder = new StringBuilder("|");
+            for (int i = 0; i < row.getPassengerInitials().length; i++) {
+                stringBuilder.append(index).append(" ").append((char) (i + 'A')).append(" ").append(row.getPassengerInitials()[i]).append("|");
+            }
+            String[] seats = new String[2];
+            seats[0] = stringBuilder.toString();
+            seats[1] = row.getRowCategory().toString();
+            System.out.println(seats[0] + " " + seats[1]);
+            index++;
+            writer.writeNext(seats);
+        }
+        return index;
+    }
 }
@@ -4,6 +4,9 @@ import ar.edu.itba.pod.client.utils.FlightActions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 
@@ -14,11 +17,13 @@ public class FlightManagerParser {
     private static final String ACTION = "action";
     private static final String PATH = "inPath";
     private static final String FLIGHT_CODE = "flight";
+    private static final String FLIGHT_CODES = "flights";
 
     private String serverAddress;
     private Optional<FlightActions> action;
     private String path;
     private String flightCode;
+    private List<String> flightCodes = new ArrayList<>();
 
     public void parse() {
         Properties props = System.getProperties();
@@ -43,6 +48,8 @@ public class FlightManagerParser {
 
         path = props.getProperty(PATH);
         flightCode = props.getProperty(FLIGHT_CODE);
+        Optional.ofNullable(props.getProperty(FLIGHT_CODES)).ifPresent(p -> Arrays.stream(p.split(","))
+                .map(String::trim).filter(code -> !code.isEmpty()).forEach(flightCodes::add));
 
         if(FlightActions.MODELS.equals(action.orElse(null))
                 || FlightActions.FLIGHTS.equals(action.orElse(null))) {
@@ -60,6 +67,16 @@ public class FlightManagerParser {
                 System.exit(1);
             }
         }
+
+        if (FlightActions.CONFIRM_ALL.equals(action.orElse(null)) ||
+                FlightActions.CANCEL_ALL.equals(action.orElse(null)) ||
+                FlightActions.STATUS_ALL.equals(action.orElse(null)) ||
+                FlightActions.SIMULATE.equals(action.orElse(null))) {
+            if (flightCodes.isEmpty()) {
+                LOGGER.error("Flight codes not specified");
+                System.exit(1);
+            }
+        }
     }
 
     public String getServerAddress() {
@@ -77,4 +94,8 @@ public class FlightManagerParser {
     public String getFlightCode() {
         return flightCode;
     }
+
+    public List<String> getFlightCodes() {
+        return flightCodes;
+    }
 }
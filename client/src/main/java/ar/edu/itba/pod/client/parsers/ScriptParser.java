@@ -0,0 +1,58 @@
+package ar.edu.itba.pod.client.parsers;
+
+import ar.edu.itba.pod.client.utils.AsyncServices;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.Properties;
+
+public class ScriptParser {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptParser.class);
+    private static final String SERVER_ADDRESS = "serverAddress";
+    private static final String PATH = "inPath";
+    private static final String PARALLELISM = "parallelism";
+
+    private String serverAddress;
+    private Optional<String> inPath;
+    private int parallelism = AsyncServices.DEFAULT_MAX_CONCURRENT_CALLS;
+
+    public void parse() {
+        Properties props = System.getProperties();
+
+        if ((serverAddress = props.getProperty(SERVER_ADDRESS)) == null) {
+            LOGGER.error("Server address not specified");
+            System.exit(1);
+        }
+
+        inPath = Optional.ofNullable(props.getProperty(PATH));
+
+        try {
+            Optional.ofNullable(props.getProperty(PARALLELISM)).map(Integer::parseInt)
+                    .ifPresent(p -> parallelism = p);
+        } catch (NumberFormatException e) {
+            LOGGER.error("Invalid parallelism");
+            System.exit(1);
+        }
+
+        if (parallelism <= 0) {
+            LOGGER.error("Parallelism must be positive");
+            System.exit(1);
+        }
+    }
+
+    public String getServerAddress() {
+        return serverAddress;
+    }
+
+    /**
+     * Script file, or empty to read the commands from the standard input
+     */
+    public Optional<String> getInPath() {
+        return inPath;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+}
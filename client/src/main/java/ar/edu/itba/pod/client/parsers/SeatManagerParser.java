@@ -1,10 +1,13 @@
 package ar.edu.itba.pod.client.parsers;
 
 import ar.edu.itba.pod.client.utils.SeatActions;
+import ar.edu.itba.pod.models.RowCategory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 
@@ -17,6 +20,11 @@ public class SeatManagerParser {
     private static final String ROW = "row";
     private static final String COLUMN = "col";
     private static final String ORIGINAL_FLIGHT = "originalFlight";
+    private static final String CATEGORIES = "categories";
+    private static final String PASSENGERS = "passengers";
+    private static final String PATH = "inPath";
+    private static final String SECONDS = "seconds";
+    private static final int DEFAULT_HOLD_SECONDS = 60;
 
     private String serverAddress;
     private String flightCode;
@@ -25,6 +33,10 @@ public class SeatManagerParser {
     private Optional<Integer> row;
     private Optional<Character> column;
     private Optional<String> originalFlightCode;
+    private List<RowCategory> categories = new ArrayList<>();
+    private List<String> passengers = new ArrayList<>();
+    private Optional<String> inPath;
+    private int seconds = DEFAULT_HOLD_SECONDS;
 
     public void parse() {
         Properties props = System.getProperties();
@@ -59,7 +71,7 @@ public class SeatManagerParser {
         col.ifPresent(s -> column = Optional.of(s.charAt(0)));
 
         if (SeatActions.STATUS.equals(action.orElse(null)) || SeatActions.ASSIGN.equals(action.orElse(null)) ||
-                SeatActions.MOVE.equals(action.orElse(null))) {
+                SeatActions.MOVE.equals(action.orElse(null)) || SeatActions.HOLD.equals(action.orElse(null))) {
             try {
                 row = Optional.ofNullable(props.getProperty(ROW)).map(Integer::parseInt);
             } catch (NumberFormatException e) {
@@ -73,12 +85,45 @@ public class SeatManagerParser {
         }
 
         if (SeatActions.ASSIGN.equals(action.orElse(null)) || SeatActions.MOVE.equals(action.orElse(null))
-                || SeatActions.ALTERNATIVES.equals(action.orElse(null)) || SeatActions.CHANGE_TICKET.equals(action.orElse(null))) {
+                || SeatActions.ALTERNATIVES.equals(action.orElse(null)) || SeatActions.CHANGE_TICKET.equals(action.orElse(null))
+                || SeatActions.AUTO_ASSIGN.equals(action.orElse(null)) || SeatActions.HOLD.equals(action.orElse(null))
+                || SeatActions.ASSIGN_HELD.equals(action.orElse(null)) || SeatActions.RELEASE_HOLD.equals(action.orElse(null))) {
             if (!passenger.isPresent()) {
                 LOGGER.error("Passenger not specified");
             }
         }
 
+        try {
+            Optional.ofNullable(props.getProperty(CATEGORIES)).ifPresent(p -> Arrays.stream(p.split(","))
+                    .map(String::trim).map(RowCategory::valueOf).forEach(categories::add));
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Invalid categories", e);
+            System.exit(1);
+        }
+
+        Optional.ofNullable(props.getProperty(PASSENGERS)).ifPresent(p -> Arrays.stream(p.split(","))
+                .map(String::trim).forEach(passengers::add));
+
+        if (SeatActions.GROUP_ASSIGN.equals(action.orElse(null)) && passengers.isEmpty()) {
+            LOGGER.error("Passengers not specified");
+            System.exit(1);
+        }
+
+        try {
+            seconds = Optional.ofNullable(props.getProperty(SECONDS)).map(Integer::parseInt)
+                    .orElse(DEFAULT_HOLD_SECONDS);
+        } catch (NumberFormatException e) {
+            LOGGER.error("Invalid seconds", e);
+            System.exit(1);
+        }
+
+        inPath = Optional.ofNullable(props.getProperty(PATH));
+
+        if (SeatActions.BATCH.equals(action.orElse(null)) && !inPath.isPresent()) {
+            LOGGER.error("Path not specified");
+            System.exit(1);
+        }
+
         originalFlightCode = Optional.ofNullable(props.getProperty(ORIGINAL_FLIGHT));
 
         if (SeatActions.CHANGE_TICKET.equals(action.orElse(null))) {
@@ -116,4 +161,20 @@ public class SeatManagerParser {
     public Optional<String> getOriginalFlightCode() {
         return originalFlightCode;
     }
+
+    public List<RowCategory> getCategories() {
+        return categories;
+    }
+
+    public List<String> getPassengers() {
+        return passengers;
+    }
+
+    public Optional<String> getInPath() {
+        return inPath;
+    }
+
+    public int getSeconds() {
+        return seconds;
+    }
 }
@@ -4,6 +4,9 @@ import ar.edu.itba.pod.models.RowCategory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 
@@ -11,12 +14,14 @@ public class SeatQueryParser {
     private final Logger LOGGER = LoggerFactory.getLogger(SeatQueryParser.class);
     private static final String SERVER_ADDRESS = "serverAddress";
     private static final String FLIGHT = "flight";
+    private static final String FLIGHTS = "flights";
     private static final String CATEGORY = "category";
     private static final String ROW = "row";
     private static final String OUT_PATH = "outPath";
 
     private String serverAddress;
     private String flight;
+    private final List<String> flights = new ArrayList<>();
     private Optional<RowCategory> category;
     private Optional<Integer> row;
     private String outPath;
@@ -29,7 +34,10 @@ public class SeatQueryParser {
             System.exit(1);
         }
 
-        if((flight = props.getProperty(FLIGHT)) == null) {
+        flight = props.getProperty(FLIGHT);
+        Optional.ofNullable(props.getProperty(FLIGHTS)).ifPresent(p -> Arrays.stream(p.split(","))
+                .map(String::trim).filter(code -> !code.isEmpty()).forEach(flights::add));
+        if(flight == null && flights.isEmpty()) {
             LOGGER.error("Flight not specified");
             System.exit(1);
         }
@@ -48,6 +56,10 @@ public class SeatQueryParser {
         return flight;
     }
 
+    public List<String> getFlights() {
+        return flights;
+    }
+
     public Optional<RowCategory> getCategory() {
         return category;
     }
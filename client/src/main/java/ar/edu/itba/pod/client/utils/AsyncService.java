@@ -0,0 +1,62 @@
+package ar.edu.itba.pod.client.utils;
+
+import java.rmi.Remote;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs calls on a remote service stub without blocking the caller. RMI calls hold their thread
+ * until the server answers, so the service gets a fixed pool of as many threads as calls it may
+ * have in flight, and further calls wait in its queue. Results and errors, remote or thrown by
+ * the service, complete the returned future.
+ */
+public class AsyncService<S extends Remote> implements AutoCloseable {
+    private final S stub;
+    private final ExecutorService executor;
+
+    public AsyncService(String name, S stub, int maxConcurrentCalls) {
+        this.stub = stub;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConcurrentCalls, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public <T> CompletableFuture<T> call(RemoteCall<S, T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(call.call(stub));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    public CompletableFuture<Void> run(RemoteAction<S> action) {
+        return this.<Void>call(service -> {
+            action.run(service);
+            return null;
+        });
+    }
+
+    /**
+     * The stub itself, for calls that are fine to block
+     */
+    public S getStub() {
+        return stub;
+    }
+
+    /**
+     * Stops taking calls. The ones already queued still run.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,84 @@
+package ar.edu.itba.pod.client.utils;
+
+import ar.edu.itba.pod.interfaces.FlightManagerService;
+import ar.edu.itba.pod.interfaces.NotificationService;
+import ar.edu.itba.pod.interfaces.SeatManagerService;
+import ar.edu.itba.pod.interfaces.SeatQueryService;
+
+import java.net.MalformedURLException;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+
+/**
+ * Asynchronous access to the four remote services of a server. The stubs are looked up once on
+ * connect and shared by every call, and each service limits its own calls in flight, so a few
+ * threads can pipeline many requests. Seat availability is answered from a
+ * {@link SeatAvailabilityCache} of the flights asked about:
+ * <pre>
+ * try (AsyncServices services = AsyncServices.connect("127.0.0.1:1099")) {
+ *     services.seatManager().run(s -&gt; s.assign(flightCode, passenger, row, seat))
+ *             .thenCompose(v -&gt; services.seatQuery().call(s -&gt; s.query(flightCode)));
+ * }
+ * </pre>
+ */
+public class AsyncServices implements AutoCloseable {
+    public static final int DEFAULT_MAX_CONCURRENT_CALLS = 16;
+
+    private final AsyncService<FlightManagerService> flightManager;
+    private final AsyncService<SeatManagerService> seatManager;
+    private final AsyncService<SeatQueryService> seatQuery;
+    private final AsyncService<NotificationService> notifications;
+    private final SeatAvailabilityCache seatMaps;
+
+    private AsyncServices(String serverAddress, int maxConcurrentCalls)
+            throws MalformedURLException, NotBoundException, RemoteException {
+        SeatQueryService seatQueryService = RemoteServices.seatQuery(serverAddress);
+        this.seatMaps = new SeatAvailabilityCache(seatQueryService);
+        this.flightManager = new AsyncService<>("flightManagerService",
+                RemoteServices.flightManager(serverAddress), maxConcurrentCalls);
+        this.seatManager = new AsyncService<>("seatManagerService",
+                new CachingSeatManagerService(RemoteServices.seatManager(serverAddress), seatMaps),
+                maxConcurrentCalls);
+        this.seatQuery = new AsyncService<>("seatQueryService", seatQueryService, maxConcurrentCalls);
+        this.notifications = new AsyncService<>("notificationService",
+                RemoteServices.notifications(serverAddress), maxConcurrentCalls);
+    }
+
+    public static AsyncServices connect(String serverAddress)
+            throws MalformedURLException, NotBoundException, RemoteException {
+        return connect(serverAddress, DEFAULT_MAX_CONCURRENT_CALLS);
+    }
+
+    /**
+     * Each service allows up to maxConcurrentCalls calls in flight
+     */
+    public static AsyncServices connect(String serverAddress, int maxConcurrentCalls)
+            throws MalformedURLException, NotBoundException, RemoteException {
+        return new AsyncServices(serverAddress, maxConcurrentCalls);
+    }
+
+    public AsyncService<FlightManagerService> flightManager() {
+        return flightManager;
+    }
+
+    public AsyncService<SeatManagerService> seatManager() {
+        return seatManager;
+    }
+
+    public AsyncService<SeatQueryService> seatQuery() {
+        return seatQuery;
+    }
+
+    public AsyncService<NotificationService> notifications() {
+        return notifications;
+    }
+
+    @Override
+    public void close() {
+        flightManager.close();
+        seatManager.close();
+        seatQuery.close();
+        notifications.close();
+        seatMaps.close();
+    }
+}
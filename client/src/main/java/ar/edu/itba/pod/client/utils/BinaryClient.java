@@ -0,0 +1,206 @@
+package ar.edu.itba.pod.client.utils;
+
+import ar.edu.itba.pod.protocol.BinaryCodec;
+import ar.edu.itba.pod.protocol.BinaryProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.rmi.ConnectException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stubs for the services of a server over its binary transport. Every stub shares a single
+ * connection: calls from many threads are written as they come and matched with their replies
+ * by id, so they are pipelined instead of waiting for each other. Handlers passed to the
+ * services stay here and are called, in the order the server pushed them, on a single thread.
+ */
+public class BinaryClient implements BinaryCodec.Callbacks, AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BinaryClient.class);
+
+    private final Socket socket;
+    private final OutputStream out;
+    private final BinaryCodec codec = new BinaryCodec(this, true);
+    private final AtomicInteger nextCallId = new AtomicInteger();
+    private final Map<Integer, CompletableFuture<Object>> calls = new ConcurrentHashMap<>();
+    private final Map<Integer, Remote> handlers = new ConcurrentHashMap<>();
+    private final Map<Remote, Integer> handlerIds = new IdentityHashMap<>();
+    private final ExecutorService callbacks = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "binary-callbacks");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean closed = false;
+
+    private BinaryClient(Socket socket) throws IOException {
+        this.socket = socket;
+        this.out = socket.getOutputStream();
+        Thread reader = new Thread(this::read, "binary-reader-" + socket.getRemoteSocketAddress());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    public static BinaryClient connect(String host, int port) throws RemoteException {
+        try {
+            Socket socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port));
+            return new BinaryClient(socket);
+        } catch (IOException e) {
+            throw new ConnectException("Could not connect to " + host + ":" + port, e);
+        }
+    }
+
+    public <S extends Remote> S service(Class<S> type) {
+        int service = BinaryProtocol.SERVICES.indexOf(type);
+        if (service < 0)
+            throw new IllegalArgumentException(type.getName() + " is not served by the binary protocol");
+
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return type.getSimpleName() + " at " + socket.getRemoteSocketAddress();
+                }
+            }
+            return call(service, BinaryProtocol.methodIndex(type, method), args);
+        }));
+    }
+
+    private Object call(int service, int method, Object[] args) throws Throwable {
+        if (closed)
+            throw new ConnectException("Binary connection to " + socket.getRemoteSocketAddress() + " is closed");
+
+        int id = nextCallId.incrementAndGet();
+        ByteBuffer frame = codec.call(id, service, method, args);
+        CompletableFuture<Object> reply = new CompletableFuture<>();
+        calls.put(id, reply);
+        if (closed && calls.remove(id) != null) // Lost while the call was being registered
+            throw new ConnectException("Binary connection to " + socket.getRemoteSocketAddress() + " is closed");
+        try {
+            synchronized (out) {
+                out.write(frame.array(), 0, frame.limit());
+            }
+        } catch (IOException e) {
+            calls.remove(id);
+            throw new ConnectException("Could not send a call", e);
+        }
+
+        try {
+            return reply.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            calls.remove(id);
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted while waiting for a reply", e);
+        }
+    }
+
+    /**
+     * Completes the calls with their replies and dispatches the pushes, until the connection closes
+     */
+    private void read() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (true) {
+                int length = in.readInt();
+                if (length < BinaryProtocol.HEADER_LENGTH || length > BinaryProtocol.MAX_FRAME_LENGTH)
+                    throw new StreamCorruptedException("Invalid frame length " + length);
+                byte[] frame = new byte[length];
+                in.readFully(frame);
+                DataInputStream payload = new DataInputStream(new ByteArrayInputStream(frame));
+                int id = payload.readInt();
+                byte kind = payload.readByte();
+
+                if (kind == BinaryProtocol.PUSH) {
+                    dispatch(id, payload);
+                    continue;
+                }
+                CompletableFuture<Object> reply = calls.remove(id);
+                Object value = codec.read(payload);
+                if (reply == null)
+                    continue;
+                if (kind == BinaryProtocol.ERROR)
+                    reply.completeExceptionally((Throwable) value);
+                else
+                    reply.complete(value);
+            }
+        } catch (IOException e) {
+            if (!closed)
+                LOGGER.error("Lost the binary connection to " + socket.getRemoteSocketAddress() + ": " + e);
+        } finally {
+            closed = true;
+            RemoteException lost = new ConnectException("Lost the binary connection to " +
+                    socket.getRemoteSocketAddress());
+            calls.values().forEach(reply -> reply.completeExceptionally(lost));
+            calls.clear();
+        }
+    }
+
+    private void dispatch(int handlerId, DataInputStream payload) throws IOException {
+        Class<? extends Remote> type = BinaryProtocol.CALLBACKS.get(payload.readUnsignedByte());
+        Method method = BinaryProtocol.methods(type).get(payload.readUnsignedByte());
+        Object[] args = codec.readArguments(payload, method.getParameterCount());
+        Remote handler = handlers.get(handlerId);
+        if (handler == null)
+            return;
+        callbacks.execute(() -> {
+            try {
+                method.invoke(handler, args);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                LOGGER.error("Error running " + method.getName(), e);
+            }
+        });
+    }
+
+    @Override
+    public synchronized int export(Remote handler) {
+        Integer id = handlerIds.get(handler);
+        if (id == null) {
+            id = handlerIds.size() + 1;
+            handlerIds.put(handler, id);
+            handlers.put(id, handler);
+        }
+        return id;
+    }
+
+    @Override
+    public Remote resolve(Class<? extends Remote> type, int id) {
+        throw new UnsupportedOperationException("Servers do not send handlers");
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        callbacks.shutdown();
+        try {
+            socket.close();
+        } catch (IOException e) {
+            LOGGER.error("Error closing the binary connection", e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ar.edu.itba.pod.client.utils;
+
+import ar.edu.itba.pod.interfaces.SeatManagerService;
+import ar.edu.itba.pod.models.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * Seat operations that answer availability checks from a {@link SeatAvailabilityCache}. Flights
+ * the cache cannot follow are asked to the server as before. Every operation that changes a seat
+ * goes to the server, which alone knows about holds and deltas the cache has not seen yet.
+ */
+public class CachingSeatManagerService implements SeatManagerService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingSeatManagerService.class);
+
+    private final SeatManagerService service;
+    private final SeatAvailabilityCache cache;
+
+    public CachingSeatManagerService(SeatManagerService service, SeatAvailabilityCache cache) {
+        this.service = service;
+        this.cache = cache;
+    }
+
+    @Override
+    public boolean isAvailable(String flightCode, int row, char seat) throws RemoteException {
+        SeatAvailabilityCache.CachedSeatMap seatMap;
+        try {
+            seatMap = cache.follow(flightCode);
+        } catch (RemoteException | RuntimeException e) {
+            LOGGER.debug("Seat map of flight " + flightCode + " not cached: " + e.getMessage());
+            return service.isAvailable(flightCode, row, seat);
+        }
+        return seatMap.isAvailable(row, seat);
+    }
+
+    @Override
+    public void assign(String flightCode, String passenger, int row, char seat) throws RemoteException {
+        service.assign(flightCode, passenger, row, seat);
+    }
+
+    @Override
+    public void hold(String flightCode, String passenger, int row, char seat, int seconds) throws RemoteException {
+        service.hold(flightCode, passenger, row, seat, seconds);
+    }
+
+    @Override
+    public Ticket assignHeld(String flightCode, String passenger) throws RemoteException {
+        return service.assignHeld(flightCode, passenger);
+    }
+
+    @Override
+    public void releaseHold(String flightCode, String passenger) throws RemoteException {
+        service.releaseHold(flightCode, passenger);
+    }
+
+    @Override
+    public Ticket assignAuto(String flightCode, String passenger, List<RowCategory> preferences) throws RemoteException {
+        return service.assignAuto(flightCode, passenger, preferences);
+    }
+
+    @Override
+    public List<Ticket> assignGroup(String flightCode, List<String> passengers) throws RemoteException {
+        return service.assignGroup(flightCode, passengers);
+    }
+
+    @Override
+    public List<SeatOperationResult> applyBatch(String flightCode, List<SeatOperation> operations) throws RemoteException {
+        return service.applyBatch(flightCode, operations);
+    }
+
+    @Override
+    public void changeSeat(String flightCode, String passenger, int freeRow, char freeSeat) throws RemoteException {
+        service.changeSeat(flightCode, passenger, freeRow, freeSeat);
+    }
+
+    @Override
+    public List<AlternativeFlightResponse> listAlternativeFlights(String flightCode, String passenger) throws RemoteException {
+        return service.listAlternativeFlights(flightCode, passenger);
+    }
+
+    @Override
+    public ResultPage<AlternativeFlightResponse> listAlternativeFlights(String flightCode, String passenger, int pageSize) throws RemoteException {
+        return service.listAlternativeFlights(flightCode, passenger, pageSize);
+    }
+
+    @Override
+    public void changeFlight(String passenger, String oldFlightCode, String newFlightCode) throws RemoteException {
+        service.changeFlight(passenger, oldFlightCode, newFlightCode);
+    }
+}
@@ -3,7 +3,9 @@ package ar.edu.itba.pod.client.utils;
 public enum FlightActions {
     MODELS("models"), FLIGHTS("flights"),
     STATUS("status"), CONFIRM("confirm"),
-    CANCEL("cancel"), RETICKETING("reticketing");
+    CANCEL("cancel"), RETICKETING("reticketing"),
+    CONFIRM_ALL("confirmAll"), CANCEL_ALL("cancelAll"),
+    STATUS_ALL("statusAll"), SIMULATE("simulate");
 
     private final String description;
 
@@ -16,6 +18,10 @@ public enum FlightActions {
     }
 
     public static FlightActions getAction(String param) {
-        return valueOf(param.toUpperCase());
+        for (FlightActions action : values()) {
+            if (action.description.equalsIgnoreCase(param))
+                return action;
+        }
+        throw new IllegalArgumentException("Unknown action " + param);
     }
 }
@@ -0,0 +1,11 @@
+package ar.edu.itba.pod.client.utils;
+
+import java.rmi.RemoteException;
+
+/**
+ * A call on a remote service stub that returns nothing, run by {@link AsyncService}
+ */
+@FunctionalInterface
+public interface RemoteAction<S> {
+    void run(S service) throws RemoteException;
+}
@@ -0,0 +1,11 @@
+package ar.edu.itba.pod.client.utils;
+
+import java.rmi.RemoteException;
+
+/**
+ * A call on a remote service stub, run by {@link AsyncService}
+ */
+@FunctionalInterface
+public interface RemoteCall<S, T> {
+    T call(S service) throws RemoteException;
+}
@@ -0,0 +1,105 @@
+package ar.edu.itba.pod.client.utils;
+
+import ar.edu.itba.pod.interfaces.CursorService;
+import ar.edu.itba.pod.interfaces.FlightManagerService;
+import ar.edu.itba.pod.interfaces.NotificationService;
+import ar.edu.itba.pod.interfaces.SeatManagerService;
+import ar.edu.itba.pod.interfaces.SeatQueryService;
+
+import java.net.MalformedURLException;
+import java.rmi.Naming;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Looks up the services of a server, or of a sharded fleet when the address is a comma separated
+ * list of its servers in shard order. The routers of a fleet are shared by every lookup.
+ * An address like binary://host:port uses the binary transport of the server instead of the
+ * registry, with one connection shared by every service.
+ */
+public class RemoteServices {
+    private static final String BINARY_SCHEME = "binary://";
+    private static final Map<String, ShardRouter> ROUTERS = new HashMap<>();
+    private static final Map<String, BinaryClient> BINARY_CLIENTS = new HashMap<>();
+
+    private RemoteServices() {
+    }
+
+    public static FlightManagerService flightManager(String serverAddress)
+            throws MalformedURLException, NotBoundException, RemoteException {
+        if (isFleet(serverAddress))
+            return new RoutingFlightManagerService(router(serverAddress));
+        if (isBinary(serverAddress))
+            return binaryClient(serverAddress).service(FlightManagerService.class);
+        return (FlightManagerService) Naming.lookup("//" + serverAddress + "/flightManagerService");
+    }
+
+    public static SeatManagerService seatManager(String serverAddress)
+            throws MalformedURLException, NotBoundException, RemoteException {
+        if (isFleet(serverAddress))
+            return new RoutingSeatManagerService(router(serverAddress));
+        if (isBinary(serverAddress))
+            return binaryClient(serverAddress).service(SeatManagerService.class);
+        return (SeatManagerService) Naming.lookup("//" + serverAddress + "/seatManagerService");
+    }
+
+    public static SeatQueryService seatQuery(String serverAddress)
+            throws MalformedURLException, NotBoundException, RemoteException {
+        if (isFleet(serverAddress))
+            return new RoutingSeatQueryService(router(serverAddress));
+        if (isBinary(serverAddress))
+            return binaryClient(serverAddress).service(SeatQueryService.class);
+        return (SeatQueryService) Naming.lookup("//" + serverAddress + "/seatQueryService");
+    }
+
+    public static NotificationService notifications(String serverAddress)
+            throws MalformedURLException, NotBoundException, RemoteException {
+        if (isFleet(serverAddress))
+            return new RoutingNotificationService(router(serverAddress));
+        if (isBinary(serverAddress))
+            return binaryClient(serverAddress).service(NotificationService.class);
+        return (NotificationService) Naming.lookup("//" + serverAddress + "/notificationService");
+    }
+
+    public static CursorService cursors(String serverAddress)
+            throws MalformedURLException, NotBoundException, RemoteException {
+        if (isFleet(serverAddress))
+            return new RoutingCursorService(router(serverAddress));
+        if (isBinary(serverAddress))
+            return binaryClient(serverAddress).service(CursorService.class);
+        return (CursorService) Naming.lookup("//" + serverAddress + "/cursorService");
+    }
+
+    private static boolean isFleet(String serverAddress) {
+        return serverAddress.contains(",");
+    }
+
+    private static boolean isBinary(String serverAddress) {
+        return serverAddress.startsWith(BINARY_SCHEME);
+    }
+
+    private static synchronized BinaryClient binaryClient(String serverAddress) throws RemoteException {
+        BinaryClient client = BINARY_CLIENTS.get(serverAddress);
+        if (client == null) {
+            String[] address = serverAddress.substring(BINARY_SCHEME.length()).split(":");
+            client = BinaryClient.connect(address[0], Integer.parseInt(address[1]));
+            BINARY_CLIENTS.put(serverAddress, client);
+        }
+        return client;
+    }
+
+    private static synchronized ShardRouter router(String serverAddress)
+            throws MalformedURLException, NotBoundException, RemoteException {
+        ShardRouter router = ROUTERS.get(serverAddress);
+        if (router == null) {
+            router = ShardRouter.connect(Arrays.stream(serverAddress.split(","))
+                    .map(String::trim).collect(Collectors.toList()));
+            ROUTERS.put(serverAddress, router);
+        }
+        return router;
+    }
+}
@@ -0,0 +1,49 @@
+package ar.edu.itba.pod.client.utils;
+
+import ar.edu.itba.pod.callbacks.ReticketingListener;
+import ar.edu.itba.pod.models.ReticketingProgress;
+import ar.edu.itba.pod.models.ResponseCancelledList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Prints the progress of a reticketing job as it comes and hands its result to whoever waits for it
+ */
+public class ReticketingListenerImpl implements ReticketingListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReticketingListenerImpl.class);
+
+    private final CompletableFuture<ResponseCancelledList> result = new CompletableFuture<>();
+
+    @Override
+    public void reticketingProgress(ReticketingProgress progress) throws RemoteException {
+        LOGGER.info("Flight {} done ({}/{}): {} tickets changed and {} unchanged so far",
+                progress.getFlightCode(), progress.getFlightsDone(), progress.getFlightsTotal(),
+                progress.getChanged(), progress.getUnchanged());
+    }
+
+    @Override
+    public void reticketingFinished(long jobId, ResponseCancelledList result) throws RemoteException {
+        this.result.complete(result);
+    }
+
+    /**
+     * Waits up to the given time for the job to finish and returns its result, or null if it
+     * failed on the server. Throws TimeoutException if the job has not reported back by then.
+     */
+    public ResponseCancelledList await(long timeout, TimeUnit unit) throws TimeoutException {
+        try {
+            return result.get(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package ar.edu.itba.pod.client.utils;
+
+import ar.edu.itba.pod.interfaces.CursorService;
+import ar.edu.itba.pod.models.ResultPage;
+
+import java.rmi.RemoteException;
+
+/**
+ * Pages pulled from the shard that opened each cursor, which its id tells
+ */
+public class RoutingCursorService implements CursorService {
+    private final ShardRouter router;
+
+    public RoutingCursorService(ShardRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public ResultPage<?> nextPage(long cursorId, int pageSize) throws RemoteException {
+        return router.cursors(cursorId).nextPage(cursorId, pageSize);
+    }
+
+    @Override
+    public void closeCursor(long cursorId) throws RemoteException {
+        router.cursors(cursorId).closeCursor(cursorId);
+    }
+}
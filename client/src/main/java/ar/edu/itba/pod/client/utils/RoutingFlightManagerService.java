@@ -0,0 +1,266 @@
+package ar.edu.itba.pod.client.utils;
+
+import ar.edu.itba.pod.callbacks.ReticketingListener;
+import ar.edu.itba.pod.interfaces.FlightManagerService;
+import ar.edu.itba.pod.models.*;
+import ar.edu.itba.pod.models.exceptions.notFoundExceptions.NotFoundException;
+import ar.edu.itba.pod.models.exceptions.seatExceptions.NoAvailableSeatsException;
+import ar.edu.itba.pod.rmi.SocketFactories;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flight administration over a sharded fleet. Plane models go to every shard, flights to the
+ * shard that owns their code. Reticketing runs on every shard and then moves the tickets left
+ * without an alternative to flights of other shards.
+ */
+public class RoutingFlightManagerService implements FlightManagerService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoutingFlightManagerService.class);
+
+    private static final AtomicLong NEXT_JOB_ID = new AtomicLong();
+    private static final int PAGE_SIZE = 500;
+
+    private final ShardRouter router;
+
+    public RoutingFlightManagerService(ShardRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public void addPlaneModel(String model, Map<String, int[]> seatCategories) throws RemoteException {
+        for (FlightManagerService flightManager : router.getFlightManagers()) {
+            flightManager.addPlaneModel(model, seatCategories);
+        }
+    }
+
+    @Override
+    public void addFlight(String planeModel, String flightCode, String destination, List<Ticket> tickets) throws RemoteException {
+        router.flightManager(flightCode).addFlight(planeModel, flightCode, destination, tickets);
+    }
+
+    @Override
+    public FlightState getFlightState(String flightCode) throws RemoteException {
+        return router.flightManager(flightCode).getFlightState(flightCode);
+    }
+
+    @Override
+    public List<FlightStateResult> getFlightStates(List<String> flightCodes) throws RemoteException {
+        return router.scatter(flightCodes, (shard, codes) -> router.getFlightManagers().get(shard).getFlightStates(codes));
+    }
+
+    @Override
+    public void confirmFlight(String flightCode) throws RemoteException {
+        router.flightManager(flightCode).confirmFlight(flightCode);
+    }
+
+    @Override
+    public void cancelFlight(String flightCode) throws RemoteException {
+        router.flightManager(flightCode).cancelFlight(flightCode);
+    }
+
+    @Override
+    public List<FlightStateResult> confirmFlights(List<String> flightCodes) throws RemoteException {
+        return changeFlightsState(flightCodes, true);
+    }
+
+    @Override
+    public List<FlightStateResult> cancelFlights(List<String> flightCodes) throws RemoteException {
+        return changeFlightsState(flightCodes, false);
+    }
+
+    private List<FlightStateResult> changeFlightsState(List<String> flightCodes, boolean confirm) throws RemoteException {
+        return router.scatter(flightCodes, (shard, codes) -> confirm
+                ? router.getFlightManagers().get(shard).confirmFlights(codes)
+                : router.getFlightManagers().get(shard).cancelFlights(codes));
+    }
+
+    @Override
+    public ResponseCancelledList changeCancelledFlights() throws RemoteException {
+        int changed = 0;
+        List<CancelledTicket> unchanged = new ArrayList<>();
+        for (FlightManagerService flightManager : router.getFlightManagers()) {
+            ResponseCancelledList shardList = flightManager.changeCancelledFlights();
+            changed += shardList.getChanged();
+            unchanged.addAll(shardList.getUnchangedTickets());
+        }
+
+        return moveToOtherShards(changed, unchanged);
+    }
+
+    /**
+     * Tries the tickets the shards could not place on flights of the other shards
+     */
+    private ResponseCancelledList moveToOtherShards(int changed, List<CancelledTicket> unchanged) throws RemoteException {
+        List<CancelledTicket> unchangedTickets = new ArrayList<>();
+        if (router.getShardCount() == 1) {
+            unchangedTickets = unchanged;
+        } else {
+            for (CancelledTicket ticket : unchanged) {
+                if (reticketOnOtherShard(ticket))
+                    changed++;
+                else
+                    unchangedTickets.add(ticket);
+            }
+        }
+
+        unchangedTickets.sort(Comparator.comparing(CancelledTicket::getFlightCode)
+                .thenComparing(CancelledTicket::getPassenger));
+        return new ResponseCancelledList(changed, unchangedTickets);
+    }
+
+    /**
+     * The unchanged tickets of a fleet are only known once every shard is done and the tickets
+     * that fit on other shards are moved, so they all come in the first page
+     */
+    @Override
+    public ResponseCancelledList changeCancelledFlights(int pageSize) throws RemoteException {
+        if (router.getShardCount() == 1)
+            return router.getFlightManagers().get(0).changeCancelledFlights(pageSize);
+        return changeCancelledFlights();
+    }
+
+    /**
+     * Starts a job on every shard and reports their progress added up. Once all are done the
+     * tickets left are tried on the other shards, off the callback thread, and they all come in
+     * the first page of the result.
+     */
+    @Override
+    public long startReticketing(ReticketingListener listener, int pageSize) throws RemoteException {
+        if (router.getShardCount() == 1)
+            return router.getFlightManagers().get(0).startReticketing(listener, pageSize);
+
+        FleetReticketing job = new FleetReticketing(NEXT_JOB_ID.incrementAndGet(), listener);
+        SocketFactories.export(job);
+        for (FlightManagerService flightManager : router.getFlightManagers()) {
+            flightManager.startReticketing(job, pageSize);
+        }
+        return job.id;
+    }
+
+    /**
+     * Each shard projects its own flights, and the tickets it could not place count as changed if
+     * another shard has a pending flight with room for them that is not among the given ones
+     */
+    @Override
+    public ReticketingForecast simulateReticketing(List<String> flightCodes) throws RemoteException {
+        Map<Integer, List<String>> byShard = new TreeMap<>();
+        for (String flightCode : flightCodes) {
+            byShard.computeIfAbsent(router.shardOf(flightCode), k -> new ArrayList<>()).add(flightCode);
+        }
+
+        int changed = 0;
+        Map<String, Map<RowCategory, Integer>> unchanged = new TreeMap<>();
+        for (Map.Entry<Integer, List<String>> entry : byShard.entrySet()) {
+            ReticketingForecast forecast = router.getFlightManagers().get(entry.getKey())
+                    .simulateReticketing(entry.getValue());
+            changed += forecast.getChanged();
+            for (Map.Entry<String, Map<RowCategory, Integer>> destination : forecast.getUnchangedByDestination().entrySet()) {
+                for (Map.Entry<RowCategory, Integer> category : destination.getValue().entrySet()) {
+                    List<AlternativeFlightResponse> alternatives = router.getShardCount() == 1 ? Collections.emptyList()
+                            : router.listFlightsTo(destination.getKey(), category.getKey(), entry.getKey());
+                    alternatives.removeIf(alternative -> flightCodes.contains(alternative.getFlightCode()));
+                    if (ShardRouter.bestAlternative(alternatives) != null)
+                        changed += category.getValue();
+                    else
+                        unchanged.computeIfAbsent(destination.getKey(), k -> new EnumMap<>(RowCategory.class))
+                                .merge(category.getKey(), category.getValue(), Integer::sum);
+                }
+            }
+        }
+        return new ReticketingForecast(changed, unchanged);
+    }
+
+    private boolean reticketOnOtherShard(CancelledTicket cancelled) throws RemoteException {
+        String flightCode = cancelled.getFlightCode();
+        try {
+            Ticket ticket = router.transfer(flightCode).findTicket(flightCode, cancelled.getPassenger());
+            AlternativeFlightResponse alternative = ShardRouter.bestAlternative(router.listFlightsTo(
+                    ticket.getDestination(), ticket.getCategory(), router.shardOf(flightCode)));
+            if (alternative == null)
+                return false;
+
+            router.transferTicket(cancelled.getPassenger(), flightCode, alternative.getFlightCode());
+            return true;
+        } catch (NotFoundException | NoAvailableSeatsException | IllegalStateException e) {
+            // Moved or filled up meanwhile, it is reported as still waiting
+            LOGGER.info("Could not move passenger " + cancelled.getPassenger() + " off flight " +
+                    flightCode + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private class FleetReticketing implements ReticketingListener {
+        private final long id;
+        private final ReticketingListener listener;
+        private final ReticketingProgress[] progress = new ReticketingProgress[router.getShardCount()];
+        private final List<ResponseCancelledList> results = new ArrayList<>();
+        private boolean failed = false;
+
+        private FleetReticketing(long id, ReticketingListener listener) {
+            this.id = id;
+            this.listener = listener;
+        }
+
+        @Override
+        public void reticketingProgress(ReticketingProgress shardProgress) throws RemoteException {
+            ReticketingProgress total;
+            synchronized (this) {
+                progress[router.shardOf(shardProgress.getFlightCode())] = shardProgress;
+                int flightsDone = 0, flightsTotal = 0, changed = 0, unchanged = 0;
+                for (ReticketingProgress shard : progress) {
+                    if (shard == null)
+                        continue;
+                    flightsDone += shard.getFlightsDone();
+                    flightsTotal += shard.getFlightsTotal();
+                    changed += shard.getChanged();
+                    unchanged += shard.getUnchanged();
+                }
+                total = new ReticketingProgress(id, shardProgress.getFlightCode(), flightsDone, flightsTotal,
+                        changed, unchanged);
+            }
+            listener.reticketingProgress(total);
+        }
+
+        @Override
+        public synchronized void reticketingFinished(long jobId, ResponseCancelledList result) throws RemoteException {
+            if (result == null)
+                failed = true;
+            results.add(result);
+            if (results.size() == router.getShardCount())
+                CompletableFuture.runAsync(this::finish);
+        }
+
+        private void finish() {
+            try {
+                UnicastRemoteObject.unexportObject(this, true);
+                if (failed) {
+                    listener.reticketingFinished(id, null);
+                    return;
+                }
+
+                int changed = 0;
+                List<CancelledTicket> unchanged = new ArrayList<>();
+                for (ResponseCancelledList result : results) {
+                    changed += result.getChanged();
+                    unchanged.addAll(result.getUnchangedTickets());
+                    if (!result.hasMoreTickets())
+                        continue;
+                    ResultPage<?> page;
+                    do {
+                        page = router.cursors(result.getCursorId()).nextPage(result.getCursorId(), PAGE_SIZE);
+                        unchanged.addAll(page.getItems(CancelledTicket.class));
+                    } while (page.hasMore());
+                }
+                listener.reticketingFinished(id, moveToOtherShards(changed, unchanged));
+            } catch (RemoteException | RuntimeException e) {
+                LOGGER.error("Could not finish reticketing job " + id, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package ar.edu.itba.pod.client.utils;
+
+import ar.edu.itba.pod.callbacks.NotificationHandler;
+import ar.edu.itba.pod.interfaces.NotificationService;
+
+import java.rmi.RemoteException;
+
+/**
+ * Registrations sent to the shard that owns each flight
+ */
+public class RoutingNotificationService implements NotificationService {
+    private final ShardRouter router;
+
+    public RoutingNotificationService(ShardRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public void registerPassenger(String flightCode, String passenger, NotificationHandler handler) throws RemoteException {
+        router.notifications(flightCode).registerPassenger(flightCode, passenger, handler);
+    }
+}
@@ -0,0 +1,96 @@
+package ar.edu.itba.pod.client.utils;
+
+import ar.edu.itba.pod.interfaces.SeatManagerService;
+import ar.edu.itba.pod.models.*;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seat operations sent to the shard that owns each flight. Alternatives are looked up on every
+ * shard, and tickets moved across shards through {@link ShardRouter#transferTicket}.
+ */
+public class RoutingSeatManagerService implements SeatManagerService {
+    private final ShardRouter router;
+
+    public RoutingSeatManagerService(ShardRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public boolean isAvailable(String flightCode, int row, char seat) throws RemoteException {
+        return router.seatManager(flightCode).isAvailable(flightCode, row, seat);
+    }
+
+    @Override
+    public void assign(String flightCode, String passenger, int row, char seat) throws RemoteException {
+        router.seatManager(flightCode).assign(flightCode, passenger, row, seat);
+    }
+
+    @Override
+    public void hold(String flightCode, String passenger, int row, char seat, int seconds) throws RemoteException {
+        router.seatManager(flightCode).hold(flightCode, passenger, row, seat, seconds);
+    }
+
+    @Override
+    public Ticket assignHeld(String flightCode, String passenger) throws RemoteException {
+        return router.seatManager(flightCode).assignHeld(flightCode, passenger);
+    }
+
+    @Override
+    public void releaseHold(String flightCode, String passenger) throws RemoteException {
+        router.seatManager(flightCode).releaseHold(flightCode, passenger);
+    }
+
+    @Override
+    public Ticket assignAuto(String flightCode, String passenger, List<RowCategory> preferences) throws RemoteException {
+        return router.seatManager(flightCode).assignAuto(flightCode, passenger, preferences);
+    }
+
+    @Override
+    public List<Ticket> assignGroup(String flightCode, List<String> passengers) throws RemoteException {
+        return router.seatManager(flightCode).assignGroup(flightCode, passengers);
+    }
+
+    @Override
+    public List<SeatOperationResult> applyBatch(String flightCode, List<SeatOperation> operations) throws RemoteException {
+        return router.seatManager(flightCode).applyBatch(flightCode, operations);
+    }
+
+    @Override
+    public void changeSeat(String flightCode, String passenger, int freeRow, char freeSeat) throws RemoteException {
+        router.seatManager(flightCode).changeSeat(flightCode, passenger, freeRow, freeSeat);
+    }
+
+    @Override
+    public List<AlternativeFlightResponse> listAlternativeFlights(String flightCode, String passenger) throws RemoteException {
+        List<AlternativeFlightResponse> alternatives = new ArrayList<>(
+                router.seatManager(flightCode).listAlternativeFlights(flightCode, passenger));
+        if (router.getShardCount() == 1)
+            return alternatives;
+
+        Ticket ticket = router.transfer(flightCode).findTicket(flightCode, passenger);
+        alternatives.addAll(router.listFlightsTo(ticket.getDestination(), ticket.getCategory(),
+                router.shardOf(flightCode)));
+        return alternatives;
+    }
+
+    /**
+     * Alternatives on other shards are merged here, so a fleet returns them all in the first page
+     */
+    @Override
+    public ResultPage<AlternativeFlightResponse> listAlternativeFlights(String flightCode, String passenger, int pageSize) throws RemoteException {
+        if (router.getShardCount() == 1)
+            return router.seatManager(flightCode).listAlternativeFlights(flightCode, passenger, pageSize);
+        return ResultPage.complete(listAlternativeFlights(flightCode, passenger));
+    }
+
+    @Override
+    public void changeFlight(String passenger, String oldFlightCode, String newFlightCode) throws RemoteException {
+        if (router.shardOf(oldFlightCode) == router.shardOf(newFlightCode))
+            router.seatManager(oldFlightCode).changeFlight(passenger, oldFlightCode, newFlightCode);
+        else
+            router.transferTicket(passenger, oldFlightCode, newFlightCode);
+    }
+}
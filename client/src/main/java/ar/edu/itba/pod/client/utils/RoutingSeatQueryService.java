@@ -0,0 +1,63 @@
+package ar.edu.itba.pod.client.utils;
+
+import ar.edu.itba.pod.callbacks.SeatMapHandler;
+import ar.edu.itba.pod.interfaces.SeatQueryService;
+import ar.edu.itba.pod.models.ResponseRow;
+import ar.edu.itba.pod.models.ResultPage;
+import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.SeatMapDelta;
+import ar.edu.itba.pod.models.SeatMapResult;
+
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * Seat map queries sent to the shard that owns each flight
+ */
+public class RoutingSeatQueryService implements SeatQueryService {
+    private final ShardRouter router;
+
+    public RoutingSeatQueryService(ShardRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public List<ResponseRow> query(String flightCode) throws RemoteException {
+        return router.seatQuery(flightCode).query(flightCode);
+    }
+
+    @Override
+    public List<ResponseRow> query(String flightCode, RowCategory rowCategory) throws RemoteException {
+        return router.seatQuery(flightCode).query(flightCode, rowCategory);
+    }
+
+    @Override
+    public ResponseRow query(String flightCode, int row) throws RemoteException {
+        return router.seatQuery(flightCode).query(flightCode, row);
+    }
+
+    @Override
+    public ResultPage<ResponseRow> queryPage(String flightCode, int pageSize) throws RemoteException {
+        return router.seatQuery(flightCode).queryPage(flightCode, pageSize);
+    }
+
+    @Override
+    public List<SeatMapResult> queryFlights(List<String> flightCodes) throws RemoteException {
+        return router.scatter(flightCodes, (shard, codes) -> router.getSeatQueries().get(shard).queryFlights(codes));
+    }
+
+    @Override
+    public SeatMapDelta queryChanges(String flightCode, long sinceVersion) throws RemoteException {
+        return router.seatQuery(flightCode).queryChanges(flightCode, sinceVersion);
+    }
+
+    @Override
+    public SeatMapDelta followSeatMap(String flightCode, SeatMapHandler handler) throws RemoteException {
+        return router.seatQuery(flightCode).followSeatMap(flightCode, handler);
+    }
+
+    @Override
+    public void unfollowSeatMap(String flightCode, SeatMapHandler handler) throws RemoteException {
+        router.seatQuery(flightCode).unfollowSeatMap(flightCode, handler);
+    }
+}
@@ -0,0 +1,47 @@
+package ar.edu.itba.pod.client.utils;
+
+public enum ScriptActions {
+    MODELS("models", true, false), FLIGHTS("flights", true, false),
+    STATUS("status", false, true), CONFIRM("confirm", false, false),
+    CANCEL("cancel", false, false), RETICKETING("reticketing", true, false),
+    ASSIGN("assign", false, false), MOVE("move", false, false),
+    ALTERNATIVES("alternatives", false, true), CHANGE_TICKET("changeTicket", false, false),
+    QUERY("query", false, true);
+
+    private final String description;
+    private final boolean barrier;
+    private final boolean readOnly;
+
+    ScriptActions(String description, boolean barrier, boolean readOnly) {
+        this.description = description;
+        this.barrier = barrier;
+        this.readOnly = readOnly;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Whether the action may touch any flight, so it has to wait for every earlier command and
+     * every later command has to wait for it
+     */
+    public boolean isBarrier() {
+        return barrier;
+    }
+
+    /**
+     * Whether the action only reads its flights, so it may run along other reads of them
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public static ScriptActions getAction(String param) {
+        for (ScriptActions action : values()) {
+            if (action.description.equalsIgnoreCase(param))
+                return action;
+        }
+        throw new IllegalArgumentException("Unknown action " + param);
+    }
+}
@@ -0,0 +1,73 @@
+package ar.edu.itba.pod.client.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * One line of a client script: an action followed by its parameters, named as the -D properties
+ * of the single command clients, e.g. {@code assign flight=AA100 passenger=John row=1 col=A}
+ */
+public class ScriptCommand {
+    private static final String FLIGHT = "flight";
+    private static final String ORIGINAL_FLIGHT = "originalFlight";
+
+    private final int line;
+    private final ScriptActions action;
+    private final Map<String, String> params;
+
+    private ScriptCommand(int line, ScriptActions action, Map<String, String> params) {
+        this.line = line;
+        this.action = action;
+        this.params = params;
+    }
+
+    public static ScriptCommand parse(int line, String text) {
+        String[] tokens = text.trim().split("\\s+");
+        ScriptActions action = ScriptActions.getAction(tokens[0]);
+        Map<String, String> params = new HashMap<>();
+        for (int i = 1; i < tokens.length; i++) {
+            int separator = tokens[i].indexOf('=');
+            if (separator <= 0)
+                throw new IllegalArgumentException("Invalid parameter " + tokens[i]);
+            params.put(tokens[i].substring(0, separator), tokens[i].substring(separator + 1));
+        }
+        return new ScriptCommand(line, action, params);
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public ScriptActions getAction() {
+        return action;
+    }
+
+    public Optional<String> find(String param) {
+        return Optional.ofNullable(params.get(param));
+    }
+
+    public String get(String param) {
+        return find(param).orElseThrow(() -> new IllegalArgumentException(param + " not specified"));
+    }
+
+    public int getInt(String param) {
+        return Integer.parseInt(get(param));
+    }
+
+    public char getChar(String param) {
+        return get(param).charAt(0);
+    }
+
+    /**
+     * Flights the command works on. Commands on different flights do not depend on each other.
+     */
+    public List<String> getFlights() {
+        List<String> flights = new ArrayList<>();
+        find(FLIGHT).ifPresent(flights::add);
+        find(ORIGINAL_FLIGHT).ifPresent(flights::add);
+        return flights;
+    }
+}
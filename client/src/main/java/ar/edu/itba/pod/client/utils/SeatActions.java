@@ -3,7 +3,9 @@ package ar.edu.itba.pod.client.utils;
 public enum SeatActions {
     STATUS("status"), ASSIGN("assign"),
     MOVE("move"), ALTERNATIVES("alternatives"),
-    CHANGE_TICKET("changeTicket");
+    CHANGE_TICKET("changeTicket"), AUTO_ASSIGN("autoAssign"),
+    GROUP_ASSIGN("groupAssign"), BATCH("batch"),
+    HOLD("hold"), ASSIGN_HELD("assignHeld"), RELEASE_HOLD("releaseHold");
 
     private final String description;
 
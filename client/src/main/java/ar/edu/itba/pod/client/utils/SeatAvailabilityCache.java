@@ -0,0 +1,169 @@
+package ar.edu.itba.pod.client.utils;
+
+import ar.edu.itba.pod.callbacks.SeatMapHandler;
+import ar.edu.itba.pod.interfaces.SeatQueryService;
+import ar.edu.itba.pod.models.FlightState;
+import ar.edu.itba.pod.models.ResponseRow;
+import ar.edu.itba.pod.models.SeatMapDelta;
+import ar.edu.itba.pod.models.exceptions.IllegalRowException;
+import ar.edu.itba.pod.models.exceptions.flightExceptions.IllegalFlightStateException;
+import ar.edu.itba.pod.models.exceptions.seatExceptions.InvalidSeatException;
+import ar.edu.itba.pod.rmi.SocketFactories;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Near-cache of the seat maps of pending flights. Each flight is loaded once and then kept up to
+ * date by the deltas the server pushes, so availability checks never leave the client.
+ * A flight is only answered from the cache once its first snapshot is applied; callers asking
+ * while it is still being followed wait for it.
+ */
+public class SeatAvailabilityCache implements SeatMapHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SeatAvailabilityCache.class);
+
+    private final SeatQueryService seatQueryService;
+    private final Map<String, CachedSeatMap> seatMaps = new ConcurrentHashMap<>();
+    private boolean exported = false;
+
+    public SeatAvailabilityCache(SeatQueryService seatQueryService) {
+        this.seatQueryService = seatQueryService;
+    }
+
+    public boolean isAvailable(String flightCode, int row, char seat) throws RemoteException {
+        return follow(flightCode).isAvailable(row, seat);
+    }
+
+    /**
+     * Returns the cached seat map of the flight, following it first if needed. The map returned
+     * always holds a snapshot of the flight.
+     */
+    public CachedSeatMap follow(String flightCode) throws RemoteException {
+        CachedSeatMap seatMap = seatMaps.get(flightCode);
+        if (seatMap != null && seatMap.isLoaded())
+            return seatMap;
+        return load(flightCode);
+    }
+
+    private synchronized CachedSeatMap load(String flightCode) throws RemoteException {
+        // A load in progress holds the monitor, so an entry seen here is either loaded or gone
+        CachedSeatMap seatMap = seatMaps.get(flightCode);
+        if (seatMap != null)
+            return seatMap;
+
+        if (!exported) {
+            SocketFactories.export(this);
+            exported = true;
+        }
+
+        // Published before following so that no delta pushed meanwhile is dropped
+        seatMap = new CachedSeatMap();
+        seatMaps.put(flightCode, seatMap);
+        try {
+            if (!seatMap.apply(seatQueryService.followSeatMap(flightCode, this)))
+                seatMap.apply(seatQueryService.queryChanges(flightCode, seatMap.getVersion()));
+            if (!seatMap.isLoaded())
+                throw new IllegalStateException("No snapshot of the seat map of flight " + flightCode);
+        } catch (RemoteException | RuntimeException e) {
+            seatMaps.remove(flightCode);
+            throw e;
+        }
+        return seatMap;
+    }
+
+    public synchronized void close() {
+        for (String flightCode : seatMaps.keySet()) {
+            try {
+                seatQueryService.unfollowSeatMap(flightCode, this);
+            } catch (RemoteException e) {
+                LOGGER.error("Error unfollowing seat map of flight " + flightCode, e);
+            }
+        }
+        seatMaps.clear();
+
+        if (exported) {
+            try {
+                UnicastRemoteObject.unexportObject(this, true);
+            } catch (RemoteException e) {
+                LOGGER.error("Error unexporting seat map cache", e);
+            }
+            exported = false;
+        }
+    }
+
+    @Override
+    public void notifySeatMapChanged(SeatMapDelta delta) throws RemoteException {
+        CachedSeatMap seatMap = seatMaps.get(delta.getFlightCode());
+        if (seatMap == null || seatMap.apply(delta))
+            return;
+
+        // Some deltas were missed or arrived out of order, so catch up from our own version
+        seatMap.apply(seatQueryService.queryChanges(delta.getFlightCode(), seatMap.getVersion()));
+    }
+
+    @Override
+    public void notifyFlightClosed(String flightCode, FlightState state) throws RemoteException {
+        CachedSeatMap seatMap = seatMaps.get(flightCode);
+        if (seatMap != null)
+            seatMap.close();
+    }
+
+    public static class CachedSeatMap {
+        private char[][] rows = new char[0][];
+        private long version = -1;
+        private boolean closed = false;
+
+        public synchronized long getVersion() {
+            return version;
+        }
+
+        public synchronized boolean isLoaded() {
+            return version >= 0;
+        }
+
+        /**
+         * Applies the delta if it covers every change after the cached version.
+         * Returns false when some changes are missing.
+         */
+        public synchronized boolean apply(SeatMapDelta delta) {
+            if (delta.getVersion() <= version)
+                return true;
+
+            if (!delta.isFull() && delta.getSinceVersion() > version)
+                return false;
+
+            if (delta.isFull())
+                rows = new char[delta.getRows().size()][];
+
+            for (Map.Entry<Integer, ResponseRow> row : delta.getRows().entrySet()) {
+                rows[row.getKey()] = row.getValue().getPassengerInitials();
+            }
+            version = delta.getVersion();
+            return true;
+        }
+
+        public synchronized void close() {
+            closed = true;
+        }
+
+        public synchronized boolean isAvailable(int row, char seat) {
+            if (closed)
+                throw new IllegalFlightStateException();
+
+            if (version < 0)
+                throw new IllegalStateException("Seat map not loaded yet");
+
+            if (row < 0 || row >= rows.length)
+                throw new IllegalRowException(row);
+
+            if (seat < 'A' || seat >= 'A' + rows[row].length)
+                throw new InvalidSeatException(seat);
+
+            return rows[row][seat - 'A'] == '*';
+        }
+    }
+}
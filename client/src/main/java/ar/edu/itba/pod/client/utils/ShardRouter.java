@@ -0,0 +1,216 @@
+package ar.edu.itba.pod.client.utils;
+
+import ar.edu.itba.pod.callbacks.NotificationHandler;
+import ar.edu.itba.pod.interfaces.*;
+import ar.edu.itba.pod.models.AlternativeFlightResponse;
+import ar.edu.itba.pod.models.ResultPage;
+import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.ShardMap;
+import ar.edu.itba.pod.models.Ticket;
+import ar.edu.itba.pod.models.exceptions.flightExceptions.IllegalFlightStateException;
+import ar.edu.itba.pod.models.exceptions.notFoundExceptions.TicketNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.MalformedURLException;
+import java.rmi.Naming;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The services of every server of a sharded fleet, looked up once. The addresses are given in
+ * shard order, and each flight code is sent to the shard that owns its hash range.
+ */
+public class ShardRouter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardRouter.class);
+
+    private final ShardMap shardMap;
+    private final List<FlightManagerService> flightManagers = new ArrayList<>();
+    private final List<SeatManagerService> seatManagers = new ArrayList<>();
+    private final List<SeatQueryService> seatQueries = new ArrayList<>();
+    private final List<NotificationService> notifications = new ArrayList<>();
+    private final List<ShardTransferService> transfers = new ArrayList<>();
+    private final List<CursorService> cursors = new ArrayList<>();
+
+    /**
+     * A batch call on one shard for its part of the flight codes, returning a result per code
+     */
+    @FunctionalInterface
+    public interface ShardBatch<T> {
+        List<T> call(int shard, List<String> flightCodes) throws RemoteException;
+    }
+
+    private ShardRouter(List<String> serverAddresses) throws MalformedURLException, NotBoundException, RemoteException {
+        this.shardMap = new ShardMap(serverAddresses.size());
+        for (String serverAddress : serverAddresses) {
+            String prefix = "//" + serverAddress + "/";
+            flightManagers.add((FlightManagerService) Naming.lookup(prefix + "flightManagerService"));
+            seatManagers.add((SeatManagerService) Naming.lookup(prefix + "seatManagerService"));
+            seatQueries.add((SeatQueryService) Naming.lookup(prefix + "seatQueryService"));
+            notifications.add((NotificationService) Naming.lookup(prefix + "notificationService"));
+            transfers.add((ShardTransferService) Naming.lookup(prefix + "shardTransferService"));
+            cursors.add((CursorService) Naming.lookup(prefix + "cursorService"));
+        }
+    }
+
+    public static ShardRouter connect(List<String> serverAddresses)
+            throws MalformedURLException, NotBoundException, RemoteException {
+        return new ShardRouter(serverAddresses);
+    }
+
+    public int shardOf(String flightCode) {
+        return shardMap.shardOf(flightCode);
+    }
+
+    public int getShardCount() {
+        return shardMap.getShards();
+    }
+
+    public FlightManagerService flightManager(String flightCode) {
+        return flightManagers.get(shardOf(flightCode));
+    }
+
+    public SeatManagerService seatManager(String flightCode) {
+        return seatManagers.get(shardOf(flightCode));
+    }
+
+    public SeatQueryService seatQuery(String flightCode) {
+        return seatQueries.get(shardOf(flightCode));
+    }
+
+    public NotificationService notifications(String flightCode) {
+        return notifications.get(shardOf(flightCode));
+    }
+
+    public ShardTransferService transfer(String flightCode) {
+        return transfers.get(shardOf(flightCode));
+    }
+
+    /**
+     * The cursor service of the shard that opened the cursor
+     */
+    public CursorService cursors(long cursorId) {
+        return cursors.get(ResultPage.shardOf(cursorId));
+    }
+
+    public List<FlightManagerService> getFlightManagers() {
+        return flightManagers;
+    }
+
+    public List<SeatQueryService> getSeatQueries() {
+        return seatQueries;
+    }
+
+    /**
+     * Sends each shard its flights in one call and puts the results back in the given order
+     */
+    public <T> List<T> scatter(List<String> flightCodes, ShardBatch<T> batch) throws RemoteException {
+        Map<Integer, List<String>> byShard = new TreeMap<>();
+        for (String flightCode : flightCodes) {
+            byShard.computeIfAbsent(shardOf(flightCode), k -> new ArrayList<>()).add(flightCode);
+        }
+
+        Map<Integer, Iterator<T>> results = new HashMap<>();
+        for (Map.Entry<Integer, List<String>> entry : byShard.entrySet()) {
+            results.put(entry.getKey(), batch.call(entry.getKey(), entry.getValue()).iterator());
+        }
+
+        List<T> ordered = new ArrayList<>(flightCodes.size());
+        for (String flightCode : flightCodes) {
+            ordered.add(results.get(shardOf(flightCode)).next());
+        }
+        return ordered;
+    }
+
+    /**
+     * Pending flights to the destination with room for the category on every shard but the
+     * excluded one
+     */
+    public List<AlternativeFlightResponse> listFlightsTo(String destination, RowCategory category,
+                                                        int excludedShard) throws RemoteException {
+        List<AlternativeFlightResponse> flights = new ArrayList<>();
+        for (int shard = 0; shard < transfers.size(); shard++) {
+            if (shard != excludedShard)
+                flights.addAll(transfers.get(shard).listFlightsTo(destination, category));
+        }
+        return flights;
+    }
+
+    /**
+     * Moves the ticket to a flight of another shard. The new flight admits it first, so a failed
+     * admission leaves the passenger where they were. If the release fails, the admission is only
+     * revoked once the old flight is seen still holding the ticket: a release whose reply was lost
+     * already moved it, and when the old shard cannot be asked the passenger keeps both tickets
+     * rather than none. Handlers follow the ticket once it moved.
+     */
+    public void transferTicket(String passenger, String oldFlightCode, String newFlightCode) throws RemoteException {
+        ShardTransferService source = transfer(oldFlightCode);
+        ShardTransferService target = transfer(newFlightCode);
+
+        Ticket ticket = source.findTicket(oldFlightCode, passenger);
+        target.admitTicket(newFlightCode, new Ticket(ticket.getCategory(), passenger, ticket.getDestination()));
+
+        List<NotificationHandler> handlers;
+        try {
+            handlers = source.releaseTicket(oldFlightCode, passenger, newFlightCode);
+        } catch (RemoteException | RuntimeException e) {
+            if (!isReleased(source, oldFlightCode, passenger)) {
+                target.revokeTicket(newFlightCode, passenger);
+                throw e;
+            }
+            LOGGER.warn("Passenger " + passenger + " moved from flight " + oldFlightCode + " to " +
+                    newFlightCode + " but their handlers were lost", e);
+            return;
+        }
+        target.adoptHandlers(newFlightCode, passenger, handlers);
+        LOGGER.info("Moved passenger " + passenger + " from flight " + oldFlightCode + " to " + newFlightCode);
+    }
+
+    /**
+     * Whether the old flight no longer holds the ticket after a failed release. Throws when the
+     * old shard cannot tell, so the admitted ticket is left alone.
+     */
+    private static boolean isReleased(ShardTransferService source, String oldFlightCode, String passenger)
+            throws RemoteException {
+        try {
+            source.findTicket(oldFlightCode, passenger);
+            return false;
+        } catch (TicketNotFoundException e) {
+            return true;
+        } catch (IllegalFlightStateException e) { // Confirmed flights never release tickets
+            return false;
+        }
+    }
+
+    /**
+     * The flight with room in the highest category the ticket allows, and within it the one
+     * with the most free seats, as the servers pick alternatives
+     */
+    public static AlternativeFlightResponse bestAlternative(List<AlternativeFlightResponse> flights) {
+        AlternativeFlightResponse best = null;
+        RowCategory bestCategory = null;
+        for (AlternativeFlightResponse flight : flights) {
+            RowCategory category = null;
+            for (Map.Entry<RowCategory, Integer> entry : flight.getAvailableSeats().entrySet()) {
+                if (entry.getValue() > 0 && (category == null || entry.getKey().ordinal() > category.ordinal()))
+                    category = entry.getKey();
+            }
+            if (category == null)
+                continue;
+
+            if (best == null || category.ordinal() > bestCategory.ordinal() ||
+                    (category == bestCategory && flight.getAvailableSeats().get(category) >
+                            best.getAvailableSeats().get(bestCategory))) {
+                best = flight;
+                bestCategory = category;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,280 @@
+package ar.edu.itba.pod.client.utils;
+
+import ar.edu.itba.pod.callbacks.SeatMapHandler;
+import ar.edu.itba.pod.interfaces.SeatManagerService;
+import ar.edu.itba.pod.interfaces.SeatQueryService;
+import ar.edu.itba.pod.models.*;
+import ar.edu.itba.pod.models.exceptions.IllegalRowException;
+import ar.edu.itba.pod.models.exceptions.flightExceptions.IllegalFlightStateException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeatAvailabilityCacheTest {
+    private static final String FLIGHT_CODE = "AA100";
+
+    private final FakeSeatQueryService seatQueryService = new FakeSeatQueryService();
+    private final FakeSeatManagerService seatManagerService = new FakeSeatManagerService();
+    private final SeatAvailabilityCache cache = new SeatAvailabilityCache(seatQueryService);
+    private final SeatManagerService service = new CachingSeatManagerService(seatManagerService, cache);
+
+    @AfterEach
+    public void closeCache() {
+        cache.close();
+    }
+
+    @Test
+    public void testAvailabilityIsAnsweredLocally() throws Exception {
+        assertTrue(service.isAvailable(FLIGHT_CODE, 0, 'A'));
+        assertFalse(service.isAvailable(FLIGHT_CODE, 0, 'B'));
+        assertTrue(service.isAvailable(FLIGHT_CODE, 1, 'B'));
+
+        assertEquals(1, seatQueryService.follows.get());
+        assertEquals(0, seatManagerService.availabilityChecks.get());
+    }
+
+    @Test
+    public void testPushedDeltasUpdateTheCache() throws Exception {
+        assertTrue(service.isAvailable(FLIGHT_CODE, 0, 'A'));
+
+        cache.notifySeatMapChanged(new SeatMapDelta(FLIGHT_CODE, 0, 1, false,
+                Collections.singletonMap(0, row('C', 'B'))));
+
+        assertFalse(service.isAvailable(FLIGHT_CODE, 0, 'A'));
+        assertEquals(0, seatQueryService.resyncs.get());
+    }
+
+    @Test
+    public void testMissedDeltasAreCaughtUp() throws Exception {
+        assertTrue(service.isAvailable(FLIGHT_CODE, 1, 'A'));
+
+        seatQueryService.rows.put(1, row('D', '*'));
+        seatQueryService.version = 3;
+        cache.notifySeatMapChanged(new SeatMapDelta(FLIGHT_CODE, 2, 3, false,
+                Collections.singletonMap(1, row('D', '*'))));
+
+        assertFalse(service.isAvailable(FLIGHT_CODE, 1, 'A'));
+        assertEquals(1, seatQueryService.resyncs.get());
+    }
+
+    @Test
+    public void testAssignsAreLeftToTheServer() throws Exception {
+        assertFalse(service.isAvailable(FLIGHT_CODE, 0, 'B'));
+
+        service.assign(FLIGHT_CODE, "Carl", 0, 'B');
+        assertEquals(1, seatManagerService.assignments.get());
+    }
+
+    @Test
+    public void testHolderCanAssignTheHeldSeat() throws Exception {
+        assertTrue(service.isAvailable(FLIGHT_CODE, 1, 'A'));
+
+        service.hold(FLIGHT_CODE, "Carl", 1, 'A', 30);
+        cache.notifySeatMapChanged(new SeatMapDelta(FLIGHT_CODE, 0, 1, false,
+                Collections.singletonMap(1, row('#', '*'))));
+        assertFalse(service.isAvailable(FLIGHT_CODE, 1, 'A'));
+
+        service.assign(FLIGHT_CODE, "Carl", 1, 'A');
+        assertEquals(1, seatManagerService.holds.get());
+        assertEquals(1, seatManagerService.assignments.get());
+        assertEquals(0, seatManagerService.availabilityChecks.get());
+    }
+
+    @Test
+    public void testInvalidRowsAreRejectedLocally() {
+        assertThrows(IllegalRowException.class, () -> service.isAvailable(FLIGHT_CODE, 5, 'A'));
+        assertEquals(0, seatManagerService.availabilityChecks.get());
+    }
+
+    @Test
+    public void testChecksWaitForTheFirstSnapshot() throws Exception {
+        seatQueryService.snapshotSent = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> first = executor.submit(() -> service.isAvailable(FLIGHT_CODE, 1, 'B'));
+            assertTrue(seatQueryService.following.await(5, TimeUnit.SECONDS));
+
+            // The entry of the flight is already published, but holds no rows yet
+            Future<Boolean> second = executor.submit(() -> service.isAvailable(FLIGHT_CODE, 1, 'B'));
+            assertThrows(TimeoutException.class, () -> second.get(100, TimeUnit.MILLISECONDS));
+
+            seatQueryService.snapshotSent.countDown();
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            assertTrue(second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, seatQueryService.follows.get());
+            assertEquals(0, seatManagerService.availabilityChecks.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFallsBackToServerWhenFlightCannotBeFollowed() throws Exception {
+        seatQueryService.pending = false;
+
+        assertTrue(service.isAvailable(FLIGHT_CODE, 0, 'A'));
+        assertEquals(1, seatManagerService.availabilityChecks.get());
+
+        seatQueryService.pending = true;
+        assertFalse(service.isAvailable(FLIGHT_CODE, 0, 'B'));
+        assertEquals(1, seatManagerService.availabilityChecks.get());
+    }
+
+    @Test
+    public void testClosedFlightIsRejectedLocally() throws Exception {
+        assertTrue(service.isAvailable(FLIGHT_CODE, 0, 'A'));
+
+        cache.notifyFlightClosed(FLIGHT_CODE, FlightState.CONFIRMED);
+
+        assertThrows(IllegalFlightStateException.class, () -> service.isAvailable(FLIGHT_CODE, 0, 'A'));
+    }
+
+    private static ResponseRow row(char... initials) {
+        return new ResponseRow(RowCategory.ECONOMY, initials);
+    }
+
+    private static class FakeSeatQueryService implements SeatQueryService {
+        private final Map<Integer, ResponseRow> rows = new HashMap<>();
+        private final AtomicInteger follows = new AtomicInteger();
+        private final AtomicInteger resyncs = new AtomicInteger();
+        private final CountDownLatch following = new CountDownLatch(1);
+        private volatile CountDownLatch snapshotSent = new CountDownLatch(0);
+        private volatile boolean pending = true;
+        private volatile long version = 0;
+
+        private FakeSeatQueryService() {
+            rows.put(0, row('*', 'B'));
+            rows.put(1, row('*', '*'));
+        }
+
+        @Override
+        public SeatMapDelta followSeatMap(String flightCode, SeatMapHandler handler) {
+            if (!pending)
+                throw new IllegalFlightStateException();
+
+            follows.incrementAndGet();
+            following.countDown();
+            try {
+                snapshotSent.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new SeatMapDelta(flightCode, -1, version, true, new HashMap<>(rows));
+        }
+
+        @Override
+        public SeatMapDelta queryChanges(String flightCode, long sinceVersion) {
+            resyncs.incrementAndGet();
+            return new SeatMapDelta(flightCode, -1, version, true, new HashMap<>(rows));
+        }
+
+        @Override
+        public void unfollowSeatMap(String flightCode, SeatMapHandler handler) {
+        }
+
+        @Override
+        public List<ResponseRow> query(String flightCode) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ResponseRow> query(String flightCode, RowCategory rowCategory) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ResponseRow query(String flightCode, int row) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ResultPage<ResponseRow> queryPage(String flightCode, int pageSize) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<SeatMapResult> queryFlights(List<String> flightCodes) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class FakeSeatManagerService implements SeatManagerService {
+        private final AtomicInteger availabilityChecks = new AtomicInteger();
+        private final AtomicInteger assignments = new AtomicInteger();
+        private final AtomicInteger holds = new AtomicInteger();
+
+        @Override
+        public boolean isAvailable(String flightCode, int row, char seat) {
+            availabilityChecks.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public void assign(String flightCode, String passenger, int row, char seat) {
+            assignments.incrementAndGet();
+        }
+
+        @Override
+        public void hold(String flightCode, String passenger, int row, char seat, int seconds) {
+            holds.incrementAndGet();
+        }
+
+        @Override
+        public Ticket assignHeld(String flightCode, String passenger) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void releaseHold(String flightCode, String passenger) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Ticket assignAuto(String flightCode, String passenger, List<RowCategory> preferences) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Ticket> assignGroup(String flightCode, List<String> passengers) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<SeatOperationResult> applyBatch(String flightCode, List<SeatOperation> operations) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void changeSeat(String flightCode, String passenger, int freeRow, char freeSeat) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<AlternativeFlightResponse> listAlternativeFlights(String flightCode, String passenger) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ResultPage<AlternativeFlightResponse> listAlternativeFlights(String flightCode, String passenger, int pageSize) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void changeFlight(String passenger, String oldFlightCode, String newFlightCode) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
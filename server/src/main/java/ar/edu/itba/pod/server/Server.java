@@ -1,52 +1,198 @@
 package ar.edu.itba.pod.server;
 
+import ar.edu.itba.pod.interfaces.CursorService;
 import ar.edu.itba.pod.interfaces.FlightManagerService;
 import ar.edu.itba.pod.interfaces.NotificationService;
 import ar.edu.itba.pod.interfaces.SeatManagerService;
 import ar.edu.itba.pod.interfaces.SeatQueryService;
+import ar.edu.itba.pod.interfaces.ShardTransferService;
+import ar.edu.itba.pod.models.ShardMap;
+import ar.edu.itba.pod.rmi.SocketFactories;
+import ar.edu.itba.pod.server.protocol.BinaryProtocolServer;
+import ar.edu.itba.pod.server.replication.BackupReplica;
+import ar.edu.itba.pod.server.replication.ReplicationLog;
+import ar.edu.itba.pod.server.replication.ReplicationServer;
+import ar.edu.itba.pod.server.service.CursorServiceImpl;
 import ar.edu.itba.pod.server.service.FlightManagerServiceImpl;
 
 import ar.edu.itba.pod.server.service.NotificationServiceImpl;
 import ar.edu.itba.pod.server.service.SeatManagerServiceImpl;
 import ar.edu.itba.pod.server.service.SeatQueryServiceImpl;
+import ar.edu.itba.pod.server.service.ShardTransferServiceImpl;
 import ar.edu.itba.pod.server.utils.ServerStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
-import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 
 public class Server {
     private static final Logger LOGGER = LoggerFactory.getLogger(Server.class);
+    private static final String SHARD = "shard";
+    private static final String SHARDS = "shards";
+    private static final String PORT = "port";
+    private static final String REPLICATION = "replication";
+    private static final String PRIMARY = "primary";
+    private static final String PRIORITY = "priority";
+    private static final String PRIMARY_REGISTRY = "primaryRegistry";
+    private static final String MAX_LAG = "maxLag";
+    private static final int DEFAULT_MAX_LAG = 10000;
+    private static final String BINARY = "binary";
+    private static final String BINARY_WORKERS = "binaryWorkers";
+    private static final String RETICKETING_CHUNK = "reticketingChunk";
+    private static final int DEFAULT_BINARY_WORKERS = 16;
 
-    public static void main(String[] args) throws RemoteException {
+    /**
+     * Kept reachable so an in-process registry is not collected once main returns
+     */
+    private static Registry registry;
+    private static Registry primaryRegistry;
+    private static ReplicationServer replicationServer;
+    private static BinaryProtocolServer binaryProtocolServer;
+
+    /**
+     * An in-process registry holds no remote reference to what it binds, so the services have to
+     * be kept reachable here or they are unexported once collected
+     */
+    private static final List<Remote> SERVICES = new ArrayList<>();
+
+    /**
+     * Runs as shard -Dshard of a fleet of -Dshards servers when given, owning only its range of
+     * flight codes. With -Dport it starts its own registry on that port instead of using the
+     * one already running on 1099, so several shards can share a host.
+     * With -Dreplication it ships its changes to the backups that connect to that port. With
+     * -Dprimary=host:port it is one of those backups instead, serving seat map queries on its own
+     * registry and taking over the registry of the primary, -DprimaryRegistry or 1099, if the
+     * primary is lost.
+     * With -Dbinary it also serves the services on that port over the binary transport, calling
+     * the same service instances as the registry.
+     * Services are exported with the sockets chosen by -DrmiSockets, see {@link SocketFactories}.
+     * Reticketing steps aside for waiting seat operations every -DreticketingChunk milliseconds.
+     */
+    public static void main(String[] args) throws IOException {
         LOGGER.info("rmi-project Server Starting ...");
 
-        ServerStore store = new ServerStore();
+        int shards = Integer.parseInt(System.getProperty(SHARDS, "1"));
+        int shard = Integer.parseInt(System.getProperty(SHARD, "0"));
+        ServerStore store = new ServerStore(new ShardMap(shards), shard);
+        if (shards > 1)
+            LOGGER.info("Serving shard " + shard + " of " + shards);
+
+        final String port = System.getProperty(PORT);
+        final String primary = System.getProperty(PRIMARY);
+        final String replication = System.getProperty(REPLICATION);
+
+        // Only a primary that ships its changes, or a backup that may take over, keeps a log and
+        // its checkpoint. A primary logs before any service is reachable, so no change is missed.
+        final ReplicationLog log = primary != null || replication != null
+                ? new ReplicationLog(Integer.getInteger(MAX_LAG, DEFAULT_MAX_LAG)) : null;
+        if (primary == null && replication != null) {
+            store.setReplicationLog(log);
+            replicationServer = new ReplicationServer(log, Integer.parseInt(replication));
+        }
 
-        final FlightManagerService flightManagerService = new FlightManagerServiceImpl(store);
+        final SeatQueryService seatQueryService = new SeatQueryServiceImpl(store);
+        final CursorService cursorService = new CursorServiceImpl(store);
+        SERVICES.addAll(Arrays.asList(seatQueryService, cursorService));
+        final Map<String, Remote> queryServices = new LinkedHashMap<>();
+        queryServices.put("seatQueryService", SocketFactories.export(seatQueryService));
+        queryServices.put("cursorService", SocketFactories.export(cursorService));
+
+        if (primary != null) {
+            if (port == null)
+                throw new IllegalArgumentException("A backup needs its own registry port");
+            registry = LocateRegistry.createRegistry(Integer.parseInt(port));
+            for (Map.Entry<String, Remote> service : queryServices.entrySet())
+                registry.rebind(service.getKey(), service.getValue());
+
+            String[] address = primary.split(":");
+            int replicationPort = Integer.parseInt(address[1]);
+            int registryPort = Integer.getInteger(PRIMARY_REGISTRY, Registry.REGISTRY_PORT);
+            store.deferHoldExpiries();
+            new BackupReplica(store, log, address[0], replicationPort, Integer.getInteger(PRIORITY, 0), () -> {
+                try {
+                    takeOver(store, log, queryServices, replicationPort, registryPort);
+                } catch (IOException e) {
+                    LOGGER.error("Could not take over from the primary", e);
+                }
+            }).start();
+            return;
+        }
+
+        registry = port == null ? LocateRegistry.getRegistry()
+                : LocateRegistry.createRegistry(Integer.parseInt(port));
+        bindServices(registry, store, queryServices);
+        startBinaryProtocol();
+    }
+
+    /**
+     * Binds every service of the store on the registry, except the seat map queries and their
+     * cursors, which are exported beforehand so a backup can serve them
+     */
+    private static FlightManagerServiceImpl bindServices(Registry registry, ServerStore store,
+                                                         Map<String, Remote> queryServices) throws RemoteException {
+        final FlightManagerServiceImpl flightManagerService = new FlightManagerServiceImpl(store,
+                FlightManagerServiceImpl.RETICKETING_GRACE_MILLIS,
+                Long.getLong(RETICKETING_CHUNK, FlightManagerServiceImpl.RETICKETING_CHUNK_MILLIS));
 
         final SeatManagerService seatManagerService = new SeatManagerServiceImpl(store);
 
         final NotificationService notificationService = new NotificationServiceImpl(store);
 
-        final SeatQueryService seatQueryService = new SeatQueryServiceImpl(store);
+        final ShardTransferService shardTransferService = new ShardTransferServiceImpl(store);
 
-        final Registry registry = LocateRegistry.getRegistry();
+        SERVICES.addAll(Arrays.asList(flightManagerService, seatManagerService, notificationService,
+                shardTransferService));
 
-        final Remote remoteFlightManagerService = UnicastRemoteObject.exportObject(flightManagerService, 0);
-        final Remote remoteSeatManagerService = UnicastRemoteObject.exportObject(seatManagerService, 0);
-        final Remote remoteNotificationService = UnicastRemoteObject.exportObject(notificationService, 0);
-        final Remote remoteSeatQueryService = UnicastRemoteObject.exportObject(seatQueryService, 0);
+        final Remote remoteFlightManagerService = SocketFactories.export(flightManagerService);
+        final Remote remoteSeatManagerService = SocketFactories.export(seatManagerService);
+        final Remote remoteNotificationService = SocketFactories.export(notificationService);
+        final Remote remoteShardTransferService = SocketFactories.export(shardTransferService);
 
         registry.rebind("flightManagerService", remoteFlightManagerService);
         registry.rebind("seatManagerService", remoteSeatManagerService);
         registry.rebind("notificationService", remoteNotificationService);
-        registry.rebind("seatQueryService", remoteSeatQueryService);
+        registry.rebind("shardTransferService", remoteShardTransferService);
+        for (Map.Entry<String, Remote> service : queryServices.entrySet())
+            registry.rebind(service.getKey(), service.getValue());
+        return flightManagerService;
+    }
+
+    /**
+     * Turns a backup into the primary: its holds start expiring, the reticketing left pending is
+     * started again, its services replace the primary's on the primary registry, which is created
+     * if it died with the primary, and it ships its log to the remaining backups
+     */
+    private static void takeOver(ServerStore store, ReplicationLog log, Map<String, Remote> queryServices,
+                                 int replicationPort, int registryPort) throws IOException {
+        store.resumeHoldExpiries();
+        store.setReplicationLog(log);
+        replicationServer = new ReplicationServer(log, replicationPort);
+
+        try {
+            primaryRegistry = LocateRegistry.getRegistry(registryPort);
+            primaryRegistry.list();
+        } catch (RemoteException e) {
+            primaryRegistry = LocateRegistry.createRegistry(registryPort);
+        }
+        bindServices(primaryRegistry, store, queryServices).resumeReticketing();
+        startBinaryProtocol();
+        LOGGER.info("Took over as primary on registry port " + registryPort);
+    }
 
+    private static void startBinaryProtocol() throws IOException {
+        final String binaryPort = System.getProperty(BINARY);
+        if (binaryPort != null)
+            binaryProtocolServer = new BinaryProtocolServer(Integer.parseInt(binaryPort), SERVICES,
+                    Integer.getInteger(BINARY_WORKERS, DEFAULT_BINARY_WORKERS));
     }
 }
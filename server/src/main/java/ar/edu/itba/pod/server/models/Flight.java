@@ -2,39 +2,103 @@ package ar.edu.itba.pod.server.models;
 
 import ar.edu.itba.pod.models.FlightState;
 import ar.edu.itba.pod.models.PlaneModel;
+import ar.edu.itba.pod.models.ResponseRow;
 import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.SeatMapDelta;
 import ar.edu.itba.pod.models.Ticket;
 import ar.edu.itba.pod.models.exceptions.IllegalPassengerCategoryException;
 import ar.edu.itba.pod.models.exceptions.IllegalRowException;
 import ar.edu.itba.pod.models.exceptions.PassengerAlreadySeatedException;
+import ar.edu.itba.pod.models.exceptions.flightExceptions.IllegalFlightStateException;
+import ar.edu.itba.pod.models.exceptions.notFoundExceptions.SeatHoldNotFoundException;
 import ar.edu.itba.pod.models.exceptions.notFoundExceptions.TicketNotFoundException;
+import ar.edu.itba.pod.models.exceptions.seatExceptions.NoAvailableSeatsException;
 import ar.edu.itba.pod.models.exceptions.seatExceptions.SeatAlreadyTakenException;
+import ar.edu.itba.pod.server.utils.NameDictionary;
+import ar.edu.itba.pod.server.utils.NoOpLock;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class Flight {
+    private static final int CHANGE_LOG_SIZE = 256;
+    private static final AtomicLong STAMPS = new AtomicLong();
+
+    private final NameDictionary names;
+    private final PlaneModel model;
     private final String code;
-    private final String destination;
+    private final int destination;
     private FlightState state = FlightState.PENDING;
 
-    private final Map<String, Ticket> tickets;
+    private TicketTable tickets;
 
-    private final Row[] rows;
+    private Row[] rows;
 
     private final int[] availableSeats = {0, 0, 0};
 
+    /**
+     * Free seats numbered row by row. Categories own contiguous rows, so each one is the range
+     * [categoryStart, categoryEnd) of the set.
+     */
+    private BitSet freeSeats;
+    private final int[] categoryStart = new int[RowCategory.values().length];
+    private final int[] categoryEnd = new int[RowCategory.values().length];
+    private final int[] categoryFirstRow = new int[RowCategory.values().length];
+    private final int[] categoryRowSeats = new int[RowCategory.values().length];
+    private final int[] categoryEndRow = new int[RowCategory.values().length];
+
+    private FreeRunIndex freeRuns;
+
+    /**
+     * Seat holds by passenger id
+     */
+    private Map<Integer, SeatHold> holds = new HashMap<>();
+
+    private SeatChangeLog changeLog = new SeatChangeLog(CHANGE_LOG_SIZE);
+
+    /**
+     * Compact seating that replaces the tickets, rows and change log once the flight is frozen
+     */
+    private volatile FrozenFlight frozen;
+
+    /**
+     * Taken anew from a counter shared by all flights on every change, under the state lock, so an
+     * equal stamp means the same flight with no change in between
+     */
+    private volatile long stamp = STAMPS.incrementAndGet();
+
     private final Lock stateLock = new ReentrantLock();
 
     private final Lock seatsLock = new ReentrantLock();
 
     public Flight(PlaneModel model, String code, String destination, List<Ticket> tickets) {
+        this(new NameDictionary(), model, code, destination, tickets);
+    }
+
+    public Flight(NameDictionary names, PlaneModel model, String code, String destination, List<Ticket> tickets) {
+        this.names = names;
+        this.model = model;
         this.code = code;
-        this.destination = destination;
-        this.tickets = tickets.stream().collect(Collectors.toMap(Ticket::getPassenger, t -> t));
+        this.destination = names.idOf(destination);
+        this.tickets = new TicketTable(tickets.size());
+        for (Ticket ticket : tickets) {
+            int passenger = names.idOf(ticket.getPassenger());
+            if (this.tickets.find(passenger) != TicketTable.NOT_FOUND)
+                throw new IllegalStateException("Duplicate ticket for passenger " + ticket.getPassenger());
+            this.tickets.add(passenger, ticket.getCategory());
+        }
 
         int[] business = model.getCategoryConfig(RowCategory.BUSINESS);
         int[] premium = model.getCategoryConfig(RowCategory.PREMIUM_ECONOMY);
@@ -59,18 +123,39 @@ public class Flight {
         availableSeats[RowCategory.BUSINESS.ordinal()] = business[0] * business[1];
         availableSeats[RowCategory.PREMIUM_ECONOMY.ordinal()] = premium[0] * premium[1];
         availableSeats[RowCategory.ECONOMY.ordinal()] = economy[0] * economy[1];
+
+        int firstRow = 0;
+        int firstSeat = 0;
+        for (RowCategory category : new RowCategory[]{RowCategory.BUSINESS, RowCategory.PREMIUM_ECONOMY,
+                RowCategory.ECONOMY}) {
+            int[] config = model.getCategoryConfig(category);
+            categoryFirstRow[category.ordinal()] = firstRow;
+            categoryRowSeats[category.ordinal()] = config[1];
+            categoryStart[category.ordinal()] = firstSeat;
+            firstRow += config[0];
+            categoryEndRow[category.ordinal()] = firstRow;
+            firstSeat += config[0] * config[1];
+            categoryEnd[category.ordinal()] = firstSeat;
+        }
+        this.freeSeats = new BitSet(firstSeat);
+        freeSeats.set(0, firstSeat);
+        this.freeRuns = new FreeRunIndex(rows);
     }
 
     public String getDestination() {
+        return names.nameOf(destination);
+    }
+
+    public int getDestinationId() {
         return destination;
     }
 
-    public String getCode() {
-        return code;
+    public PlaneModel getPlaneModel() {
+        return model;
     }
 
-    public Map<String, Ticket> getTickets() {
-        return tickets;
+    public String getCode() {
+        return code;
     }
 
     public FlightState getState() {
@@ -79,34 +164,45 @@ public class Flight {
 
     public void setState(FlightState state) {
         this.state = state;
+        touch();
     }
 
     public boolean checkSeat(int row, char seat) {
         checkValidRow(row);
+        FrozenFlight frozen = this.frozen;
+        if (frozen != null)
+            return frozen.isAvailable(row, seat);
         return rows[row].isAvailable(seat);
     }
 
     public void assignSeat(int rowNumber, char seat, String passenger) {
-        Ticket ticket = checkValidSeat(passenger, rowNumber, seat);
-
-        if (ticket.isSeated()) {
+        checkNotFrozen();
+        int seated = findSlot(passenger);
+        if (seated != TicketTable.NOT_FOUND && tickets.isSeated(seated)) {
             throw new PassengerAlreadySeatedException();
         }
 
-        seatPassenger(rowNumber, seat, ticket);
+        consumeHold(passenger, rowNumber, seat);
+        int slot = checkValidSeat(passenger, rowNumber, seat);
+
+        seatPassenger(rowNumber, seat, slot);
     }
 
     public void changeSeat(int freeRow, char freeSeat, String passenger) {
-        Ticket ticket = checkValidSeat(passenger, freeRow, freeSeat);
-        Row oldRow = rows[ticket.getRow()];
-        oldRow.removePassenger(passenger);
-        ticket.setSeat(null, null);
-        availableSeats[oldRow.getRowCategory().ordinal()]++;
-        seatPassenger(freeRow, freeSeat, ticket);
+        checkNotFrozen();
+        consumeHold(passenger, freeRow, freeSeat);
+        int slot = checkValidSeat(passenger, freeRow, freeSeat);
+        if (tickets.isSeated(slot))
+            releaseSeat(slot);
+        seatPassenger(freeRow, freeSeat, slot);
     }
 
-    private Ticket checkValidSeat(String passenger, int row, char seat) {
-        if (!tickets.containsKey(passenger))
+    /**
+     * Returns the ticket slot of the passenger
+     */
+    private int checkValidSeat(String passenger, int row, char seat) {
+        int slot = findSlot(passenger);
+        if (slot == TicketTable.NOT_FOUND)
             throw new TicketNotFoundException();
 
         checkValidRow(row);
@@ -115,38 +211,335 @@ public class Flight {
         if (!newRow.isAvailable(seat))
             throw new SeatAlreadyTakenException(row, seat);
 
-        Ticket ticket = getTicket(passenger);
-
-        if (rows[row].getRowCategory().ordinal() > ticket.getCategory().ordinal()) {
+        if (rows[row].getRowCategory().ordinal() > tickets.getCategory(slot).ordinal()) {
             throw new IllegalPassengerCategoryException();
         }
 
-        return ticket;
+        return slot;
+    }
+
+    /**
+     * Seats the passenger on the first free seat of the first category in the given order that
+     * has one. With no order, the passenger's own category is tried first and then the lower ones.
+     */
+    public Ticket assignBestSeat(String passenger, List<RowCategory> preferences) {
+        checkNotFrozen();
+        int slot = findSlot(passenger);
+        if (slot == TicketTable.NOT_FOUND)
+            throw new TicketNotFoundException();
+        if (tickets.isSeated(slot))
+            throw new PassengerAlreadySeatedException();
+
+        RowCategory ticketCategory = tickets.getCategory(slot);
+        if (preferences == null || preferences.isEmpty()) {
+            preferences = new ArrayList<>();
+            for (int i = ticketCategory.ordinal(); i >= 0; i--) {
+                preferences.add(RowCategory.values()[i]);
+            }
+        }
+
+        for (RowCategory category : preferences) {
+            if (category.ordinal() > ticketCategory.ordinal())
+                throw new IllegalPassengerCategoryException();
+
+            int seat = freeSeats.nextSetBit(categoryStart[category.ordinal()]);
+            if (seat >= 0 && seat < categoryEnd[category.ordinal()]) {
+                int offset = seat - categoryStart[category.ordinal()];
+                int rowSeats = categoryRowSeats[category.ordinal()];
+                seatPassenger(categoryFirstRow[category.ordinal()] + offset / rowSeats,
+                        (char) ('A' + offset % rowSeats), slot);
+                return toTicket(tickets.toPassengerTicket(slot));
+            }
+        }
+        throw new NoAvailableSeatsException();
     }
 
-    private void seatPassenger(int rowNumber, char seat, Ticket ticket) {
+    /**
+     * Seats every passenger, in order, on adjacent seats of a single row. Nothing changes unless
+     * the whole group fits. The row must be allowed for every ticket of the group, and the
+     * highest category they all share is tried first.
+     */
+    public List<Ticket> assignGroup(List<String> passengers) {
+        checkNotFrozen();
+        if (passengers.isEmpty())
+            return new ArrayList<>();
+
+        int[] slots = new int[passengers.size()];
+        int category = RowCategory.BUSINESS.ordinal();
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = findSlot(passengers.get(i));
+            if (slots[i] == TicketTable.NOT_FOUND)
+                throw new TicketNotFoundException();
+            if (tickets.isSeated(slots[i]))
+                throw new PassengerAlreadySeatedException();
+            for (int j = 0; j < i; j++) {
+                if (slots[j] == slots[i])
+                    throw new IllegalArgumentException("Passenger " + passengers.get(i) + " is repeated");
+            }
+            category = Math.min(category, tickets.getCategory(slots[i]).ordinal());
+        }
+
+        for (; category >= 0; category--) {
+            int row = freeRuns.findRow(categoryFirstRow[category], categoryEndRow[category], slots.length);
+            if (row == FreeRunIndex.NOT_FOUND)
+                continue;
+
+            int first = rows[row].findFreeRun(slots.length);
+            List<Ticket> seated = new ArrayList<>(slots.length);
+            for (int i = 0; i < slots.length; i++) {
+                seatPassenger(row, (char) ('A' + first + i), slots[i]);
+                seated.add(toTicket(tickets.toPassengerTicket(slots[i])));
+            }
+            return seated;
+        }
+        throw new NoAvailableSeatsException();
+    }
+
+    private int seatIndex(int row, char seat) {
+        int category = rows[row].getRowCategory().ordinal();
+        return categoryStart[category] + (row - categoryFirstRow[category]) * categoryRowSeats[category]
+                + seat - 'A';
+    }
+
+    private int findSlot(String passenger) {
+        int id = names.find(passenger);
+        return id == NameDictionary.NO_ID ? TicketTable.NOT_FOUND : tickets.find(id);
+    }
+
+    private void seatPassenger(int rowNumber, char seat, int slot) {
+        dropHold(tickets.getPassenger(slot));
+        takeSeat(rowNumber, seat, tickets.getPassenger(slot));
+        tickets.setSeat(slot, rowNumber, seat);
+    }
+
+    private void releaseSeat(int slot) {
+        freeSeat(tickets.getRow(slot), tickets.getCol(slot));
+        tickets.clearSeat(slot);
+    }
+
+    /**
+     * Marks the seat as taken by a passenger or a hold in every seat index of the flight
+     */
+    private void takeSeat(int rowNumber, char seat, int occupant) {
         Row row = rows[rowNumber];
-        row.assignSeat(seat, ticket.getPassenger());
-        ticket.setSeat(rowNumber, seat);
+        row.assignSeat(seat, occupant);
+        freeSeats.clear(seatIndex(rowNumber, seat));
+        freeRuns.update(rowNumber, row);
+        changeLog.record(rowNumber);
         availableSeats[row.getRowCategory().ordinal()]--;
+        touch();
+    }
+
+    private void freeSeat(int rowNumber, char seat) {
+        Row row = rows[rowNumber];
+        row.removePassenger(seat);
+        freeSeats.set(seatIndex(rowNumber, seat));
+        freeRuns.update(rowNumber, row);
+        changeLog.record(rowNumber);
+        availableSeats[row.getRowCategory().ordinal()]++;
+        touch();
+    }
+
+    /**
+     * Keeps a free seat aside for the passenger, replacing any previous hold of theirs. A held seat
+     * is unavailable to everyone, and only the holder can take it with assignSeat or changeSeat.
+     */
+    public SeatHold holdSeat(int rowNumber, char seat, String passenger) {
+        checkNotFrozen();
+        int slot = findSlot(passenger);
+        if (slot == TicketTable.NOT_FOUND)
+            throw new TicketNotFoundException();
+
+        int id = tickets.getPassenger(slot);
+        SeatHold previous = holds.get(id);
+        if (previous == null || !previous.isFor(rowNumber, seat)) {
+            checkValidSeat(passenger, rowNumber, seat);
+            dropHold(id);
+            takeSeat(rowNumber, seat, Row.HELD);
+        }
+
+        SeatHold hold = new SeatHold(this, id, rowNumber, seat);
+        holds.put(id, hold);
+        return hold;
+    }
+
+    /**
+     * Seats the passenger on the seat they hold
+     */
+    public Ticket assignHeldSeat(String passenger) {
+        checkNotFrozen();
+        SeatHold hold = Optional.ofNullable(holds.get(names.find(passenger)))
+                .orElseThrow(SeatHoldNotFoundException::new);
+        assignSeat(hold.getRow(), hold.getSeat(), passenger);
+        return getTicket(passenger);
+    }
+
+    public void releaseHold(String passenger) {
+        checkNotFrozen();
+        if (!dropHold(names.find(passenger)))
+            throw new SeatHoldNotFoundException();
+    }
+
+    /**
+     * Frees the seat of the hold unless it was already assigned, released or replaced.
+     * Returns whether the seat was freed.
+     */
+    public boolean expireHold(SeatHold hold) {
+        if (frozen != null || holds.get(hold.getPassenger()) != hold)
+            return false;
+        return dropHold(hold.getPassenger());
+    }
+
+    private boolean dropHold(int passenger) {
+        SeatHold hold = holds.remove(passenger);
+        if (hold == null)
+            return false;
+        freeSeat(hold.getRow(), hold.getSeat());
+        return true;
+    }
+
+    /**
+     * Frees the seat if the passenger holds it, so they can be seated on it
+     */
+    private void consumeHold(String passenger, int row, char seat) {
+        int id = names.find(passenger);
+        SeatHold hold = holds.get(id);
+        if (hold != null && hold.isFor(row, seat))
+            dropHold(id);
+    }
+
+    /**
+     * The passenger's hold, or null if they hold no seat
+     */
+    public SeatHold getHold(String passenger) {
+        if (frozen != null)
+            return null;
+        int id = names.find(passenger);
+        return id == NameDictionary.NO_ID ? null : holds.get(id);
+    }
+
+    /**
+     * Every hold of the flight, copied. Callers must hold the seats lock.
+     */
+    public List<SeatHold> getHolds() {
+        return frozen != null ? Collections.emptyList() : new ArrayList<>(holds.values());
+    }
+
+    public int getHoldCount() {
+        return frozen != null ? 0 : holds.size();
     }
 
     private void checkValidRow(int row) {
-        if (row < 0 || row >= rows.length) {
+        if (row < 0 || row >= getRowCount()) {
             throw new IllegalRowException(row);
         }
     }
 
+    private void checkNotFrozen() {
+        if (frozen != null)
+            throw new IllegalFlightStateException();
+    }
+
     public void changeFlight(String passenger, Flight other) {
-        Ticket ticket = tickets.remove(passenger);
-        if (ticket.isSeated()) {
-            int row = ticket.getRow();
-            rows[row].removePassenger(passenger);
-            availableSeats[rows[row].getRowCategory().ordinal()]++;
+        if (!hasTicket(passenger))
+            throw new TicketNotFoundException();
+        checkNotFrozen();
+        other.checkNotFrozen();
+        int slot = findSlot(passenger);
+        dropHold(tickets.getPassenger(slot));
+        if (tickets.isSeated(slot))
+            releaseSeat(slot);
+
+        int otherId = other.names == names ? tickets.getPassenger(slot) : other.names.idOf(passenger);
+        int otherSlot = other.tickets.find(otherId);
+        if (otherSlot != TicketTable.NOT_FOUND) {
+            if (other.tickets.isSeated(otherSlot))
+                other.releaseSeat(otherSlot);
+            other.tickets.remove(otherSlot);
         }
-        ticket.setSeat(null, null);
+        other.tickets.add(otherId, tickets.getCategory(slot));
+        tickets.remove(slot);
+        other.touch();
+        touch();
+    }
 
-        other.getTickets().put(passenger, ticket);
+    /**
+     * Adds an unseated ticket for a passenger coming from a flight this one cannot lock
+     */
+    public void admitTicket(String passenger, RowCategory category) {
+        checkNotFrozen();
+        if (hasTicket(passenger))
+            throw new IllegalArgumentException("Passenger " + passenger + " already has a ticket on flight " + code);
+        tickets.add(names.idOf(passenger), category);
+        touch();
+    }
+
+    /**
+     * Removes the passenger's ticket, freeing their seat and hold
+     */
+    public void removeTicket(String passenger) {
+        checkNotFrozen();
+        int slot = findSlot(passenger);
+        if (slot == TicketTable.NOT_FOUND)
+            throw new TicketNotFoundException();
+        dropHold(tickets.getPassenger(slot));
+        if (tickets.isSeated(slot))
+            releaseSeat(slot);
+        tickets.remove(slot);
+        touch();
+    }
+
+    /**
+     * Replaces the mutable seating with an immutable, compact copy. Frozen flights reject every
+     * seat or ticket change and hand out no-op locks, so their readers never contend.
+     * Must be called without holding the flight locks.
+     */
+    public void freeze() {
+        if (frozen != null)
+            return;
+
+        stateLock.lock();
+        seatsLock.lock();
+        try {
+            if (frozen != null)
+                return;
+
+            for (Integer passenger : new ArrayList<>(holds.keySet())) {
+                dropHold(passenger);
+            }
+            frozen = new FrozenFlight(names, tickets, rows, changeLog.getVersion());
+            tickets = null;
+            rows = null;
+            changeLog = null;
+            freeSeats = null;
+            freeRuns = null;
+            holds = null;
+        } finally {
+            seatsLock.unlock();
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Freezes the flight once every ticket was moved out of it
+     */
+    public void freezeIfDrained() {
+        if (frozen != null)
+            return;
+
+        stateLock.lock();
+        seatsLock.lock();
+        try {
+            if (frozen == null && tickets.isEmpty())
+                freeze();
+        } finally {
+            seatsLock.unlock();
+            stateLock.unlock();
+        }
+    }
+
+    public boolean isFrozen() {
+        return frozen != null;
     }
 
 
@@ -166,6 +559,8 @@ public class Flight {
 
     private int traverseAndGetAvailable(Supplier<Integer> supplier) {
         int toReturn;
+        Lock stateLock = getStateLock();
+        Lock seatsLock = getSeatsLock();
         stateLock.lock();
         seatsLock.lock();
         toReturn = supplier.get();
@@ -176,6 +571,8 @@ public class Flight {
 
     public int getAvailableCategory(RowCategory category) {
         int toReturn = -1;
+        Lock stateLock = getStateLock();
+        Lock seatsLock = getSeatsLock();
         stateLock.lock();
         seatsLock.lock();
         for (int i = category.ordinal(); i >= 0; i--) {
@@ -189,19 +586,163 @@ public class Flight {
         return toReturn;
     }
 
+    /**
+     * Rebuilds the ticket of the passenger, or returns null if the passenger has none
+     */
     public Ticket getTicket(String passenger) {
-        return tickets.get(passenger);
+        return Optional.ofNullable(getPassengerTicket(names.find(passenger))).map(this::toTicket)
+                .orElse(null);
+    }
+
+    public PassengerTicket getPassengerTicket(int passenger) {
+        FrozenFlight frozen = this.frozen;
+        if (frozen != null)
+            return frozen.getTicket(passenger);
+        int slot = tickets.find(passenger);
+        return slot == TicketTable.NOT_FOUND ? null : tickets.toPassengerTicket(slot);
     }
 
+    public boolean hasTicket(String passenger) {
+        FrozenFlight frozen = this.frozen;
+        if (frozen != null)
+            return frozen.getTicket(names.find(passenger)) != null;
+        return findSlot(passenger) != TicketTable.NOT_FOUND;
+    }
+
+    private Ticket toTicket(PassengerTicket passengerTicket) {
+        Ticket ticket = new Ticket(passengerTicket.getCategory(), names.nameOf(passengerTicket.getPassenger()),
+                getDestination());
+        if (passengerTicket.isSeated())
+            ticket.setSeat(passengerTicket.getRow(), passengerTicket.getCol());
+        return ticket;
+    }
+
+    public int getTicketCount() {
+        FrozenFlight frozen = this.frozen;
+        if (frozen != null)
+            return frozen.getTicketCount();
+        return tickets.size();
+    }
+
+    /**
+     * Tickets sorted by passenger name
+     */
+    public List<Ticket> getSortedTickets() {
+        FrozenFlight frozen = this.frozen;
+        if (frozen != null)
+            return frozen.getTickets().stream().map(this::toTicket).sorted(Comparator.naturalOrder())
+                    .collect(Collectors.toList());
+
+        List<Ticket> sorted = new ArrayList<>(tickets.size());
+        for (int slot = 0; slot < tickets.size(); slot++) {
+            sorted.add(toTicket(tickets.toPassengerTicket(slot)));
+        }
+        sorted.sort(Comparator.naturalOrder());
+        return sorted;
+    }
+
+    public int getRowCount() {
+        FrozenFlight frozen = this.frozen;
+        if (frozen != null)
+            return frozen.getRowCount();
+        return rows.length;
+    }
+
+    public RowCategory getRowCategory(int row) {
+        FrozenFlight frozen = this.frozen;
+        if (frozen != null)
+            return frozen.getRowCategory(row);
+        return rows[row].getRowCategory();
+    }
+
+    public char[] getRowInitials(int row) {
+        FrozenFlight frozen = this.frozen;
+        if (frozen != null)
+            return frozen.getRowInitials(row);
+        return rows[row].getPassengerInitials(names);
+    }
+
+    public long getStamp() {
+        return stamp;
+    }
+
+    private void touch() {
+        stamp = STAMPS.incrementAndGet();
+    }
+
+    /**
+     * Immutable copy of the flight as of now. A frozen flight shares its frozen seating. Callers
+     * must hold the flight locks.
+     */
+    public FlightSnapshot snapshot() {
+        FrozenFlight seating = frozen != null ? frozen : new FrozenFlight(names, tickets, rows, changeLog.getVersion());
+        return new FlightSnapshot(names, code, getDestination(), state, stamp, availableSeats.clone(), seating);
+    }
+
+    public long getVersion() {
+        FrozenFlight frozen = this.frozen;
+        if (frozen != null)
+            return frozen.getVersion();
+        return changeLog.getVersion();
+    }
+
+    /**
+     * Builds the rows changed after the given version, or the whole seat map when the change log
+     * no longer covers it. Callers must hold the seats lock.
+     */
+    public SeatMapDelta getSeatMapSince(long version) {
+        long current = getVersion();
+        Set<Integer> changed = frozen != null ? (version == current ? Collections.emptySet() : null)
+                : changeLog.changedSince(version);
+        Map<Integer, ResponseRow> responseRows = new TreeMap<>();
+        if (changed == null) {
+            for (int i = 0; i < getRowCount(); i++) {
+                responseRows.put(i, new ResponseRow(getRowCategory(i), getRowInitials(i)));
+            }
+        } else {
+            for (int i : changed) {
+                responseRows.put(i, new ResponseRow(getRowCategory(i), getRowInitials(i)));
+            }
+        }
+        return new SeatMapDelta(code, version, current, changed == null, responseRows);
+    }
+
+    /**
+     * Tickets by passenger name, rebuilt on every call
+     */
+    public Map<String, Ticket> getTickets() {
+        return getSortedTickets().stream().collect(Collectors.toMap(Ticket::getPassenger, t -> t));
+    }
+
+    /**
+     * Rows of the flight. For frozen flights they are rebuilt on every call.
+     */
     public Row[] getRows() {
-        return rows;
+        FrozenFlight frozen = this.frozen;
+        if (frozen == null)
+            return rows;
+
+        Row[] toReturn = new Row[frozen.getRowCount()];
+        for (PassengerTicket ticket : frozen.getTickets()) {
+            if (ticket.isSeated()) {
+                if (toReturn[ticket.getRow()] == null)
+                    toReturn[ticket.getRow()] = new Row(frozen.getRowCategory(ticket.getRow()),
+                            frozen.getSeatCount(ticket.getRow()));
+                toReturn[ticket.getRow()].assignSeat(ticket.getCol(), ticket.getPassenger());
+            }
+        }
+        for (int i = 0; i < toReturn.length; i++) {
+            if (toReturn[i] == null)
+                toReturn[i] = new Row(frozen.getRowCategory(i), frozen.getSeatCount(i));
+        }
+        return toReturn;
     }
 
     public Lock getStateLock() {
-        return stateLock;
+        return frozen != null ? NoOpLock.INSTANCE : stateLock;
     }
 
     public Lock getSeatsLock() {
-        return seatsLock;
+        return frozen != null ? NoOpLock.INSTANCE : seatsLock;
     }
 }
\ No newline at end of file
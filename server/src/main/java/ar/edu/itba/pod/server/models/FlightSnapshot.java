@@ -0,0 +1,91 @@
+package ar.edu.itba.pod.server.models;
+
+import ar.edu.itba.pod.models.FlightState;
+import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.server.utils.NameDictionary;
+
+import java.util.List;
+
+/**
+ * Immutable copy of a flight at one moment: its state, its free seats by category and its
+ * seating. Store snapshots share the copies of the flights that did not change between them.
+ */
+public class FlightSnapshot {
+    private final NameDictionary names;
+    private final String code;
+    private final String destination;
+    private final FlightState state;
+    private final long stamp;
+    private final int[] availableSeats;
+    private final FrozenFlight seating;
+
+    FlightSnapshot(NameDictionary names, String code, String destination, FlightState state, long stamp,
+                   int[] availableSeats, FrozenFlight seating) {
+        this.names = names;
+        this.code = code;
+        this.destination = destination;
+        this.state = state;
+        this.stamp = stamp;
+        this.availableSeats = availableSeats;
+        this.seating = seating;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public FlightState getState() {
+        return state;
+    }
+
+    /**
+     * The {@link Flight#getStamp() stamp} of the flight when it was copied
+     */
+    public long getStamp() {
+        return stamp;
+    }
+
+    public long getVersion() {
+        return seating.getVersion();
+    }
+
+    public int getAvailableByCategory(RowCategory category) {
+        return availableSeats[category.ordinal()];
+    }
+
+    public int getRowCount() {
+        return seating.getRowCount();
+    }
+
+    public RowCategory getRowCategory(int row) {
+        return seating.getRowCategory(row);
+    }
+
+    public char[] getRowInitials(int row) {
+        return seating.getRowInitials(row);
+    }
+
+    public boolean isAvailable(int row, char seat) {
+        return seating.isAvailable(row, seat);
+    }
+
+    public int getTicketCount() {
+        return seating.getTicketCount();
+    }
+
+    public List<PassengerTicket> getTickets() {
+        return seating.getTickets();
+    }
+
+    /**
+     * The passenger's ticket, or null if they had none
+     */
+    public PassengerTicket getTicket(String passenger) {
+        int id = names.find(passenger);
+        return id == NameDictionary.NO_ID ? null : seating.getTicket(id);
+    }
+}
@@ -0,0 +1,52 @@
+package ar.edu.itba.pod.server.models;
+
+/**
+ * Longest run of adjacent free seats of every row, kept in a max segment tree so the first row
+ * of a range that can fit a block is found without visiting every row.
+ */
+public class FreeRunIndex {
+    public static final int NOT_FOUND = -1;
+
+    private final int leaves;
+    private final int[] tree;
+
+    public FreeRunIndex(Row[] rows) {
+        this.leaves = Integer.highestOneBit(Math.max(rows.length, 1) * 2 - 1);
+        this.tree = new int[leaves * 2];
+        for (int i = 0; i < rows.length; i++) {
+            tree[leaves + i] = rows[i].getLongestFreeRun();
+        }
+        for (int node = leaves - 1; node > 0; node--) {
+            tree[node] = Math.max(tree[node * 2], tree[node * 2 + 1]);
+        }
+    }
+
+    /**
+     * Must be called after every change to the seats of the row
+     */
+    public void update(int rowNumber, Row row) {
+        int node = leaves + rowNumber;
+        tree[node] = row.getLongestFreeRun();
+        for (node /= 2; node > 0; node /= 2) {
+            tree[node] = Math.max(tree[node * 2], tree[node * 2 + 1]);
+        }
+    }
+
+    /**
+     * Returns the first row in [from, to) with at least length adjacent free seats, or NOT_FOUND
+     */
+    public int findRow(int from, int to, int length) {
+        return findRow(1, 0, leaves, from, to, length);
+    }
+
+    private int findRow(int node, int nodeFrom, int nodeTo, int from, int to, int length) {
+        if (nodeTo <= from || to <= nodeFrom || tree[node] < length)
+            return NOT_FOUND;
+        if (nodeTo - nodeFrom == 1)
+            return nodeFrom;
+
+        int middle = (nodeFrom + nodeTo) / 2;
+        int found = findRow(node * 2, nodeFrom, middle, from, to, length);
+        return found != NOT_FOUND ? found : findRow(node * 2 + 1, middle, nodeTo, from, to, length);
+    }
+}
@@ -0,0 +1,116 @@
+package ar.edu.itba.pod.server.models;
+
+import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.server.utils.NameDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable and compact copy of the seating of a flight that will not be written anymore.
+ * Passenger ids are kept sorted, with their tickets in parallel primitive arrays, and the seat
+ * map is stored as the initials it will always show.
+ */
+public class FrozenFlight {
+    private static final char EMPTY_SEAT = '*';
+
+    private final int[] passengers;
+    private final byte[] categories;
+    private final int[] ticketRows;
+    private final char[] ticketCols;
+
+    private final byte[] rowCategories;
+    private final int[] rowOffsets;
+    private final char[] initials;
+
+    private final long version;
+
+    public FrozenFlight(NameDictionary names, TicketTable tickets, Row[] rows, long version) {
+        // Passenger ids are non negative, so (id, slot) pairs packed in a long sort by id
+        long[] order = new long[tickets.size()];
+        for (int slot = 0; slot < order.length; slot++) {
+            order[slot] = (long) tickets.getPassenger(slot) << 32 | slot;
+        }
+        Arrays.sort(order);
+
+        this.passengers = new int[order.length];
+        this.categories = new byte[passengers.length];
+        this.ticketRows = new int[passengers.length];
+        this.ticketCols = new char[passengers.length];
+
+        for (int i = 0; i < passengers.length; i++) {
+            int slot = (int) order[i];
+            passengers[i] = tickets.getPassenger(slot);
+            categories[i] = (byte) tickets.getCategory(slot).ordinal();
+            ticketRows[i] = tickets.isSeated(slot) ? tickets.getRow(slot) : -1;
+            ticketCols[i] = tickets.getCol(slot);
+        }
+
+        this.rowCategories = new byte[rows.length];
+        this.rowOffsets = new int[rows.length + 1];
+        for (int i = 0; i < rows.length; i++) {
+            rowCategories[i] = (byte) rows[i].getRowCategory().ordinal();
+            rowOffsets[i + 1] = rowOffsets[i] + rows[i].getSeatCount();
+        }
+
+        this.initials = new char[rowOffsets[rows.length]];
+        for (int i = 0; i < rows.length; i++) {
+            char[] rowInitials = rows[i].getPassengerInitials(names);
+            System.arraycopy(rowInitials, 0, initials, rowOffsets[i], rowInitials.length);
+        }
+
+        this.version = version;
+    }
+
+    public PassengerTicket getTicket(int passenger) {
+        int index = Arrays.binarySearch(passengers, passenger);
+        return index < 0 ? null : toTicket(index);
+    }
+
+    /**
+     * Tickets sorted by passenger id, rebuilt on every call
+     */
+    public List<PassengerTicket> getTickets() {
+        List<PassengerTicket> tickets = new ArrayList<>(passengers.length);
+        for (int i = 0; i < passengers.length; i++) {
+            tickets.add(toTicket(i));
+        }
+        return tickets;
+    }
+
+    private PassengerTicket toTicket(int index) {
+        PassengerTicket ticket = new PassengerTicket(passengers[index], RowCategory.values()[categories[index]]);
+        if (ticketRows[index] >= 0)
+            ticket.setSeat(ticketRows[index], ticketCols[index]);
+        return ticket;
+    }
+
+    public int getTicketCount() {
+        return passengers.length;
+    }
+
+    public int getRowCount() {
+        return rowCategories.length;
+    }
+
+    public RowCategory getRowCategory(int row) {
+        return RowCategory.values()[rowCategories[row]];
+    }
+
+    public int getSeatCount(int row) {
+        return rowOffsets[row + 1] - rowOffsets[row];
+    }
+
+    public char[] getRowInitials(int row) {
+        return Arrays.copyOfRange(initials, rowOffsets[row], rowOffsets[row + 1]);
+    }
+
+    public boolean isAvailable(int row, char seat) {
+        return initials[rowOffsets[row] + seat - 'A'] == EMPTY_SEAT;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
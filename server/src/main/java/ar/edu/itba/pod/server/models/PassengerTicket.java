@@ -0,0 +1,47 @@
+package ar.edu.itba.pod.server.models;
+
+import ar.edu.itba.pod.models.RowCategory;
+
+/**
+ * Server side ticket. The passenger is a dictionary id and the destination is the flight's own.
+ */
+public class PassengerTicket {
+    private final int passenger;
+    private final RowCategory category;
+    private int row = -1;
+    private char col;
+
+    public PassengerTicket(int passenger, RowCategory category) {
+        this.passenger = passenger;
+        this.category = category;
+    }
+
+    public boolean isSeated() {
+        return row >= 0;
+    }
+
+    public void setSeat(int row, char col) {
+        this.row = row;
+        this.col = col;
+    }
+
+    public void clearSeat() {
+        this.row = -1;
+    }
+
+    public int getPassenger() {
+        return passenger;
+    }
+
+    public RowCategory getCategory() {
+        return category;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public char getCol() {
+        return col;
+    }
+}
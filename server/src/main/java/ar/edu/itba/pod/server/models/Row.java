@@ -2,45 +2,88 @@ package ar.edu.itba.pod.server.models;
 
 import ar.edu.itba.pod.models.RowCategory;
 import ar.edu.itba.pod.models.exceptions.seatExceptions.InvalidSeatException;
-import ar.edu.itba.pod.models.exceptions.seatExceptions.NoAvailableSeatsException;
+import ar.edu.itba.pod.server.utils.NameDictionary;
+
+import java.util.Arrays;
 
 public class Row {
+    /**
+     * Marks a seat kept aside by a hold
+     */
+    public static final int HELD = -2;
+
     private final RowCategory rowCategory;
-    private final String[] passengerNames;
+    private final int[] passengers;
 
     public Row(RowCategory rowCategory, int seats) {
         this.rowCategory = rowCategory;
-        this.passengerNames = new String[seats];
+        this.passengers = new int[seats];
+        Arrays.fill(passengers, NameDictionary.NO_ID);
     }
 
     public boolean isAvailable(char seat) {
-        return this.passengerNames[seat - 'A'] == null;
+        return this.passengers[seat - 'A'] == NameDictionary.NO_ID;
     }
 
-    public void assignSeat(char seat, String passengerName) {
-        this.passengerNames[seat - 'A'] = passengerName;
+    public void assignSeat(char seat, int passenger) {
+        this.passengers[seat - 'A'] = passenger;
     }
 
-    public void removePassenger(String passenger) {
-        for (int i = 0; i < passengerNames.length; i++) {
-            if (passengerNames[i] != null && passengerNames[i].equals(passenger)) {
-                passengerNames[i] = null;
-                return;
-            }
-        }
+    public void removePassenger(char seat) {
+        this.passengers[seat - 'A'] = NameDictionary.NO_ID;
     }
 
     public void checkValidSeat(char seat) {
-        if (seat < 'A' || seat >= 'A' + passengerNames.length) {
+        if (seat < 'A' || seat >= 'A' + passengers.length) {
             throw new InvalidSeatException(seat);
         }
     }
 
+    public int getLongestFreeRun() {
+        int longest = 0;
+        int current = 0;
+        for (int passenger : passengers) {
+            current = passenger == NameDictionary.NO_ID ? current + 1 : 0;
+            longest = Math.max(longest, current);
+        }
+        return longest;
+    }
+
+    /**
+     * Returns the first seat of the leftmost run of length adjacent free seats, or -1
+     */
+    public int findFreeRun(int length) {
+        int current = 0;
+        for (int i = 0; i < passengers.length; i++) {
+            current = passengers[i] == NameDictionary.NO_ID ? current + 1 : 0;
+            if (current == length)
+                return i - length + 1;
+        }
+        return -1;
+    }
+
+    public char[] getPassengerInitials(NameDictionary names) {
+        char[] initials = new char[passengers.length];
+        for (int i = 0; i < passengers.length; i++) {
+            if (passengers[i] == NameDictionary.NO_ID)
+                initials[i] = '*';
+            else if (passengers[i] == HELD)
+                initials[i] = '#';
+            else
+                initials[i] = names.nameOf(passengers[i]).charAt(0);
+        }
+        return initials;
+    }
+
     public RowCategory getRowCategory() {
         return rowCategory;
     }
 
-    public String[] getPassengerNames() {
-        return passengerNames;
+    public int getSeatCount() {
+        return passengers.length;
+    }
+
+    public int[] getPassengers() {
+        return passengers;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package ar.edu.itba.pod.server.models;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Bounded log of the rows touched by the last seat changes of a flight. Every change bumps the
+ * version by one, so the log can answer for any version not older than its capacity.
+ */
+public class SeatChangeLog {
+    private final int[] rows;
+    private long version = 0;
+
+    public SeatChangeLog(int capacity) {
+        this.rows = new int[capacity];
+    }
+
+    public long record(int row) {
+        rows[(int) (version % rows.length)] = row;
+        return ++version;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the rows changed after the given version, or null if they were already dropped
+     */
+    public Set<Integer> changedSince(long since) {
+        if (since < 0 || since > version || version - since > rows.length)
+            return null;
+
+        Set<Integer> changed = new TreeSet<>();
+        for (long v = since; v < version; v++) {
+            changed.add(rows[(int) (v % rows.length)]);
+        }
+        return changed;
+    }
+}
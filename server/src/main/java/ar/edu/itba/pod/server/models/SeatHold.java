@@ -0,0 +1,38 @@
+package ar.edu.itba.pod.server.models;
+
+/**
+ * Seat kept aside for a passenger until it is assigned, released or it expires
+ */
+public class SeatHold {
+    private final Flight flight;
+    private final int passenger;
+    private final int row;
+    private final char seat;
+
+    public SeatHold(Flight flight, int passenger, int row, char seat) {
+        this.flight = flight;
+        this.passenger = passenger;
+        this.row = row;
+        this.seat = seat;
+    }
+
+    public boolean isFor(int row, char seat) {
+        return this.row == row && this.seat == seat;
+    }
+
+    public Flight getFlight() {
+        return flight;
+    }
+
+    public int getPassenger() {
+        return passenger;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public char getSeat() {
+        return seat;
+    }
+}
@@ -0,0 +1,172 @@
+package ar.edu.itba.pod.server.models;
+
+import ar.edu.itba.pod.models.RowCategory;
+
+import java.util.Arrays;
+
+/**
+ * Tickets of a flight stored column by column. Every ticket lives in a slot of the parallel
+ * arrays, and an open addressing table maps passenger ids to their slot. Slots are kept dense:
+ * removing a ticket moves the last one into its place.
+ */
+public class TicketTable {
+    public static final int NOT_FOUND = -1;
+    private static final int NOT_SEATED = -1;
+    private static final RowCategory[] CATEGORIES = RowCategory.values();
+
+    private int size = 0;
+    private int[] passengers;
+    private byte[] categories;
+    private int[] rows;
+    private char[] cols;
+
+    /**
+     * Slot of every bucket, or NOT_FOUND. Linear probing, kept at most half full.
+     */
+    private int[] index;
+
+    public TicketTable(int expected) {
+        int capacity = Math.max(expected, 4);
+        this.passengers = new int[capacity];
+        this.categories = new byte[capacity];
+        this.rows = new int[capacity];
+        this.cols = new char[capacity];
+        this.index = newIndex(capacity);
+    }
+
+    public int find(int passenger) {
+        int mask = index.length - 1;
+        for (int bucket = bucketOf(passenger, mask); ; bucket = (bucket + 1) & mask) {
+            int slot = index[bucket];
+            if (slot == NOT_FOUND || passengers[slot] == passenger)
+                return slot;
+        }
+    }
+
+    /**
+     * Adds a ticket and returns its slot. The passenger must not have a ticket yet.
+     */
+    public int add(int passenger, RowCategory category) {
+        if (size == passengers.length)
+            grow();
+
+        int slot = size++;
+        passengers[slot] = passenger;
+        categories[slot] = (byte) category.ordinal();
+        rows[slot] = NOT_SEATED;
+        insert(passenger, slot);
+        return slot;
+    }
+
+    public void remove(int slot) {
+        deleteBucket(bucketOfSlot(slot));
+
+        int last = --size;
+        if (slot != last) {
+            index[bucketOfSlot(last)] = slot;
+            passengers[slot] = passengers[last];
+            categories[slot] = categories[last];
+            rows[slot] = rows[last];
+            cols[slot] = cols[last];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getPassenger(int slot) {
+        return passengers[slot];
+    }
+
+    public RowCategory getCategory(int slot) {
+        return CATEGORIES[categories[slot]];
+    }
+
+    public boolean isSeated(int slot) {
+        return rows[slot] != NOT_SEATED;
+    }
+
+    public int getRow(int slot) {
+        return rows[slot];
+    }
+
+    public char getCol(int slot) {
+        return cols[slot];
+    }
+
+    public void setSeat(int slot, int row, char col) {
+        rows[slot] = row;
+        cols[slot] = col;
+    }
+
+    public void clearSeat(int slot) {
+        rows[slot] = NOT_SEATED;
+    }
+
+    public PassengerTicket toPassengerTicket(int slot) {
+        PassengerTicket ticket = new PassengerTicket(passengers[slot], getCategory(slot));
+        if (isSeated(slot))
+            ticket.setSeat(rows[slot], cols[slot]);
+        return ticket;
+    }
+
+    private void grow() {
+        int capacity = passengers.length * 2;
+        passengers = Arrays.copyOf(passengers, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        rows = Arrays.copyOf(rows, capacity);
+        cols = Arrays.copyOf(cols, capacity);
+
+        index = newIndex(capacity);
+        for (int slot = 0; slot < size; slot++) {
+            insert(passengers[slot], slot);
+        }
+    }
+
+    private void insert(int passenger, int slot) {
+        int mask = index.length - 1;
+        int bucket = bucketOf(passenger, mask);
+        while (index[bucket] != NOT_FOUND)
+            bucket = (bucket + 1) & mask;
+        index[bucket] = slot;
+    }
+
+    private int bucketOfSlot(int slot) {
+        int mask = index.length - 1;
+        int bucket = bucketOf(passengers[slot], mask);
+        while (index[bucket] != slot)
+            bucket = (bucket + 1) & mask;
+        return bucket;
+    }
+
+    /**
+     * Backward shift deletion, so lookups never need tombstones
+     */
+    private void deleteBucket(int bucket) {
+        int mask = index.length - 1;
+        int hole = bucket;
+        for (int next = (hole + 1) & mask; index[next] != NOT_FOUND; next = (next + 1) & mask) {
+            int home = bucketOf(passengers[index[next]], mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                index[hole] = index[next];
+                hole = next;
+            }
+        }
+        index[hole] = NOT_FOUND;
+    }
+
+    private static int[] newIndex(int capacity) {
+        int[] index = new int[Integer.highestOneBit(capacity - 1) << 2];
+        Arrays.fill(index, NOT_FOUND);
+        return index;
+    }
+
+    private static int bucketOf(int passenger, int mask) {
+        return (passenger * 0x9E3779B9 >>> 16 ^ passenger * 0x9E3779B9) & mask;
+    }
+}
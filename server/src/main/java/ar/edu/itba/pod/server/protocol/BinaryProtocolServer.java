@@ -0,0 +1,192 @@
+package ar.edu.itba.pod.server.protocol;
+
+import ar.edu.itba.pod.protocol.BinaryProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.rmi.Remote;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the services of the registry over the binary transport. A single selector thread
+ * accepts connections and reads and writes their frames, so idle clients cost no thread, while
+ * the calls run on a pool of workers, as they may wait on the locks of the store. Replies are
+ * written as calls complete, in any order. A connection with too many calls in flight is not
+ * read until some of them complete.
+ */
+public class BinaryProtocolServer implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BinaryProtocolServer.class);
+    static final int MAX_CALLS_IN_FLIGHT = 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Remote[] services = new Remote[BinaryProtocol.SERVICES.size()];
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService workers;
+    /**
+     * Connections whose interest in reads or writes changed outside the selector thread
+     */
+    private final Queue<ClientConnection> interestChanges = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Serves, for each interface of the protocol, the first of the services that implements it
+     */
+    public BinaryProtocolServer(int port, Collection<? extends Remote> services, int workers) throws IOException {
+        for (int i = 0; i < this.services.length; i++) {
+            Class<? extends Remote> type = BinaryProtocol.SERVICES.get(i);
+            this.services[i] = services.stream().filter(type::isInstance).findFirst().orElse(null);
+        }
+
+        AtomicInteger workerCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "binary-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        new Thread(this::select, "binary-selector").start();
+        LOGGER.info("Serving the binary protocol on port " + port);
+    }
+
+    private void select() {
+        try {
+            while (serverChannel.isOpen()) {
+                selector.select();
+                ClientConnection changed;
+                while ((changed = interestChanges.poll()) != null)
+                    changed.updateInterest();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable())
+                        accept();
+                    else
+                        serve(key);
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (serverChannel.isOpen())
+                LOGGER.error("Binary protocol selector failed", e);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null)
+            return;
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        ClientConnection connection = new ClientConnection(this, channel, READ_BUFFER_SIZE);
+        connection.register(selector);
+        LOGGER.info("Binary client " + channel.getRemoteAddress() + " connected");
+    }
+
+    private void serve(SelectionKey key) {
+        ClientConnection connection = (ClientConnection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                byte[] frame;
+                boolean open = connection.read();
+                while ((frame = connection.nextFrame()) != null) {
+                    byte[] call = frame;
+                    connection.callStarted();
+                    workers.execute(() -> handle(connection, call));
+                }
+                if (!open) {
+                    connection.close();
+                    return;
+                }
+            }
+            if (key.isValid() && key.isWritable())
+                connection.write();
+        } catch (IOException e) {
+            LOGGER.info("Binary client disconnected: " + e);
+            connection.close();
+        }
+    }
+
+    /**
+     * Runs a call on a worker and queues its reply
+     */
+    private void handle(ClientConnection connection, byte[] frame) {
+        int id = -1;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+            id = in.readInt();
+            if (in.readByte() != BinaryProtocol.CALL)
+                throw new StreamCorruptedException("Expected a call");
+            int service = in.readUnsignedByte();
+            Method method = BinaryProtocol.methods(BinaryProtocol.SERVICES.get(service)).get(in.readUnsignedByte());
+            Object[] args = connection.getCodec().readArguments(in, method.getParameterCount());
+            if (services[service] == null)
+                throw new IllegalStateException(method.getDeclaringClass().getSimpleName() + " is not served here");
+
+            Object result;
+            try {
+                result = method.invoke(services[service], args);
+            } catch (InvocationTargetException e) {
+                connection.send(connection.getCodec().error(id, e.getCause()));
+                return;
+            }
+            connection.send(connection.getCodec().reply(id, result));
+        } catch (Exception e) {
+            LOGGER.error("Error serving binary call " + id, e);
+            try {
+                connection.send(connection.getCodec().error(id, e));
+            } catch (IOException ignored) {
+                connection.close();
+            }
+        } finally {
+            connection.callCompleted();
+        }
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Has the selector thread update what it waits for on the connection
+     */
+    void interestChanged(ClientConnection connection) {
+        interestChanges.add(connection);
+        selector.wakeup();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverChannel.close();
+        selector.close();
+        workers.shutdownNow();
+    }
+}
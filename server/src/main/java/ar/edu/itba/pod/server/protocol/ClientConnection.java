@@ -0,0 +1,212 @@
+package ar.edu.itba.pod.server.protocol;
+
+import ar.edu.itba.pod.protocol.BinaryCodec;
+import ar.edu.itba.pod.protocol.BinaryProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A client of the binary transport. Frames are read by the selector thread only, while replies
+ * and pushes are written by whichever thread has them, and queued for the selector when the
+ * socket is full.
+ */
+class ClientConnection implements BinaryCodec.Callbacks {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClientConnection.class);
+    private static final int MAX_WRITE_BATCH = 64;
+
+    private final BinaryProtocolServer server;
+    private final SocketChannel channel;
+    private final BinaryCodec codec = new BinaryCodec(this, false);
+    private final int bufferSize;
+    private final Queue<ByteBuffer> writes = new ArrayDeque<>();
+    private final AtomicInteger callsInFlight = new AtomicInteger();
+    private final AtomicBoolean interestChanged = new AtomicBoolean();
+    /**
+     * The handlers the client passed, by the id it gave them, so following calls with the same id
+     * get the same handler
+     */
+    private final Map<Integer, PushHandler> handlers = new ConcurrentHashMap<>();
+    private ByteBuffer readBuffer;
+    private SelectionKey key;
+    private volatile boolean closed = false;
+
+    ClientConnection(BinaryProtocolServer server, SocketChannel channel, int bufferSize) {
+        this.server = server;
+        this.channel = channel;
+        this.bufferSize = bufferSize;
+        this.readBuffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    BinaryCodec getCodec() {
+        return codec;
+    }
+
+    void register(Selector selector) throws IOException {
+        key = channel.register(selector, SelectionKey.OP_READ, this);
+    }
+
+    /**
+     * Returns false once the client closed the connection
+     */
+    boolean read() throws IOException {
+        return channel.read(readBuffer) >= 0;
+    }
+
+    /**
+     * Returns the next complete frame read, without its length, or null if there is none yet
+     */
+    byte[] nextFrame() throws IOException {
+        if (readBuffer.position() < 4)
+            return null;
+        int length = readBuffer.getInt(0);
+        if (length < BinaryProtocol.HEADER_LENGTH || length > BinaryProtocol.MAX_FRAME_LENGTH)
+            throw new StreamCorruptedException("Invalid frame length " + length);
+        if (readBuffer.position() < 4 + length) {
+            if (readBuffer.capacity() < 4 + length) {
+                readBuffer.flip();
+                readBuffer = ByteBuffer.allocate(4 + length).put(readBuffer);
+            }
+            return null;
+        }
+
+        readBuffer.flip();
+        readBuffer.position(4);
+        byte[] frame = new byte[length];
+        readBuffer.get(frame);
+        readBuffer.compact();
+        if (readBuffer.position() == 0 && readBuffer.capacity() > bufferSize)
+            readBuffer = ByteBuffer.allocate(bufferSize);
+        return frame;
+    }
+
+    /**
+     * Writes what the socket takes of the queued frames, gathering several in each write
+     */
+    void write() throws IOException {
+        synchronized (writes) {
+            while (!writes.isEmpty()) {
+                ByteBuffer[] batch = writes.stream().limit(MAX_WRITE_BATCH).toArray(ByteBuffer[]::new);
+                channel.write(batch);
+                for (ByteBuffer buffer : batch) {
+                    if (buffer.hasRemaining())
+                        return;
+                    writes.poll();
+                }
+            }
+        }
+        updateInterest();
+    }
+
+    /**
+     * Writes the frame right away when nothing is queued before it, so most replies do not wait
+     * for the selector thread. What the socket does not take is left for the selector.
+     */
+    void send(ByteBuffer frame) {
+        if (closed)
+            return;
+        synchronized (writes) {
+            if (writes.isEmpty()) {
+                try {
+                    channel.write(frame);
+                } catch (IOException e) {
+                    close();
+                    return;
+                }
+                if (!frame.hasRemaining())
+                    return;
+            }
+            writes.add(frame);
+        }
+        requestInterestUpdate();
+    }
+
+    void push(int id, Class<? extends Remote> type, String methodName, Object[] args) throws RemoteException {
+        if (closed)
+            throw new RemoteException("Binary client is disconnected");
+        List<Method> methods = BinaryProtocol.methods(type);
+        for (int i = 0; i < methods.size(); i++) {
+            if (methods.get(i).getName().equals(methodName)) {
+                try {
+                    send(codec.push(id, BinaryProtocol.CALLBACKS.indexOf(type), i, args));
+                    return;
+                } catch (IOException e) {
+                    throw new RemoteException("Could not push " + methodName, e);
+                }
+            }
+        }
+        throw new IllegalArgumentException(methodName + " is not a method of " + type.getName());
+    }
+
+    void callStarted() {
+        if (callsInFlight.incrementAndGet() == BinaryProtocolServer.MAX_CALLS_IN_FLIGHT)
+            requestInterestUpdate();
+    }
+
+    void callCompleted() {
+        if (callsInFlight.getAndDecrement() == BinaryProtocolServer.MAX_CALLS_IN_FLIGHT)
+            requestInterestUpdate();
+    }
+
+    private void requestInterestUpdate() {
+        if (interestChanged.compareAndSet(false, true))
+            server.interestChanged(this);
+    }
+
+    /**
+     * Reads while the client has room for more calls in flight and writes while there are queued
+     * frames. Runs on the selector thread only.
+     */
+    void updateInterest() {
+        interestChanged.set(false);
+        if (!key.isValid())
+            return;
+        int ops = callsInFlight.get() < BinaryProtocolServer.MAX_CALLS_IN_FLIGHT ? SelectionKey.OP_READ : 0;
+        synchronized (writes) {
+            if (!writes.isEmpty())
+                ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(ops);
+    }
+
+    void close() {
+        if (closed)
+            return;
+        closed = true;
+        key.cancel();
+        synchronized (writes) {
+            writes.clear();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.error("Error closing binary client", e);
+        }
+    }
+
+    @Override
+    public int export(Remote handler) {
+        throw new UnsupportedOperationException("Handlers are not sent to binary clients");
+    }
+
+    @Override
+    public Remote resolve(Class<? extends Remote> type, int id) {
+        return handlers.computeIfAbsent(id, k -> new PushHandler(this, type, k));
+    }
+}
@@ -0,0 +1,80 @@
+package ar.edu.itba.pod.server.protocol;
+
+import ar.edu.itba.pod.callbacks.NotificationHandler;
+import ar.edu.itba.pod.callbacks.ReticketingListener;
+import ar.edu.itba.pod.callbacks.SeatMapHandler;
+import ar.edu.itba.pod.models.FlightState;
+import ar.edu.itba.pod.models.Notification;
+import ar.edu.itba.pod.models.ResponseCancelledList;
+import ar.edu.itba.pod.models.ReticketingProgress;
+import ar.edu.itba.pod.models.SeatMapDelta;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Stands in the store for a handler of a binary client, pushing each notification on its
+ * connection. It is tied to the connection, so unlike a registry stub it is not serializable and
+ * does not move to backups or other shards.
+ */
+class PushHandler implements NotificationHandler, SeatMapHandler, ReticketingListener {
+    private final ClientConnection connection;
+    private final Class<? extends Remote> type;
+    private final int id;
+
+    PushHandler(ClientConnection connection, Class<? extends Remote> type, int id) {
+        this.connection = connection;
+        this.type = type;
+        this.id = id;
+    }
+
+    @Override
+    public void notifyRegister(Notification notification) throws RemoteException {
+        connection.push(id, type, "notifyRegister", new Object[]{notification});
+    }
+
+    @Override
+    public void notifyCancelFlight(Notification notification) throws RemoteException {
+        connection.push(id, type, "notifyCancelFlight", new Object[]{notification});
+    }
+
+    @Override
+    public void notifyConfirmFlight(Notification notification) throws RemoteException {
+        connection.push(id, type, "notifyConfirmFlight", new Object[]{notification});
+    }
+
+    @Override
+    public void notifyAssignSeat(Notification notification) throws RemoteException {
+        connection.push(id, type, "notifyAssignSeat", new Object[]{notification});
+    }
+
+    @Override
+    public void notifyChangeSeat(Notification notification) throws RemoteException {
+        connection.push(id, type, "notifyChangeSeat", new Object[]{notification});
+    }
+
+    @Override
+    public void notifyChangeTicket(Notification notification) throws RemoteException {
+        connection.push(id, type, "notifyChangeTicket", new Object[]{notification});
+    }
+
+    @Override
+    public void notifySeatMapChanged(SeatMapDelta delta) throws RemoteException {
+        connection.push(id, type, "notifySeatMapChanged", new Object[]{delta});
+    }
+
+    @Override
+    public void notifyFlightClosed(String flightCode, FlightState state) throws RemoteException {
+        connection.push(id, type, "notifyFlightClosed", new Object[]{flightCode, state});
+    }
+
+    @Override
+    public void reticketingProgress(ReticketingProgress progress) throws RemoteException {
+        connection.push(id, type, "reticketingProgress", new Object[]{progress});
+    }
+
+    @Override
+    public void reticketingFinished(long jobId, ResponseCancelledList result) throws RemoteException {
+        connection.push(id, type, "reticketingFinished", new Object[]{jobId, result});
+    }
+}
@@ -0,0 +1,180 @@
+package ar.edu.itba.pod.server.replication;
+
+import ar.edu.itba.pod.server.utils.ServerStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.net.ConnectException;
+import java.net.Socket;
+
+/**
+ * Follows the log of a primary and applies it to a local store, keeping a copy of the log so it
+ * can ship it in turn once it takes over. When the primary is lost, the backup waits a delay that
+ * grows with its priority, 0 being the first, and connects again. If nobody is serving the log
+ * by then, it takes over by running the promotion.
+ * An entry that fails to apply means the store no longer matches the primary's: the backup stops
+ * applying, never takes over, and connects again asking for an image of the primary's store.
+ */
+public class BackupReplica implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BackupReplica.class);
+    private static final long FAILOVER_DELAY_MILLIS = 1000;
+    private static final long REPORT_MILLIS = 5000;
+
+    private final ServerStore store;
+    private final ReplicationLog log;
+    private final String host;
+    private final int port;
+    private final int priority;
+    private final Runnable promotion;
+
+    /**
+     * Whether the store stopped matching the primary's, until it is loaded from an image
+     */
+    private volatile boolean diverged = false;
+
+    private volatile boolean closed = false;
+    private final Thread thread = new Thread(this::run, "replica");
+    private volatile Socket socket;
+
+    private long reportStart = System.currentTimeMillis();
+    private int reportApplied = 0;
+    private long reportTotalLag = 0;
+    private long reportMaxLag = 0;
+
+    public BackupReplica(ServerStore store, ReplicationLog log, String host, int port, int priority,
+                         Runnable promotion) {
+        this.store = store;
+        this.log = log;
+        this.host = host;
+        this.port = port;
+        this.priority = priority;
+        this.promotion = promotion;
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public boolean isDiverged() {
+        return diverged;
+    }
+
+    private void run() {
+        boolean lost = false;
+        while (!closed) {
+            try (Socket socket = new Socket(host, port)) {
+                this.socket = socket;
+                lost = false;
+                follow(socket);
+            } catch (ConnectException e) {
+                if (lost && diverged) {
+                    LOGGER.error("No primary at " + host + ":" + port + ", but this backup diverged and " +
+                            "cannot take over");
+                } else if (lost) {
+                    LOGGER.info("No primary at " + host + ":" + port + ", taking over at entry " +
+                            log.getLastSequence());
+                    promotion.run();
+                    return;
+                }
+            } catch (IOException | ClassNotFoundException e) {
+                if (closed)
+                    return;
+                LOGGER.warn("Lost primary " + host + ":" + port + ": " + e);
+            }
+
+            lost = true;
+            try {
+                Thread.sleep((priority + 1) * FAILOVER_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops following the primary, without taking over
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        thread.interrupt();
+        Socket socket = this.socket;
+        if (socket != null)
+            socket.close();
+    }
+
+    private void follow(Socket socket) throws IOException, ClassNotFoundException {
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(ReplicationServer.ACK_TIMEOUT_MILLIS);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeLong(diverged ? ReplicationServer.RESYNC : log.getLastSequence());
+        out.flush();
+        LOGGER.info("Following primary " + host + ":" + port + (diverged ? " from an image"
+                : " from entry " + log.getLastSequence()));
+
+        ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+        while (true) {
+            Object received = in.readObject();
+            LogEntry entry = received instanceof LogEntry ? (LogEntry) received : null;
+            if (received instanceof StoreImage)
+                load((StoreImage) received);
+            else if (entry != null)
+                apply(entry);
+
+            // Acknowledged once everything received so far is applied
+            if (entry == null || in.available() == 0) {
+                out.writeLong(log.getLastSequence());
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Replaces the whole store with the image, and the log with the entries after it
+     */
+    private void load(StoreImage image) throws IOException {
+        store.clear();
+        try {
+            for (Mutation mutation : image.getMutations()) {
+                mutation.apply(store);
+            }
+        } catch (RuntimeException e) {
+            diverged = true;
+            throw new IOException("Could not load the image at entry " + image.getSequence(), e);
+        }
+        log.reset(image);
+        diverged = false;
+        store.republishSeatMaps();
+        LOGGER.info("Loaded an image of the primary at entry " + image.getSequence());
+    }
+
+    private void apply(LogEntry entry) throws IOException {
+        try {
+            entry.getMutation().apply(store);
+            log.appendReplicated(entry);
+        } catch (RuntimeException e) {
+            diverged = true;
+            throw new IOException("Could not apply entry " + entry.getSequence() + ", this backup diverged", e);
+        }
+
+        long lag = System.currentTimeMillis() - entry.getTimestamp();
+        reportApplied++;
+        reportTotalLag += lag;
+        reportMaxLag = Math.max(reportMaxLag, lag);
+        long now = System.currentTimeMillis();
+        if (now - reportStart >= REPORT_MILLIS) {
+            LOGGER.info("Applied " + reportApplied + " entries up to " + entry.getSequence() +
+                    ", lag average " + (reportTotalLag / reportApplied) + " ms, max " + reportMaxLag + " ms");
+            reportStart = now;
+            reportApplied = 0;
+            reportTotalLag = 0;
+            reportMaxLag = 0;
+        }
+    }
+}
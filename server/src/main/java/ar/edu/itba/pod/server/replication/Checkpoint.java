@@ -0,0 +1,108 @@
+package ar.edu.itba.pod.server.replication;
+
+import ar.edu.itba.pod.callbacks.NotificationHandler;
+import ar.edu.itba.pod.models.FlightState;
+import ar.edu.itba.pod.models.PlaneModel;
+import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.Ticket;
+import ar.edu.itba.pod.server.models.Flight;
+import ar.edu.itba.pod.server.models.SeatHold;
+import ar.edu.itba.pod.server.utils.ServerStore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A store of its own that only the log changes, by applying the entries every backup already
+ * acknowledged before they are dropped. Its image lets a backup start from the oldest entry the
+ * log still has. Callers synchronize on it, so its store is changed and read by one thread at a
+ * time.
+ */
+class Checkpoint {
+    private ServerStore store = newStore();
+    private long sequence = 0;
+
+    long getSequence() {
+        return sequence;
+    }
+
+    void apply(List<LogEntry> entries) {
+        for (LogEntry entry : entries) {
+            entry.getMutation().apply(store);
+            sequence = entry.getSequence();
+        }
+    }
+
+    /**
+     * Replaces the store with the one of the image
+     */
+    void load(StoreImage image) {
+        ServerStore loaded = newStore();
+        for (Mutation mutation : image.getMutations()) {
+            mutation.apply(loaded);
+        }
+        store.close();
+        store = loaded;
+        sequence = image.getSequence();
+    }
+
+    /**
+     * Plane models first, then every flight as a pending one with its seats and holds, then the
+     * changes of state, and the handlers last since confirming a flight drops its handlers
+     */
+    StoreImage image() {
+        List<Mutation> mutations = new ArrayList<>();
+        store.getPlaneModels().values().forEach(model ->
+                mutations.add(new Mutations.AddPlaneModel(model.getModel(), categoriesOf(model))));
+
+        for (FlightState state : FlightState.values()) {
+            List<String> codes = new ArrayList<>();
+            for (Flight flight : store.getFlightsByState(state).values()) {
+                List<Ticket> tickets = flight.getSortedTickets();
+                mutations.add(new Mutations.AddFlight(flight.getPlaneModel().getModel(), flight.getCode(),
+                        flight.getDestination(), tickets));
+                for (Ticket ticket : tickets) {
+                    if (ticket.isSeated())
+                        mutations.add(new Mutations.AssignSeat(flight.getCode(), ticket.getPassenger(),
+                                ticket.getRow(), ticket.getCol()));
+                }
+                for (SeatHold hold : flight.getHolds()) {
+                    mutations.add(new Mutations.HoldSeat(flight.getCode(),
+                            store.getNames().nameOf(hold.getPassenger()), hold.getRow(), hold.getSeat(),
+                            store.getDeferredExpiry(hold)));
+                }
+                codes.add(flight.getCode());
+            }
+            if (state != FlightState.PENDING && !codes.isEmpty())
+                mutations.add(new Mutations.ChangeState(codes, state));
+        }
+
+        for (String flightCode : store.getFlightCodes().keySet()) {
+            Map<Integer, List<NotificationHandler>> handlers = store.getFlightNotifications(flightCode);
+            if (handlers != null)
+                handlers.forEach((passenger, passengerHandlers) -> mutations.add(new Mutations.RegisterHandlers(
+                        flightCode, store.getNames().nameOf(passenger), passengerHandlers)));
+        }
+        return new StoreImage(sequence, mutations);
+    }
+
+    void close() {
+        store.close();
+    }
+
+    private static ServerStore newStore() {
+        ServerStore store = new ServerStore();
+        store.deferHoldExpiries();
+        return store;
+    }
+
+    private static Map<String, int[]> categoriesOf(PlaneModel model) {
+        Map<String, int[]> categories = new HashMap<>();
+        for (RowCategory category : RowCategory.values()) {
+            categories.put(category.name(), model.getCategoryConfig(category));
+        }
+        return categories;
+    }
+}
@@ -0,0 +1,30 @@
+package ar.edu.itba.pod.server.replication;
+
+import java.io.Serializable;
+
+public class LogEntry implements Serializable {
+    private final long sequence;
+    private final long timestamp;
+    private final Mutation mutation;
+
+    public LogEntry(long sequence, long timestamp, Mutation mutation) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.mutation = mutation;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * When the primary recorded it, to measure how far behind a backup is
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Mutation getMutation() {
+        return mutation;
+    }
+}
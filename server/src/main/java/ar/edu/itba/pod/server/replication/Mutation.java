@@ -0,0 +1,13 @@
+package ar.edu.itba.pod.server.replication;
+
+import ar.edu.itba.pod.server.utils.ServerStore;
+
+import java.io.Serializable;
+
+/**
+ * A change already validated and made by the primary, recorded while holding the locks that
+ * ordered it. Backups apply it to their own store without checking it again or notifying anyone.
+ */
+public interface Mutation extends Serializable {
+    void apply(ServerStore store);
+}
@@ -0,0 +1,278 @@
+package ar.edu.itba.pod.server.replication;
+
+import ar.edu.itba.pod.callbacks.NotificationHandler;
+import ar.edu.itba.pod.models.FlightState;
+import ar.edu.itba.pod.models.PlaneModel;
+import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.Ticket;
+import ar.edu.itba.pod.models.exceptions.flightExceptions.FlightAlreadyExistsException;
+import ar.edu.itba.pod.server.models.Flight;
+import ar.edu.itba.pod.server.models.SeatHold;
+import ar.edu.itba.pod.server.utils.FlightLocks;
+import ar.edu.itba.pod.server.utils.ServerStore;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * The changes shipped to backups. Seat map followers are not among them, they belong to the
+ * server they subscribed to.
+ */
+public final class Mutations {
+
+    private Mutations() {
+    }
+
+    /**
+     * Changes a flight under its locks whatever its state, publishing its seat changes to the
+     * followers of this store
+     */
+    private static void update(ServerStore store, String flightCode, Consumer<Flight> change) {
+        Flight flight = store.getFlight(flightCode);
+        FlightLocks locks = FlightLocks.lock(flight);
+        try {
+            long version = flight.getVersion();
+            change.accept(flight);
+            if (flight.getVersion() != version)
+                store.publishSeatMapChanges(flight, version);
+        } finally {
+            locks.unlock();
+        }
+    }
+
+    public static class AddPlaneModel implements Mutation {
+        private final String model;
+        private final Map<String, int[]> seatCategories;
+
+        public AddPlaneModel(String model, Map<String, int[]> seatCategories) {
+            this.model = model;
+            this.seatCategories = new HashMap<>(seatCategories);
+        }
+
+        @Override
+        public void apply(ServerStore store) {
+            store.getPlaneModels().put(model, new PlaneModel(model, seatCategories));
+        }
+    }
+
+    public static class AddFlight implements Mutation {
+        private final String planeModel;
+        private final String flightCode;
+        private final String destination;
+        private final List<Ticket> tickets;
+
+        public AddFlight(String planeModel, String flightCode, String destination, List<Ticket> tickets) {
+            this.planeModel = planeModel;
+            this.flightCode = flightCode;
+            this.destination = destination;
+            this.tickets = new ArrayList<>(tickets);
+        }
+
+        @Override
+        public void apply(ServerStore store) {
+            Flight flight = new Flight(store.getNames(), store.getPlaneModels().get(planeModel), flightCode,
+                    destination, tickets);
+            synchronized (store.getFlightCodes()) {
+                if (store.getFlightCodes().containsKey(flightCode))
+                    throw new FlightAlreadyExistsException();
+                synchronized (store.getPendingFlights()) {
+                    store.getPendingFlights().put(flightCode, flight);
+                    store.getFlightCodes().put(flightCode, FlightState.PENDING);
+                }
+            }
+        }
+    }
+
+    public static class ChangeState implements Mutation {
+        private final List<String> flightCodes;
+        private final FlightState state;
+
+        public ChangeState(List<String> flightCodes, FlightState state) {
+            this.flightCodes = new ArrayList<>(flightCodes);
+            this.state = state;
+        }
+
+        @Override
+        public void apply(ServerStore store) {
+            store.changeFlightsState(flightCodes, state, new ArrayList<>());
+            if (state == FlightState.CONFIRMED)
+                flightCodes.forEach(store::removeFlightNotifications);
+        }
+    }
+
+    public static class AssignSeat implements Mutation {
+        private final String flightCode;
+        private final String passenger;
+        private final int row;
+        private final char seat;
+
+        public AssignSeat(String flightCode, String passenger, int row, char seat) {
+            this.flightCode = flightCode;
+            this.passenger = passenger;
+            this.row = row;
+            this.seat = seat;
+        }
+
+        @Override
+        public void apply(ServerStore store) {
+            update(store, flightCode, flight -> flight.assignSeat(row, seat, passenger));
+        }
+    }
+
+    public static class ChangeSeat implements Mutation {
+        private final String flightCode;
+        private final String passenger;
+        private final int row;
+        private final char seat;
+
+        public ChangeSeat(String flightCode, String passenger, int row, char seat) {
+            this.flightCode = flightCode;
+            this.passenger = passenger;
+            this.row = row;
+            this.seat = seat;
+        }
+
+        @Override
+        public void apply(ServerStore store) {
+            update(store, flightCode, flight -> flight.changeSeat(row, seat, passenger));
+        }
+    }
+
+    public static class HoldSeat implements Mutation {
+        private final String flightCode;
+        private final String passenger;
+        private final int row;
+        private final char seat;
+        private final long expiresAt;
+
+        public HoldSeat(String flightCode, String passenger, int row, char seat, long expiresAt) {
+            this.flightCode = flightCode;
+            this.passenger = passenger;
+            this.row = row;
+            this.seat = seat;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public void apply(ServerStore store) {
+            SeatHold[] hold = new SeatHold[1];
+            update(store, flightCode, flight -> hold[0] = flight.holdSeat(row, seat, passenger));
+            store.scheduleHoldExpiry(hold[0], Math.max(0, expiresAt - System.currentTimeMillis()));
+        }
+    }
+
+    public static class ReleaseHold implements Mutation {
+        private final String flightCode;
+        private final String passenger;
+        private final int row;
+        private final char seat;
+
+        public ReleaseHold(String flightCode, String passenger, int row, char seat) {
+            this.flightCode = flightCode;
+            this.passenger = passenger;
+            this.row = row;
+            this.seat = seat;
+        }
+
+        /**
+         * Also applied for holds that expired on the primary
+         */
+        @Override
+        public void apply(ServerStore store) {
+            update(store, flightCode, flight -> {
+                SeatHold hold = flight.getHold(passenger);
+                if (hold != null && hold.isFor(row, seat))
+                    flight.expireHold(hold);
+            });
+        }
+    }
+
+    public static class ChangeFlight implements Mutation {
+        private final String passenger;
+        private final String oldFlightCode;
+        private final String newFlightCode;
+
+        public ChangeFlight(String passenger, String oldFlightCode, String newFlightCode) {
+            this.passenger = passenger;
+            this.oldFlightCode = oldFlightCode;
+            this.newFlightCode = newFlightCode;
+        }
+
+        @Override
+        public void apply(ServerStore store) {
+            Flight oldFlight = store.getFlight(oldFlightCode);
+            Flight newFlight = store.getFlight(newFlightCode);
+            FlightLocks locks = FlightLocks.lock(oldFlight, newFlight);
+            try {
+                long version = oldFlight.getVersion();
+                oldFlight.changeFlight(passenger, newFlight);
+                store.publishSeatMapChanges(oldFlight, version);
+            } finally {
+                locks.unlock();
+            }
+            if (oldFlight.getState() == FlightState.CANCELED)
+                oldFlight.freezeIfDrained();
+
+            store.addHandlers(newFlightCode, passenger, store.popHandlers(oldFlightCode, passenger));
+        }
+    }
+
+    public static class AdmitTicket implements Mutation {
+        private final String flightCode;
+        private final String passenger;
+        private final RowCategory category;
+
+        public AdmitTicket(String flightCode, String passenger, RowCategory category) {
+            this.flightCode = flightCode;
+            this.passenger = passenger;
+            this.category = category;
+        }
+
+        @Override
+        public void apply(ServerStore store) {
+            update(store, flightCode, flight -> flight.admitTicket(passenger, category));
+        }
+    }
+
+    public static class RemoveTicket implements Mutation {
+        private final String flightCode;
+        private final String passenger;
+
+        public RemoveTicket(String flightCode, String passenger) {
+            this.flightCode = flightCode;
+            this.passenger = passenger;
+        }
+
+        @Override
+        public void apply(ServerStore store) {
+            update(store, flightCode, flight -> flight.removeTicket(passenger));
+            Flight flight = store.getFlight(flightCode);
+            if (flight.getState() == FlightState.CANCELED)
+                flight.freezeIfDrained();
+            store.popHandlers(flightCode, passenger);
+        }
+    }
+
+    public static class RegisterHandlers implements Mutation {
+        private final String flightCode;
+        private final String passenger;
+        private final List<NotificationHandler> handlers;
+
+        public RegisterHandlers(String flightCode, String passenger, List<NotificationHandler> handlers) {
+            this.flightCode = flightCode;
+            this.passenger = passenger;
+            // Handlers of binary clients are tied to their connection to this server
+            this.handlers = handlers.stream().filter(Serializable.class::isInstance).collect(Collectors.toList());
+        }
+
+        @Override
+        public void apply(ServerStore store) {
+            store.addHandlers(flightCode, passenger, handlers);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package ar.edu.itba.pod.server.replication;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ordered mutations of a store, numbered from 1. Appending never waits, as it happens under the
+ * locks that ordered the change. Instead, whoever appended waits in {@link #awaitLag()} once those
+ * are released, while the slowest backup has maxLag entries or more left to acknowledge, which
+ * bounds how much a failover can lose.
+ * Entries every backup acknowledged, all of them when there is none, are folded into a checkpoint
+ * by a thread of the log and dropped. A backup that needs older entries starts from an image of
+ * the checkpoint instead.
+ */
+public class ReplicationLog implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationLog.class);
+    private static final long LAG_WAIT_MILLIS = 100;
+    static final int FOLD_BATCH = 1024;
+
+    /**
+     * Entries after the base, the last sequence folded into the checkpoint
+     */
+    private final List<LogEntry> entries = new ArrayList<>();
+    private long base = 0;
+    private final int maxLag;
+
+    /**
+     * Last sequence acknowledged by each connected backup
+     */
+    private final Map<Object, Long> acknowledged = new HashMap<>();
+
+    /**
+     * Taken before the log monitor by whoever moves the base or needs it to stay put
+     */
+    private final Checkpoint checkpoint = new Checkpoint();
+    private boolean folding = true;
+    private boolean closed = false;
+
+    public ReplicationLog(int maxLag) {
+        if (maxLag <= 0)
+            throw new IllegalArgumentException("The replication lag bound must be positive");
+        this.maxLag = maxLag;
+
+        Thread folder = new Thread(this::fold, "replication-checkpoint");
+        folder.setDaemon(true);
+        folder.start();
+    }
+
+    public synchronized void append(Mutation mutation) {
+        entries.add(new LogEntry(getLastSequence() + 1, System.currentTimeMillis(), mutation));
+        notifyAll();
+    }
+
+    /**
+     * Waits while the slowest backup has maxLag entries or more left to acknowledge. Must be
+     * called holding no lock or monitor of the store, or a slow backup would stall its readers.
+     */
+    public synchronized void awaitLag() {
+        try {
+            while (getLag() >= maxLag) {
+                wait(LAG_WAIT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the backups", e);
+        }
+    }
+
+    /**
+     * Appends an entry received from the primary, keeping its sequence
+     */
+    public synchronized void appendReplicated(LogEntry entry) {
+        if (entry.getSequence() != getLastSequence() + 1)
+            throw new IllegalStateException("Expected entry " + (getLastSequence() + 1) + " but got " +
+                    entry.getSequence());
+        entries.add(entry);
+        notifyAll();
+    }
+
+    public synchronized long getLastSequence() {
+        return base + entries.size();
+    }
+
+    /**
+     * The oldest entry still in the log, or the next one if it has none
+     */
+    public synchronized long getFirstSequence() {
+        return base + 1;
+    }
+
+    /**
+     * Waits up to the timeout for entries after the sequence, and returns at most max of them.
+     * The sequence must not be older than the log, which holds for every registered backup.
+     */
+    public synchronized List<LogEntry> awaitEntriesAfter(long sequence, int max, long timeoutMillis)
+            throws InterruptedException {
+        if (sequence < base)
+            throw new IllegalStateException("Entry " + (sequence + 1) + " was already dropped from the log");
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long remaining = timeoutMillis;
+        while (getLastSequence() <= sequence && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        if (getLastSequence() <= sequence)
+            return Collections.emptyList();
+        int from = (int) (sequence - base);
+        return new ArrayList<>(entries.subList(from, (int) Math.min(entries.size(), from + (long) max)));
+    }
+
+    public synchronized void acknowledge(Object backup, long sequence) {
+        acknowledged.put(backup, sequence);
+        notifyAll();
+    }
+
+    /**
+     * Registers a backup that applied every entry up to the sequence, unless the log already
+     * dropped the ones after it
+     */
+    public boolean register(Object backup, long sequence) {
+        synchronized (checkpoint) {
+            synchronized (this) {
+                if (sequence < base)
+                    return false;
+                acknowledge(backup, sequence);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Registers a backup that starts from an image of the checkpoint, and returns the image.
+     * Returns null if the checkpoint stopped following the log.
+     */
+    public StoreImage registerFromImage(Object backup) {
+        synchronized (checkpoint) {
+            synchronized (this) {
+                if (!folding)
+                    return null;
+                acknowledge(backup, base);
+            }
+            return checkpoint.image();
+        }
+    }
+
+    /**
+     * Starts the log again after the sequence of the image, which the store was loaded from
+     */
+    public void reset(StoreImage image) {
+        synchronized (checkpoint) {
+            checkpoint.load(image);
+            synchronized (this) {
+                entries.clear();
+                base = image.getSequence();
+                folding = true;
+                notifyAll();
+            }
+        }
+    }
+
+    public synchronized void removeBackup(Object backup) {
+        acknowledged.remove(backup);
+        notifyAll();
+    }
+
+    public synchronized int getBackupCount() {
+        return acknowledged.size();
+    }
+
+    /**
+     * Entries the slowest backup has not acknowledged yet
+     */
+    public synchronized long getLag() {
+        long lag = 0;
+        for (long sequence : acknowledged.values()) {
+            lag = Math.max(lag, getLastSequence() - sequence);
+        }
+        return lag;
+    }
+
+    /**
+     * Entries after the base that no backup needs any more
+     */
+    private long getFoldable() {
+        long upTo = getLastSequence();
+        for (long sequence : acknowledged.values()) {
+            upTo = Math.min(upTo, sequence);
+        }
+        return upTo - base;
+    }
+
+    /**
+     * Folds a batch at a time, so the log is never waiting for the checkpoint. A batch is applied
+     * holding the checkpoint, so no backup registers in the middle at an entry being dropped.
+     */
+    private void fold() {
+        while (true) {
+            synchronized (this) {
+                try {
+                    while (!closed && (!folding || getFoldable() < FOLD_BATCH)) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed)
+                    return;
+            }
+
+            synchronized (checkpoint) {
+                List<LogEntry> batch;
+                synchronized (this) {
+                    if (!folding)
+                        continue;
+                    batch = new ArrayList<>(entries.subList(0, (int) Math.min(getFoldable(), FOLD_BATCH)));
+                }
+                try {
+                    checkpoint.apply(batch);
+                } catch (RuntimeException e) {
+                    // The checkpoint no longer matches the log, so the log is kept whole from here
+                    LOGGER.error("Could not fold entries into the checkpoint, keeping the log from entry " +
+                            batch.get(0).getSequence(), e);
+                    synchronized (this) {
+                        folding = false;
+                    }
+                    continue;
+                }
+                synchronized (this) {
+                    entries.subList(0, batch.size()).clear();
+                    base += batch.size();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        synchronized (checkpoint) {
+            checkpoint.close();
+        }
+    }
+}
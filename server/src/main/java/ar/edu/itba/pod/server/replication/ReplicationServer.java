@@ -0,0 +1,145 @@
+package ar.edu.itba.pod.server.replication;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * Streams the log of a primary to its backups. A backup connects and sends the last sequence it
+ * applied, then receives every later entry in order and acknowledges what it applied. A backup
+ * asking for entries the log already dropped, or for an image, first gets one. When idle,
+ * a null entry is sent as heartbeat. A backup that stops acknowledging is dropped, so it does not
+ * hold the primary back.
+ */
+public class ReplicationServer implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationServer.class);
+    static final long HEARTBEAT_MILLIS = 1000;
+    static final int ACK_TIMEOUT_MILLIS = 5000;
+    private static final int BATCH_SIZE = 1024;
+
+    /**
+     * Sent by a backup instead of its last sequence to start again from an image of the store
+     */
+    static final long RESYNC = -1;
+
+    private final ReplicationLog log;
+    private final ServerSocket serverSocket;
+
+    public ReplicationServer(ReplicationLog log, int port) throws IOException {
+        this.log = log;
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port));
+
+        Thread acceptor = new Thread(this::accept, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        LOGGER.info("Shipping the replication log on port " + port);
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread sender = new Thread(() -> serve(socket), "replication-" + socket.getRemoteSocketAddress());
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed())
+                    LOGGER.error("Error accepting a backup", e);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(ACK_TIMEOUT_MILLIS);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            long sent = in.readLong();
+            if (sent > log.getLastSequence()) {
+                LOGGER.error("Backup " + socket.getRemoteSocketAddress() + " is ahead of this log at " + sent);
+                return;
+            }
+
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (sent == RESYNC || !log.register(socket, sent)) {
+                StoreImage image = log.registerFromImage(socket);
+                if (image == null) {
+                    LOGGER.error("Backup " + socket.getRemoteSocketAddress() + " needs an image, but the " +
+                            "checkpoint stopped following the log");
+                    return;
+                }
+                out.writeObject(image);
+                sent = image.getSequence();
+                LOGGER.info("Backup " + socket.getRemoteSocketAddress() + " starts from an image at entry " + sent);
+            } else {
+                LOGGER.info("Backup " + socket.getRemoteSocketAddress() + " connected at entry " + sent);
+            }
+
+            Thread acknowledgements = new Thread(() -> readAcknowledgements(socket, in),
+                    "replication-acks-" + socket.getRemoteSocketAddress());
+            acknowledgements.setDaemon(true);
+            acknowledgements.start();
+
+            while (!socket.isClosed()) {
+                List<LogEntry> entries = log.awaitEntriesAfter(sent, BATCH_SIZE, HEARTBEAT_MILLIS);
+                if (entries.isEmpty()) {
+                    out.writeObject(null);
+                } else {
+                    for (LogEntry entry : entries) {
+                        out.writeObject(entry);
+                    }
+                    sent = entries.get(entries.size() - 1).getSequence();
+                }
+                // Entries are never written twice, so the stream need not remember them
+                out.reset();
+                out.flush();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Lost backup " + socket.getRemoteSocketAddress() + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            log.removeBackup(socket);
+            close(socket);
+        }
+    }
+
+    private void readAcknowledgements(Socket socket, DataInputStream in) {
+        try {
+            while (true) {
+                log.acknowledge(socket, in.readLong());
+            }
+        } catch (IOException e) {
+            if (!socket.isClosed())
+                LOGGER.warn("Backup " + socket.getRemoteSocketAddress() + " stopped acknowledging: " +
+                        e.getMessage());
+        } finally {
+            log.removeBackup(socket);
+            close(socket);
+        }
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            LOGGER.error("Error closing backup connection", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
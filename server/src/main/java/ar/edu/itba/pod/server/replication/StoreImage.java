@@ -0,0 +1,27 @@
+package ar.edu.itba.pod.server.replication;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A store as of a sequence of its log, as the mutations that rebuild it on an empty store. Sent to
+ * a backup that is further behind than the log goes, before the entries after that sequence.
+ */
+public class StoreImage implements Serializable {
+    private final long sequence;
+    private final List<Mutation> mutations;
+
+    public StoreImage(long sequence, List<Mutation> mutations) {
+        this.sequence = sequence;
+        this.mutations = new ArrayList<>(mutations);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public List<Mutation> getMutations() {
+        return mutations;
+    }
+}
@@ -0,0 +1,32 @@
+package ar.edu.itba.pod.server.service;
+
+import ar.edu.itba.pod.interfaces.CursorService;
+import ar.edu.itba.pod.models.ResultPage;
+import ar.edu.itba.pod.server.utils.ServerStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.rmi.RemoteException;
+
+public class CursorServiceImpl implements CursorService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CursorServiceImpl.class);
+
+    private final ServerStore store;
+
+    public CursorServiceImpl(ServerStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public ResultPage<?> nextPage(long cursorId, int pageSize) throws RemoteException {
+        ResultPage<?> page = store.getCursors().next(cursorId, pageSize);
+        if (!page.hasMore())
+            LOGGER.info("Cursor " + cursorId + " read to the end");
+        return page;
+    }
+
+    @Override
+    public void closeCursor(long cursorId) throws RemoteException {
+        store.getCursors().close(cursorId);
+    }
+}
@@ -1,16 +1,19 @@
 package ar.edu.itba.pod.server.service;
 
 import ar.edu.itba.pod.callbacks.NotificationHandler;
+import ar.edu.itba.pod.callbacks.ReticketingListener;
 import ar.edu.itba.pod.models.*;
 import ar.edu.itba.pod.models.exceptions.flightExceptions.FlightAlreadyExistsException;
+import ar.edu.itba.pod.models.exceptions.flightExceptions.FlightNotOwnedException;
 import ar.edu.itba.pod.models.exceptions.notFoundExceptions.FlightNotFoundException;
 import ar.edu.itba.pod.interfaces.FlightManagerService;
 import ar.edu.itba.pod.models.exceptions.flightExceptions.IllegalFlightStateException;
 import ar.edu.itba.pod.models.exceptions.flightExceptions.ModelAlreadyExistsException;
 import ar.edu.itba.pod.models.exceptions.notFoundExceptions.ModelNotFoundException;
-import ar.edu.itba.pod.server.utils.FlightComparator;
+import ar.edu.itba.pod.server.replication.Mutations;
 import ar.edu.itba.pod.server.utils.ServerStore;
 import ar.edu.itba.pod.server.models.Flight;
+import ar.edu.itba.pod.server.models.PassengerTicket;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,17 +21,35 @@ import java.rmi.RemoteException;
 import java.util.*;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.stream.Collectors;
 
 public class FlightManagerServiceImpl implements FlightManagerService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FlightManagerServiceImpl.class);
+    /**
+     * Time passengers of a cancelled flight have to change their ticket before it is done for them
+     */
+    public static final long RETICKETING_GRACE_MILLIS = 60 * 1000;
+    /**
+     * Time reticketing works before letting waiting seat operations through
+     */
+    public static final long RETICKETING_CHUNK_MILLIS = 5;
+
     private final ServerStore store;
+    private final ReticketingEngine reticketing;
 
     final Lock modelsLock = new ReentrantLock();
 
     public FlightManagerServiceImpl(ServerStore store) {
+        this(store, RETICKETING_GRACE_MILLIS);
+    }
+
+    public FlightManagerServiceImpl(ServerStore store, long reticketingGraceMillis) {
+        this(store, reticketingGraceMillis, RETICKETING_CHUNK_MILLIS);
+    }
+
+    public FlightManagerServiceImpl(ServerStore store, long reticketingGraceMillis, long reticketingChunkMillis) {
         this.store = store;
+        this.reticketing = new ReticketingEngine(store, reticketingGraceMillis, reticketingChunkMillis);
     }
 
     @Override
@@ -39,14 +60,19 @@ public class FlightManagerServiceImpl implements FlightManagerService {
                 throw new ModelAlreadyExistsException(model);
 
             store.getPlaneModels().put(model, new PlaneModel(model, seatCategories));
+            store.record(new Mutations.AddPlaneModel(model, seatCategories));
         } finally {
             modelsLock.unlock();
         }
+        store.awaitReplication();
         LOGGER.info("Added plane model: " + model);
     }
 
     @Override
     public void addFlight(String planeModel, String flightCode, String destination, List<Ticket> tickets) throws RemoteException {
+        if (!store.ownsFlight(flightCode))
+            throw new FlightNotOwnedException();
+
         PlaneModel model;
         modelsLock.lock();
         try {
@@ -56,17 +82,21 @@ public class FlightManagerServiceImpl implements FlightManagerService {
             modelsLock.unlock();
         }
 
+        Flight flight = new Flight(store.getNames(), model, flightCode, destination, tickets);
         synchronized (store.getFlightCodes()) {
             if (store.getFlightCodes().containsKey(flightCode))
                 throw new FlightAlreadyExistsException();
 
+            // Recorded before anyone can find the flight, so no change of it is logged before it
             synchronized (store.getPendingFlights()) {
-                store.getPendingFlights().put(flightCode, new Flight(model, flightCode,
-                        destination, tickets));
+                store.getPendingFlights().put(flightCode, flight);
                 store.getFlightCodes().put(flightCode, FlightState.PENDING);
+                store.record(new Mutations.AddFlight(planeModel, flightCode, destination, tickets));
             }
         }
+        store.awaitReplication();
         LOGGER.info("Added flight " + flightCode + " with model " + model);
+        reticketing.flightAdded(flight);
     }
 
     @Override
@@ -77,6 +107,19 @@ public class FlightManagerServiceImpl implements FlightManagerService {
         }
     }
 
+    @Override
+    public List<FlightStateResult> getFlightStates(List<String> flightCodes) throws RemoteException {
+        List<FlightStateResult> results = new ArrayList<>(flightCodes.size());
+        synchronized (store.getFlightCodes()) {
+            for (String flightCode : flightCodes) {
+                FlightState state = store.getFlightCodes().get(flightCode);
+                results.add(new FlightStateResult(flightCode, state,
+                        state == null ? new FlightNotFoundException().getMessage() : null));
+            }
+        }
+        return results;
+    }
+
     @Override
     public void confirmFlight(String flightCode) throws RemoteException {
         changeFlightState(flightCode, FlightState.CONFIRMED);
@@ -87,133 +130,128 @@ public class FlightManagerServiceImpl implements FlightManagerService {
         changeFlightState(flightCode, FlightState.CANCELED);
     }
 
-    private void changeFlightState(String flightCode, FlightState state) {
-        Flight flight;
-        synchronized (store.getFlightCodes()) {
-            synchronized (store.getPendingFlights()) {
-                if (!store.getPendingFlights().containsKey(flightCode))
-                    throw new IllegalFlightStateException();
+    @Override
+    public List<FlightStateResult> confirmFlights(List<String> flightCodes) throws RemoteException {
+        return changeFlightsState(flightCodes, FlightState.CONFIRMED);
+    }
 
-                flight = store.getPendingFlights().remove(flightCode);
-                flight.getStateLock().lock();
-            }
+    @Override
+    public List<FlightStateResult> cancelFlights(List<String> flightCodes) throws RemoteException {
+        return changeFlightsState(flightCodes, FlightState.CANCELED);
+    }
 
-            Map<String, Flight> flights = store.getFlightsByState(state);
-            synchronized (flights) {
-                store.getFlightCodes().put(flightCode, state);
-                flights.put(flightCode, flight);
-            }
-        }
+    private void changeFlightState(String flightCode, FlightState state) {
+        if (!changeFlightsState(Collections.singletonList(flightCode), state).get(0).isSuccessful())
+            throw new IllegalFlightStateException();
+    }
 
-        flight.setState(state);
-        flight.getStateLock().unlock();
-        LOGGER.info("Flight " + flightCode + " state changed to " + state);
+    /**
+     * Changes the state of the pending flights among the given ones, then notifies every
+     * subscriber once with all its flights
+     */
+    private List<FlightStateResult> changeFlightsState(List<String> flightCodes, FlightState state) {
+        List<FlightStateResult> results = new ArrayList<>(flightCodes.size());
+        List<Flight> changed = store.changeFlightsState(flightCodes, state, results);
 
-        Map<String, List<NotificationHandler>> flightNotifications = store
-                .getFlightNotifications(flightCode);
-        if (flightNotifications == null)
-            return;
+        notifyStateChange(changed, state);
 
-        synchronized (flightNotifications) { // Too specific to modularize
-            flightNotifications.forEach((passenger, handlers) -> {
-                synchronized (handlers) {
-                    flight.getSeatsLock().lock();
-                    Ticket ticket = flight.getTickets().get(passenger);
-                    Integer row = ticket.getRow();
-                    Character col = ticket.getCol();
-                    flight.getSeatsLock().unlock();
+        // Queued after the cancellation notifications, so handlers are still registered on the flights
+        if (state == FlightState.CANCELED && !changed.isEmpty())
+            reticketing.flightsCancelled(changed);
+        return results;
+    }
+
+    private void notifyStateChange(List<Flight> flights, FlightState state) {
+        Map<NotificationHandler, List<Notification>> bySubscriber = new LinkedHashMap<>();
+        for (Flight flight : flights) {
+            Map<Integer, List<NotificationHandler>> flightNotifications = store
+                    .getFlightNotifications(flight.getCode());
+            if (flightNotifications == null)
+                continue;
+
+            // Copied under the monitors, since the seats lock is only taken once they are released
+            Map<Integer, List<NotificationHandler>> subscribers = new LinkedHashMap<>();
+            synchronized (flightNotifications) { // Too specific to modularize
+                flightNotifications.forEach((passenger, handlers) -> {
+                    synchronized (handlers) {
+                        subscribers.put(passenger, new ArrayList<>(handlers));
+                    }
+                });
+            }
 
+            Lock seatsLock = flight.getSeatsLock();
+            seatsLock.lock();
+            try {
+                subscribers.forEach((passenger, handlers) -> {
+                    PassengerTicket ticket = flight.getPassengerTicket(passenger);
+                    Integer row = ticket.isSeated() ? ticket.getRow() : null;
+                    Character col = ticket.isSeated() ? ticket.getCol() : null;
+                    RowCategory category = row != null ? flight.getRowCategory(row) : null;
+
+                    Notification notification = new Notification(flight.getCode(),
+                            flight.getDestination(), category, row, col);
                     for (NotificationHandler handler : handlers) {
-                        store.submitNotificationTask(() -> {
-                            try {
-                                RowCategory category = null;
-                                if (ticket.isSeated()) {
-                                    category = flight.getRows()[row].getRowCategory();
-                                }
-                                Notification notification = new Notification(flightCode,
-                                        flight.getDestination(), category, row, col);
-                                switch (state) {
-                                    case CONFIRMED:
-                                        handler.notifyConfirmFlight(notification);
-                                        store.removeFlightNotifications(flightCode);
-                                        break;
-                                    case CANCELED:
-                                        handler.notifyCancelFlight(notification);
-                                        break;
-                                }
-                            } catch (RemoteException e) {
-                                LOGGER.error("Could not send notification", e);
-                            }
-                        });
+                        bySubscriber.computeIfAbsent(handler, k -> new ArrayList<>()).add(notification);
                     }
-                }
-            });
-        }
-    }
+                });
+            } finally {
+                seatsLock.unlock();
+            }
 
-    @Override
-    public ResponseCancelledList changeCancelledFlights() throws RemoteException {
-        Collection<Flight> cancelledFlights;
-        synchronized (store.getCancelledFlights()) {
-            cancelledFlights = store.getCancelledFlights().values();
+            if (state == FlightState.CONFIRMED)
+                store.removeFlightNotifications(flight.getCode());
         }
-        List<CancelledTicket> unchangedTickets = new ArrayList<>();
-        int changedCounter = 0;
 
-        cancelledFlights = cancelledFlights.stream()
-                .sorted(Comparator.comparing(Flight::getCode)).collect(Collectors.toList());
-
-        Map<String, Notification> notificationsToSend = new HashMap<>();
+        // One task per subscriber, sending its notifications in flight order
+        bySubscriber.forEach((handler, notifications) -> store.submitNotificationTask(() -> {
+            for (Notification notification : notifications) {
+                try {
+                    switch (state) {
+                        case CONFIRMED:
+                            handler.notifyConfirmFlight(notification);
+                            break;
+                        case CANCELED:
+                            handler.notifyCancelFlight(notification);
+                            break;
+                    }
+                } catch (RemoteException e) {
+                    LOGGER.error("Could not send notification", e);
+                }
+            }
+        }));
+    }
 
-        for (Flight cancelled : cancelledFlights) {
-            LOGGER.info("Reticketing for flight " + cancelled.getCode());
-            changedCounter += reticketCancelledFlight(cancelled, unchangedTickets, notificationsToSend);
+    /**
+     * Starts the grace period again for the cancelled flights that still have tickets, for a
+     * backup taking over whose reticketing backlog was left on the primary
+     */
+    public void resumeReticketing() {
+        List<Flight> cancelled;
+        synchronized (store.getCancelledFlights()) {
+            cancelled = new ArrayList<>(store.getCancelledFlights().values());
         }
-
-        notificationsToSend.forEach(store::changeTicketsNotification);
-        return new ResponseCancelledList(changedCounter, unchangedTickets);
+        cancelled.removeIf(Flight::isFrozen);
+        if (!cancelled.isEmpty())
+            reticketing.flightsCancelled(cancelled);
     }
 
-    private int reticketCancelledFlight(Flight cancelled, List<CancelledTicket> unchangedTickets, Map<String, Notification> notificationsToSend) {
-        int toReturn = 0;
-        cancelled.getSeatsLock().lock();
-        try {
-            List<Ticket> tickets = cancelled.getTickets().values().stream()
-                    .sorted(Comparator.naturalOrder()).collect(Collectors.toList());
-
-            for (Ticket ticket : tickets) {
-                Comparator<Flight> comparator = new FlightComparator(ticket);
-                Flight newFlight;
-
-                synchronized (store.getPendingFlights()) {
-                    newFlight = store.getPendingFlights().values().stream().filter(flight ->
-                                    flight.getDestination().equals(ticket.getDestination()) &&
-                                            flight.getAllAvailableByCategory(ticket.getCategory()) != 0)
-                            .min(comparator)
-                            .orElse(null);
-
-                    if (newFlight == null) {
-                        unchangedTickets.add(new CancelledTicket(cancelled.getCode(),
-                                ticket.getPassenger()));
-                        continue;
-                    }
-                    newFlight.getStateLock().lock();
-                    newFlight.getSeatsLock().lock();
-                }
-                cancelled.changeFlight(ticket.getPassenger(), newFlight);
-                toReturn = 1;
+    @Override
+    public ResponseCancelledList changeCancelledFlights() throws RemoteException {
+        return reticketing.reticketAll();
+    }
 
-                newFlight.getSeatsLock().unlock();
-                newFlight.getStateLock().unlock();
+    @Override
+    public ResponseCancelledList changeCancelledFlights(int pageSize) throws RemoteException {
+        return reticketing.reticketAll(pageSize);
+    }
 
-                notificationsToSend.put(ticket.getPassenger(),
-                        new Notification(cancelled.getCode(), cancelled.getDestination(),
-                                newFlight.getCode()));
-            }
-        } finally {
-            cancelled.getSeatsLock().unlock();
-        }
+    @Override
+    public ReticketingForecast simulateReticketing(List<String> flightCodes) throws RemoteException {
+        return reticketing.simulate(flightCodes);
+    }
 
-        return toReturn;
+    @Override
+    public long startReticketing(ReticketingListener listener, int pageSize) throws RemoteException {
+        return reticketing.startReticketing(listener, pageSize);
     }
-}
\ No newline at end of file
+}
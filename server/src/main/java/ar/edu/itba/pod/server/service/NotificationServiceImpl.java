@@ -6,6 +6,7 @@ import ar.edu.itba.pod.models.Notification;
 import ar.edu.itba.pod.models.exceptions.PassengerNotSeatedException;
 import ar.edu.itba.pod.models.exceptions.flightExceptions.IllegalFlightStateException;
 import ar.edu.itba.pod.server.models.Flight;
+import ar.edu.itba.pod.server.replication.Mutations;
 import ar.edu.itba.pod.models.FlightState;
 import ar.edu.itba.pod.server.utils.ServerStore;
 import org.slf4j.Logger;
@@ -14,6 +15,7 @@ import java.rmi.RemoteException;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.locks.Lock;
 
 public class NotificationServiceImpl implements NotificationService {
 
@@ -35,16 +37,22 @@ public class NotificationServiceImpl implements NotificationService {
             Map<String, Flight> flights = store.getFlightsByState(state);
             synchronized (flights) {
                 flight = flights.get(flightCode);
-                flight.getSeatsLock().lock();
             }
         }
 
+        // Kept, since the getter hands out a no-op lock once the flight is frozen
+        Lock seatsLock = flight.getSeatsLock();
+        seatsLock.lock();
         try {
-            Optional.ofNullable(flight.getTickets().get(passenger))
-                    .orElseThrow(PassengerNotSeatedException::new);
+            if (FlightState.CONFIRMED.equals(flight.getState()))
+                throw new IllegalFlightStateException();
+            if (!flight.hasTicket(passenger))
+                throw new PassengerNotSeatedException();
+            store.record(new Mutations.RegisterHandlers(flightCode, passenger, Collections.singletonList(handler)));
         } finally {
-            flight.getSeatsLock().unlock();
+            seatsLock.unlock();
         }
+        store.awaitReplication();
         LOGGER.info("Registered passenger " + passenger + " to receive notifications");
         store.registerUser(new Notification(flightCode, flight.getDestination()), passenger,
                 Collections.singletonList(handler));
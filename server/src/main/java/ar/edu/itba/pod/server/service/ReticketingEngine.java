@@ -0,0 +1,477 @@
+package ar.edu.itba.pod.server.service;
+
+import ar.edu.itba.pod.callbacks.ReticketingListener;
+import ar.edu.itba.pod.models.CancelledTicket;
+import ar.edu.itba.pod.models.FlightState;
+import ar.edu.itba.pod.models.Notification;
+import ar.edu.itba.pod.models.ResponseCancelledList;
+import ar.edu.itba.pod.models.ResultPage;
+import ar.edu.itba.pod.models.ReticketingForecast;
+import ar.edu.itba.pod.models.ReticketingProgress;
+import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.Ticket;
+import ar.edu.itba.pod.models.exceptions.flightExceptions.IllegalFlightStateException;
+import ar.edu.itba.pod.server.models.Flight;
+import ar.edu.itba.pod.server.models.FlightSnapshot;
+import ar.edu.itba.pod.server.replication.Mutations;
+import ar.edu.itba.pod.server.utils.CursorTable;
+import ar.edu.itba.pod.server.utils.FlightComparator;
+import ar.edu.itba.pod.server.utils.FlightLocks;
+import ar.edu.itba.pod.server.utils.ServerStore;
+import ar.edu.itba.pod.server.utils.StoreSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.rmi.RemoteException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Moves the tickets of cancelled flights to alternative flights as events happen. After a grace
+ * period in which passengers can pick an alternative themselves, a cancellation puts the flight's
+ * remaining tickets in the backlog of its destination and tries every pending flight of that
+ * destination. A new pending flight only tries the backlog of its own destination.
+ * All the work runs on a single background thread, which owns the backlog. Listeners of
+ * reticketing jobs are called on another thread, so a slow one never holds that work.
+ * Tickets are moved in chunks of a bounded time, and between chunks the thread steps aside while
+ * seat operations wait for the flights it just locked, so a long backlog does not keep taking the
+ * same flights ahead of passengers.
+ */
+public class ReticketingEngine {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReticketingEngine.class);
+    private static final Deque<WaitingTicket> EMPTY_BACKLOG = new ArrayDeque<>();
+
+    private final ServerStore store;
+    private final long graceMillis;
+    private final long chunkNanos;
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reticketing");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Tickets waiting for an alternative flight, by destination, in cancellation order. Only the
+     * worker changes it; it is concurrent so forecasts can read it meanwhile.
+     */
+    private final Map<String, Deque<WaitingTicket>> backlog = new ConcurrentHashMap<>();
+    private final ExecutorService listeners = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reticketing-listeners");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong nextJobId = new AtomicLong();
+    /**
+     * Cancelled flights whose tickets are not in the backlog yet
+     */
+    private final List<Flight> inGrace = new ArrayList<>();
+    private int changedSinceReport = 0;
+
+    public ReticketingEngine(ServerStore store, long graceMillis, long chunkMillis) {
+        if (chunkMillis <= 0)
+            throw new IllegalArgumentException("Reticketing chunks must last a positive time");
+        this.store = store;
+        this.graceMillis = graceMillis;
+        this.chunkNanos = TimeUnit.MILLISECONDS.toNanos(chunkMillis);
+    }
+
+    public void flightCancelled(Flight cancelled) {
+        flightsCancelled(Collections.singletonList(cancelled));
+    }
+
+    /**
+     * Starts one grace period for all the flights, after which each affected destination is
+     * tried once
+     */
+    public void flightsCancelled(List<Flight> cancelledFlights) {
+        worker.submit(() -> inGrace.addAll(cancelledFlights));
+        worker.schedule(() -> {
+            Set<String> destinations = new LinkedHashSet<>();
+            for (Flight cancelled : cancelledFlights) {
+                if (inGrace.remove(cancelled) && enqueue(cancelled))
+                    destinations.add(cancelled.getDestination());
+            }
+            destinations.forEach(destination -> reticket(destination, pendingFlightsTo(destination)));
+        }, graceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void flightAdded(Flight flight) {
+        worker.submit(() -> {
+            if (backlog.containsKey(flight.getDestination()))
+                reticket(flight.getDestination(), Collections.singletonList(flight));
+        });
+    }
+
+    /**
+     * Retries every waiting ticket against every pending flight and waits for it, ending the grace
+     * period of every cancelled flight. Returns how many tickets were moved since the last call,
+     * in the background or by this pass, and the ones still waiting.
+     */
+    public ResponseCancelledList reticketAll() {
+        Future<ResponseCancelledList> result = worker.submit(() -> reticketPass(null));
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reticketing", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Reticketing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Like {@link #reticketAll()}, with the first page of the tickets still waiting and a cursor
+     * for the rest
+     */
+    public ResponseCancelledList reticketAll(int pageSize) {
+        return firstPage(reticketAll(), pageSize);
+    }
+
+    /**
+     * Queues the pass of {@link #reticketAll(int)} as a job and returns its id without waiting.
+     * The listener hears after each cancelled flight and gets the result, or null if the pass
+     * failed.
+     */
+    public long startReticketing(ReticketingListener listener, int pageSize) {
+        Job job = new Job(nextJobId.incrementAndGet(), listener);
+        worker.submit(() -> {
+            ResponseCancelledList result = null;
+            try {
+                result = firstPage(reticketPass(job), pageSize);
+            } catch (RuntimeException e) {
+                LOGGER.error("Reticketing job " + job.id + " failed", e);
+            }
+            job.finished(result);
+        });
+        LOGGER.info("Reticketing job " + job.id + " started");
+        return job.id;
+    }
+
+    /**
+     * Runs on the worker thread only
+     */
+    private ResponseCancelledList reticketPass(Job job) {
+        inGrace.forEach(this::enqueue);
+        inGrace.clear();
+        if (job != null)
+            job.flightsTotal = (int) backlog.values().stream().flatMap(Deque::stream)
+                    .map(ticket -> ticket.cancelled).distinct().count();
+        for (String destination : new ArrayList<>(backlog.keySet())) {
+            reticket(destination, pendingFlightsTo(destination), job);
+        }
+        int changed = changedSinceReport;
+        changedSinceReport = 0;
+
+        // Sorted by flight and passenger, as the sweep used to report them
+        Map<String, List<CancelledTicket>> unchanged = new TreeMap<>();
+        backlog.values().forEach(waiting -> waiting.forEach(ticket -> unchanged
+                .computeIfAbsent(ticket.cancelled.getCode(), k -> new ArrayList<>())
+                .add(new CancelledTicket(ticket.cancelled.getCode(), ticket.ticket.getPassenger()))));
+        List<CancelledTicket> unchangedTickets = new ArrayList<>();
+        unchanged.values().forEach(tickets -> {
+            tickets.sort((t1, t2) -> t1.getPassenger().compareTo(t2.getPassenger()));
+            unchangedTickets.addAll(tickets);
+        });
+        return new ResponseCancelledList(changed, unchangedTickets);
+    }
+
+    /**
+     * Projects what a pass would do if the flights were cancelled, on a snapshot of the store and
+     * without touching the flights or the backlog. Destinations are projected in parallel on the
+     * query pool, each with the tickets already waiting for it. Moving a ticket takes no seat, so a
+     * ticket would be changed if any pending flight left to its destination has a free seat for it.
+     */
+    public ReticketingForecast simulate(List<String> flightCodes) {
+        StoreSnapshot snapshot = store.snapshot();
+        Map<String, List<FlightSnapshot>> byDestination = new LinkedHashMap<>();
+        for (String flightCode : new LinkedHashSet<>(flightCodes)) {
+            FlightSnapshot flight = snapshot.getFlight(flightCode);
+            if (flight.getState() == FlightState.CONFIRMED)
+                throw new IllegalFlightStateException();
+            byDestination.computeIfAbsent(flight.getDestination(), k -> new ArrayList<>()).add(flight);
+        }
+
+        Set<String> simulated = new HashSet<>(flightCodes);
+        Map<String, List<FlightSnapshot>> candidates = snapshot.getFlights(FlightState.PENDING).stream()
+                .filter(flight -> byDestination.containsKey(flight.getDestination()) &&
+                        !simulated.contains(flight.getCode()))
+                .collect(Collectors.groupingBy(FlightSnapshot::getDestination));
+
+        List<ReticketingForecast> forecasts = store.mapInParallel(new ArrayList<>(byDestination.values()),
+                cancelled -> simulateDestination(cancelled, simulated, candidates.getOrDefault(
+                        cancelled.get(0).getDestination(), Collections.emptyList())));
+        int changed = 0;
+        Map<String, Map<RowCategory, Integer>> unchanged = new TreeMap<>();
+        for (ReticketingForecast forecast : forecasts) {
+            changed += forecast.getChanged();
+            unchanged.putAll(forecast.getUnchangedByDestination());
+        }
+        return new ReticketingForecast(changed, unchanged);
+    }
+
+    private ReticketingForecast simulateDestination(List<FlightSnapshot> cancelled, Set<String> simulated,
+                                                    List<FlightSnapshot> candidates) {
+        String destination = cancelled.get(0).getDestination();
+        List<RowCategory> tickets = new ArrayList<>();
+        for (WaitingTicket waiting : backlog.getOrDefault(destination, EMPTY_BACKLOG)) {
+            if (!simulated.contains(waiting.cancelled.getCode()))
+                tickets.add(waiting.ticket.getCategory());
+        }
+        cancelled.forEach(flight -> flight.getTickets().forEach(ticket -> tickets.add(ticket.getCategory())));
+
+        int changed = 0;
+        Map<RowCategory, Integer> unchanged = new EnumMap<>(RowCategory.class);
+        for (RowCategory category : tickets) {
+            if (candidates.stream().anyMatch(flight -> hasSeatFor(flight, category)))
+                changed++;
+            else
+                unchanged.merge(category, 1, Integer::sum);
+        }
+        return new ReticketingForecast(changed, unchanged.isEmpty() ? Collections.emptyMap()
+                : Collections.singletonMap(destination, unchanged));
+    }
+
+    /**
+     * Whether there is a free seat of the category or a lower one, as
+     * {@link Flight#getAllAvailableByCategory} counts them
+     */
+    private static boolean hasSeatFor(FlightSnapshot flight, RowCategory category) {
+        for (int i = category.ordinal(); i >= 0; i--) {
+            if (flight.getAvailableByCategory(RowCategory.values()[i]) > 0)
+                return true;
+        }
+        return false;
+    }
+
+    private ResponseCancelledList firstPage(ResponseCancelledList list, int pageSize) {
+        ResultPage<CancelledTicket> page = store.getCursors().open(
+                CursorTable.PageSource.of(list.getUnchangedTickets()), pageSize);
+        return new ResponseCancelledList(list.getChanged(), page.getItems(), page.getCursorId());
+    }
+
+    /**
+     * Puts the remaining tickets of the cancelled flight in the backlog of its destination.
+     * Returns whether there were any.
+     */
+    private boolean enqueue(Flight cancelled) {
+        List<Ticket> tickets;
+        FlightLocks locks = FlightLocks.lock(cancelled);
+        try {
+            tickets = cancelled.getSortedTickets();
+        } finally {
+            locks.unlock();
+        }
+        if (tickets.isEmpty())
+            return false;
+
+        Deque<WaitingTicket> waiting = backlog.computeIfAbsent(cancelled.getDestination(),
+                k -> new ConcurrentLinkedDeque<>());
+        tickets.forEach(ticket -> waiting.add(new WaitingTicket(cancelled, ticket)));
+        LOGGER.info(tickets.size() + " tickets of flight " + cancelled.getCode() + " waiting for reticketing");
+        return true;
+    }
+
+    private int reticket(String destination, List<Flight> candidates) {
+        return reticket(destination, candidates, null);
+    }
+
+    /**
+     * Moves the waiting tickets of the destination to the best of the candidates. Runs on the
+     * worker thread only. Returns how many tickets were moved. The job, if any, hears as the
+     * tickets of each cancelled flight are done, which are together in the backlog.
+     */
+    private int reticket(String destination, List<Flight> candidates, Job job) {
+        Deque<WaitingTicket> waiting = backlog.get(destination);
+        if (waiting == null || (candidates.isEmpty() && job == null))
+            return 0;
+
+        int changed = 0;
+        List<Flight> touched = new ArrayList<>();
+        Set<Flight> locked = new HashSet<>();
+        long chunkStart = System.nanoTime();
+        Flight current = null;
+        Iterator<WaitingTicket> iterator = waiting.iterator();
+        while (iterator.hasNext()) {
+            if (System.nanoTime() - chunkStart >= chunkNanos) {
+                stepAside(locked);
+                locked.clear();
+                chunkStart = System.nanoTime();
+            }
+
+            WaitingTicket waitingTicket = iterator.next();
+            if (job != null && current != null && waitingTicket.cancelled != current)
+                job.flightDone(current);
+            current = waitingTicket.cancelled;
+
+            Flight newFlight = reticket(waitingTicket, candidates);
+            store.awaitReplication();
+            if (newFlight == null) {
+                if (job != null)
+                    job.unchanged++;
+                continue;
+            }
+
+            locked.add(waitingTicket.cancelled);
+            locked.add(newFlight);
+            iterator.remove();
+            if (!touched.contains(waitingTicket.cancelled))
+                touched.add(waitingTicket.cancelled);
+            if (newFlight != waitingTicket.cancelled) {
+                changed++;
+                if (job != null)
+                    job.changed++;
+                store.changeTicketsNotification(waitingTicket.ticket.getPassenger(),
+                        new Notification(waitingTicket.cancelled.getCode(), destination, newFlight.getCode()));
+            }
+        }
+
+        if (job != null && current != null)
+            job.flightDone(current);
+        if (waiting.isEmpty())
+            backlog.remove(destination);
+        touched.forEach(Flight::freezeIfDrained);
+
+        changedSinceReport += changed;
+        if (changed > 0)
+            LOGGER.info(changed + " tickets to " + destination + " were reticketed");
+        return changed;
+    }
+
+    /**
+     * Ends a chunk: while other threads wait for the flights it locked, waits up to another chunk
+     * so they go first
+     */
+    private void stepAside(Set<Flight> locked) {
+        long deadline = System.nanoTime() + chunkNanos;
+        Thread.yield();
+        try {
+            while (FlightLocks.hasWaiters(locked) && System.nanoTime() < deadline)
+                Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the flight the ticket was moved to, the cancelled flight itself if the ticket already
+     * left it, or null if it has to keep waiting
+     */
+    private Flight reticket(WaitingTicket waitingTicket, List<Flight> candidates) {
+        Ticket ticket = waitingTicket.ticket;
+        Flight cancelled = waitingTicket.cancelled;
+        while (true) {
+            // The alternative is chosen without holding any lock and checked again once locked
+            Flight newFlight = candidates.stream()
+                    .filter(flight -> flight.getState() == FlightState.PENDING &&
+                            flight.getAllAvailableByCategory(ticket.getCategory()) != 0)
+                    .min(new FlightComparator(ticket))
+                    .orElse(null);
+            if (newFlight == null)
+                return null;
+
+            FlightLocks locks = FlightLocks.lock(cancelled, newFlight);
+            try {
+                if (!cancelled.hasTicket(ticket.getPassenger())) // Moved by the passenger meanwhile
+                    return cancelled;
+                if (newFlight.getState() != FlightState.PENDING ||
+                        newFlight.getAllAvailableByCategory(ticket.getCategory()) == 0)
+                    continue;
+
+                cancelled.changeFlight(ticket.getPassenger(), newFlight);
+                store.record(new Mutations.ChangeFlight(ticket.getPassenger(), cancelled.getCode(),
+                        newFlight.getCode()));
+                return newFlight;
+            } finally {
+                locks.unlock();
+            }
+        }
+    }
+
+    private List<Flight> pendingFlightsTo(String destination) {
+        synchronized (store.getPendingFlights()) {
+            return store.getPendingFlights().values().stream()
+                    .filter(flight -> flight.getDestination().equals(destination))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @FunctionalInterface
+    private interface ListenerCall {
+        void call(ReticketingListener listener) throws RemoteException;
+    }
+
+    /**
+     * A pass started by {@link #startReticketing}. Its counts are only touched by the worker
+     * thread, and its events are delivered in order on the listeners thread until the listener
+     * fails once.
+     */
+    private class Job {
+        private final long id;
+        private final ReticketingListener listener;
+        private int flightsTotal;
+        private int flightsDone;
+        private int changed;
+        private int unchanged;
+        private volatile boolean listening = true;
+
+        private Job(long id, ReticketingListener listener) {
+            this.id = id;
+            this.listener = listener;
+        }
+
+        private void flightDone(Flight flight) {
+            ReticketingProgress progress = new ReticketingProgress(id, flight.getCode(), ++flightsDone,
+                    flightsTotal, changed, unchanged);
+            notifyListener(listener -> listener.reticketingProgress(progress));
+        }
+
+        private void finished(ResponseCancelledList result) {
+            notifyListener(listener -> listener.reticketingFinished(id, result));
+        }
+
+        private void notifyListener(ListenerCall call) {
+            listeners.execute(() -> {
+                if (!listening)
+                    return;
+                try {
+                    call.call(listener);
+                } catch (RemoteException | RuntimeException e) {
+                    listening = false;
+                    LOGGER.error("Listener of reticketing job " + id + " is gone: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    private static class WaitingTicket {
+        private final Flight cancelled;
+        private final Ticket ticket;
+
+        private WaitingTicket(Flight cancelled, Ticket ticket) {
+            this.cancelled = cancelled;
+            this.ticket = ticket;
+        }
+    }
+}
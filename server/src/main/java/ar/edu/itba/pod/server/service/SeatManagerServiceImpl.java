@@ -6,40 +6,37 @@ import ar.edu.itba.pod.models.*;
 import ar.edu.itba.pod.models.AlternativeFlightResponse;
 import ar.edu.itba.pod.models.exceptions.flightExceptions.IllegalFlightStateException;
 import ar.edu.itba.pod.models.exceptions.notFoundExceptions.FlightNotFoundException;
+import ar.edu.itba.pod.models.exceptions.notFoundExceptions.TicketNotFoundException;
 import ar.edu.itba.pod.models.exceptions.seatExceptions.NoAvailableSeatsException;
+import ar.edu.itba.pod.server.replication.Mutations;
+import ar.edu.itba.pod.server.utils.CursorTable;
+import ar.edu.itba.pod.server.utils.FlightLocks;
 import ar.edu.itba.pod.server.utils.ServerStore;
 import ar.edu.itba.pod.server.models.Flight;
+import ar.edu.itba.pod.server.models.SeatHold;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.rmi.RemoteException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 
 public class SeatManagerServiceImpl implements SeatManagerService {
     private static final Logger LOGGER = LoggerFactory.getLogger(SeatManagerServiceImpl.class);
+    private static final int MAX_HOLD_SECONDS = 15 * 60;
     private final ServerStore store;
 
     public SeatManagerServiceImpl(ServerStore store) {
         this.store = store;
     }
 
-    private Flight getPendingFlight(String flightCode) {
-        Flight flight;
-        synchronized (store.getPendingFlights()) {
-            flight = Optional.ofNullable(store.getPendingFlights().get(flightCode))
-                    .orElseThrow(IllegalFlightStateException::new);
-            flight.getStateLock().lock();
-        }
-
-        flight.getSeatsLock().lock();
-        return flight;
-    }
-
-    private Flight getNonConfirmedFlight(String flightCode) {
-        Flight flight;
+    /**
+     * Looks the flight up without locking it. Its state must be checked again once locked.
+     */
+    private Flight findNonConfirmedFlight(String flightCode) {
         synchronized (store.getFlightCodes()) {
             FlightState state = Optional.ofNullable(store.getFlightCodes().get(flightCode))
                     .orElseThrow(FlightNotFoundException::new);
@@ -48,64 +45,190 @@ public class SeatManagerServiceImpl implements SeatManagerService {
 
             Map<String, Flight> flights = store.getFlightsByState(state);
             synchronized (flights) {
-                flight = flights.get(flightCode);
-                flight.getStateLock().lock();
-                flight.getSeatsLock().lock(); // To avoid concurrent modifications when reticketing
+                return flights.get(flightCode);
             }
         }
-        return flight;
+    }
+
+    private Flight findPendingFlight(String flightCode) {
+        synchronized (store.getPendingFlights()) {
+            return Optional.ofNullable(store.getPendingFlights().get(flightCode))
+                    .orElseThrow(IllegalFlightStateException::new);
+        }
     }
 
     @Override
     public boolean isAvailable(String flightCode, int row, char seat) throws RemoteException {
-        Flight flight = getPendingFlight(flightCode);
-        try {
-            return flight.checkSeat(row, seat);
-        } finally {
-            flight.getSeatsLock().unlock();
-            flight.getStateLock().unlock();
-        }
+        return store.processPendingFlight(flightCode, flight -> flight.checkSeat(row, seat));
     }
 
     @Override
     public void assign(String flightCode, String passenger, int row, char seat) throws RemoteException {
-        Flight flight = getPendingFlight(flightCode);
-        try {
-            flight.assignSeat(row, seat, passenger);
-        } finally {
-            flight.getSeatsLock().unlock();
-            flight.getStateLock().unlock();
+        Flight flight = findPendingFlight(flightCode);
+        store.processPendingFlight(flight, f -> {
+            f.assignSeat(row, seat, passenger);
+            store.record(new Mutations.AssignSeat(flightCode, passenger, row, seat));
+            return null;
+        });
+
+        notifyAssigned(flight, passenger, row, seat);
+    }
+
+    @Override
+    public void hold(String flightCode, String passenger, int row, char seat, int seconds) throws RemoteException {
+        if (seconds <= 0 || seconds > MAX_HOLD_SECONDS)
+            throw new IllegalArgumentException("Holds must last between 1 and " + MAX_HOLD_SECONDS + " seconds");
+
+        long ttlMillis = TimeUnit.SECONDS.toMillis(seconds);
+        SeatHold hold = store.processPendingFlight(flightCode, flight -> {
+            SeatHold held = flight.holdSeat(row, seat, passenger);
+            store.record(new Mutations.HoldSeat(flightCode, passenger, row, seat,
+                    System.currentTimeMillis() + ttlMillis));
+            return held;
+        });
+        store.scheduleHoldExpiry(hold, ttlMillis);
+
+        LOGGER.info("Held seat " + row + seat + " for passenger " + passenger + " on flight " +
+                flightCode + " for " + seconds + " seconds");
+    }
+
+    @Override
+    public Ticket assignHeld(String flightCode, String passenger) throws RemoteException {
+        Flight flight = findPendingFlight(flightCode);
+        Ticket ticket = store.processPendingFlight(flight, f -> recordAssigned(flightCode, f.assignHeldSeat(passenger)));
+
+        notifyAssigned(flight, passenger, ticket.getRow(), ticket.getCol());
+        return ticket;
+    }
+
+    @Override
+    public void releaseHold(String flightCode, String passenger) throws RemoteException {
+        store.processPendingFlight(flightCode, flight -> {
+            SeatHold hold = flight.getHold(passenger);
+            flight.releaseHold(passenger);
+            store.record(new Mutations.ReleaseHold(flightCode, passenger, hold.getRow(), hold.getSeat()));
+            return null;
+        });
+
+        LOGGER.info("Released seat hold of passenger " + passenger + " on flight " + flightCode);
+    }
+
+    @Override
+    public Ticket assignAuto(String flightCode, String passenger, List<RowCategory> preferences) throws RemoteException {
+        Flight flight = findPendingFlight(flightCode);
+        Ticket ticket = store.processPendingFlight(flight, f -> recordAssigned(flightCode,
+                f.assignBestSeat(passenger, preferences)));
+
+        notifyAssigned(flight, passenger, ticket.getRow(), ticket.getCol());
+        return ticket;
+    }
+
+    @Override
+    public List<Ticket> assignGroup(String flightCode, List<String> passengers) throws RemoteException {
+        Flight flight = findPendingFlight(flightCode);
+        List<Ticket> tickets = store.processPendingFlight(flight, f -> {
+            List<Ticket> assigned = f.assignGroup(passengers);
+            assigned.forEach(ticket -> recordAssigned(flightCode, ticket));
+            return assigned;
+        });
+
+        for (Ticket ticket : tickets) {
+            notifyAssigned(flight, ticket.getPassenger(), ticket.getRow(), ticket.getCol());
         }
+        return tickets;
+    }
 
-        LOGGER.info("Assigned seat " + row + seat + " to passenger " + passenger + " on flight " +
-                flightCode);
+    @Override
+    public List<SeatOperationResult> applyBatch(String flightCode, List<SeatOperation> operations) throws RemoteException {
+        List<SeatOperationResult> results = new ArrayList<>(operations.size());
+        Map<String, List<Consumer<NotificationHandler>>> notifications = new LinkedHashMap<>();
+
+        store.processPendingFlight(flightCode, flight -> {
+            for (SeatOperation operation : operations) {
+                try {
+                    results.add(new SeatOperationResult(operation,
+                            applyOperation(flight, operation, notifications), null));
+                } catch (RuntimeException e) {
+                    // A null error would read as a success
+                    String error = e.getMessage() != null ? e.getMessage() : e.toString();
+                    results.add(new SeatOperationResult(operation, null, error));
+                }
+            }
+            return null;
+        });
+
+        LOGGER.info("Applied batch of " + operations.size() + " seat operations on flight " + flightCode);
+
+        notifications.forEach((passenger, calls) -> syncNotify(flightCode, passenger, handler -> {
+            for (Consumer<NotificationHandler> call : calls) {
+                call.accept(handler);
+            }
+        }));
+        return results;
+    }
 
-        syncNotify(flightCode, passenger, handler ->
-                store.submitNotificationTask(() -> {
+    /**
+     * Applies a single batched operation, queueing its notification. Callers must hold the flight locks.
+     */
+    private Ticket applyOperation(Flight flight, SeatOperation operation,
+                                  Map<String, List<Consumer<NotificationHandler>>> notifications) {
+        String passenger = operation.getPassenger();
+        int newRow = operation.getRow();
+        char newSeat = operation.getSeat();
+        RowCategory newCategory;
+        Notification notification;
+
+        switch (operation.getType()) {
+            case ASSIGN:
+                flight.assignSeat(newRow, newSeat, passenger);
+                store.record(new Mutations.AssignSeat(flight.getCode(), passenger, newRow, newSeat));
+                newCategory = flight.getRowCategory(newRow);
+                notification = new Notification(flight.getCode(), flight.getDestination(), newCategory,
+                        newRow, newSeat);
+                notifications.computeIfAbsent(passenger, k -> new ArrayList<>()).add(handler -> {
                     try {
-                        handler.notifyAssignSeat(new Notification(flightCode,
-                                flight.getDestination(), flight.getRows()[row].getRowCategory(),
-                                row, seat));
+                        handler.notifyAssignSeat(notification);
                     } catch (RemoteException e) {
                         LOGGER.error("Error notifying seat assigned", e);
                     }
-                }));
+                });
+                break;
+            case MOVE:
+                Ticket ticket = Optional.ofNullable(flight.getTicket(passenger))
+                        .orElseThrow(TicketNotFoundException::new);
+                Integer row = ticket.getRow();
+                Character col = ticket.getCol();
+                RowCategory category = row == null ? null : flight.getRowCategory(row);
+                flight.changeSeat(newRow, newSeat, passenger);
+                store.record(new Mutations.ChangeSeat(flight.getCode(), passenger, newRow, newSeat));
+                newCategory = flight.getRowCategory(newRow);
+                notification = new Notification(flight.getCode(), flight.getDestination(), category, row,
+                        col, newCategory, newRow, newSeat);
+                notifications.computeIfAbsent(passenger, k -> new ArrayList<>()).add(handler -> {
+                    try {
+                        handler.notifyChangeSeat(notification);
+                    } catch (RemoteException e) {
+                        LOGGER.error("Error notifying seat changed", e);
+                    }
+                });
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid operation");
+        }
+        return flight.getTicket(passenger);
     }
 
     @Override
     public void changeSeat(String flightCode, String passenger, int freeRow, char freeSeat) throws RemoteException {
-        Flight flight = getPendingFlight(flightCode);
-        Integer row;
-        Character col;
-        try {
-            Ticket ticket = flight.getTicket(passenger);
-            row = ticket.getRow();
-            col = ticket.getCol();
-            flight.changeSeat(freeRow, freeSeat, passenger);
-        } finally {
-            flight.getSeatsLock().unlock();
-            flight.getStateLock().unlock();
-        }
+        Flight flight = findPendingFlight(flightCode);
+        Ticket ticket = store.processPendingFlight(flight, f -> {
+            Ticket previous = f.getTicket(passenger);
+            f.changeSeat(freeRow, freeSeat, passenger);
+            store.record(new Mutations.ChangeSeat(flightCode, passenger, freeRow, freeSeat));
+            return previous;
+        });
+        Integer row = ticket.getRow();
+        Character col = ticket.getCol();
 
         LOGGER.info("Changed " + passenger + " seat from " + row + col + " to " + freeRow +
                 freeSeat + " on flight " + flightCode);
@@ -114,11 +237,11 @@ public class SeatManagerServiceImpl implements SeatManagerService {
             try {
                 RowCategory category = null;
                 if (row != null)
-                    category = flight.getRows()[row].getRowCategory();
+                    category = flight.getRowCategory(row);
 
                 handler.notifyChangeSeat(new Notification(flightCode, flight.getDestination(),
                         category, row, col,
-                        flight.getRows()[freeRow].getRowCategory(),
+                        flight.getRowCategory(freeRow),
                         freeRow, freeSeat));
             } catch (RemoteException e) {
                 LOGGER.error("Error notifying seat changed", e);
@@ -128,14 +251,20 @@ public class SeatManagerServiceImpl implements SeatManagerService {
 
     @Override
     public List<AlternativeFlightResponse> listAlternativeFlights(String flightCode, String passenger) throws RemoteException {
-        Flight flight = getNonConfirmedFlight(flightCode);
+        Flight flight = findNonConfirmedFlight(flightCode);
 
         String destination;
         RowCategory category;
 
-        category = flight.getTicket(passenger).getCategory();
-        flight.getSeatsLock().unlock();
-        flight.getStateLock().unlock();
+        FlightLocks locks = FlightLocks.lock(flight);
+        try {
+            if (flight.getState() == FlightState.CONFIRMED)
+                throw new IllegalFlightStateException();
+            category = Optional.ofNullable(flight.getTicket(passenger))
+                    .orElseThrow(TicketNotFoundException::new).getCategory();
+        } finally {
+            locks.unlock();
+        }
 
         destination = flight.getDestination();
 
@@ -149,15 +278,18 @@ public class SeatManagerServiceImpl implements SeatManagerService {
         List<AlternativeFlightResponse> toReturn = new ArrayList<>();
 
         alternativeFlights.forEach(alternative -> {
-            alternative.getSeatsLock().lock();
             Map<RowCategory, Integer> availableSeats = new HashMap<>();
-            for (int i = category.ordinal(); i >= 0; i--) {
-                int available = alternative.getAvailableByCategory(RowCategory.values()[i]);
-                if (i > 0) {
-                    availableSeats.put(RowCategory.values()[i], available);
+            FlightLocks alternativeLocks = FlightLocks.lock(alternative);
+            try {
+                for (int i = category.ordinal(); i >= 0; i--) {
+                    int available = alternative.getAvailableByCategory(RowCategory.values()[i]);
+                    if (i > 0) {
+                        availableSeats.put(RowCategory.values()[i], available);
+                    }
                 }
+            } finally {
+                alternativeLocks.unlock();
             }
-            alternative.getSeatsLock().unlock();
 
             if (availableSeats.keySet().size() > 0)
                 toReturn.add(new AlternativeFlightResponse(alternative.getCode(), destination, availableSeats));
@@ -166,24 +298,35 @@ public class SeatManagerServiceImpl implements SeatManagerService {
         return toReturn;
     }
 
+    @Override
+    public ResultPage<AlternativeFlightResponse> listAlternativeFlights(String flightCode, String passenger, int pageSize) throws RemoteException {
+        return store.getCursors().open(CursorTable.PageSource.of(listAlternativeFlights(flightCode, passenger)), pageSize);
+    }
+
     @Override
     public void changeFlight(String passenger, String oldFlightCode, String newFlightCode) throws RemoteException {
-        Flight oldFlight = getNonConfirmedFlight(oldFlightCode);
-        Flight newFlight = null;
+        Flight oldFlight = findNonConfirmedFlight(oldFlightCode);
+        Flight newFlight = findPendingFlight(newFlightCode);
 
+        FlightLocks locks = FlightLocks.lock(oldFlight, newFlight);
         try {
-            newFlight = getPendingFlight(newFlightCode);
-            if (newFlight.getAllAvailableByCategory(oldFlight.getTicket(passenger).getCategory()) == 0)
+            if (oldFlight.getState() == FlightState.CONFIRMED || newFlight.getState() != FlightState.PENDING)
+                throw new IllegalFlightStateException();
+            Ticket ticket = Optional.ofNullable(oldFlight.getTicket(passenger))
+                    .orElseThrow(TicketNotFoundException::new);
+            if (newFlight.getAllAvailableByCategory(ticket.getCategory()) == 0)
                 throw new NoAvailableSeatsException();
+            long version = oldFlight.getVersion();
             oldFlight.changeFlight(passenger, newFlight);
+            store.record(new Mutations.ChangeFlight(passenger, oldFlightCode, newFlightCode));
+            store.publishSeatMapChanges(oldFlight, version);
         } finally {
-            if (newFlight != null) {
-                newFlight.getSeatsLock().unlock();
-                newFlight.getStateLock().unlock();
-            }
-            oldFlight.getSeatsLock().unlock();
-            oldFlight.getStateLock().unlock();
+            locks.unlock();
         }
+        store.awaitReplication();
+
+        if (oldFlight.getState() == FlightState.CANCELED)
+            oldFlight.freezeIfDrained();
 
         Notification notification = new Notification(oldFlightCode, oldFlight.getDestination(),
                 newFlightCode);
@@ -191,6 +334,28 @@ public class SeatManagerServiceImpl implements SeatManagerService {
         store.changeTicketsNotification(passenger, notification);
     }
 
+    /**
+     * Records the seat the flight picked, so backups take the same one. Callers must hold the flight locks.
+     */
+    private Ticket recordAssigned(String flightCode, Ticket ticket) {
+        store.record(new Mutations.AssignSeat(flightCode, ticket.getPassenger(), ticket.getRow(), ticket.getCol()));
+        return ticket;
+    }
+
+    private void notifyAssigned(Flight flight, String passenger, int row, char seat) {
+        LOGGER.info("Assigned seat " + row + seat + " to passenger " + passenger + " on flight " +
+                flight.getCode());
+
+        syncNotify(flight.getCode(), passenger, handler -> {
+            try {
+                handler.notifyAssignSeat(new Notification(flight.getCode(), flight.getDestination(),
+                        flight.getRowCategory(row), row, seat));
+            } catch (RemoteException e) {
+                LOGGER.error("Error notifying seat assigned", e);
+            }
+        });
+    }
+
     private void syncNotify(String flightCode, String passenger, Consumer<NotificationHandler> handlerConsumer) {
         List<NotificationHandler> handlers = store.getHandlers(flightCode, passenger);
 
@@ -1,20 +1,29 @@
 package ar.edu.itba.pod.server.service;
 
+import ar.edu.itba.pod.callbacks.SeatMapHandler;
 import ar.edu.itba.pod.interfaces.SeatQueryService;
 import ar.edu.itba.pod.models.FlightState;
 import ar.edu.itba.pod.models.ResponseRow;
+import ar.edu.itba.pod.models.ResultPage;
 import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.SeatMapDelta;
+import ar.edu.itba.pod.models.SeatMapResult;
 import ar.edu.itba.pod.models.exceptions.IllegalRowException;
+import ar.edu.itba.pod.models.exceptions.flightExceptions.IllegalFlightStateException;
 import ar.edu.itba.pod.models.exceptions.notFoundExceptions.FlightNotFoundException;
 import ar.edu.itba.pod.server.models.Flight;
-import ar.edu.itba.pod.server.models.Row;
+import ar.edu.itba.pod.server.models.FlightSnapshot;
+import ar.edu.itba.pod.server.utils.CursorTable;
 import ar.edu.itba.pod.server.utils.ServerStore;
+import ar.edu.itba.pod.server.utils.StoreSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.rmi.RemoteException;
 import java.util.*;
+import java.util.concurrent.locks.Lock;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class SeatQueryServiceImpl implements SeatQueryService {
     private final ServerStore store;
@@ -26,43 +35,137 @@ public class SeatQueryServiceImpl implements SeatQueryService {
 
     @Override
     public List<ResponseRow> query(String flightCode) throws RemoteException {
-        List<ResponseRow> toReturn = createResponse(flightCode, f -> Arrays.asList(f.getRows()));
+        List<ResponseRow> toReturn = createResponse(flightCode, f -> IntStream.range(0, f.getRowCount())
+                .boxed().collect(Collectors.toList()));
         LOGGER.info("Seat map query made for flight " + flightCode);
         return toReturn;
     }
 
     @Override
     public List<ResponseRow> query(String flightCode, RowCategory rowCategory) throws RemoteException {
-        List<ResponseRow> toReturn = createResponse(flightCode, (flight) -> Arrays.stream(flight
-                        .getRows()).filter(row -> row.getRowCategory() == rowCategory)
-                .collect(Collectors.toList()));
+        List<ResponseRow> toReturn = createResponse(flightCode, (flight) -> IntStream.range(0, flight
+                        .getRowCount()).filter(row -> flight.getRowCategory(row) == rowCategory)
+                .boxed().collect(Collectors.toList()));
         LOGGER.info("Seat map query made for " + rowCategory + " on flight " + flightCode);
         return toReturn;
     }
 
     @Override
     public ResponseRow query(String flightCode, int rowNum) throws RemoteException {
-        Flight flight = getFlight(flightCode);
-        flight.getSeatsLock().lock();
-
-        List<ResponseRow> toReturn = createResponse(flightCode, f -> Collections.singletonList(Optional
-                .ofNullable(f.getRows()[rowNum])
-                .orElseThrow(() -> new IllegalRowException(rowNum))));
+        List<ResponseRow> toReturn = createResponse(flightCode, f -> {
+            if (rowNum < 0 || rowNum >= f.getRowCount())
+                throw new IllegalRowException(rowNum);
+            return Collections.singletonList(rowNum);
+        });
         LOGGER.info("Seat map query made for row " + rowNum + " on flight " + flightCode);
         return toReturn.stream().findFirst().orElseThrow(() -> new IllegalRowException(rowNum));
     }
 
-    public List<ResponseRow> createResponse(String flightCode, Function<Flight, List<Row>> supplier) {
+    @Override
+    public ResultPage<ResponseRow> queryPage(String flightCode, int pageSize) throws RemoteException {
+        Flight flight = getFlight(flightCode);
+        ResultPage<ResponseRow> toReturn = store.getCursors().open(new CursorTable.PageSource<ResponseRow>() {
+            private int nextRow = 0;
+
+            @Override
+            public List<ResponseRow> next(int max) {
+                int from = nextRow;
+                nextRow = Math.min(flight.getRowCount(), from + max);
+                return createResponse(flight, f -> IntStream.range(from, nextRow).boxed().collect(Collectors.toList()));
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextRow < flight.getRowCount();
+            }
+        }, pageSize);
+        LOGGER.info("Seat map page query made for flight " + flightCode);
+        return toReturn;
+    }
+
+    /**
+     * Builds the maps in parallel from a snapshot of the store, so they all show the same moment
+     * and take no lock of the live flights
+     */
+    @Override
+    public List<SeatMapResult> queryFlights(List<String> flightCodes) throws RemoteException {
+        StoreSnapshot snapshot = store.snapshot();
+        List<SeatMapResult> toReturn = store.mapInParallel(flightCodes, flightCode -> {
+            FlightSnapshot flight = snapshot.findFlight(flightCode);
+            if (flight == null)
+                return new SeatMapResult(flightCode, null, new FlightNotFoundException().getMessage());
+            try {
+                return new SeatMapResult(flightCode, IntStream.range(0, flight.getRowCount())
+                        .mapToObj(row -> new ResponseRow(flight.getRowCategory(row), flight.getRowInitials(row)))
+                        .collect(Collectors.toList()), null);
+            } catch (RuntimeException e) {
+                LOGGER.error("Could not build the seat map of flight " + flightCode, e);
+                return new SeatMapResult(flightCode, null, e.getMessage());
+            }
+        });
+        LOGGER.info("Seat map query made for " + flightCodes.size() + " flights");
+        return toReturn;
+    }
+
+    @Override
+    public SeatMapDelta queryChanges(String flightCode, long sinceVersion) throws RemoteException {
         Flight flight = getFlight(flightCode);
+        SeatMapDelta toReturn;
+        Lock seatsLock = flight.getSeatsLock();
+        seatsLock.lock();
+        try {
+            toReturn = flight.getSeatMapSince(sinceVersion);
+        } finally {
+            seatsLock.unlock();
+        }
+        LOGGER.info("Seat map changes since version " + sinceVersion + " queried for flight " + flightCode);
+        return toReturn;
+    }
+
+    @Override
+    public SeatMapDelta followSeatMap(String flightCode, SeatMapHandler handler) throws RemoteException {
+        Flight flight;
+        synchronized (store.getPendingFlights()) {
+            flight = Optional.ofNullable(store.getPendingFlights().get(flightCode))
+                    .orElseThrow(IllegalFlightStateException::new);
+        }
+
+        Lock stateLock = flight.getStateLock();
+        Lock seatsLock = flight.getSeatsLock();
+        stateLock.lock();
+        seatsLock.lock();
+        try {
+            if (flight.getState() != FlightState.PENDING)
+                throw new IllegalFlightStateException();
+            store.registerSeatMapHandler(flightCode, handler);
+            LOGGER.info("Seat map of flight " + flightCode + " followed");
+            return flight.getSeatMapSince(-1);
+        } finally {
+            seatsLock.unlock();
+            stateLock.unlock();
+        }
+    }
+
+    @Override
+    public void unfollowSeatMap(String flightCode, SeatMapHandler handler) throws RemoteException {
+        store.removeSeatMapHandler(flightCode, handler);
+    }
+
+    public List<ResponseRow> createResponse(String flightCode, Function<Flight, List<Integer>> supplier) {
+        return createResponse(getFlight(flightCode), supplier);
+    }
+
+    private List<ResponseRow> createResponse(Flight flight, Function<Flight, List<Integer>> supplier) {
         List<ResponseRow> responseRows = new ArrayList<>();
-        flight.getSeatsLock().lock();
+        Lock seatsLock = flight.getSeatsLock();
+        seatsLock.lock();
         try {
-            List<Row> rows = supplier.apply(flight);
-            for (Row row : rows) {
-                responseRows.add(new ResponseRow(row.getRowCategory(), getPassengerInitials(row)));
+            List<Integer> rows = supplier.apply(flight);
+            for (int row : rows) {
+                responseRows.add(new ResponseRow(flight.getRowCategory(row), flight.getRowInitials(row)));
             }
         } finally {
-            flight.getSeatsLock().unlock();
+            seatsLock.unlock();
         }
         return responseRows;
     }
@@ -78,13 +181,4 @@ public class SeatQueryServiceImpl implements SeatQueryService {
             }
         }
     }
-
-    private char[] getPassengerInitials(Row row) {
-        char[] initials = new char[row.getPassengerNames().length];
-        for (int j = 0; j < row.getPassengerNames().length; j++) {
-            initials[j] = row.getPassengerNames()[j] == null ? '*' :
-                    row.getPassengerNames()[j].charAt(0);
-        }
-        return initials;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,153 @@
+package ar.edu.itba.pod.server.service;
+
+import ar.edu.itba.pod.callbacks.NotificationHandler;
+import ar.edu.itba.pod.interfaces.ShardTransferService;
+import ar.edu.itba.pod.models.*;
+import ar.edu.itba.pod.models.exceptions.flightExceptions.IllegalFlightStateException;
+import ar.edu.itba.pod.models.exceptions.notFoundExceptions.TicketNotFoundException;
+import ar.edu.itba.pod.models.exceptions.seatExceptions.NoAvailableSeatsException;
+import ar.edu.itba.pod.server.models.Flight;
+import ar.edu.itba.pod.server.replication.Mutations;
+import ar.edu.itba.pod.server.utils.FlightLocks;
+import ar.edu.itba.pod.server.utils.ServerStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Serializable;
+import java.rmi.RemoteException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+public class ShardTransferServiceImpl implements ShardTransferService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardTransferServiceImpl.class);
+    private final ServerStore store;
+
+    public ShardTransferServiceImpl(ServerStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Ticket findTicket(String flightCode, String passenger) throws RemoteException {
+        Flight flight = store.getFlight(flightCode);
+        FlightLocks locks = FlightLocks.lock(flight);
+        try {
+            if (flight.getState() == FlightState.CONFIRMED)
+                throw new IllegalFlightStateException();
+            return Optional.ofNullable(flight.getTicket(passenger))
+                    .orElseThrow(TicketNotFoundException::new);
+        } finally {
+            locks.unlock();
+        }
+    }
+
+    @Override
+    public List<AlternativeFlightResponse> listFlightsTo(String destination, RowCategory category) throws RemoteException {
+        List<Flight> flights;
+        synchronized (store.getPendingFlights()) {
+            flights = store.getPendingFlights().values().stream()
+                    .filter(flight -> flight.getDestination().equals(destination))
+                    .collect(Collectors.toList());
+        }
+
+        List<AlternativeFlightResponse> toReturn = new ArrayList<>();
+        for (Flight flight : flights) {
+            Map<RowCategory, Integer> availableSeats = new EnumMap<>(RowCategory.class);
+            FlightLocks locks = FlightLocks.lock(flight);
+            try {
+                if (flight.getState() != FlightState.PENDING)
+                    continue;
+                for (int i = category.ordinal(); i >= 0; i--) {
+                    int available = flight.getAvailableByCategory(RowCategory.values()[i]);
+                    if (available > 0)
+                        availableSeats.put(RowCategory.values()[i], available);
+                }
+            } finally {
+                locks.unlock();
+            }
+
+            if (!availableSeats.isEmpty())
+                toReturn.add(new AlternativeFlightResponse(flight.getCode(), destination, availableSeats));
+        }
+        return toReturn;
+    }
+
+    @Override
+    public void admitTicket(String flightCode, Ticket ticket) throws RemoteException {
+        Flight flight = findPendingFlight(flightCode);
+        FlightLocks locks = FlightLocks.lock(flight);
+        try {
+            if (flight.getState() != FlightState.PENDING)
+                throw new IllegalFlightStateException();
+            if (flight.getAllAvailableByCategory(ticket.getCategory()) == 0)
+                throw new NoAvailableSeatsException();
+            flight.admitTicket(ticket.getPassenger(), ticket.getCategory());
+            store.record(new Mutations.AdmitTicket(flightCode, ticket.getPassenger(), ticket.getCategory()));
+        } finally {
+            locks.unlock();
+        }
+        store.awaitReplication();
+        LOGGER.info("Admitted ticket of passenger " + ticket.getPassenger() + " on flight " + flightCode);
+    }
+
+    @Override
+    public void revokeTicket(String flightCode, String passenger) throws RemoteException {
+        Flight flight = findPendingFlight(flightCode);
+        store.processPendingFlight(flight, f -> {
+            f.removeTicket(passenger);
+            store.record(new Mutations.RemoveTicket(flightCode, passenger));
+            return null;
+        });
+        LOGGER.info("Revoked ticket of passenger " + passenger + " on flight " + flightCode);
+    }
+
+    @Override
+    public List<NotificationHandler> releaseTicket(String flightCode, String passenger, String newFlightCode) throws RemoteException {
+        Flight flight = store.getFlight(flightCode);
+        FlightLocks locks = FlightLocks.lock(flight);
+        try {
+            if (flight.getState() == FlightState.CONFIRMED)
+                throw new IllegalFlightStateException();
+            long version = flight.getVersion();
+            flight.removeTicket(passenger);
+            store.record(new Mutations.RemoveTicket(flightCode, passenger));
+            store.publishSeatMapChanges(flight, version);
+        } finally {
+            locks.unlock();
+        }
+        store.awaitReplication();
+
+        if (flight.getState() == FlightState.CANCELED)
+            flight.freezeIfDrained();
+        LOGGER.info("Released ticket of passenger " + passenger + " on flight " + flightCode +
+                " for flight " + newFlightCode);
+
+        List<NotificationHandler> handlers = store.popHandlers(flightCode, passenger);
+        Notification notification = new Notification(flightCode, flight.getDestination(), newFlightCode);
+        synchronized (handlers) {
+            handlers.forEach(handler -> store.submitNotificationTask(() -> {
+                try {
+                    handler.notifyChangeTicket(notification);
+                } catch (RemoteException e) {
+                    LOGGER.error("Error notifying change ticket", e);
+                }
+            }));
+            // Handlers of binary clients are tied to their connection to this server and cannot move
+            return handlers.stream().filter(Serializable.class::isInstance).collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public void adoptHandlers(String flightCode, String passenger, List<NotificationHandler> handlers) throws RemoteException {
+        Flight flight = store.getFlight(flightCode);
+        store.record(new Mutations.RegisterHandlers(flightCode, passenger, handlers));
+        store.awaitReplication();
+        store.registerUser(new Notification(flightCode, flight.getDestination()), passenger, handlers);
+    }
+
+    private Flight findPendingFlight(String flightCode) {
+        synchronized (store.getPendingFlights()) {
+            return Optional.ofNullable(store.getPendingFlights().get(flightCode))
+                    .orElseThrow(IllegalFlightStateException::new);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package ar.edu.itba.pod.server.utils;
+
+import ar.edu.itba.pod.models.ResultPage;
+import ar.edu.itba.pod.models.exceptions.notFoundExceptions.CursorNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Results handed out a page at a time. Each open cursor holds a lease that every page renews, and
+ * a timing wheel drops the cursors whose lease ran out, so clients that stop pulling do not pin
+ * their results. Ids carry the shard of the store, so a fleet client knows which server to pull
+ * from.
+ */
+public class CursorTable implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CursorTable.class);
+    private static final int LEASE_WHEEL_SIZE = 256;
+
+    /**
+     * Where a cursor takes its pages from, built as they are pulled or cut from a ready list
+     */
+    public interface PageSource<T> {
+        List<T> next(int max);
+
+        boolean hasNext();
+
+        static <T> PageSource<T> of(List<T> items) {
+            return new PageSource<T>() {
+                private int position = 0;
+
+                @Override
+                public List<T> next(int max) {
+                    int end = Math.min(items.size(), position + max);
+                    List<T> page = new ArrayList<>(items.subList(position, end));
+                    position = end;
+                    return page;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return position < items.size();
+                }
+            };
+        }
+    }
+
+    private final Map<Long, Cursor<?>> cursors = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final long shardBits;
+    private final long leaseMillis;
+    private final TimingWheel<Cursor<?>> leases;
+
+    public CursorTable(int shard, long leaseMillis) {
+        this.shardBits = (long) shard << ResultPage.SHARD_SHIFT;
+        this.leaseMillis = leaseMillis;
+        this.leases = new TimingWheel<>(Math.max(1, leaseMillis / 16), LEASE_WHEEL_SIZE, this::expire);
+    }
+
+    /**
+     * Returns the first page, opening a cursor for the rest if there are more
+     */
+    public <T> ResultPage<T> open(PageSource<T> source, int pageSize) {
+        Cursor<T> cursor = new Cursor<>(shardBits | nextId.incrementAndGet(), source);
+        synchronized (cursor) {
+            List<T> items = source.next(checkPageSize(pageSize));
+            if (!source.hasNext())
+                return ResultPage.complete(items);
+
+            cursor.renew(leaseMillis);
+            cursors.put(cursor.id, cursor);
+            leases.schedule(cursor, leaseMillis);
+            return new ResultPage<>(cursor.id, items, true);
+        }
+    }
+
+    /**
+     * Returns the next page of the cursor and renews its lease. The cursor is closed with its last
+     * page.
+     */
+    public ResultPage<?> next(long cursorId, int pageSize) {
+        Cursor<?> cursor = cursors.get(cursorId);
+        if (cursor == null)
+            throw new CursorNotFoundException();
+
+        synchronized (cursor) {
+            if (cursors.get(cursorId) != cursor)
+                throw new CursorNotFoundException();
+            List<?> items = cursor.source.next(checkPageSize(pageSize));
+            boolean more = cursor.source.hasNext();
+            if (more)
+                cursor.renew(leaseMillis);
+            else
+                cursors.remove(cursorId);
+            return new ResultPage<>(cursorId, items, more);
+        }
+    }
+
+    public void close(long cursorId) {
+        cursors.remove(cursorId);
+    }
+
+    public int size() {
+        return cursors.size();
+    }
+
+    private static int checkPageSize(int pageSize) {
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("Page size must be positive");
+        return pageSize;
+    }
+
+    /**
+     * Drops the cursors whose lease ran out, and puts back on the wheel the ones renewed since
+     * they were scheduled
+     */
+    private void expire(List<Cursor<?>> due) {
+        long now = System.currentTimeMillis();
+        for (Cursor<?> cursor : due) {
+            synchronized (cursor) {
+                if (cursors.get(cursor.id) != cursor)
+                    continue;
+                long remaining = cursor.expiresAt - now;
+                if (remaining > 0) {
+                    leases.schedule(cursor, remaining);
+                } else {
+                    cursors.remove(cursor.id);
+                    LOGGER.info("Cursor " + cursor.id + " expired");
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        leases.close();
+    }
+
+    private static class Cursor<T> {
+        private final long id;
+        private final PageSource<T> source;
+        private long expiresAt;
+
+        private Cursor(long id, PageSource<T> source) {
+            this.id = id;
+            this.source = source;
+        }
+
+        private void renew(long leaseMillis) {
+            expiresAt = System.currentTimeMillis() + leaseMillis;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ar.edu.itba.pod.server.utils;
+
+import ar.edu.itba.pod.server.models.Flight;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * State and seats locks of several flights, always taken in flight code order so two threads
+ * working on the same flights can never wait on each other. Every lock is tried for a bounded
+ * time, and on a timeout everything is released and taken again after a short random pause.
+ * The locks actually acquired are remembered, so unlocking releases them even if a flight was
+ * frozen in between. Must not be requested while holding a store monitor or another flight lock.
+ */
+public class FlightLocks {
+    private static final long TRY_LOCK_MILLIS = 50;
+    private static final long MAX_BACKOFF_MILLIS = 10;
+
+    private final Deque<Lock> held = new ArrayDeque<>();
+
+    private FlightLocks() {
+    }
+
+    public static FlightLocks lock(Flight... flights) {
+        List<Flight> ordered = Arrays.stream(flights).distinct()
+                .sorted(Comparator.comparing(Flight::getCode)).collect(Collectors.toList());
+
+        FlightLocks locks = new FlightLocks();
+        try {
+            while (!locks.tryLockAll(ordered)) {
+                locks.unlock();
+                Thread.sleep(ThreadLocalRandom.current().nextLong(MAX_BACKOFF_MILLIS + 1));
+            }
+        } catch (InterruptedException e) {
+            locks.unlock();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while locking flights", e);
+        }
+        return locks;
+    }
+
+    /**
+     * Returns whether other threads are waiting for the state or seats lock of any of the flights
+     */
+    public static boolean hasWaiters(Collection<Flight> flights) {
+        return flights.stream().anyMatch(flight -> hasWaiters(flight.getStateLock()) ||
+                hasWaiters(flight.getSeatsLock()));
+    }
+
+    private static boolean hasWaiters(Lock lock) {
+        return lock instanceof ReentrantLock && ((ReentrantLock) lock).hasQueuedThreads();
+    }
+
+    private boolean tryLockAll(List<Flight> ordered) throws InterruptedException {
+        for (Flight flight : ordered) {
+            if (!tryLock(flight.getStateLock()) || !tryLock(flight.getSeatsLock()))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean tryLock(Lock lock) throws InterruptedException {
+        if (!lock.tryLock(TRY_LOCK_MILLIS, TimeUnit.MILLISECONDS))
+            return false;
+        held.push(lock);
+        return true;
+    }
+
+    public void unlock() {
+        while (!held.isEmpty()) {
+            held.pop().unlock();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ar.edu.itba.pod.server.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Maps passenger names and destinations to dense int ids so the server structures keep a single
+ * copy of every string. Names are only looked up again when a response crosses the RMI boundary.
+ * <p>
+ * Ids are never reused or freed: the dictionary holds every distinct name the store has seen
+ * until the server stops, even after its tickets are removed or its flights confirmed. Besides
+ * the string itself, each name costs between 20 and 40 bytes of tables. A store that sees a
+ * million distinct passengers keeps at most 40 MB of tables for them.
+ * <p>
+ * Lookups take no lock. Each bucket of the open addressing index packs the hash of a name with
+ * its id, so a probe compares strings only when the hashes match and never follows a boxed id.
+ * Registering a name is synchronized, and a grown index is published once it is complete.
+ */
+public class NameDictionary {
+    public static final int NO_ID = -1;
+    private static final long EMPTY = 0;
+
+    /**
+     * Hash of the name in the high half and id plus one in the low half, or EMPTY. Linear probing,
+     * kept at most half full.
+     */
+    private volatile AtomicLongArray index = new AtomicLongArray(2048);
+    private volatile String[] names = new String[1024];
+    private int size = 0;
+
+    public int idOf(String name) {
+        int id = find(name);
+        if (id != NO_ID)
+            return id;
+
+        synchronized (this) {
+            id = find(name);
+            if (id != NO_ID)
+                return id;
+
+            if (size == names.length)
+                names = Arrays.copyOf(names, size * 2);
+            if (2 * (size + 1) > index.length())
+                index = rehash(index.length() * 2);
+
+            // The name is stored before its bucket so readers that find the id always find the name
+            names[size] = name;
+            insert(index, name.hashCode(), size);
+            return size++;
+        }
+    }
+
+    /**
+     * Returns the id of an already known name, or NO_ID without registering it
+     */
+    public int find(String name) {
+        int hash = name.hashCode();
+        AtomicLongArray index = this.index;
+        int mask = index.length() - 1;
+        for (int bucket = bucketOf(hash, mask); ; bucket = (bucket + 1) & mask) {
+            long entry = index.get(bucket);
+            if (entry == EMPTY)
+                return NO_ID;
+            if ((int) (entry >>> 32) == hash) {
+                int id = (int) entry - 1;
+                if (names[id].equals(name))
+                    return id;
+            }
+        }
+    }
+
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private AtomicLongArray rehash(int capacity) {
+        AtomicLongArray grown = new AtomicLongArray(capacity);
+        for (int id = 0; id < size; id++) {
+            insert(grown, names[id].hashCode(), id);
+        }
+        return grown;
+    }
+
+    private static void insert(AtomicLongArray index, int hash, int id) {
+        int mask = index.length() - 1;
+        int bucket = bucketOf(hash, mask);
+        while (index.get(bucket) != EMPTY)
+            bucket = (bucket + 1) & mask;
+        index.set(bucket, (long) hash << 32 | (id + 1));
+    }
+
+    private static int bucketOf(int hash, int mask) {
+        return (hash * 0x9E3779B9 >>> 16 ^ hash * 0x9E3779B9) & mask;
+    }
+}
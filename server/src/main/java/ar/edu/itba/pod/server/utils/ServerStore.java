@@ -1,22 +1,37 @@
 package ar.edu.itba.pod.server.utils;
 
 import ar.edu.itba.pod.callbacks.NotificationHandler;
+import ar.edu.itba.pod.callbacks.SeatMapHandler;
 import ar.edu.itba.pod.models.*;
+import ar.edu.itba.pod.models.exceptions.flightExceptions.IllegalFlightStateException;
 import ar.edu.itba.pod.models.exceptions.notFoundExceptions.FlightNotFoundException;
 import ar.edu.itba.pod.server.models.Flight;
+import ar.edu.itba.pod.server.models.FlightSnapshot;
+import ar.edu.itba.pod.server.models.SeatHold;
+import ar.edu.itba.pod.server.replication.Mutation;
+import ar.edu.itba.pod.server.replication.Mutations;
+import ar.edu.itba.pod.server.replication.ReplicationLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.rmi.RemoteException;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
-public class ServerStore {
+public class ServerStore implements AutoCloseable {
     private static final Logger LOGGER = LoggerFactory.getLogger(ServerStore.class);
+    private static final long HOLD_TICK_MILLIS = 100;
+    private static final int HOLD_WHEEL_SIZE = 1024;
+    private static final long CURSOR_LEASE_MILLIS = 60_000;
+    private static final int SNAPSHOT_ATTEMPTS = 3;
+    private static final int MIN_DEFERRED_PURGE = 1024;
+
     private final Map<String, PlaneModel> planeModels = new HashMap<>();
     private final Map<String, FlightState> flightCodes = new HashMap<>();
     private final Map<String, Flight> pendingFlights = new HashMap<>();
@@ -24,19 +39,303 @@ public class ServerStore {
     private final Map<String, Flight> cancelledFlights = new HashMap<>();
 
     /**
-     * Map of Flight Code to Map of Passenger to handlers List
+     * Passenger names and destinations, shared by every flight of the store
+     */
+    private final NameDictionary names = new NameDictionary();
+
+    /**
+     * Map of Flight Code to Map of Passenger id to handlers List
      */
-    private final Map<String, Map<String, List<NotificationHandler>>> notifications = new HashMap<>();
+    private final Map<String, Map<Integer, List<NotificationHandler>>> notifications = new HashMap<>();
 
     private final Lock notificationsLock = new ReentrantLock();
 
+    /**
+     * Map of Flight Code to the handlers following its seat map
+     */
+    private final Map<String, List<SeatMapHandler>> seatMapHandlers = new HashMap<>();
+
     private final ExecutorService executor = Executors.newCachedThreadPool();
 
+    /**
+     * Builds the per-flight parts of batch queries, one task per core
+     */
+    private final ForkJoinPool queryPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private final TimingWheel<SeatHold> seatHolds = new TimingWheel<>(HOLD_TICK_MILLIS, HOLD_WHEEL_SIZE,
+            this::expireSeatHolds);
+
+    /**
+     * Flight codes this server owns, the whole hash space unless it is one shard of a fleet
+     */
+    private final ShardMap shardMap;
+    private final int shard;
+
+    /**
+     * Open cursors of the results handed out a page at a time
+     */
+    private final CursorTable cursors;
+
+    /**
+     * The last snapshot taken, whose copies of the flights that did not change the next one shares
+     */
+    private volatile StoreSnapshot lastSnapshot = StoreSnapshot.EMPTY;
+
+    /**
+     * Where the changes are recorded for the backups, if this store is a primary with backups
+     */
+    private volatile ReplicationLog replicationLog;
+    /**
+     * Whether the thread recorded changes it has not waited for the backups on yet
+     */
+    private final ThreadLocal<Boolean> awaitingReplication = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * Expiry time of the holds of a backup, which only expire when the primary says so until it
+     * takes over
+     */
+    private Map<SeatHold, Long> deferredHolds;
+    private int deferredPurgeSize = MIN_DEFERRED_PURGE;
+
+    public ServerStore() {
+        this(new ShardMap(1), 0);
+    }
+
+    public ServerStore(ShardMap shardMap, int shard) {
+        if (shard < 0 || shard >= shardMap.getShards())
+            throw new IllegalArgumentException("Shard " + shard + " is out of range");
+        this.shardMap = shardMap;
+        this.shard = shard;
+        this.cursors = new CursorTable(shard, CURSOR_LEASE_MILLIS);
+    }
+
+    public boolean ownsFlight(String flightCode) {
+        return shardMap.shardOf(flightCode) == shard;
+    }
+
 
     public Map<String, PlaneModel> getPlaneModels() {
         return planeModels;
     }
 
+    public CursorTable getCursors() {
+        return cursors;
+    }
+
+    public NameDictionary getNames() {
+        return names;
+    }
+
+    public void setReplicationLog(ReplicationLog replicationLog) {
+        this.replicationLog = replicationLog;
+    }
+
+    /**
+     * Ships the change to the backups. Must be called holding the locks that ordered it, so
+     * backups apply the changes of each flight in the same order. It does not wait for slow
+     * backups, the caller does in {@link #awaitReplication()} once it released those locks.
+     */
+    public void record(Mutation mutation) {
+        ReplicationLog log = replicationLog;
+        if (log != null) {
+            log.append(mutation);
+            awaitingReplication.set(true);
+        }
+    }
+
+    /**
+     * Waits while the backups are too far behind, if the thread recorded any change since it last
+     * waited. Must be called holding no flight lock nor store monitor.
+     */
+    public void awaitReplication() {
+        if (!awaitingReplication.get())
+            return;
+        awaitingReplication.set(false);
+        ReplicationLog log = replicationLog;
+        if (log != null)
+            log.awaitLag();
+    }
+
+    /**
+     * Runs the processor on the pending flight with that code while holding its locks, and
+     * publishes the seat changes it made. Changes to a single pending flight go through here
+     * keyed by its code, so each is a function of that flight alone.
+     */
+    public <T> T processPendingFlight(String flightCode, Function<Flight, T> processor) {
+        Flight flight;
+        synchronized (pendingFlights) {
+            flight = Optional.ofNullable(pendingFlights.get(flightCode))
+                    .orElseThrow(IllegalFlightStateException::new);
+        }
+        return processPendingFlight(flight, processor);
+    }
+
+    /**
+     * Same as {@link #processPendingFlight(String, Function)} for a flight already looked up,
+     * failing if it stopped being pending since
+     */
+    public <T> T processPendingFlight(Flight flight, Function<Flight, T> processor) {
+        T result;
+        FlightLocks locks = FlightLocks.lock(flight);
+        try {
+            if (flight.getState() != FlightState.PENDING)
+                throw new IllegalFlightStateException();
+
+            long version = flight.getVersion();
+            result = processor.apply(flight);
+            if (flight.getVersion() != version)
+                publishSeatMapChanges(flight, version);
+        } finally {
+            locks.unlock();
+        }
+        awaitReplication();
+        return result;
+    }
+
+    public void scheduleHoldExpiry(SeatHold hold, long ttlMillis) {
+        synchronized (seatHolds) {
+            if (deferredHolds != null) {
+                // Holds of a store that only applies a log never expire by themselves, so the ones
+                // its entries released are dropped once in a while. That log is applied by a single
+                // thread, the one scheduling them, so nothing changes the flights meanwhile.
+                if (deferredHolds.size() >= deferredPurgeSize) {
+                    deferredHolds.keySet().removeIf(deferred -> !isCurrent(deferred));
+                    deferredPurgeSize = Math.max(MIN_DEFERRED_PURGE, deferredHolds.size() * 2);
+                }
+                deferredHolds.put(hold, System.currentTimeMillis() + ttlMillis);
+                return;
+            }
+        }
+        seatHolds.schedule(hold, ttlMillis);
+    }
+
+    private boolean isCurrent(SeatHold hold) {
+        return hold.getFlight().getHold(names.nameOf(hold.getPassenger())) == hold;
+    }
+
+    /**
+     * When the deferred hold expires, or the current time if it is not deferred
+     */
+    public long getDeferredExpiry(SeatHold hold) {
+        synchronized (seatHolds) {
+            Long expiresAt = deferredHolds == null ? null : deferredHolds.get(hold);
+            return expiresAt == null ? System.currentTimeMillis() : expiresAt;
+        }
+    }
+
+    public void deferHoldExpiries() {
+        synchronized (seatHolds) {
+            if (deferredHolds == null)
+                deferredHolds = new IdentityHashMap<>();
+        }
+    }
+
+    /**
+     * Schedules the deferred holds that are still held to expire when they were due
+     */
+    public void resumeHoldExpiries() {
+        Map<SeatHold, Long> holds;
+        synchronized (seatHolds) {
+            holds = deferredHolds;
+            deferredHolds = null;
+        }
+        if (holds == null)
+            return;
+
+        long now = System.currentTimeMillis();
+        holds.forEach((hold, expiresAt) -> {
+            if (isCurrent(hold))
+                seatHolds.schedule(hold, Math.max(0, expiresAt - now));
+        });
+    }
+
+    /**
+     * Drops every plane model, flight and passenger handler, so a backup can load an image of its
+     * primary instead. Seat map followers are kept, see {@link #republishSeatMaps()}.
+     */
+    public void clear() {
+        synchronized (flightCodes) {
+            for (FlightState state : FlightState.values()) {
+                Map<String, Flight> flights = getFlightsByState(state);
+                synchronized (flights) {
+                    flights.clear();
+                }
+            }
+            flightCodes.clear();
+            planeModels.clear();
+        }
+        notificationsLock.lock();
+        notifications.clear();
+        notificationsLock.unlock();
+        synchronized (seatHolds) {
+            if (deferredHolds != null)
+                deferredHolds.clear();
+        }
+        lastSnapshot = StoreSnapshot.EMPTY;
+    }
+
+    /**
+     * Sends the whole seat map to the followers of every pending flight, and closes the seat map
+     * of the flights that are no longer pending, once the store was loaded again
+     */
+    public void republishSeatMaps() {
+        List<String> followed;
+        synchronized (seatMapHandlers) {
+            followed = new ArrayList<>(seatMapHandlers.keySet());
+        }
+
+        for (String flightCode : followed) {
+            Flight flight;
+            try {
+                flight = getFlight(flightCode);
+            } catch (FlightNotFoundException e) {
+                flight = null;
+            }
+            if (flight == null || flight.getState() != FlightState.PENDING) {
+                closeSeatMap(flightCode, flight == null ? FlightState.CANCELED : flight.getState());
+                continue;
+            }
+            FlightLocks locks = FlightLocks.lock(flight);
+            try {
+                publishSeatMapChanges(flight, -1);
+            } finally {
+                locks.unlock();
+            }
+        }
+    }
+
+    /**
+     * Frees the seats of the expired holds, with one task per flight so each one is locked once
+     */
+    private void expireSeatHolds(List<SeatHold> holds) {
+        Map<Flight, List<SeatHold>> byFlight = new IdentityHashMap<>();
+        for (SeatHold hold : holds) {
+            byFlight.computeIfAbsent(hold.getFlight(), k -> new ArrayList<>()).add(hold);
+        }
+
+        byFlight.forEach((flight, flightHolds) -> executor.submit(() -> {
+            int expired = 0;
+            FlightLocks locks = FlightLocks.lock(flight);
+            try {
+                long version = flight.getVersion();
+                for (SeatHold hold : flightHolds) {
+                    if (flight.expireHold(hold)) {
+                        expired++;
+                        record(new Mutations.ReleaseHold(flight.getCode(), names.nameOf(hold.getPassenger()),
+                                hold.getRow(), hold.getSeat()));
+                    }
+                }
+                if (expired > 0)
+                    publishSeatMapChanges(flight, version);
+            } finally {
+                locks.unlock();
+            }
+            awaitReplication();
+            if (expired > 0)
+                LOGGER.info(expired + " seat holds expired on flight " + flight.getCode());
+        }));
+    }
+
 
     /**
      * Registers a user to be notified.
@@ -49,47 +348,56 @@ public class ServerStore {
         if (handlers.isEmpty())
             return;
 
-        Map<String, List<NotificationHandler>> flightNotifications = computeFlightNotifications(
-                notification.getOldCode());
+        addHandlers(notification.getOldCode(), passenger, handlers);
+
+        submitNotificationTask(() -> handlers.forEach(handler -> {
+            try {
+                handler.notifyRegister(notification);
+            } catch (RemoteException e) {
+                LOGGER.error("Error notifying register", e);
+            }
+        }));
+    }
+
+    /**
+     * Adds the handlers of the passenger on the flight without notifying them
+     */
+    public void addHandlers(String flightCode, String passenger, List<NotificationHandler> handlers) {
+        if (handlers.isEmpty())
+            return;
+
+        Map<Integer, List<NotificationHandler>> flightNotifications = computeFlightNotifications(flightCode);
 
         List<NotificationHandler> passengerNotifications;
         synchronized (flightNotifications) {
             passengerNotifications = flightNotifications
-                    .computeIfAbsent(passenger, k -> new ArrayList<>());
+                    .computeIfAbsent(names.idOf(passenger), k -> new ArrayList<>());
         }
 
         synchronized (passengerNotifications) {
             passengerNotifications.addAll(handlers);
         }
-
-        submitNotificationTask(() -> handlers.forEach(handler -> {
-            try {
-                handler.notifyRegister(notification);
-            } catch (RemoteException e) {
-                LOGGER.error("Error notifying register", e);
-            }
-        }));
     }
 
     public void submitNotificationTask(Runnable task) {
         executor.submit(task);
     }
 
-    public Map<String, List<NotificationHandler>> getFlightNotifications(String flightCode) {
+    public Map<Integer, List<NotificationHandler>> getFlightNotifications(String flightCode) {
         return lockFlightNotifications(() -> notifications.get(flightCode));
     }
 
-    public Map<String, List<NotificationHandler>> computeFlightNotifications(String flightCode) {
+    public Map<Integer, List<NotificationHandler>> computeFlightNotifications(String flightCode) {
         return lockFlightNotifications(() -> notifications.computeIfAbsent(flightCode, k -> new HashMap<>()));
     }
 
 
     public List<NotificationHandler> getHandlers(String flightCode, String passenger) {
-        return lockHandlers(flightCode, notifications -> notifications.get(passenger));
+        return lockHandlers(flightCode, notifications -> notifications.get(names.find(passenger)));
     }
 
     public List<NotificationHandler> popHandlers(String flightCode, String passenger) {
-        return lockHandlers(flightCode, notifications -> notifications.remove(passenger));
+        return lockHandlers(flightCode, notifications -> notifications.remove(names.find(passenger)));
     }
 
     public void removeFlightNotifications(String flightCode) {
@@ -100,9 +408,9 @@ public class ServerStore {
 
     private List<NotificationHandler> lockHandlers(
             String flightCode,
-            Function<Map<String, List<NotificationHandler>>, List<NotificationHandler>> getter) {
+            Function<Map<Integer, List<NotificationHandler>>, List<NotificationHandler>> getter) {
 
-        Map<String, List<NotificationHandler>> flightNotifications = getFlightNotifications(flightCode);
+        Map<Integer, List<NotificationHandler>> flightNotifications = getFlightNotifications(flightCode);
 
         if (flightNotifications == null)
             return Collections.emptyList();
@@ -119,8 +427,8 @@ public class ServerStore {
         return notificationHandlers;
     }
 
-    private Map<String, List<NotificationHandler>> lockFlightNotifications(Supplier<Map<String, List<NotificationHandler>>> fn) {
-        Map<String, List<NotificationHandler>> toReturn;
+    private Map<Integer, List<NotificationHandler>> lockFlightNotifications(Supplier<Map<Integer, List<NotificationHandler>>> fn) {
+        Map<Integer, List<NotificationHandler>> toReturn;
         notificationsLock.lock();
 
         toReturn = fn.get();
@@ -146,6 +454,129 @@ public class ServerStore {
                 notification.getDestination()), passenger, notificationHandlers);
     }
 
+    public void registerSeatMapHandler(String flightCode, SeatMapHandler handler) {
+        synchronized (seatMapHandlers) {
+            seatMapHandlers.computeIfAbsent(flightCode, k -> new ArrayList<>()).add(handler);
+        }
+    }
+
+    public void removeSeatMapHandler(String flightCode, SeatMapHandler handler) {
+        synchronized (seatMapHandlers) {
+            List<SeatMapHandler> handlers = seatMapHandlers.get(flightCode);
+            if (handlers != null && handlers.remove(handler) && handlers.isEmpty())
+                seatMapHandlers.remove(flightCode);
+        }
+    }
+
+    /**
+     * Pushes the rows changed after the given version to the flight followers.
+     * Must be called holding the flight seats lock so the delta matches the change.
+     */
+    public void publishSeatMapChanges(Flight flight, long sinceVersion) {
+        List<SeatMapHandler> handlers;
+        synchronized (seatMapHandlers) {
+            handlers = new ArrayList<>(seatMapHandlers.getOrDefault(flight.getCode(),
+                    Collections.emptyList()));
+        }
+        if (handlers.isEmpty())
+            return;
+
+        SeatMapDelta delta = flight.getSeatMapSince(sinceVersion);
+        handlers.forEach(handler -> submitNotificationTask(() -> {
+            try {
+                handler.notifySeatMapChanged(delta);
+            } catch (RemoteException e) {
+                LOGGER.error("Error pushing seat map changes, dropping handler", e);
+                removeSeatMapHandler(flight.getCode(), handler);
+            }
+        }));
+    }
+
+    public void closeSeatMap(String flightCode, FlightState state) {
+        List<SeatMapHandler> handlers;
+        synchronized (seatMapHandlers) {
+            handlers = seatMapHandlers.remove(flightCode);
+        }
+        if (handlers == null)
+            return;
+
+        handlers.forEach(handler -> submitNotificationTask(() -> {
+            try {
+                handler.notifyFlightClosed(flightCode, state);
+            } catch (RemoteException e) {
+                LOGGER.error("Error notifying seat map closed", e);
+            }
+        }));
+    }
+
+    /**
+     * Moves all the pending flights among the given ones to the new state, adding the outcome of
+     * each code to the results. The flights are looked up first and locked once the store monitors
+     * are released; those another change moved meanwhile are reported as not pending. Confirmed
+     * flights are frozen, and so are cancelled ones without tickets. Returns the flights that changed.
+     */
+    public List<Flight> changeFlightsState(List<String> codes, FlightState state,
+                                           List<FlightStateResult> results) {
+        List<Flight> candidates = new ArrayList<>();
+        synchronized (pendingFlights) {
+            for (String flightCode : codes) {
+                Optional.ofNullable(pendingFlights.get(flightCode)).ifPresent(candidates::add);
+            }
+        }
+
+        List<Flight> changed = new ArrayList<>();
+        FlightLocks locks = FlightLocks.lock(candidates.toArray(new Flight[0]));
+        try {
+            for (Flight flight : candidates) {
+                if (flight.getState() == FlightState.PENDING) {
+                    flight.setState(state);
+                    changed.add(flight);
+                }
+            }
+
+            Set<String> changedCodes = changed.stream().map(Flight::getCode)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            synchronized (flightCodes) {
+                synchronized (pendingFlights) {
+                    pendingFlights.keySet().removeAll(changedCodes);
+                }
+
+                Map<String, Flight> flights = getFlightsByState(state);
+                synchronized (flights) {
+                    for (Flight flight : changed) {
+                        flightCodes.put(flight.getCode(), state);
+                        flights.put(flight.getCode(), flight);
+                    }
+                }
+                if (!changed.isEmpty())
+                    record(new Mutations.ChangeState(new ArrayList<>(changedCodes), state));
+
+                Set<String> reported = new HashSet<>();
+                for (String flightCode : codes) {
+                    if (changedCodes.contains(flightCode) && reported.add(flightCode))
+                        results.add(new FlightStateResult(flightCode, state, null));
+                    else
+                        results.add(new FlightStateResult(flightCode, flightCodes.get(flightCode),
+                                new IllegalFlightStateException().getMessage()));
+                }
+            }
+        } finally {
+            locks.unlock();
+        }
+
+        for (Flight flight : changed) {
+            LOGGER.info("Flight " + flight.getCode() + " state changed to " + state);
+            closeSeatMap(flight.getCode(), state);
+
+            if (state == FlightState.CONFIRMED)
+                flight.freeze();
+            else
+                flight.freezeIfDrained();
+        }
+        awaitReplication();
+        return changed;
+    }
+
     public Map<String, Flight> getFlightsByState(FlightState state) {
         switch (state) {
             case PENDING:
@@ -182,7 +613,111 @@ public class ServerStore {
         }
     }
 
+    /**
+     * Returns the flights among the given codes under a single hold of the store monitors.
+     * Codes of unknown flights are left out.
+     */
+    public Map<String, Flight> getFlights(Collection<String> codes) {
+        Map<String, Flight> found = new HashMap<>();
+        synchronized (flightCodes) {
+            for (FlightState state : FlightState.values()) {
+                Map<String, Flight> flights = getFlightsByState(state);
+                synchronized (flights) {
+                    for (String flightCode : codes) {
+                        if (flightCodes.get(flightCode) == state)
+                            found.put(flightCode, flights.get(flightCode));
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns every flight as it was at one moment. Only the flights whose stamp moved since the
+     * last snapshot are copied, each under its own locks. Then the flights and their stamps are
+     * read again: if they all still match their copies, every copy held when that second read
+     * started. Otherwise the flights that changed are copied again, and after a few attempts all
+     * of them are locked at once while they are copied.
+     */
+    public StoreSnapshot snapshot() {
+        Map<String, FlightSnapshot> base = lastSnapshot.getFlightsByCode();
+        List<Flight> flights = listFlights();
+        for (int attempt = 1; ; attempt++) {
+            Map<String, FlightSnapshot> copies = new HashMap<>();
+            if (attempt <= SNAPSHOT_ATTEMPTS) {
+                for (Flight flight : flights) {
+                    FlightSnapshot copy = base.get(flight.getCode());
+                    if (copy == null || copy.getStamp() != flight.getStamp()) {
+                        FlightLocks locks = FlightLocks.lock(flight);
+                        try {
+                            copy = flight.snapshot();
+                        } finally {
+                            locks.unlock();
+                        }
+                    }
+                    copies.put(flight.getCode(), copy);
+                }
+            } else {
+                FlightLocks locks = FlightLocks.lock(flights.toArray(new Flight[0]));
+                try {
+                    for (Flight flight : flights) {
+                        FlightSnapshot copy = base.get(flight.getCode());
+                        copies.put(flight.getCode(), copy != null && copy.getStamp() == flight.getStamp()
+                                ? copy : flight.snapshot());
+                    }
+                } finally {
+                    locks.unlock();
+                }
+            }
+
+            flights = listFlights();
+            if (flights.size() == copies.size() && flights.stream().allMatch(flight ->
+                    copies.containsKey(flight.getCode()) && copies.get(flight.getCode()).getStamp() == flight.getStamp())) {
+                StoreSnapshot snapshot = new StoreSnapshot(copies);
+                lastSnapshot = snapshot;
+                return snapshot;
+            }
+            base = copies;
+        }
+    }
+
+    private List<Flight> listFlights() {
+        List<Flight> flights = new ArrayList<>();
+        synchronized (flightCodes) {
+            for (FlightState state : FlightState.values()) {
+                Map<String, Flight> byState = getFlightsByState(state);
+                synchronized (byState) {
+                    flights.addAll(byState.values());
+                }
+            }
+        }
+        return flights;
+    }
+
+    /**
+     * Applies the task to every item on the query pool and returns the results in the order of
+     * the items
+     */
+    public <T, R> List<R> mapInParallel(List<T> items, Function<T, R> task) {
+        if (items.size() < 2)
+            return items.stream().map(task).collect(Collectors.toList());
+        return queryPool.submit(() -> items.parallelStream().map(task).collect(Collectors.toList())).join();
+    }
+
     public Map<String, FlightState> getFlightCodes() {
         return flightCodes;
     }
+
+    /**
+     * Stops the threads of the store. Holds stop expiring, cursors stop timing out and pending
+     * notifications are dropped.
+     */
+    @Override
+    public void close() {
+        seatHolds.close();
+        cursors.close();
+        executor.shutdownNow();
+        queryPool.shutdownNow();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package ar.edu.itba.pod.server.utils;
+
+import ar.edu.itba.pod.models.FlightState;
+import ar.edu.itba.pod.models.exceptions.notFoundExceptions.FlightNotFoundException;
+import ar.edu.itba.pod.server.models.FlightSnapshot;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Every flight of a store as it was at one moment. Nothing in it changes, so it is read without
+ * any lock.
+ */
+public class StoreSnapshot {
+    static final StoreSnapshot EMPTY = new StoreSnapshot(Collections.emptyMap());
+
+    private final Map<String, FlightSnapshot> flights;
+    private final long takenAt = System.currentTimeMillis();
+
+    StoreSnapshot(Map<String, FlightSnapshot> flights) {
+        this.flights = Collections.unmodifiableMap(flights);
+    }
+
+    public FlightSnapshot getFlight(String flightCode) {
+        return Optional.ofNullable(flights.get(flightCode)).orElseThrow(FlightNotFoundException::new);
+    }
+
+    /**
+     * The flight, or null if the store did not have it
+     */
+    public FlightSnapshot findFlight(String flightCode) {
+        return flights.get(flightCode);
+    }
+
+    public Collection<FlightSnapshot> getFlights() {
+        return flights.values();
+    }
+
+    public List<FlightSnapshot> getFlights(FlightState state) {
+        return flights.values().stream().filter(flight -> flight.getState() == state)
+                .collect(Collectors.toList());
+    }
+
+    public long getTakenAt() {
+        return takenAt;
+    }
+
+    Map<String, FlightSnapshot> getFlightsByCode() {
+        return flights;
+    }
+}
@@ -0,0 +1,101 @@
+package ar.edu.itba.pod.server.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel. Items are dropped into the bucket of the tick they expire on, and a single
+ * timer thread advances one bucket per tick, handing every item that expired on it to the expiry
+ * consumer at once. Scheduling is O(1) and there is no thread or timer task per item.
+ * Expirations are accurate to one tick.
+ */
+public class TimingWheel<T> implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimingWheel.class);
+
+    private final long tickMillis;
+    private final List<List<Entry<T>>> buckets;
+    private final int mask;
+    private final Consumer<List<T>> onExpire;
+    private final ScheduledExecutorService timer;
+
+    private long tick = 0;
+    private int size = 0;
+
+    /**
+     * The wheel size is rounded up to a power of two. Delays longer than a full turn stay in their
+     * bucket until their turn comes.
+     */
+    public TimingWheel(long tickMillis, int wheelSize, Consumer<List<T>> onExpire) {
+        this.tickMillis = tickMillis;
+        int capacity = Integer.highestOneBit(Math.max(wheelSize, 2) * 2 - 1);
+        this.buckets = new ArrayList<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.mask = capacity - 1;
+        this.onExpire = onExpire;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "timing-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void schedule(T item, long delayMillis) {
+        long deadline = tick + Math.max(1, (delayMillis + tickMillis - 1) / tickMillis);
+        buckets.get((int) (deadline & mask)).add(new Entry<>(item, deadline));
+        size++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void advance() {
+        List<T> expired = new ArrayList<>();
+        synchronized (this) {
+            tick++;
+            int bucket = (int) (tick & mask);
+            List<Entry<T>> pending = new ArrayList<>();
+            for (Entry<T> entry : buckets.get(bucket)) {
+                if (entry.deadline <= tick)
+                    expired.add(entry.item);
+                else
+                    pending.add(entry);
+            }
+            buckets.set(bucket, pending);
+            size -= expired.size();
+        }
+
+        try {
+            if (!expired.isEmpty())
+                onExpire.accept(expired);
+        } catch (RuntimeException e) {
+            // An exception would cancel the timer, and with it every later expiration
+            LOGGER.error("Error expiring timing wheel items", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    private static class Entry<T> {
+        private final T item;
+        private final long deadline;
+
+        private Entry(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -19,6 +19,8 @@ public class TestConstants {
     public static final String FLIGHT_CODE_1 = "AA100";
     public static final String FLIGHT_CODE_2 = "AA200";
     public static final String FLIGHT_CODE_3 = "AA300";
+    public static final String FLIGHT_CODE_4 = "AA400";
+    public static final String FLIGHT_CODE_5 = "AA500";
     public static final String DESTINATION_1 = "JFK";
     public static final String DESTINATION_2 = "ICN";
 
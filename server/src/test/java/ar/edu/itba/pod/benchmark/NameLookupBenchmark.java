@@ -0,0 +1,95 @@
+package ar.edu.itba.pod.benchmark;
+
+import ar.edu.itba.pod.models.PlaneModel;
+import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.Ticket;
+import ar.edu.itba.pod.server.models.Flight;
+import ar.edu.itba.pod.server.utils.NameDictionary;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures the heap retained by a store's worth of flights and how long it takes to look a
+ * passenger up by name. It is not a test; run it by hand against the test classpath:
+ * <pre>
+ * java -Xmx2g -cp ... ar.edu.itba.pod.benchmark.NameLookupBenchmark [flights] [ticketsPerFlight] [distinctNames]
+ * </pre>
+ * The names looked up are equal copies of the stored ones, as they arrive from a client.
+ */
+public class NameLookupBenchmark {
+    private static final int ROUNDS = 5;
+    private static final int LOOKUPS = 1_000_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int flightCount = intArg(args, 0, 2000);
+        int ticketsPerFlight = intArg(args, 1, 1000);
+        int distinctNames = intArg(args, 2, 600_000);
+
+        Map<String, int[]> categories = new HashMap<>();
+        categories.put("BUSINESS", new int[] {10, 10});
+        categories.put("PREMIUM_ECONOMY", new int[] {20, 10});
+        categories.put("ECONOMY", new int[] {ticketsPerFlight / 10, 10});
+        PlaneModel model = new PlaneModel("Benchmark", categories);
+
+        String[] passengers = new String[distinctNames];
+        for (int i = 0; i < distinctNames; i++)
+            passengers[i] = "Passenger " + i;
+        Random random = new Random(42);
+        int[] offsets = new int[flightCount];
+
+        long heapBefore = usedHeap();
+        NameDictionary names = new NameDictionary();
+        Flight[] flights = new Flight[flightCount];
+        for (int f = 0; f < flightCount; f++) {
+            offsets[f] = random.nextInt(distinctNames);
+            List<Ticket> tickets = new ArrayList<>(ticketsPerFlight);
+            for (int t = 0; t < ticketsPerFlight; t++) {
+                tickets.add(new Ticket(RowCategory.ECONOMY, passengers[(offsets[f] + t) % distinctNames],
+                        "Destination " + (f % 50)));
+            }
+            flights[f] = new Flight(names, model, "F" + f, "Destination " + (f % 50), tickets);
+        }
+        long heapAfter = usedHeap();
+        System.out.printf("%d flights x %d tickets, %d distinct names: %.1f MB retained%n",
+                flightCount, ticketsPerFlight, distinctNames, (heapAfter - heapBefore) / 1e6);
+
+        int[] queryFlights = new int[LOOKUPS];
+        String[] queryNames = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            int f = random.nextInt(flightCount);
+            queryFlights[i] = f;
+            queryNames[i] = new String(passengers[(offsets[f] + random.nextInt(ticketsPerFlight)) % distinctNames]);
+        }
+
+        for (int round = 1; round <= 2 * ROUNDS; round++) {
+            long start = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < LOOKUPS; i++) {
+                if (flights[queryFlights[i]].hasTicket(queryNames[i]))
+                    found++;
+            }
+            long elapsed = System.nanoTime() - start;
+            if (found != LOOKUPS)
+                throw new IllegalStateException("Only " + found + " tickets found");
+            if (round > ROUNDS)
+                System.out.printf("hasTicket: %.0f ns/op%n", (double) elapsed / LOOKUPS);
+        }
+    }
+
+    private static int intArg(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
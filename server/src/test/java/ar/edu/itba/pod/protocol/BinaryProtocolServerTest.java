@@ -0,0 +1,273 @@
+package ar.edu.itba.pod.protocol;
+
+import ar.edu.itba.pod.assets.TestConstants;
+import ar.edu.itba.pod.callbacks.SeatMapHandler;
+import ar.edu.itba.pod.interfaces.FlightManagerService;
+import ar.edu.itba.pod.interfaces.SeatManagerService;
+import ar.edu.itba.pod.interfaces.SeatQueryService;
+import ar.edu.itba.pod.models.FlightState;
+import ar.edu.itba.pod.models.Notification;
+import ar.edu.itba.pod.models.ResponseRow;
+import ar.edu.itba.pod.models.ReticketingForecast;
+import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.SeatMapDelta;
+import ar.edu.itba.pod.models.SeatMapResult;
+import ar.edu.itba.pod.models.SeatOperation;
+import ar.edu.itba.pod.models.SeatOperationResult;
+import ar.edu.itba.pod.models.Ticket;
+import ar.edu.itba.pod.models.exceptions.seatExceptions.SeatAlreadyTakenException;
+import ar.edu.itba.pod.server.protocol.BinaryProtocolServer;
+import ar.edu.itba.pod.server.service.FlightManagerServiceImpl;
+import ar.edu.itba.pod.server.service.SeatManagerServiceImpl;
+import ar.edu.itba.pod.server.service.SeatQueryServiceImpl;
+import ar.edu.itba.pod.server.utils.ServerStore;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Method;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.rmi.Remote;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryProtocolServerTest {
+    private static final int HANDLER_ID = 7;
+
+    private final SeatMapHandler handler = new SeatMapHandler() {
+        @Override
+        public void notifySeatMapChanged(SeatMapDelta delta) {
+        }
+
+        @Override
+        public void notifyFlightClosed(String flightCode, FlightState state) {
+        }
+    };
+
+    private final BinaryCodec codec = new BinaryCodec(new BinaryCodec.Callbacks() {
+        @Override
+        public int export(Remote handler) {
+            return HANDLER_ID;
+        }
+
+        @Override
+        public Remote resolve(Class<? extends Remote> type, int id) {
+            return handler;
+        }
+    }, true);
+
+    @Test
+    public void testModelsRoundTrip() throws IOException {
+        Ticket ticket = new Ticket(RowCategory.BUSINESS, TestConstants.PASSENGER_1, TestConstants.DESTINATION_1);
+        ticket.setSeat(TestConstants.ROW_1, TestConstants.SEAT_2);
+        Notification notification = new Notification(TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1,
+                RowCategory.ECONOMY, TestConstants.ROW_5, TestConstants.SEAT_1, RowCategory.BUSINESS,
+                TestConstants.ROW_1, TestConstants.SEAT_2);
+        Map<Integer, ResponseRow> rows = new LinkedHashMap<>();
+        rows.put(TestConstants.ROW_2, new ResponseRow(RowCategory.PREMIUM_ECONOMY, new char[]{'*', 'M', '#'}));
+        SeatOperation operation = new SeatOperation(SeatOperation.Type.MOVE, TestConstants.PASSENGER_1,
+                TestConstants.ROW_1, TestConstants.SEAT_2);
+
+        Ticket readTicket = (Ticket) roundTrip(ticket);
+        assertEquals(ticket, readTicket);
+        assertEquals(Integer.valueOf(TestConstants.ROW_1), readTicket.getRow());
+        assertEquals(Character.valueOf(TestConstants.SEAT_2), readTicket.getCol());
+
+        Notification readNotification = (Notification) roundTrip(notification);
+        assertEquals(RowCategory.ECONOMY, readNotification.getOldCategory());
+        assertEquals(Character.valueOf(TestConstants.SEAT_2), readNotification.getNewCol());
+        assertNull(readNotification.getNewCode());
+
+        SeatMapDelta delta = (SeatMapDelta) roundTrip(new SeatMapDelta(TestConstants.FLIGHT_CODE_1, 3, 5, false, rows));
+        assertEquals(5, delta.getVersion());
+        assertArrayEquals(new char[]{'*', 'M', '#'}, delta.getRows().get(TestConstants.ROW_2).getPassengerInitials());
+
+        SeatOperationResult result = (SeatOperationResult) roundTrip(new SeatOperationResult(operation, null, "error"));
+        assertEquals(SeatOperation.Type.MOVE, result.getOperation().getType());
+        assertEquals(TestConstants.SEAT_2, result.getOperation().getSeat());
+        assertFalse(result.isSuccessful());
+
+        SeatMapResult seatMap = (SeatMapResult) roundTrip(new SeatMapResult(TestConstants.FLIGHT_CODE_1,
+                Arrays.asList(rows.get(TestConstants.ROW_2)), null));
+        assertTrue(seatMap.isSuccessful());
+        assertArrayEquals(new char[]{'*', 'M', '#'}, seatMap.getRows().get(0).getPassengerInitials());
+
+        ReticketingForecast forecast = (ReticketingForecast) roundTrip(new ReticketingForecast(4,
+                Collections.singletonMap(TestConstants.DESTINATION_2, Collections.singletonMap(RowCategory.ECONOMY, 2))));
+        assertEquals(4, forecast.getChanged());
+        assertEquals(2, forecast.getUnchanged());
+
+        assertSame(handler, roundTrip(handler));
+        assertArrayEquals(new int[]{2, 3}, (int[]) ((Map<?, ?>) roundTrip(new HashMap<>(TestConstants.SEAT_CATEGORIES)))
+                .get("BUSINESS"));
+    }
+
+    @Test
+    public void testPipelinedCallsShareTheStore() throws Throwable {
+        ServerStore store = new ServerStore();
+        List<Remote> services = Arrays.asList(new FlightManagerServiceImpl(store),
+                new SeatManagerServiceImpl(store), new SeatQueryServiceImpl(store));
+
+        try (BinaryProtocolServer server = new BinaryProtocolServer(0, services, 4);
+             Socket socket = new Socket("localhost", server.getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            send(out, call(1, FlightManagerService.class, "addPlaneModel",
+                    TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES));
+            assertNull(reply(in, 1));
+            send(out, call(2, FlightManagerService.class, "addFlight", TestConstants.PLANE_MODEL_STR_1,
+                    TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1));
+            assertNull(reply(in, 2));
+            send(out, call(3, SeatQueryService.class, "followSeatMap", TestConstants.FLIGHT_CODE_1, handler));
+            assertEquals(TestConstants.FLIGHT_CODE_1, ((SeatMapDelta) reply(in, 3)).getFlightCode());
+
+            // Written before reading any reply, so the server has all of them in flight at once
+            send(out, call(4, SeatManagerService.class, "assign", TestConstants.FLIGHT_CODE_1,
+                    TestConstants.PASSENGER_3, TestConstants.ROW_5, TestConstants.SEAT_1));
+            send(out, call(5, SeatManagerService.class, "assign", TestConstants.FLIGHT_CODE_1,
+                    TestConstants.PASSENGER_4, TestConstants.ROW_5, TestConstants.SEAT_2));
+            send(out, call(6, SeatManagerService.class, "getClass"));
+
+            Map<Integer, Object> replies = new HashMap<>();
+            int pushes = 0;
+            while (replies.size() < 3) {
+                byte[] frame = new byte[in.readInt()];
+                in.readFully(frame);
+                DataInputStream payload = new DataInputStream(new ByteArrayInputStream(frame));
+                int id = payload.readInt();
+                byte kind = payload.readByte();
+                if (kind == BinaryProtocol.PUSH) {
+                    assertEquals(HANDLER_ID, id);
+                    pushes++;
+                } else {
+                    Object value = codec.read(payload);
+                    replies.put(id, kind == BinaryProtocol.ERROR ? value : "ok");
+                }
+            }
+            assertEquals("ok", replies.get(4));
+            assertEquals("ok", replies.get(5));
+            assertTrue(replies.get(6) instanceof Throwable);
+            assertTrue(pushes <= 2);
+
+            send(out, call(7, SeatManagerService.class, "assign", TestConstants.FLIGHT_CODE_1,
+                    TestConstants.PASSENGER_1, TestConstants.ROW_5, TestConstants.SEAT_1));
+            assertThrows(SeatAlreadyTakenException.class, () -> reply(in, 7));
+        }
+
+        assertEquals(Integer.valueOf(TestConstants.ROW_5),
+                store.getFlight(TestConstants.FLIGHT_CODE_1).getTicket(TestConstants.PASSENGER_4).getRow());
+    }
+
+    @Test
+    public void testServerRejectsSerializedArguments() throws Throwable {
+        ServerStore store = new ServerStore();
+        List<Remote> services = Collections.singletonList(new FlightManagerServiceImpl(store));
+        try (BinaryProtocolServer server = new BinaryProtocolServer(0, services, 1);
+             Socket socket = new Socket("localhost", server.getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            send(out, call(1, FlightManagerService.class, "addPlaneModel", TestConstants.PLANE_MODEL_STR_1,
+                    new Gadget()));
+            assertThrows(StreamCorruptedException.class, () -> reply(in, 1));
+        }
+        assertFalse(Gadget.deserialized);
+        assertTrue(store.getPlaneModels().isEmpty());
+    }
+
+    @Test
+    public void testDeclaredLengthsMustFitTheFrame() throws Throwable {
+        // A list, a string, an int array and a char array declaring more than the frame holds
+        for (byte[] value : Arrays.asList(new byte[]{7, 0x7f, -1, -1, -1}, new byte[]{6, -1, -1, -1, -1},
+                new byte[]{9, 0, 0, 0, 2, 0, 0, 0, 1}, new byte[]{10, 0, 1, 0, 0})) {
+            assertThrows(StreamCorruptedException.class, () -> codec.read(new DataInputStream(
+                    new ByteArrayInputStream(value))));
+        }
+
+        ServerStore store = new ServerStore();
+        List<Remote> services = Collections.singletonList(new FlightManagerServiceImpl(store));
+        try (BinaryProtocolServer server = new BinaryProtocolServer(0, services, 1);
+             Socket socket = new Socket("localhost", server.getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            // addPlaneModel with a map declaring two billion entries
+            ByteBuffer frame = call(1, FlightManagerService.class, "addPlaneModel", TestConstants.PLANE_MODEL_STR_1,
+                    Collections.emptyMap());
+            frame.putInt(frame.limit() - 4, Integer.MAX_VALUE);
+            send(out, frame);
+            assertThrows(StreamCorruptedException.class, () -> reply(in, 1));
+
+            send(out, call(2, FlightManagerService.class, "addPlaneModel", TestConstants.PLANE_MODEL_STR_1,
+                    TestConstants.SEAT_CATEGORIES));
+            assertNull(reply(in, 2));
+        }
+    }
+
+    private Object roundTrip(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(new DataOutputStream(bytes), value);
+        return codec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    private ByteBuffer call(int id, Class<? extends Remote> service, String methodName, Object... args) throws IOException {
+        int method = 0;
+        for (Method candidate : BinaryProtocol.methods(service)) {
+            if (candidate.getName().equals(methodName) && candidate.getParameterCount() == args.length)
+                return codec.call(id, BinaryProtocol.SERVICES.indexOf(service), method, args);
+            method++;
+        }
+        // Not a method of the service, so the server has to answer it with an error
+        return codec.call(id, BinaryProtocol.SERVICES.indexOf(service), method, args);
+    }
+
+    /**
+     * Only written as a serialized value, and records whether anyone deserialized it
+     */
+    private static class Gadget implements Serializable {
+        private static volatile boolean deserialized = false;
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            deserialized = true;
+        }
+    }
+
+    private static void send(DataOutputStream out, ByteBuffer frame) throws IOException {
+        out.write(frame.array(), 0, frame.limit());
+    }
+
+    /**
+     * Reads frames until the reply to the call, skipping pushes, and throws it if it is an error
+     */
+    private Object reply(DataInputStream in, int callId) throws Throwable {
+        while (true) {
+            byte[] frame = new byte[in.readInt()];
+            in.readFully(frame);
+            DataInputStream payload = new DataInputStream(new ByteArrayInputStream(frame));
+            int id = payload.readInt();
+            byte kind = payload.readByte();
+            if (kind == BinaryProtocol.PUSH)
+                continue;
+            assertEquals(callId, id);
+            Object value = codec.read(payload);
+            if (kind == BinaryProtocol.ERROR)
+                throw (Throwable) value;
+            return value;
+        }
+    }
+}
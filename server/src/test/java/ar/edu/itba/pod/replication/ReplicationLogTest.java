@@ -0,0 +1,266 @@
+package ar.edu.itba.pod.replication;
+
+import ar.edu.itba.pod.assets.TestConstants;
+import ar.edu.itba.pod.models.FlightState;
+import ar.edu.itba.pod.models.ResponseRow;
+import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.server.models.Flight;
+import ar.edu.itba.pod.server.replication.LogEntry;
+import ar.edu.itba.pod.server.replication.Mutation;
+import ar.edu.itba.pod.server.replication.Mutations;
+import ar.edu.itba.pod.server.replication.ReplicationLog;
+import ar.edu.itba.pod.server.replication.StoreImage;
+import ar.edu.itba.pod.server.service.FlightManagerServiceImpl;
+import ar.edu.itba.pod.server.service.SeatManagerServiceImpl;
+import ar.edu.itba.pod.server.service.SeatQueryServiceImpl;
+import ar.edu.itba.pod.server.utils.ServerStore;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicationLogTest {
+
+    @Test
+    public void testBackupReplaysPrimaryChanges() throws Exception {
+        ServerStore primary = new ServerStore();
+        ReplicationLog log = new ReplicationLog(Integer.MAX_VALUE);
+        primary.setReplicationLog(log);
+        FlightManagerServiceImpl flightManagerService = new FlightManagerServiceImpl(primary);
+        SeatManagerServiceImpl seatManagerService = new SeatManagerServiceImpl(primary);
+
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1,
+                TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_2,
+                TestConstants.DESTINATION_2, TestConstants.TICKETS_2);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_3,
+                TestConstants.DESTINATION_1, new ArrayList<>());
+
+        seatManagerService.assign(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_1, TestConstants.ROW_1, TestConstants.SEAT_1);
+        seatManagerService.changeSeat(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_1, TestConstants.ROW_0, TestConstants.SEAT_2);
+        seatManagerService.hold(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_2, TestConstants.ROW_2, TestConstants.SEAT_1, 60);
+        seatManagerService.assignAuto(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_3,
+                Collections.singletonList(RowCategory.ECONOMY));
+        seatManagerService.assign(TestConstants.FLIGHT_CODE_2, TestConstants.PASSENGER_5, TestConstants.ROW_1, TestConstants.SEAT_2);
+        seatManagerService.changeFlight(TestConstants.PASSENGER_4, TestConstants.FLIGHT_CODE_1, TestConstants.FLIGHT_CODE_3);
+        flightManagerService.confirmFlight(TestConstants.FLIGHT_CODE_2);
+        flightManagerService.cancelFlight(TestConstants.FLIGHT_CODE_1);
+
+        ServerStore backup = new ServerStore();
+        backup.deferHoldExpiries();
+        for (LogEntry entry : log.awaitEntriesAfter(0, Integer.MAX_VALUE, 0)) {
+            copy(entry).getMutation().apply(backup);
+        }
+
+        assertEquals(primary.getFlightCodes(), backup.getFlightCodes());
+        for (String flightCode : primary.getFlightCodes().keySet()) {
+            assertEquals(seatMap(primary, flightCode), seatMap(backup, flightCode));
+            assertEquals(primary.getFlight(flightCode).getSortedTickets().stream().map(t -> t.getPassenger() +
+                            t.getRow() + t.getCol()).collect(Collectors.toList()),
+                    backup.getFlight(flightCode).getSortedTickets().stream().map(t -> t.getPassenger() +
+                            t.getRow() + t.getCol()).collect(Collectors.toList()));
+        }
+
+        Flight cancelled = backup.getFlight(TestConstants.FLIGHT_CODE_1);
+        assertEquals(FlightState.CANCELED, cancelled.getState());
+        assertEquals(1, cancelled.getHoldCount());
+        assertTrue(backup.getFlight(TestConstants.FLIGHT_CODE_2).isFrozen());
+        assertTrue(backup.getFlight(TestConstants.FLIGHT_CODE_3).hasTicket(TestConstants.PASSENGER_4));
+    }
+
+    @Test
+    public void testAwaitLagWaitsForSlowBackup() throws InterruptedException {
+        ReplicationLog log = new ReplicationLog(2);
+        Object backup = new Object();
+        log.acknowledge(backup, 0);
+        log.append(new Mutations.RemoveTicket(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_1));
+        log.append(new Mutations.RemoveTicket(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_2));
+
+        Thread appender = new Thread(() -> {
+            log.append(new Mutations.RemoveTicket(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_3));
+            log.awaitLag();
+        });
+        appender.start();
+        appender.join(300);
+        assertTrue(appender.isAlive());
+        assertEquals(3, log.getLastSequence());
+
+        log.acknowledge(backup, 2);
+        appender.join(1000);
+        assertFalse(appender.isAlive());
+        assertEquals(1, log.getLag());
+    }
+
+    @Test
+    public void testSlowBackupDoesNotStallReaders() throws Exception {
+        ServerStore primary = new ServerStore();
+        ReplicationLog log = new ReplicationLog(1);
+        primary.setReplicationLog(log);
+        FlightManagerServiceImpl flightManagerService = new FlightManagerServiceImpl(primary);
+        SeatManagerServiceImpl seatManagerService = new SeatManagerServiceImpl(primary);
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+
+        // Never acknowledges, so the new flight leaves the log a whole entry behind
+        Object backup = new Object();
+        log.acknowledge(backup, log.getLastSequence());
+        Thread adder = new Thread(() -> {
+            try {
+                flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1,
+                        TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        adder.start();
+        adder.join(300);
+        assertTrue(adder.isAlive());
+
+        // The flight is already published and its locks and monitors are free
+        assertEquals(FlightState.PENDING, flightManagerService.getFlightState(TestConstants.FLIGHT_CODE_1));
+        assertTrue(seatManagerService.isAvailable(TestConstants.FLIGHT_CODE_1, TestConstants.ROW_1,
+                TestConstants.SEAT_1));
+
+        log.removeBackup(backup);
+        adder.join(1000);
+        assertFalse(adder.isAlive());
+    }
+
+    @Test
+    public void testFlightIsLoggedBeforeItsSeats() throws Exception {
+        ServerStore primary = new ServerStore();
+        // Slow to log new flights, so an assignment racing the flight would be logged first
+        ReplicationLog log = new ReplicationLog(Integer.MAX_VALUE) {
+            @Override
+            public void append(Mutation mutation) {
+                if (mutation instanceof Mutations.AddFlight) {
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.append(mutation);
+            }
+        };
+        primary.setReplicationLog(log);
+        FlightManagerServiceImpl flightManagerService = new FlightManagerServiceImpl(primary);
+        SeatManagerServiceImpl seatManagerService = new SeatManagerServiceImpl(primary);
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+
+        int flights = 20;
+        Thread assigner = new Thread(() -> {
+            for (int i = 0; i < flights; i++) {
+                while (true) {
+                    try {
+                        seatManagerService.assign("F" + i, TestConstants.PASSENGER_1, TestConstants.ROW_1,
+                                TestConstants.SEAT_1);
+                        break;
+                    } catch (Exception e) {
+                        Thread.yield();
+                    }
+                }
+            }
+        });
+        assigner.start();
+        for (int i = 0; i < flights; i++) {
+            flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, "F" + i, TestConstants.DESTINATION_1,
+                    TestConstants.TICKETS_1);
+        }
+        assigner.join(10000);
+        assertFalse(assigner.isAlive());
+
+        ServerStore backup = new ServerStore();
+        backup.deferHoldExpiries();
+        for (LogEntry entry : log.awaitEntriesAfter(0, Integer.MAX_VALUE, 0)) {
+            copy(entry).getMutation().apply(backup);
+        }
+        for (int i = 0; i < flights; i++) {
+            assertEquals(seatMap(primary, "F" + i), seatMap(backup, "F" + i));
+        }
+    }
+
+    @Test
+    public void testBackupStartsFromImageOfDroppedEntries() throws Exception {
+        ServerStore primary = new ServerStore();
+        ReplicationLog log = new ReplicationLog(Integer.MAX_VALUE);
+        primary.setReplicationLog(log);
+        FlightManagerServiceImpl flightManagerService = new FlightManagerServiceImpl(primary);
+        SeatManagerServiceImpl seatManagerService = new SeatManagerServiceImpl(primary);
+
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1,
+                TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_2,
+                TestConstants.DESTINATION_2, TestConstants.TICKETS_2);
+        seatManagerService.assign(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_1, TestConstants.ROW_1, TestConstants.SEAT_1);
+        seatManagerService.hold(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_2, TestConstants.ROW_2, TestConstants.SEAT_1, 60);
+        seatManagerService.assign(TestConstants.FLIGHT_CODE_2, TestConstants.PASSENGER_5, TestConstants.ROW_1, TestConstants.SEAT_2);
+        flightManagerService.confirmFlight(TestConstants.FLIGHT_CODE_2);
+
+        // No backup is following, so every entry is folded into the checkpoint and dropped
+        for (int i = 0; i < 2500; i++) {
+            seatManagerService.changeSeat(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_1,
+                    i % 2 == 0 ? TestConstants.ROW_0 : TestConstants.ROW_1,
+                    i % 2 == 0 ? TestConstants.SEAT_2 : TestConstants.SEAT_1);
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while (log.getFirstSequence() == 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(log.getFirstSequence() > 1);
+        assertThrows(IllegalStateException.class, () -> log.awaitEntriesAfter(0, Integer.MAX_VALUE, 0));
+
+        Object follower = new Object();
+        assertFalse(log.register(follower, 0));
+        StoreImage image = copy(log.registerFromImage(follower));
+        assertTrue(image.getSequence() >= log.getFirstSequence() - 1);
+
+        ServerStore backup = new ServerStore();
+        backup.deferHoldExpiries();
+        for (Mutation mutation : image.getMutations()) {
+            mutation.apply(backup);
+        }
+        for (LogEntry entry : log.awaitEntriesAfter(image.getSequence(), Integer.MAX_VALUE, 0)) {
+            copy(entry).getMutation().apply(backup);
+        }
+
+        assertEquals(primary.getFlightCodes(), backup.getFlightCodes());
+        for (String flightCode : primary.getFlightCodes().keySet()) {
+            assertEquals(seatMap(primary, flightCode), seatMap(backup, flightCode));
+        }
+        assertEquals(1, backup.getFlight(TestConstants.FLIGHT_CODE_1).getHoldCount());
+        assertTrue(backup.getFlight(TestConstants.FLIGHT_CODE_2).isFrozen());
+        log.close();
+    }
+
+    private static List<String> seatMap(ServerStore store, String flightCode) {
+        return new SeatQueryServiceImpl(store).createResponse(flightCode, flight -> {
+            List<Integer> rows = new ArrayList<>();
+            for (int row = 0; row < flight.getRowCount(); row++) {
+                rows.add(row);
+            }
+            return rows;
+        }).stream().map(ResponseRow::getPassengerInitials).map(String::valueOf).collect(Collectors.toList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T copy(T value) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (T) in.readObject();
+        }
+    }
+}
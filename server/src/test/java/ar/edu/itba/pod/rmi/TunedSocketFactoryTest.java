@@ -0,0 +1,75 @@
+package ar.edu.itba.pod.rmi;
+
+import ar.edu.itba.pod.assets.TestConstants;
+import ar.edu.itba.pod.interfaces.SeatQueryService;
+import ar.edu.itba.pod.models.ResponseRow;
+import ar.edu.itba.pod.server.service.FlightManagerServiceImpl;
+import ar.edu.itba.pod.server.service.SeatManagerServiceImpl;
+import ar.edu.itba.pod.server.service.SeatQueryServiceImpl;
+import ar.edu.itba.pod.server.utils.ServerStore;
+import org.junit.jupiter.api.Test;
+
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TunedSocketFactoryTest {
+
+    @Test
+    public void testLargeRepliesAreCompressed() throws RemoteException {
+        ServerStore store = new ServerStore();
+        new FlightManagerServiceImpl(store).addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        new FlightManagerServiceImpl(store).addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1,
+                TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        new SeatManagerServiceImpl(store).assign(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_1,
+                TestConstants.ROW_1, TestConstants.SEAT_1);
+        SeatQueryServiceImpl seatQueryService = new SeatQueryServiceImpl(store);
+        List<String> expected = seatMap(seatQueryService.query(TestConstants.FLIGHT_CODE_1));
+
+        TunedSocketFactory compressing = new TunedSocketFactory(256);
+        SeatQueryService stub = (SeatQueryService) UnicastRemoteObject.exportObject(seatQueryService, 0,
+                compressing, compressing);
+        try {
+            long[] before = clientTraffic();
+            assertEquals(expected, seatMap(stub.query(TestConstants.FLIGHT_CODE_1)));
+            long[] after = clientTraffic();
+            assertTrue(after[0] - before[0] < after[1] - before[1], "The seat map should arrive deflated");
+        } finally {
+            UnicastRemoteObject.unexportObject(seatQueryService, true);
+        }
+
+        TunedSocketFactory plain = new TunedSocketFactory(0);
+        stub = (SeatQueryService) UnicastRemoteObject.exportObject(seatQueryService, 0, plain, plain);
+        try {
+            long[] before = clientTraffic();
+            assertEquals(expected, seatMap(stub.query(TestConstants.FLIGHT_CODE_1)));
+            long[] after = clientTraffic();
+            assertEquals(after[1] - before[1], after[0] - before[0]);
+            assertTrue(after[0] > before[0]);
+        } finally {
+            UnicastRemoteObject.unexportObject(seatQueryService, true);
+        }
+    }
+
+    /**
+     * Wire and payload bytes read by the client sockets of this JVM
+     */
+    private static long[] clientTraffic() {
+        long[] traffic = new long[2];
+        TunedSocketFactory.getStats().forEach((endpoint, stats) -> {
+            if (!endpoint.startsWith("*:")) {
+                traffic[0] += stats.getWireBytesRead();
+                traffic[1] += stats.getPayloadBytesRead();
+            }
+        });
+        return traffic;
+    }
+
+    private static List<String> seatMap(List<ResponseRow> rows) {
+        return rows.stream().map(row -> row.getRowCategory() + String.valueOf(row.getPassengerInitials()))
+                .collect(Collectors.toList());
+    }
+}
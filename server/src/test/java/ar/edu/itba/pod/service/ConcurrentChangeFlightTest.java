@@ -0,0 +1,85 @@
+package ar.edu.itba.pod.service;
+
+import ar.edu.itba.pod.assets.TestConstants;
+import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.Ticket;
+import ar.edu.itba.pod.server.service.FlightManagerServiceImpl;
+import ar.edu.itba.pod.server.service.SeatManagerServiceImpl;
+import ar.edu.itba.pod.server.utils.ServerStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+public class ConcurrentChangeFlightTest {
+    private static final int THREADS = 8;
+    private static final int PASSENGERS_PER_THREAD = 10;
+    private static final int ROUNDS = 200;
+
+    private final ServerStore store = new ServerStore();
+    private final FlightManagerServiceImpl flightManagerService = new FlightManagerServiceImpl(store);
+    private final SeatManagerServiceImpl seatManagerService = new SeatManagerServiceImpl(store);
+
+    @Test
+    public void testOppositeChangeFlightsDoNotDeadlock() throws Exception {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        List<Ticket> firstTickets = new ArrayList<>();
+        List<Ticket> secondTickets = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (int i = 0; i < PASSENGERS_PER_THREAD; i++) {
+                (thread % 2 == 0 ? firstTickets : secondTickets).add(new Ticket(RowCategory.ECONOMY,
+                        passenger(thread, i), TestConstants.DESTINATION_1));
+            }
+        }
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, firstTickets);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_2, TestConstants.DESTINATION_1, secondTickets);
+
+        AtomicInteger changes = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int id = thread;
+            String home = id % 2 == 0 ? TestConstants.FLIGHT_CODE_1 : TestConstants.FLIGHT_CODE_2;
+            String away = id % 2 == 0 ? TestConstants.FLIGHT_CODE_2 : TestConstants.FLIGHT_CODE_1;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int round = 0; round < ROUNDS; round++) {
+                    for (int i = 0; i < PASSENGERS_PER_THREAD; i++) {
+                        String passenger = passenger(id, i);
+                        seatManagerService.changeFlight(passenger, home, away);
+                        seatManagerService.listAlternativeFlights(away, passenger);
+                        seatManagerService.changeFlight(passenger, away, home);
+                        changes.addAndGet(2);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        });
+        executor.shutdown();
+
+        assertEquals(THREADS * PASSENGERS_PER_THREAD * ROUNDS * 2, changes.get());
+        assertEquals(firstTickets.size(), store.getPendingFlights().get(TestConstants.FLIGHT_CODE_1).getTicketCount());
+        assertEquals(secondTickets.size(), store.getPendingFlights().get(TestConstants.FLIGHT_CODE_2).getTicketCount());
+    }
+
+    private static String passenger(int thread, int i) {
+        return "Passenger " + thread + "-" + i;
+    }
+}
@@ -0,0 +1,101 @@
+package ar.edu.itba.pod.service;
+
+import ar.edu.itba.pod.assets.TestConstants;
+import ar.edu.itba.pod.models.CancelledTicket;
+import ar.edu.itba.pod.models.ResponseCancelledList;
+import ar.edu.itba.pod.models.ResponseRow;
+import ar.edu.itba.pod.models.ResultPage;
+import ar.edu.itba.pod.models.exceptions.notFoundExceptions.CursorNotFoundException;
+import ar.edu.itba.pod.server.service.CursorServiceImpl;
+import ar.edu.itba.pod.server.service.FlightManagerServiceImpl;
+import ar.edu.itba.pod.server.service.SeatManagerServiceImpl;
+import ar.edu.itba.pod.server.service.SeatQueryServiceImpl;
+import ar.edu.itba.pod.server.utils.CursorTable;
+import ar.edu.itba.pod.server.utils.ServerStore;
+import org.junit.jupiter.api.Test;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CursorServiceImplTest {
+    private final ServerStore store = new ServerStore();
+
+    private final FlightManagerServiceImpl flightManagerService = new FlightManagerServiceImpl(store);
+    private final SeatQueryServiceImpl seatQueryService = new SeatQueryServiceImpl(store);
+    private final CursorServiceImpl cursorService = new CursorServiceImpl(store);
+
+    @Test
+    public void testSeatMapPages() throws RemoteException {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        new SeatManagerServiceImpl(store).assign(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_1, TestConstants.ROW_5, TestConstants.SEAT_1);
+
+        ResultPage<ResponseRow> page = seatQueryService.queryPage(TestConstants.FLIGHT_CODE_1, 10);
+        assertEquals(10, page.getItems().size());
+        assertTrue(page.hasMore());
+
+        List<ResponseRow> rows = new ArrayList<>(page.getItems());
+        ResultPage<?> next = page;
+        while (next.hasMore()) {
+            next = cursorService.nextPage(next.getCursorId(), 10);
+            rows.addAll(next.getItems(ResponseRow.class));
+        }
+
+        assertEquals(initials(seatQueryService.query(TestConstants.FLIGHT_CODE_1)), initials(rows));
+        assertEquals(0, store.getCursors().size());
+        long cursorId = next.getCursorId();
+        assertThrows(CursorNotFoundException.class, () -> cursorService.nextPage(cursorId, 10));
+    }
+
+    @Test
+    public void testUnchangedTicketsPages() throws RemoteException {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        flightManagerService.cancelFlight(TestConstants.FLIGHT_CODE_1);
+
+        ResponseCancelledList list = flightManagerService.changeCancelledFlights(2);
+        assertEquals(0, list.getChanged());
+        assertEquals(2, list.getUnchangedTickets().size());
+        assertTrue(list.hasMoreTickets());
+
+        List<CancelledTicket> unchanged = new ArrayList<>(list.getUnchangedTickets());
+        ResultPage<?> page;
+        do {
+            page = cursorService.nextPage(list.getCursorId(), 2);
+            unchanged.addAll(page.getItems(CancelledTicket.class));
+        } while (page.hasMore());
+
+        assertEquals(TestConstants.TICKETS_1.size(), unchanged.size());
+        assertTrue(unchanged.stream().allMatch(t -> t.getFlightCode().equals(TestConstants.FLIGHT_CODE_1)));
+    }
+
+    @Test
+    public void testCursorLeaseExpires() throws InterruptedException {
+        List<Integer> items = IntStream.range(0, 10).boxed().collect(Collectors.toList());
+        try (CursorTable cursors = new CursorTable(3, 200)) {
+            ResultPage<?> page = cursors.open(CursorTable.PageSource.of(items), 3);
+            assertEquals(3, ResultPage.shardOf(page.getCursorId()));
+
+            // Every page renews the lease
+            for (int i = 0; i < 2; i++) {
+                Thread.sleep(120);
+                page = cursors.next(page.getCursorId(), 3);
+                assertTrue(page.hasMore());
+            }
+
+            Thread.sleep(1000);
+            long cursorId = page.getCursorId();
+            assertThrows(CursorNotFoundException.class, () -> cursors.next(cursorId, 3));
+            assertEquals(0, cursors.size());
+        }
+    }
+
+    private static List<String> initials(List<ResponseRow> rows) {
+        return rows.stream().map(row -> String.valueOf(row.getPassengerInitials())).collect(Collectors.toList());
+    }
+}
@@ -2,6 +2,7 @@ package ar.edu.itba.pod.service;
 
 import ar.edu.itba.pod.assets.TestConstants;
 import ar.edu.itba.pod.models.FlightState;
+import ar.edu.itba.pod.models.FlightStateResult;
 import ar.edu.itba.pod.models.ResponseCancelledList;
 import ar.edu.itba.pod.models.exceptions.flightExceptions.IllegalFlightStateException;
 import ar.edu.itba.pod.models.exceptions.flightExceptions.ModelAlreadyExistsException;
@@ -13,8 +14,13 @@ import ar.edu.itba.pod.server.service.FlightManagerServiceImpl;
 import org.junit.Test;
 
 import java.rmi.RemoteException;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class FlightManagerServiceImplTest {
     private final ServerStore store = new ServerStore();
@@ -127,6 +133,47 @@ public class FlightManagerServiceImplTest {
         flightManagerService.cancelFlight(TestConstants.FLIGHT_CODE_1);
     }
 
+    @Test
+    public void testCancelFlightsReportsEachFlight() throws RemoteException {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_2, TestConstants.DESTINATION_2, TestConstants.TICKETS_2);
+        flightManagerService.confirmFlight(TestConstants.FLIGHT_CODE_2);
+
+        List<FlightStateResult> results = flightManagerService.cancelFlights(Arrays.asList(
+                TestConstants.FLIGHT_CODE_1, TestConstants.FLIGHT_CODE_2, TestConstants.FLIGHT_CODE_3));
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccessful());
+        assertEquals(FlightState.CANCELED, results.get(0).getState());
+        assertFalse(results.get(1).isSuccessful());
+        assertEquals(FlightState.CONFIRMED, results.get(1).getState());
+        assertFalse(results.get(2).isSuccessful());
+        assertNull(results.get(2).getState());
+
+        assertEquals(FlightState.CANCELED, flightManagerService.getFlightState(TestConstants.FLIGHT_CODE_1));
+        assertEquals(FlightState.CONFIRMED, flightManagerService.getFlightState(TestConstants.FLIGHT_CODE_2));
+    }
+
+    @Test
+    public void testGetFlightStatesReportsEachFlight() throws RemoteException {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_2, TestConstants.DESTINATION_2, TestConstants.TICKETS_2);
+        flightManagerService.cancelFlight(TestConstants.FLIGHT_CODE_2);
+
+        List<FlightStateResult> results = flightManagerService.getFlightStates(Arrays.asList(
+                TestConstants.FLIGHT_CODE_3, TestConstants.FLIGHT_CODE_2, TestConstants.FLIGHT_CODE_1));
+
+        assertEquals(3, results.size());
+        assertFalse(results.get(0).isSuccessful());
+        assertNull(results.get(0).getState());
+        assertEquals(TestConstants.FLIGHT_CODE_2, results.get(1).getFlightCode());
+        assertEquals(FlightState.CANCELED, results.get(1).getState());
+        assertTrue(results.get(2).isSuccessful());
+        assertEquals(FlightState.PENDING, results.get(2).getState());
+    }
+
     @Test
     public void testChangeCancelledFlightsSuccessfully() throws RemoteException {
         flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
@@ -153,6 +200,41 @@ public class FlightManagerServiceImplTest {
         assertEquals(6, pendingFlight.getTickets().values().size());
     }
 
+    @Test
+    public void testCancelledTicketsMoveInBackground() throws RemoteException, InterruptedException {
+        FlightManagerServiceImpl eagerFlightManagerService = new FlightManagerServiceImpl(store, 0);
+        eagerFlightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        eagerFlightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        eagerFlightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_2, TestConstants.DESTINATION_1, TestConstants.TICKETS_2);
+
+        eagerFlightManagerService.cancelFlight(TestConstants.FLIGHT_CODE_1);
+        Flight pendingFlight = store.getPendingFlights().get(TestConstants.FLIGHT_CODE_2);
+        awaitTicketCount(pendingFlight, 6);
+
+        assertEquals(6, pendingFlight.getTicketCount());
+        ResponseCancelledList cancelledList = eagerFlightManagerService.changeCancelledFlights();
+        assertEquals(4, cancelledList.getChanged());
+        assertEquals(0, cancelledList.getUnchangedTickets().size());
+    }
+
+    @Test
+    public void testNewFlightTakesWaitingTickets() throws RemoteException, InterruptedException {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        flightManagerService.cancelFlight(TestConstants.FLIGHT_CODE_1);
+
+        ResponseCancelledList cancelledList = flightManagerService.changeCancelledFlights();
+        assertEquals(0, cancelledList.getChanged());
+        assertEquals(4, cancelledList.getUnchangedTickets().size());
+
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_2, TestConstants.DESTINATION_1, TestConstants.TICKETS_2);
+        Flight pendingFlight = store.getPendingFlights().get(TestConstants.FLIGHT_CODE_2);
+        awaitTicketCount(pendingFlight, 6);
+
+        assertEquals(6, pendingFlight.getTicketCount());
+        assertEquals(0, store.getCancelledFlights().get(TestConstants.FLIGHT_CODE_1).getTicketCount());
+    }
+
     @Test
     public void testChangeCancelledFlightsWithNoCancelledFlights() throws RemoteException {
         ResponseCancelledList cancelledList = flightManagerService.changeCancelledFlights();
@@ -160,4 +242,10 @@ public class FlightManagerServiceImplTest {
         assertEquals(0, cancelledList.getChanged());
         assertEquals(0, cancelledList.getUnchangedTickets().size());
     }
-}
\ No newline at end of file
+
+    private static void awaitTicketCount(Flight flight, int count) throws InterruptedException {
+        for (int i = 0; i < 50 && flight.getTicketCount() != count; i++) {
+            Thread.sleep(100);
+        }
+    }
+}
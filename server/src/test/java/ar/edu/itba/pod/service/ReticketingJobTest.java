@@ -0,0 +1,109 @@
+package ar.edu.itba.pod.service;
+
+import ar.edu.itba.pod.assets.TestConstants;
+import ar.edu.itba.pod.callbacks.ReticketingListener;
+import ar.edu.itba.pod.models.CancelledTicket;
+import ar.edu.itba.pod.models.ResponseCancelledList;
+import ar.edu.itba.pod.models.ResultPage;
+import ar.edu.itba.pod.models.ReticketingProgress;
+import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.Ticket;
+import ar.edu.itba.pod.server.service.CursorServiceImpl;
+import ar.edu.itba.pod.server.service.FlightManagerServiceImpl;
+import ar.edu.itba.pod.server.service.SeatManagerServiceImpl;
+import ar.edu.itba.pod.server.utils.ServerStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReticketingJobTest {
+    private static final int CANCELLED_TICKETS = 150;
+    private static final int SEATED_TICKETS = 40;
+    private static final int FIRST_ECONOMY_ROW = 5;
+
+    private final ServerStore store = new ServerStore();
+    private final FlightManagerServiceImpl flightManagerService = new FlightManagerServiceImpl(store);
+
+    @Test
+    public void testJobReportsEachCancelledFlight() throws Exception {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_2, TestConstants.DESTINATION_2, TestConstants.TICKETS_2);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_3, TestConstants.DESTINATION_1, Collections.emptyList());
+        flightManagerService.cancelFlight(TestConstants.FLIGHT_CODE_1);
+        flightManagerService.cancelFlight(TestConstants.FLIGHT_CODE_2);
+
+        List<ReticketingProgress> events = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<ResponseCancelledList> finished = new CompletableFuture<>();
+        ReticketingListener listener = new ReticketingListener() {
+            @Override
+            public void reticketingProgress(ReticketingProgress progress) {
+                events.add(progress);
+            }
+
+            @Override
+            public void reticketingFinished(long jobId, ResponseCancelledList result) {
+                finished.complete(result);
+            }
+        };
+
+        long jobId = flightManagerService.startReticketing(listener, 1);
+        ResponseCancelledList result = finished.get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, events.size());
+        assertTrue(events.stream().allMatch(progress -> progress.getJobId() == jobId));
+        ReticketingProgress last = events.get(1);
+        assertEquals(2, last.getFlightsDone());
+        assertEquals(2, last.getFlightsTotal());
+        assertEquals(TestConstants.TICKETS_1.size(), last.getChanged());
+        assertEquals(TestConstants.TICKETS_2.size(), last.getUnchanged());
+
+        assertEquals(TestConstants.TICKETS_1.size(), result.getChanged());
+        assertEquals(1, result.getUnchangedTickets().size());
+        assertTrue(result.hasMoreTickets());
+        ResultPage<?> page = new CursorServiceImpl(store).nextPage(result.getCursorId(), 10);
+        assertFalse(page.hasMore());
+        assertEquals(TestConstants.TICKETS_2.size() - 1, page.getItems().size());
+        assertTrue(page.getItems(CancelledTicket.class).stream().allMatch(t -> t.getFlightCode().equals(TestConstants.FLIGHT_CODE_2)));
+    }
+
+    @Test
+    public void testSeatOperationsRunBetweenChunks() throws Exception {
+        ServerStore store = new ServerStore();
+        FlightManagerServiceImpl flightManagerService = new FlightManagerServiceImpl(store, 0, 1);
+        SeatManagerServiceImpl seatManagerService = new SeatManagerServiceImpl(store);
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1,
+                tickets("cancelled", CANCELLED_TICKETS));
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_3, TestConstants.DESTINATION_1,
+                tickets("seated", SEATED_TICKETS));
+
+        flightManagerService.cancelFlight(TestConstants.FLIGHT_CODE_1);
+        for (int i = 0; i < SEATED_TICKETS; i++) {
+            seatManagerService.assign(TestConstants.FLIGHT_CODE_3, "seated" + i, FIRST_ECONOMY_ROW + i / 10,
+                    (char) ('A' + i % 10));
+        }
+
+        ResponseCancelledList result = flightManagerService.changeCancelledFlights();
+        assertEquals(CANCELLED_TICKETS, result.getChanged());
+        assertTrue(result.getUnchangedTickets().isEmpty());
+        for (int i = 0; i < SEATED_TICKETS; i++) {
+            assertFalse(seatManagerService.isAvailable(TestConstants.FLIGHT_CODE_3, FIRST_ECONOMY_ROW + i / 10,
+                    (char) ('A' + i % 10)));
+        }
+    }
+
+    private static List<Ticket> tickets(String prefix, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Ticket(RowCategory.ECONOMY, prefix + i, TestConstants.DESTINATION_1))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,89 @@
+package ar.edu.itba.pod.service;
+
+import ar.edu.itba.pod.assets.TestConstants;
+import ar.edu.itba.pod.models.FlightState;
+import ar.edu.itba.pod.models.ReticketingForecast;
+import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.exceptions.notFoundExceptions.FlightNotFoundException;
+import ar.edu.itba.pod.server.service.FlightManagerServiceImpl;
+import ar.edu.itba.pod.server.service.SeatManagerServiceImpl;
+import ar.edu.itba.pod.server.utils.ServerStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.rmi.RemoteException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReticketingSimulationTest {
+    private final ServerStore store = new ServerStore();
+    private final FlightManagerServiceImpl flightManagerService = new FlightManagerServiceImpl(store);
+    private final SeatManagerServiceImpl seatManagerService = new SeatManagerServiceImpl(store);
+
+    @BeforeEach
+    public void setUp() throws RemoteException {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_2, TestConstants.DESTINATION_2, TestConstants.TICKETS_2);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_3, TestConstants.DESTINATION_1, Collections.emptyList());
+    }
+
+    @Test
+    public void testSimulationLeavesFlightsUntouched() throws RemoteException {
+        ReticketingForecast forecast = flightManagerService.simulateReticketing(
+                Arrays.asList(TestConstants.FLIGHT_CODE_1, TestConstants.FLIGHT_CODE_2));
+
+        assertEquals(TestConstants.TICKETS_1.size(), forecast.getChanged());
+        assertEquals(TestConstants.TICKETS_2.size(), forecast.getUnchanged());
+        Map<RowCategory, Integer> waiting = forecast.getUnchangedByDestination().get(TestConstants.DESTINATION_2);
+        assertEquals(1, waiting.get(RowCategory.BUSINESS));
+        assertEquals(1, waiting.get(RowCategory.ECONOMY));
+
+        assertEquals(FlightState.PENDING, flightManagerService.getFlightState(TestConstants.FLIGHT_CODE_1));
+        assertEquals(TestConstants.TICKETS_1.size(), store.getFlight(TestConstants.FLIGHT_CODE_1).getTicketCount());
+        assertEquals(0, store.getFlight(TestConstants.FLIGHT_CODE_3).getTicketCount());
+    }
+
+    @Test
+    public void testSimulatedFlightsAreNotAlternatives() throws RemoteException {
+        ReticketingForecast forecast = flightManagerService.simulateReticketing(
+                Arrays.asList(TestConstants.FLIGHT_CODE_1, TestConstants.FLIGHT_CODE_3));
+
+        assertEquals(0, forecast.getChanged());
+        assertEquals(TestConstants.TICKETS_1.size(), forecast.getUnchanged());
+        assertThrows(FlightNotFoundException.class, () -> flightManagerService.simulateReticketing(
+                Collections.singletonList(TestConstants.FLIGHT_CODE_4)));
+    }
+
+    @Test
+    public void testSimulationMatchesReticketing() throws RemoteException {
+        ReticketingForecast forecast = flightManagerService.simulateReticketing(
+                Arrays.asList(TestConstants.FLIGHT_CODE_1, TestConstants.FLIGHT_CODE_2));
+
+        flightManagerService.cancelFlights(Arrays.asList(TestConstants.FLIGHT_CODE_1, TestConstants.FLIGHT_CODE_2));
+        assertEquals(forecast.getChanged(), flightManagerService.changeCancelledFlights().getChanged());
+    }
+
+    @Test
+    public void testSimulationCountsWaitingTickets() throws RemoteException {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_2, TestConstants.EMPTY_SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_2, TestConstants.FLIGHT_CODE_4, TestConstants.DESTINATION_2, TestConstants.TICKETS_5);
+        seatManagerService.assign(TestConstants.FLIGHT_CODE_4, TestConstants.PASSENGER_1, TestConstants.ROW_0, TestConstants.SEAT_1);
+        seatManagerService.assign(TestConstants.FLIGHT_CODE_4, TestConstants.PASSENGER_3, TestConstants.ROW_1, TestConstants.SEAT_1);
+        seatManagerService.assign(TestConstants.FLIGHT_CODE_4, TestConstants.PASSENGER_5, TestConstants.ROW_2, TestConstants.SEAT_1);
+        flightManagerService.cancelFlights(Collections.singletonList(TestConstants.FLIGHT_CODE_2));
+        assertEquals(0, flightManagerService.changeCancelledFlights().getChanged());
+
+        ReticketingForecast forecast = flightManagerService.simulateReticketing(
+                Collections.singletonList(TestConstants.FLIGHT_CODE_4));
+
+        assertEquals(0, forecast.getChanged());
+        Map<RowCategory, Integer> waiting = forecast.getUnchangedByDestination().get(TestConstants.DESTINATION_2);
+        assertEquals(2, waiting.get(RowCategory.BUSINESS));
+        assertEquals(1, waiting.get(RowCategory.PREMIUM_ECONOMY));
+        assertEquals(2, waiting.get(RowCategory.ECONOMY));
+    }
+}
@@ -3,7 +3,12 @@ package ar.edu.itba.pod.service;
 import ar.edu.itba.pod.assets.TestConstants;
 import ar.edu.itba.pod.models.AlternativeFlightResponse;
 import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.SeatOperation;
+import ar.edu.itba.pod.models.SeatOperationResult;
+import ar.edu.itba.pod.models.Ticket;
 import ar.edu.itba.pod.models.exceptions.flightExceptions.IllegalFlightStateException;
+import ar.edu.itba.pod.models.exceptions.notFoundExceptions.SeatHoldNotFoundException;
+import ar.edu.itba.pod.models.exceptions.seatExceptions.NoAvailableSeatsException;
 import ar.edu.itba.pod.models.exceptions.seatExceptions.SeatAlreadyTakenException;
 import ar.edu.itba.pod.server.utils.ServerStore;
 import ar.edu.itba.pod.server.service.FlightManagerServiceImpl;
@@ -11,6 +16,8 @@ import ar.edu.itba.pod.server.service.SeatManagerServiceImpl;
 import org.junit.Test;
 
 import java.rmi.RemoteException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -67,6 +74,132 @@ public class SeatManagerServiceImplTest {
         seatManagerService.assign(TestConstants.FLIGHT_CODE_3, TestConstants.PASSENGER_3, TestConstants.ROW_1, TestConstants.SEAT_1);
     }
 
+    @Test
+    public void testAssignAutoFirstFreeSeat() throws RemoteException {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        seatManagerService.assign(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_3, TestConstants.ROW_5, TestConstants.SEAT_1);
+
+        Ticket ticket = seatManagerService.assignAuto(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_4, Collections.emptyList());
+
+        assertEquals(TestConstants.ROW_5, ticket.getRow().intValue());
+        assertEquals(TestConstants.SEAT_2, ticket.getCol().charValue());
+        assertFalse(seatManagerService.isAvailable(TestConstants.FLIGHT_CODE_1, TestConstants.ROW_5, TestConstants.SEAT_2));
+    }
+
+    @Test
+    public void testAssignAutoFollowsPreferences() throws RemoteException {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.EMPTY_SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        seatManagerService.assignAuto(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_2, Collections.emptyList());
+
+        Ticket ticket = seatManagerService.assignAuto(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_1,
+                Arrays.asList(RowCategory.PREMIUM_ECONOMY, RowCategory.ECONOMY));
+
+        assertEquals(TestConstants.ROW_2, ticket.getRow().intValue());
+        assertEquals(RowCategory.BUSINESS, ticket.getCategory());
+    }
+
+    @Test(expected = NoAvailableSeatsException.class)
+    public void testAssignAutoWithNoAvailableSeats() throws RemoteException {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.EMPTY_SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        seatManagerService.assignAuto(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_3, Collections.emptyList());
+        seatManagerService.assignAuto(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_4, Collections.emptyList());
+    }
+
+    @Test
+    public void testAssignGroupAdjacentSeats() throws RemoteException {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        seatManagerService.assign(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_3, TestConstants.ROW_5, TestConstants.SEAT_2);
+
+        List<Ticket> tickets = seatManagerService.assignGroup(TestConstants.FLIGHT_CODE_1,
+                Arrays.asList(TestConstants.PASSENGER_4, TestConstants.PASSENGER_2));
+
+        assertEquals(TestConstants.ROW_5, tickets.get(0).getRow().intValue());
+        assertEquals('C', tickets.get(0).getCol().charValue());
+        assertEquals(TestConstants.ROW_5, tickets.get(1).getRow().intValue());
+        assertEquals('D', tickets.get(1).getCol().charValue());
+    }
+
+    @Test
+    public void testAssignGroupWithoutRoomSeatsNobody() throws RemoteException {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.EMPTY_SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+
+        assertThrows(NoAvailableSeatsException.class, () -> seatManagerService.assignGroup(TestConstants.FLIGHT_CODE_1,
+                Arrays.asList(TestConstants.PASSENGER_3, TestConstants.PASSENGER_4)));
+        assertTrue(seatManagerService.isAvailable(TestConstants.FLIGHT_CODE_1, TestConstants.ROW_2, TestConstants.SEAT_1));
+    }
+
+    @Test
+    public void testApplyBatchReportsEachOperation() throws RemoteException {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+
+        List<SeatOperationResult> results = seatManagerService.applyBatch(TestConstants.FLIGHT_CODE_1, Arrays.asList(
+                new SeatOperation(SeatOperation.Type.ASSIGN, TestConstants.PASSENGER_3, TestConstants.ROW_5, TestConstants.SEAT_1),
+                new SeatOperation(SeatOperation.Type.ASSIGN, TestConstants.PASSENGER_4, TestConstants.ROW_5, TestConstants.SEAT_1),
+                new SeatOperation(SeatOperation.Type.MOVE, TestConstants.PASSENGER_3, TestConstants.ROW_5, TestConstants.SEAT_2)));
+
+        assertTrue(results.get(0).isSuccessful());
+        assertFalse(results.get(1).isSuccessful());
+        assertEquals(TestConstants.SEAT_2, results.get(2).getTicket().getCol().charValue());
+        assertTrue(seatManagerService.isAvailable(TestConstants.FLIGHT_CODE_1, TestConstants.ROW_5, TestConstants.SEAT_1));
+    }
+
+    @Test
+    public void testBatchReportsErrorsWithoutMessage() throws RemoteException {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+
+        List<SeatOperationResult> results = seatManagerService.applyBatch(TestConstants.FLIGHT_CODE_1, Arrays.asList(
+                new SeatOperation(null, TestConstants.PASSENGER_3, TestConstants.ROW_5, TestConstants.SEAT_1),
+                new SeatOperation(SeatOperation.Type.ASSIGN, TestConstants.PASSENGER_3, TestConstants.ROW_5, TestConstants.SEAT_1)));
+
+        assertFalse(results.get(0).isSuccessful());
+        assertNotNull(results.get(0).getError());
+        assertTrue(results.get(1).isSuccessful());
+    }
+
+    @Test
+    public void testHeldSeatIsOnlyForItsHolder() throws RemoteException {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        int available = store.getPendingFlights().get(TestConstants.FLIGHT_CODE_1).getAvailableByCategory(RowCategory.ECONOMY);
+
+        seatManagerService.hold(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_3, TestConstants.ROW_5, TestConstants.SEAT_1, 60);
+
+        assertFalse(seatManagerService.isAvailable(TestConstants.FLIGHT_CODE_1, TestConstants.ROW_5, TestConstants.SEAT_1));
+        assertEquals(available - 1, store.getPendingFlights().get(TestConstants.FLIGHT_CODE_1).getAvailableByCategory(RowCategory.ECONOMY));
+        assertThrows(SeatAlreadyTakenException.class, () -> seatManagerService.assign(TestConstants.FLIGHT_CODE_1,
+                TestConstants.PASSENGER_4, TestConstants.ROW_5, TestConstants.SEAT_1));
+
+        Ticket ticket = seatManagerService.assignHeld(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_3);
+
+        assertEquals(TestConstants.ROW_5, ticket.getRow().intValue());
+        assertEquals(TestConstants.SEAT_1, ticket.getCol().charValue());
+        assertEquals(available - 1, store.getPendingFlights().get(TestConstants.FLIGHT_CODE_1).getAvailableByCategory(RowCategory.ECONOMY));
+        assertThrows(SeatHoldNotFoundException.class, () -> seatManagerService.releaseHold(TestConstants.FLIGHT_CODE_1,
+                TestConstants.PASSENGER_3));
+    }
+
+    @Test
+    public void testHeldSeatIsFreedOnExpiry() throws RemoteException, InterruptedException {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        seatManagerService.hold(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_3, TestConstants.ROW_5, TestConstants.SEAT_1, 1);
+
+        for (int i = 0; i < 50 && !seatManagerService.isAvailable(TestConstants.FLIGHT_CODE_1, TestConstants.ROW_5, TestConstants.SEAT_1); i++) {
+            Thread.sleep(100);
+        }
+
+        assertTrue(seatManagerService.isAvailable(TestConstants.FLIGHT_CODE_1, TestConstants.ROW_5, TestConstants.SEAT_1));
+        assertThrows(SeatHoldNotFoundException.class, () -> seatManagerService.assignHeld(TestConstants.FLIGHT_CODE_1,
+                TestConstants.PASSENGER_3));
+    }
+
     @Test
     public void testChangeSeatSuccessfully() throws RemoteException {
         flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
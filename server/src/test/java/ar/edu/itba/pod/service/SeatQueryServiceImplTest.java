@@ -1,8 +1,12 @@
 package ar.edu.itba.pod.service;
 
 import ar.edu.itba.pod.assets.TestConstants;
+import ar.edu.itba.pod.callbacks.SeatMapHandler;
+import ar.edu.itba.pod.models.FlightState;
 import ar.edu.itba.pod.models.ResponseRow;
 import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.SeatMapDelta;
+import ar.edu.itba.pod.models.SeatMapResult;
 import ar.edu.itba.pod.server.utils.ServerStore;
 import ar.edu.itba.pod.server.service.FlightManagerServiceImpl;
 import ar.edu.itba.pod.server.service.SeatManagerServiceImpl;
@@ -12,10 +16,18 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 
 import java.rmi.RemoteException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class SeatQueryServiceImplTest {
@@ -67,4 +79,84 @@ public class SeatQueryServiceImplTest {
 
         assertEquals('M', seatMapByRow.getPassengerInitials()[0]);
     }
+
+    @Test
+    public void testGetSeatMapChangesSinceVersion() throws RemoteException {
+        SeatMapDelta fullMap = seatQueryService.queryChanges(TestConstants.FLIGHT_CODE_2, -1);
+
+        assertTrue(fullMap.isFull());
+        assertEquals(TestConstants.ROWS_NUM_1, fullMap.getRows().size());
+
+        seatManagerService.assign(TestConstants.FLIGHT_CODE_2, TestConstants.PASSENGER_5, TestConstants.ROW_0, TestConstants.SEAT_2);
+        SeatMapDelta delta = seatQueryService.queryChanges(TestConstants.FLIGHT_CODE_2, fullMap.getVersion());
+
+        assertFalse(delta.isFull());
+        assertEquals(fullMap.getVersion() + 1, delta.getVersion());
+        assertEquals(1, delta.getRows().size());
+        assertEquals('S', delta.getRows().get(TestConstants.ROW_0).getPassengerInitials()[1]);
+
+        assertTrue(seatQueryService.queryChanges(TestConstants.FLIGHT_CODE_2, delta.getVersion()).getRows().isEmpty());
+    }
+
+    @Test
+    public void testFollowSeatMapPushesChanges() throws RemoteException, InterruptedException, ExecutionException, TimeoutException {
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_3, TestConstants.DESTINATION_2, TestConstants.TICKETS_6);
+        CompletableFuture<SeatMapDelta> pushed = new CompletableFuture<>();
+        CompletableFuture<FlightState> closed = new CompletableFuture<>();
+
+        SeatMapDelta initial = seatQueryService.followSeatMap(TestConstants.FLIGHT_CODE_3, new SeatMapHandler() {
+            @Override
+            public void notifySeatMapChanged(SeatMapDelta delta) {
+                pushed.complete(delta);
+            }
+
+            @Override
+            public void notifyFlightClosed(String flightCode, FlightState state) {
+                closed.complete(state);
+            }
+        });
+        assertTrue(initial.isFull());
+
+        seatManagerService.assign(TestConstants.FLIGHT_CODE_3, TestConstants.PASSENGER_7, TestConstants.ROW_1, TestConstants.SEAT_1);
+        SeatMapDelta delta = pushed.get(5, TimeUnit.SECONDS);
+
+        assertEquals(initial.getVersion(), delta.getSinceVersion());
+        assertEquals('M', delta.getRows().get(TestConstants.ROW_1).getPassengerInitials()[0]);
+
+        flightManagerService.confirmFlight(TestConstants.FLIGHT_CODE_3);
+        assertEquals(FlightState.CONFIRMED, closed.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testGetSeatMapOfConfirmedFlight() throws RemoteException {
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_4, TestConstants.DESTINATION_1, TestConstants.TICKETS_3);
+        seatManagerService.assign(TestConstants.FLIGHT_CODE_4, TestConstants.PASSENGER_2, TestConstants.ROW_3, TestConstants.SEAT_2);
+        flightManagerService.confirmFlight(TestConstants.FLIGHT_CODE_4);
+
+        assertTrue(store.getConfirmedFlights().get(TestConstants.FLIGHT_CODE_4).isFrozen());
+        assertEquals(TestConstants.ROW_3, store.getConfirmedFlights().get(TestConstants.FLIGHT_CODE_4).getTicket(TestConstants.PASSENGER_2).getRow());
+
+        ResponseRow row = seatQueryService.query(TestConstants.FLIGHT_CODE_4, TestConstants.ROW_3);
+        assertEquals(RowCategory.PREMIUM_ECONOMY, row.getRowCategory());
+        assertEquals("*A*", String.valueOf(row.getPassengerInitials()));
+        assertEquals(TestConstants.ROWS_NUM_1, seatQueryService.query(TestConstants.FLIGHT_CODE_4).size());
+    }
+
+    @Test
+    public void testQueryFlightsReportsEachFlight() throws RemoteException {
+        List<SeatMapResult> results = seatQueryService.queryFlights(Arrays.asList(
+                TestConstants.FLIGHT_CODE_2, TestConstants.FLIGHT_CODE_5, TestConstants.FLIGHT_CODE_1));
+
+        assertEquals(3, results.size());
+        assertEquals(TestConstants.FLIGHT_CODE_2, results.get(0).getFlightCode());
+        assertTrue(results.get(0).isSuccessful());
+        assertEquals(TestConstants.ROWS_NUM_1, results.get(0).getRows().size());
+        assertFalse(results.get(1).isSuccessful());
+        assertNull(results.get(1).getRows());
+        assertEquals(TestConstants.FLIGHT_CODE_1, results.get(2).getFlightCode());
+        assertEquals(seatQueryService.query(TestConstants.FLIGHT_CODE_1).stream().map(ResponseRow::getPassengerInitials)
+                        .map(String::valueOf).collect(Collectors.toList()),
+                results.get(2).getRows().stream().map(ResponseRow::getPassengerInitials).map(String::valueOf)
+                        .collect(Collectors.toList()));
+    }
 }
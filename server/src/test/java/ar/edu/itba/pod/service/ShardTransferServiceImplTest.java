@@ -0,0 +1,94 @@
+package ar.edu.itba.pod.service;
+
+import ar.edu.itba.pod.assets.TestConstants;
+import ar.edu.itba.pod.models.AlternativeFlightResponse;
+import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.ShardMap;
+import ar.edu.itba.pod.models.Ticket;
+import ar.edu.itba.pod.models.exceptions.flightExceptions.FlightNotOwnedException;
+import ar.edu.itba.pod.models.exceptions.flightExceptions.IllegalFlightStateException;
+import ar.edu.itba.pod.server.service.FlightManagerServiceImpl;
+import ar.edu.itba.pod.server.service.ShardTransferServiceImpl;
+import ar.edu.itba.pod.server.utils.ServerStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardTransferServiceImplTest {
+    private ServerStore sourceStore;
+    private ServerStore targetStore;
+    private FlightManagerServiceImpl sourceFlights;
+    private FlightManagerServiceImpl targetFlights;
+    private ShardTransferServiceImpl source;
+    private ShardTransferServiceImpl target;
+
+    @BeforeEach
+    public void setUp() throws RemoteException {
+        sourceStore = new ServerStore();
+        targetStore = new ServerStore();
+        sourceFlights = new FlightManagerServiceImpl(sourceStore);
+        targetFlights = new FlightManagerServiceImpl(targetStore);
+        source = new ShardTransferServiceImpl(sourceStore);
+        target = new ShardTransferServiceImpl(targetStore);
+
+        sourceFlights.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        targetFlights.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        sourceFlights.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1,
+                TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        targetFlights.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_3,
+                TestConstants.DESTINATION_1, new ArrayList<>());
+        sourceFlights.cancelFlight(TestConstants.FLIGHT_CODE_1);
+    }
+
+    @Test
+    public void testTransferTicketBetweenShards() throws RemoteException {
+        Ticket ticket = source.findTicket(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_1);
+        assertEquals(RowCategory.BUSINESS, ticket.getCategory());
+
+        List<AlternativeFlightResponse> flights = target.listFlightsTo(TestConstants.DESTINATION_1, ticket.getCategory());
+        assertEquals(1, flights.size());
+        assertEquals(TestConstants.FLIGHT_CODE_3, flights.get(0).getFlightCode());
+
+        target.admitTicket(TestConstants.FLIGHT_CODE_3, ticket);
+        source.releaseTicket(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_1, TestConstants.FLIGHT_CODE_3);
+        target.adoptHandlers(TestConstants.FLIGHT_CODE_3, TestConstants.PASSENGER_1, Collections.emptyList());
+
+        assertFalse(sourceStore.getFlight(TestConstants.FLIGHT_CODE_1).hasTicket(TestConstants.PASSENGER_1));
+        assertTrue(targetStore.getFlight(TestConstants.FLIGHT_CODE_3).hasTicket(TestConstants.PASSENGER_1));
+        assertEquals(3, sourceStore.getFlight(TestConstants.FLIGHT_CODE_1).getSortedTickets().size());
+    }
+
+    @Test
+    public void testRevokeAdmittedTicket() throws RemoteException {
+        Ticket ticket = source.findTicket(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_2);
+        target.admitTicket(TestConstants.FLIGHT_CODE_3, ticket);
+        target.revokeTicket(TestConstants.FLIGHT_CODE_3, TestConstants.PASSENGER_2);
+
+        assertFalse(targetStore.getFlight(TestConstants.FLIGHT_CODE_3).hasTicket(TestConstants.PASSENGER_2));
+        assertTrue(sourceStore.getFlight(TestConstants.FLIGHT_CODE_1).hasTicket(TestConstants.PASSENGER_2));
+    }
+
+    @Test
+    public void testAdmitOnCancelledFlightFails() throws RemoteException {
+        Ticket ticket = source.findTicket(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_3);
+        assertThrows(IllegalFlightStateException.class,
+                () -> source.admitTicket(TestConstants.FLIGHT_CODE_1, ticket));
+    }
+
+    @Test
+    public void testShardRejectsFlightsItDoesNotOwn() {
+        ShardMap shardMap = new ShardMap(2);
+        int owner = shardMap.shardOf(TestConstants.FLIGHT_CODE_2);
+        FlightManagerServiceImpl other = new FlightManagerServiceImpl(new ServerStore(shardMap, 1 - owner));
+
+        assertDoesNotThrow(() -> other.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES));
+        assertThrows(FlightNotOwnedException.class, () -> other.addFlight(TestConstants.PLANE_MODEL_STR_1,
+                TestConstants.FLIGHT_CODE_2, TestConstants.DESTINATION_2, TestConstants.TICKETS_2));
+    }
+}
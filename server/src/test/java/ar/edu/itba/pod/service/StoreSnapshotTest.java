@@ -0,0 +1,105 @@
+package ar.edu.itba.pod.service;
+
+import ar.edu.itba.pod.assets.TestConstants;
+import ar.edu.itba.pod.models.FlightState;
+import ar.edu.itba.pod.models.RowCategory;
+import ar.edu.itba.pod.models.Ticket;
+import ar.edu.itba.pod.models.exceptions.notFoundExceptions.FlightNotFoundException;
+import ar.edu.itba.pod.server.service.FlightManagerServiceImpl;
+import ar.edu.itba.pod.server.service.SeatManagerServiceImpl;
+import ar.edu.itba.pod.server.utils.ServerStore;
+import ar.edu.itba.pod.server.utils.StoreSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StoreSnapshotTest {
+    private static final int THREADS = 4;
+    private static final int PASSENGERS_PER_THREAD = 10;
+    private static final int SNAPSHOTS = 200;
+
+    private final ServerStore store = new ServerStore();
+    private final FlightManagerServiceImpl flightManagerService = new FlightManagerServiceImpl(store);
+    private final SeatManagerServiceImpl seatManagerService = new SeatManagerServiceImpl(store);
+
+    @Test
+    public void testSnapshotKeepsItsMoment() throws RemoteException {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, TestConstants.TICKETS_1);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_2, TestConstants.DESTINATION_2, TestConstants.TICKETS_2);
+        seatManagerService.assign(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_1, TestConstants.ROW_1, TestConstants.SEAT_1);
+
+        StoreSnapshot before = store.snapshot();
+        seatManagerService.assign(TestConstants.FLIGHT_CODE_1, TestConstants.PASSENGER_2, TestConstants.ROW_2, TestConstants.SEAT_1);
+        flightManagerService.cancelFlight(TestConstants.FLIGHT_CODE_1);
+        StoreSnapshot after = store.snapshot();
+
+        assertFalse(before.getFlight(TestConstants.FLIGHT_CODE_1).isAvailable(TestConstants.ROW_1, TestConstants.SEAT_1));
+        assertTrue(before.getFlight(TestConstants.FLIGHT_CODE_1).isAvailable(TestConstants.ROW_2, TestConstants.SEAT_1));
+        assertEquals(FlightState.PENDING, before.getFlight(TestConstants.FLIGHT_CODE_1).getState());
+        assertFalse(after.getFlight(TestConstants.FLIGHT_CODE_1).isAvailable(TestConstants.ROW_2, TestConstants.SEAT_1));
+        assertEquals(FlightState.CANCELED, after.getFlight(TestConstants.FLIGHT_CODE_1).getState());
+        assertEquals(TestConstants.ROW_2, after.getFlight(TestConstants.FLIGHT_CODE_1).getTicket(TestConstants.PASSENGER_2).getRow());
+
+        // The flight that did not change is not copied again
+        assertSame(before.getFlight(TestConstants.FLIGHT_CODE_2), after.getFlight(TestConstants.FLIGHT_CODE_2));
+        assertThrows(FlightNotFoundException.class, () -> after.getFlight(TestConstants.FLIGHT_CODE_3));
+    }
+
+    @Test
+    public void testSnapshotsSeeNoMoveHalfDone() throws Exception {
+        flightManagerService.addPlaneModel(TestConstants.PLANE_MODEL_STR_1, TestConstants.SEAT_CATEGORIES);
+        List<Ticket> tickets = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (int i = 0; i < PASSENGERS_PER_THREAD; i++)
+                tickets.add(new Ticket(RowCategory.ECONOMY, passenger(thread, i), TestConstants.DESTINATION_1));
+        }
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_1, TestConstants.DESTINATION_1, tickets);
+        flightManagerService.addFlight(TestConstants.PLANE_MODEL_STR_1, TestConstants.FLIGHT_CODE_2, TestConstants.DESTINATION_1, Collections.emptyList());
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int id = thread;
+            futures.add(executor.submit(() -> {
+                boolean onFirst = true;
+                while (running.get()) {
+                    for (int i = 0; i < PASSENGERS_PER_THREAD; i++) {
+                        seatManagerService.changeFlight(passenger(id, i),
+                                onFirst ? TestConstants.FLIGHT_CODE_1 : TestConstants.FLIGHT_CODE_2,
+                                onFirst ? TestConstants.FLIGHT_CODE_2 : TestConstants.FLIGHT_CODE_1);
+                    }
+                    onFirst = !onFirst;
+                }
+                return null;
+            }));
+        }
+
+        try {
+            for (int i = 0; i < SNAPSHOTS; i++) {
+                StoreSnapshot snapshot = store.snapshot();
+                assertEquals(tickets.size(), snapshot.getFlight(TestConstants.FLIGHT_CODE_1).getTicketCount() +
+                        snapshot.getFlight(TestConstants.FLIGHT_CODE_2).getTicketCount());
+            }
+        } finally {
+            running.set(false);
+            for (Future<?> future : futures)
+                future.get();
+            executor.shutdown();
+        }
+    }
+
+    private static String passenger(int thread, int i) {
+        return "Passenger " + thread + "-" + i;
+    }
+}
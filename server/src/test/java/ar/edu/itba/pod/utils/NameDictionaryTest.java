@@ -0,0 +1,71 @@
+package ar.edu.itba.pod.utils;
+
+import ar.edu.itba.pod.server.utils.NameDictionary;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NameDictionaryTest {
+
+    @Test
+    public void testIdsSurviveGrowth() {
+        NameDictionary names = new NameDictionary();
+        for (int i = 0; i < 10_000; i++)
+            assertEquals(i, names.idOf("Passenger " + i));
+
+        assertEquals(10_000, names.size());
+        for (int i = 0; i < 10_000; i++) {
+            String name = new String("Passenger " + i);
+            assertEquals(i, names.find(name));
+            assertEquals(i, names.idOf(name));
+            assertEquals(name, names.nameOf(i));
+        }
+        assertEquals(NameDictionary.NO_ID, names.find("Passenger 10000"));
+        assertEquals(10_000, names.size());
+    }
+
+    @Test
+    public void testCollidingHashesKeepTheirOwnIds() {
+        NameDictionary names = new NameDictionary();
+        // "Aa" and "BB" share their hash code
+        int first = names.idOf("AaAa");
+        int second = names.idOf("BBBB");
+
+        assertNotEquals(first, second);
+        assertEquals(first, names.find("AaAa"));
+        assertEquals(second, names.find("BBBB"));
+        assertEquals(NameDictionary.NO_ID, names.find("AaBB"));
+    }
+
+    @Test
+    public void testConcurrentRegistrationsAgree() throws Exception {
+        NameDictionary names = new NameDictionary();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    int[] ids = new int[5000];
+                    for (int i = 0; i < ids.length; i++)
+                        ids[i] = names.idOf("Passenger " + i);
+                    return ids;
+                }));
+            }
+
+            int[] expected = results.get(0).get();
+            for (Future<int[]> result : results)
+                assertArrayEquals(expected, result.get());
+            assertEquals(5000, names.size());
+            for (int i = 0; i < expected.length; i++)
+                assertEquals("Passenger " + i, names.nameOf(expected[i]));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}